@@ -0,0 +1,64 @@
+package org.codehaus.openxma.mojo.multirelease.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the comparison of two projects while sorting, which counts the distinct root projects of all dependency
+ * projects. The dependencies are resolved once, the benchmark compares neighbouring projects of the workspace in turn
+ * and sorts a copy of the resolved workspace.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DependencyMapperBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int size;
+
+	private DependencyMapper[] mappers;
+
+	private int index;
+
+	@Setup
+	public void resolveWorkspace() {
+		List<DependencyMapper> resolved = new DependencyResolver().getBuildOrder(new SyntheticWorkspace(size, 42)
+				.createMappers());
+		mappers = resolved.toArray(new DependencyMapper[resolved.size()]);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		index = (index + 1) % mappers.length;
+		return mappers[index].compareTo(mappers[(index + 1) % mappers.length]);
+	}
+
+	@Benchmark
+	public List<DependencyMapper> sort() {
+		List<DependencyMapper> copy = new ArrayList<DependencyMapper>(mappers.length);
+		for (int i = mappers.length - 1; i >= 0; i--) {
+			copy.add(mappers[i]);
+		}
+		Collections.sort(copy);
+		return copy;
+	}
+}
@@ -0,0 +1,54 @@
+package org.codehaus.openxma.mojo.multirelease.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the resolution of the build order, which compares the dependencies of every project with every other
+ * project and their modules. Each invocation starts with unresolved mappers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DependencyResolverBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int size;
+
+	private SyntheticWorkspace workspace;
+
+	private List<DependencyMapper> mappers;
+
+	@Setup(Level.Trial)
+	public void createWorkspace() {
+		workspace = new SyntheticWorkspace(size, 42);
+	}
+
+	@Setup(Level.Invocation)
+	public void createMappers() {
+		mappers = workspace.createMappers();
+	}
+
+	@Benchmark
+	public List<DependencyMapper> getBuildOrder() {
+		return new DependencyResolver().getBuildOrder(mappers);
+	}
+}
@@ -0,0 +1,63 @@
+package org.codehaus.openxma.mojo.multirelease.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.util.PropertyResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the lookup of the properties of a single project, which the plugin does for every project it releases.
+ * The <tt>multirelease.properties</tt> contains three properties per project of the workspace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyResolverBenchmark {
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int size;
+
+	private List<MavenProject> projects;
+
+	private int index;
+
+	@Setup
+	public void mergeProperties() throws IOException, MojoFailureException {
+		SyntheticWorkspace workspace = new SyntheticWorkspace(size, 42);
+		File file = File.createTempFile("multirelease", ".properties");
+		try {
+			workspace.writeProperties(file);
+			PropertyResolver.getInstance().mergeProperties(new Properties(), SyntheticWorkspace.createParent(), file);
+		} finally {
+			file.delete();
+		}
+		projects = workspace.getProjects();
+	}
+
+	@Benchmark
+	public Map<String, String> getProjectProperties() {
+		index = (index + 1) % projects.size();
+		MavenProject project = projects.get(index);
+		return PropertyResolver.getInstance().getProjectProperties(project.getGroupId(), project.getArtifactId());
+	}
+}
@@ -0,0 +1,156 @@
+package org.codehaus.openxma.mojo.multirelease.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Generates a reproducible workspace of interdependent projects in memory. Every fifth project is a multi-module
+ * project with two modules, its dependencies are declared in the dependency management like in real aggregators.
+ * Each project depends on up to {@link #MAX_DEPENDENCIES} earlier projects or their modules, so the graph is acyclic.
+ */
+public class SyntheticWorkspace {
+
+	/** Group ID of all generated projects. */
+	public static final String GROUP_ID = "org.example.workspace";
+
+	/** Maximum number of dependencies of a project on other projects of the workspace. */
+	public static final int MAX_DEPENDENCIES = 3;
+
+	private static final int MODULES = 2;
+
+	private final List<MavenProject> projects = new ArrayList<MavenProject>();
+
+	private final List<List<MavenProject>> modules = new ArrayList<List<MavenProject>>();
+
+	/**
+	 * @param size number of projects in the workspace.
+	 * @param seed seed of the random dependencies, the same seed generates the same workspace.
+	 */
+	public SyntheticWorkspace(int size, long seed) {
+		Random random = new Random(seed);
+		for (int i = 0; i < size; i++) {
+			MavenProject project = createProject("project-" + i, null);
+			List<MavenProject> projectModules = new ArrayList<MavenProject>();
+			if (i % 5 == 0) {
+				for (int j = 0; j < MODULES; j++) {
+					projectModules.add(createProject("project-" + i + "-module-" + j, project));
+				}
+			}
+			List<Dependency> dependencies = new ArrayList<Dependency>();
+			int count = i == 0 ? 0 : random.nextInt(Math.min(i, MAX_DEPENDENCIES) + 1);
+			for (int j = 0; j < count; j++) {
+				int target = random.nextInt(i);
+				List<MavenProject> targetModules = modules.get(target);
+				MavenProject dependency = targetModules.isEmpty() ? projects.get(target) : targetModules.get(random
+						.nextInt(targetModules.size()));
+				dependencies.add(createDependency(dependency));
+			}
+			if (projectModules.isEmpty()) {
+				project.getOriginalModel().setDependencies(dependencies);
+			} else {
+				DependencyManagement dependencyManagement = new DependencyManagement();
+				dependencyManagement.setDependencies(dependencies);
+				project.getModel().setDependencyManagement(dependencyManagement);
+			}
+			projects.add(project);
+			modules.add(projectModules);
+		}
+	}
+
+	/**
+	 * Creates new mappers of all projects without resolved dependencies, because resolving the build order modifies
+	 * the mappers.
+	 * @return the mappers in workspace order
+	 */
+	public List<DependencyMapper> createMappers() {
+		List<DependencyMapper> mappers = new ArrayList<DependencyMapper>();
+		for (int i = 0; i < projects.size(); i++) {
+			DependencyMapper mapper = new DependencyMapper(projects.get(i));
+			mapper.getChildProject().addAll(modules.get(i));
+			mappers.add(mapper);
+		}
+		return mappers;
+	}
+
+	/**
+	 * Gets the projects of the workspace without their modules.
+	 * @return the projects
+	 */
+	public List<MavenProject> getProjects() {
+		return projects;
+	}
+
+	/**
+	 * Writes a <tt>multirelease.properties</tt> with the typical properties of every project and a few properties
+	 * which apply to all projects.
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeProperties(File file) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("scmCommentPrefix", "[release] ");
+		properties.setProperty("pushChanges", "true");
+		for (MavenProject project : projects) {
+			String prefix = project.getGroupId() + "." + project.getArtifactId() + ".";
+			properties.setProperty(prefix + "tag", project.getArtifactId() + "-1.0.0");
+			properties.setProperty(prefix + "developmentVersion", "1.0.1-SNAPSHOT");
+			properties.setProperty(prefix + "releaseVersion", "1.0.0");
+		}
+		OutputStream outputStream = null;
+		try {
+			outputStream = new FileOutputStream(file);
+			properties.store(outputStream, null);
+		} finally {
+			if (outputStream != null) {
+				outputStream.close();
+			}
+		}
+	}
+
+	/**
+	 * Creates a project which is the parent of the workspace, it configures nothing.
+	 * @return the parent project
+	 */
+	public static MavenProject createParent() {
+		return createProject("workspace", null);
+	}
+
+	private static MavenProject createProject(String artifactId, MavenProject parent) {
+		Model model = new Model();
+		model.setGroupId(GROUP_ID);
+		model.setArtifactId(artifactId);
+		model.setVersion("1.0.0-SNAPSHOT");
+		model.setBuild(new Build());
+		MavenProject project = new MavenProject(model);
+		project.setOriginalModel(model.clone());
+		project.setArtifact(new DefaultArtifact(GROUP_ID, artifactId, "1.0.0-SNAPSHOT", "compile", "jar", null,
+				new DefaultArtifactHandler("jar")));
+		if (parent != null) {
+			project.setParent(parent);
+		}
+		return project;
+	}
+
+	private static Dependency createDependency(MavenProject project) {
+		Dependency dependency = new Dependency();
+		dependency.setGroupId(project.getGroupId());
+		dependency.setArtifactId(project.getArtifactId());
+		dependency.setVersion(project.getVersion());
+		return dependency;
+	}
+}
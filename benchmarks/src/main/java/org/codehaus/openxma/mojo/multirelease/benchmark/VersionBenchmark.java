@@ -0,0 +1,114 @@
+package org.codehaus.openxma.mojo.multirelease.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.codehaus.openxma.mojo.multirelease.pojo.Version;
+import org.codehaus.openxma.mojo.multirelease.pojo.VersionCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing and comparing versions, done for every dependency rewritten by the plugin. The versions are a
+ * mix of the formats found in a workspace, with and without minor, point and qualifier. <tt>valueOf</tt> takes the
+ * versions from the shared cache, <tt>parse</tt> parses them with a cache that never stores. The <tt>regex</tt>
+ * benchmarks measure the previous regular expression based implementation, the <tt>maven</tt> benchmarks Maven's
+ * <tt>ComparableVersion</tt> whose order the plugin follows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark {
+
+	private static final String[] QUALIFIERS = { "", "", "-SNAPSHOT", "-RC1", "-beta" };
+
+	@Param({ "10", "100", "1000", "10000" })
+	private int size;
+
+	private String[] values;
+
+	private Version[] versions;
+
+	private RegexVersion[] regexVersions;
+
+	private ComparableVersion[] mavenVersions;
+
+	private final VersionCache uncached = new VersionCache(0);
+
+	private int index;
+
+	@Setup
+	public void createVersions() {
+		Random random = new Random(42);
+		values = new String[size];
+		versions = new Version[size];
+		regexVersions = new RegexVersion[size];
+		mavenVersions = new ComparableVersion[size];
+		for (int i = 0; i < size; i++) {
+			StringBuilder value = new StringBuilder().append(random.nextInt(10));
+			int parts = random.nextInt(3);
+			for (int j = 0; j < parts; j++) {
+				value.append('.').append(random.nextInt(20));
+			}
+			values[i] = value.append(QUALIFIERS[random.nextInt(QUALIFIERS.length)]).toString();
+			versions[i] = Version.valueOf(values[i]);
+			regexVersions[i] = RegexVersion.valueOf(values[i]);
+			mavenVersions[i] = new ComparableVersion(values[i]);
+		}
+	}
+
+	@Benchmark
+	public Version valueOf() {
+		index = (index + 1) % values.length;
+		return Version.valueOf(values[index]);
+	}
+
+	@Benchmark
+	public Version parse() {
+		index = (index + 1) % values.length;
+		return uncached.get(values[index]);
+	}
+
+	@Benchmark
+	public int compareTo() {
+		index = (index + 1) % versions.length;
+		return versions[index].compareTo(versions[(index + 1) % versions.length]);
+	}
+
+	@Benchmark
+	public RegexVersion regexValueOf() {
+		index = (index + 1) % values.length;
+		return RegexVersion.valueOf(values[index]);
+	}
+
+	@Benchmark
+	public int regexCompareTo() {
+		index = (index + 1) % regexVersions.length;
+		return regexVersions[index].compareTo(regexVersions[(index + 1) % regexVersions.length]);
+	}
+
+	@Benchmark
+	public ComparableVersion mavenValueOf() {
+		index = (index + 1) % values.length;
+		return new ComparableVersion(values[index]);
+	}
+
+	@Benchmark
+	public int mavenCompareTo() {
+		index = (index + 1) % mavenVersions.length;
+		return mavenVersions[index].compareTo(mavenVersions[(index + 1) % mavenVersions.length]);
+	}
+}
@@ -0,0 +1,59 @@
+package org.codehaus.openxma.mojo.multirelease.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Lifetime of a child process from its start to its exit.
+ */
+@Name("org.codehaus.openxma.multirelease.ChildProcess")
+@Label("Child Process")
+@Category("Multirelease")
+@Description("Lifetime of a child process from its start to its exit.")
+public class ChildProcessEvent extends Event {
+
+	@Label("Command")
+	@Description("The executed command.")
+	private String command;
+
+	@Label("Exit Code")
+	@Description("Exit code of the process, -1 if it did not exit normally.")
+	private int exitCode;
+
+	@Label("Output")
+	@Description("Bytes written by the process to standard output and error.")
+	@DataAmount
+	private long outputBytes;
+
+	@Label("Build Failed")
+	@Description("Whether the output reported a build failure.")
+	private boolean buildFailed;
+
+	@Label("Cancelled")
+	@Description("Whether the process was killed by a cancellation.")
+	private boolean cancelled;
+
+	public void setCommand(String command) {
+		this.command = command;
+	}
+
+	public void setExitCode(int exitCode) {
+		this.exitCode = exitCode;
+	}
+
+	public void setOutputBytes(long outputBytes) {
+		this.outputBytes = outputBytes;
+	}
+
+	public void setBuildFailed(boolean buildFailed) {
+		this.buildFailed = buildFailed;
+	}
+
+	public void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+}
@@ -0,0 +1,33 @@
+package org.codehaus.openxma.mojo.multirelease.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Build of the dependency tree and the build order of the projects.
+ */
+@Name("org.codehaus.openxma.multirelease.DependencyTree")
+@Label("Dependency Tree")
+@Category("Multirelease")
+@Description("Build of the dependency tree and the build order of the projects.")
+public class DependencyTreeEvent extends Event {
+
+	@Label("Projects")
+	@Description("Number of projects in the tree.")
+	private int projects;
+
+	@Label("Dependencies")
+	@Description("Number of dependencies between the projects.")
+	private int dependencies;
+
+	public void setProjects(int projects) {
+		this.projects = projects;
+	}
+
+	public void setDependencies(int dependencies) {
+		this.dependencies = dependencies;
+	}
+}
@@ -0,0 +1,33 @@
+package org.codehaus.openxma.mojo.multirelease.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Read or write of a POM file.
+ */
+@Name("org.codehaus.openxma.multirelease.Pom")
+@Label("POM Access")
+@Category("Multirelease")
+@Description("Read or write of a POM file.")
+public class PomEvent extends Event {
+
+	@Label("Operation")
+	@Description("Either read or write.")
+	private String operation;
+
+	@Label("Path")
+	@Description("Path of the POM file.")
+	private String path;
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	public void setPath(String path) {
+		this.path = path;
+	}
+}
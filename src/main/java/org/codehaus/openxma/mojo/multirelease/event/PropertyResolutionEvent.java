@@ -0,0 +1,33 @@
+package org.codehaus.openxma.mojo.multirelease.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Merge of the plugin configuration, multirelease.properties and system properties.
+ */
+@Name("org.codehaus.openxma.multirelease.PropertyResolution")
+@Label("Property Resolution")
+@Category("Multirelease")
+@Description("Merge of the plugin configuration, multirelease.properties and system properties.")
+public class PropertyResolutionEvent extends Event {
+
+	@Label("Property File")
+	@Description("The multirelease.properties file, if any.")
+	private String propertyFile;
+
+	@Label("Properties")
+	@Description("Number of merged properties.")
+	private int properties;
+
+	public void setPropertyFile(String propertyFile) {
+		this.propertyFile = propertyFile;
+	}
+
+	public void setProperties(int properties) {
+		this.properties = properties;
+	}
+}
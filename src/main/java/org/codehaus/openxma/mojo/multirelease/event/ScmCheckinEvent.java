@@ -0,0 +1,49 @@
+package org.codehaus.openxma.mojo.multirelease.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Check-in of modified files into the SCM.
+ */
+@Name("org.codehaus.openxma.multirelease.ScmCheckin")
+@Label("SCM Check-in")
+@Category("Multirelease")
+@Description("Check-in of modified files into the SCM.")
+public class ScmCheckinEvent extends Event {
+
+	@Label("URL")
+	@Description("SCM URL of the project.")
+	private String url;
+
+	@Label("Directory")
+	@Description("Working copy which is checked in.")
+	private String directory;
+
+	@Label("Success")
+	@Description("Whether the check-in succeeded.")
+	private boolean success;
+
+	@Label("Files")
+	@Description("Number of checked in files.")
+	private int files;
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+	public void setSuccess(boolean success) {
+		this.success = success;
+	}
+
+	public void setFiles(int files) {
+		this.files = files;
+	}
+}
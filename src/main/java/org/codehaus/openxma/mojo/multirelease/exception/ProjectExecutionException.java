@@ -0,0 +1,35 @@
+package org.codehaus.openxma.mojo.multirelease.exception;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Checked Exception thrown if the execution of a project failed while projects are scheduled. The cause is the
+ * exception thrown by the project.
+ */
+public class ProjectExecutionException extends Exception {
+
+	/**
+	 * Serial Version UID
+	 */
+	private static final long serialVersionUID = 2394578239075623146L;
+
+	private final transient DependencyMapper project;
+
+	public ProjectExecutionException(final DependencyMapper project, final Throwable cause) {
+		super("Execution of " + project + " failed", cause);
+		this.project = project;
+	}
+
+	public ProjectExecutionException(final String message, final Throwable cause) {
+		super(message, cause);
+		this.project = null;
+	}
+
+	/**
+	 * Gets the project whose execution failed.
+	 * @return the failed project, <code>null</code> if the scheduling itself failed.
+	 */
+	public DependencyMapper getProject() {
+		return project;
+	}
+}
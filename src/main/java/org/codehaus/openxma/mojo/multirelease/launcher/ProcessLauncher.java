@@ -1,12 +1,16 @@
 package org.codehaus.openxma.mojo.multirelease.launcher;
 
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.maven.shared.invoker.PrintStreamLogger;
+import org.codehaus.openxma.mojo.multirelease.event.ChildProcessEvent;
 import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
 
 
@@ -22,6 +26,22 @@ public class ProcessLauncher {
 	/** Instance logger */
 	private final static PrintStreamLogger log = new PrintStreamLogger();
 
+	/**
+	 * Time the processes of a cancelled launcher get to exit before they are killed forcibly.
+	 */
+	private static final long KILL_GRACE_PERIOD = 10000;
+
+	/**
+	 * The process currently executed, <code>null</code> if none.
+	 */
+	private Process process;
+
+	private boolean cancelled;
+
+	private long processCount;
+
+	private long outputBytes;
+
 	/**
 	 * Execute process depending on the underlying OS.
 	 * @param command Command to be executed.
@@ -29,42 +49,178 @@ public class ProcessLauncher {
 	 * @throws ProcessException Exception thrown if a Build error is encounterd.
 	 */
 	public void executeProcess(String command) throws IOException, ProcessException {
+		executeProcess(command, null);
+	}
+
+	/**
+	 * Execute process depending on the underlying OS and pass its output to a listener.
+	 * @param command Command to be executed.
+	 * @param listener listener receiving the lines of output, may be <code>null</code>.
+	 * @throws IOException
+	 * @throws ProcessException Exception thrown if a Build error is encounterd.
+	 */
+	public void executeProcess(String command, OutputListener listener) throws IOException, ProcessException {
+		executeProcess(command, null, listener);
+	}
+
+	/**
+	 * Execute process depending on the underlying OS and pass its output to a listener. The output is written to the
+	 * console with a prefix, so the output of processes running at the same time can be told apart.
+	 * @param command Command to be executed.
+	 * @param prefix prefix of every line of output on the console, e.g. the project, may be <code>null</code>.
+	 * @param listener listener receiving the lines of output, may be <code>null</code>.
+	 * @throws IOException
+	 * @throws ProcessException Exception thrown if a Build error is encounterd.
+	 */
+	public void executeProcess(String command, String prefix, OutputListener listener) throws IOException,
+			ProcessException {
 		List<String> commandList = new ArrayList<String>();
 		if (isUnix()) {
+			// The shell is replaced by the command, so destroying the process kills the command itself.
 			commandList.add("/bin/bash");
 			commandList.add("-c");
-			commandList.add(command);
+			commandList.add("exec " + command);
 		}
 		else if (isWindows()) {
 			commandList.add("cmd");
 			commandList.add("/c");
 			commandList.add(command);
 		}
-		executeCommand(commandList);
+		executeCommand(commandList, command, prefix, listener);
+	}
+
+	/**
+	 * Cancels the launcher. The running process is killed with the processes it started, e.g. the builds forked by the
+	 * release plugin, and no further processes are started until the launcher is {@link #reset()}. They fail with a
+	 * {@link ProcessException} instead.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (process != null) {
+			log.info("Killing process.");
+			kill(process);
+		}
+	}
+
+	/**
+	 * Resets a cancelled launcher, so it starts processes again.
+	 */
+	public synchronized void reset() {
+		cancelled = false;
+	}
+
+	/**
+	 * Kills a process and its descendants. The descendants are collected first, once their parent is gone they are no
+	 * longer its descendants. Processes still alive after the grace period are killed forcibly.
+	 */
+	private void kill(Process process) {
+		final List<ProcessHandle> processHandles = new ArrayList<ProcessHandle>();
+		Iterator<ProcessHandle> descendants = process.toHandle().descendants().iterator();
+		while (descendants.hasNext()) {
+			processHandles.add(descendants.next());
+		}
+		processHandles.add(process.toHandle());
+		for (ProcessHandle processHandle : processHandles) {
+			processHandle.destroy();
+		}
+		Thread killer = new Thread(new Runnable() {
+
+			public void run() {
+				long deadline = System.currentTimeMillis() + KILL_GRACE_PERIOD;
+				try {
+					for (ProcessHandle processHandle : processHandles) {
+						long remaining = deadline - System.currentTimeMillis();
+						while (processHandle.isAlive() && remaining > 0) {
+							Thread.sleep(Math.min(remaining, 100));
+							remaining = deadline - System.currentTimeMillis();
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (ProcessHandle processHandle : processHandles) {
+					if (processHandle.isAlive()) {
+						log.warn("Killing process " + processHandle.pid() + " forcibly.");
+						processHandle.destroyForcibly();
+					}
+				}
+			}
+		}, "multirelease-kill");
+		killer.start();
 	}
 
-	private void executeCommand(List<String> command) throws IOException, ProcessException {
+	/**
+	 * Checks if the launcher was cancelled.
+	 * @return true, if cancelled
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	private void executeCommand(List<String> command, String originalCommand, String prefix,
+			OutputListener listener) throws IOException, ProcessException {
 		InputStreamReader inputStreamReader = null;
 		BufferedReader inputReader = null;
+		ChildProcessEvent event = new ChildProcessEvent();
+		event.setCommand(originalCommand);
+		event.setExitCode(-1);
+		event.begin();
+		CountingInputStream inputStream = null;
+		boolean buildFailed = false;
+		int exitCode = -1;
 		try {
 			log.info("Executing process with command " + command);
 			ProcessBuilder builder = new ProcessBuilder(command);
 			builder.redirectErrorStream(true);
-			Process process = builder.start();
-			inputStreamReader = new InputStreamReader(process.getInputStream());
+			Process process = start(builder);
+			inputStream = new CountingInputStream(process.getInputStream());
+			inputStreamReader = new InputStreamReader(inputStream);
 			inputReader = new BufferedReader(inputStreamReader);
 			String line = "";
-			boolean buildFailed = false;
-			while ((line = inputReader.readLine()) != null) {
-				if (line.contains("BUILD FAILURE")) {
-					buildFailed = true;
+			try {
+				while ((line = inputReader.readLine()) != null) {
+					if (line.contains("BUILD FAILURE")) {
+						buildFailed = true;
+					}
+					if (listener != null) {
+						listener.onLine(line);
+					}
+					System.out.println(prefix != null ? prefix + line : line);
 				}
-				System.out.println(line);
+				exitCode = process.waitFor();
+				event.setExitCode(exitCode);
+			} catch (IOException e) {
+				if (!isCancelled()) {
+					throw e;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ProcessException("Interrupted while waiting for the process", e);
+			}
+			if (isCancelled()) {
+				throw new ProcessException("Process was cancelled");
 			}
 			if (buildFailed) {
 				throw new ProcessException();
 			}
+			if (exitCode != 0) {
+				throw new ProcessException("Process exited with status " + exitCode);
+			}
 		} finally {
+			synchronized (this) {
+				this.process = null;
+				if (inputStream != null) {
+					processCount++;
+					outputBytes += inputStream.getCount();
+				}
+			}
+			event.end();
+			if (event.shouldCommit()) {
+				event.setOutputBytes(inputStream == null ? 0 : inputStream.getCount());
+				event.setBuildFailed(buildFailed);
+				event.setCancelled(isCancelled());
+				event.commit();
+			}
 			try {
 				if (inputStreamReader != null) {
 					inputStreamReader.close();
@@ -78,6 +234,30 @@ public class ProcessLauncher {
 		}
 	}
 
+	/**
+	 * Gets the number of processes started by this launcher.
+	 * @return the number of processes
+	 */
+	public synchronized long getProcessCount() {
+		return processCount;
+	}
+
+	/**
+	 * Gets the bytes of output written by all processes of this launcher.
+	 * @return the bytes of output
+	 */
+	public synchronized long getOutputBytes() {
+		return outputBytes;
+	}
+
+	private synchronized Process start(ProcessBuilder builder) throws IOException, ProcessException {
+		if (cancelled) {
+			throw new ProcessException("Process was cancelled");
+		}
+		process = builder.start();
+		return process;
+	}
+
 	private boolean isUnix() {
 		return (OS.indexOf("nix") >= 0 || OS.indexOf("nux") >= 0 || OS.indexOf("aix") > 0);
 	}
@@ -85,4 +265,50 @@ public class ProcessLauncher {
 	private boolean isWindows() {
 		return (OS.indexOf("win") >= 0);
 	}
+
+	/**
+	 * Receives the output of a process line by line while it runs.
+	 */
+	public interface OutputListener {
+
+		/**
+		 * Called for every line of output.
+		 * @param line the line
+		 */
+		void onLine(String line);
+	}
+
+	/**
+	 * Counts the bytes read from the output of the process.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
 }
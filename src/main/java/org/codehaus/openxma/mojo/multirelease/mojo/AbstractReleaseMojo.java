@@ -4,23 +4,57 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
-import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.scm.ScmException;
+import org.codehaus.openxma.mojo.multirelease.event.PomEvent;
+import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.exception.ProjectExecutionException;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan;
+import org.codehaus.openxma.mojo.multirelease.pojo.Version;
+import org.codehaus.openxma.mojo.multirelease.progress.ProgressEvent;
+import org.codehaus.openxma.mojo.multirelease.progress.ProgressListener;
+import org.codehaus.openxma.mojo.multirelease.progress.ProgressServer;
+import org.codehaus.openxma.mojo.multirelease.report.OpenMetricsExporter;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseReport;
+import org.codehaus.openxma.mojo.multirelease.report.TimelineReport;
+import org.codehaus.openxma.mojo.multirelease.repository.DependencyPrewarmer;
+import org.codehaus.openxma.mojo.multirelease.repository.WorkerRepositoryLayout;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.scheduler.CpuBudget;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.CancelHandler;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.FailurePolicy;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.ProjectTask;
 import org.codehaus.openxma.mojo.multirelease.scm.CustomScmManager;
 import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
 import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.codehaus.openxma.mojo.multirelease.util.GraphSnapshot;
+import org.codehaus.openxma.mojo.multirelease.util.MavenReleasePluginExecutor;
+import org.codehaus.openxma.mojo.multirelease.util.ModelPropertyResolver;
 import org.codehaus.openxma.mojo.multirelease.util.PropertyResolver;
+import org.codehaus.openxma.mojo.multirelease.util.ReactorIndex;
+import org.codehaus.openxma.mojo.multirelease.util.VersionReference;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 public abstract class AbstractReleaseMojo extends AbstractMojo {
 
@@ -33,30 +67,173 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 	/**
 	 * The project currently built.
 	 */
-	@Component
+	@Parameter(defaultValue = "${project}", readonly = true, required = true)
 	private MavenProject parentProject;
 
 	/**
 	 * 
 	 */
-	@Component
+	@Parameter(defaultValue = "${session}", readonly = true, required = true)
 	private MavenSession mavenSession;
 
+	/**
+	 * The execution of this goal.
+	 */
+	@Parameter(defaultValue = "${mojoExecution}", readonly = true)
+	private MojoExecution mojoExecution;
+
 	@Parameter(property = propertyFileKey)
 	private String propertyFile;
 
 	@Parameter(property = RELEASE_PROPERTY_KEY)
 	private String releaseProperties;
 
+	/**
+	 * Resolve the external dependencies and plugins of all reactor projects into the local repository before the
+	 * child builds are started, so the child builds can run offline.
+	 */
+	@Parameter(defaultValue = "false", property = PREWARM_KEY)
+	private boolean prewarm;
+
+	/**
+	 * Number of threads used to pre-warm the local repository. Defaults to the number of available processors.
+	 */
+	@Parameter(defaultValue = "0", property = PREWARM_THREADS_KEY)
+	private int prewarmThreads;
+
+	/**
+	 * Number of projects built at the same time. A project is started as soon as all projects it depends on are
+	 * finished.
+	 */
+	@Parameter(defaultValue = "1", property = THREADS_KEY)
+	private int threads;
+
+	/**
+	 * Local repository layout of the child builds. <tt>shared</tt> builds all projects against the local repository
+	 * of the current build. <tt>isolated</tt> gives every worker its own overlay repository linked to the shared one,
+	 * which avoids concurrent builds writing into the same local repository. It needs hard links from the local
+	 * repository into the work directory, without them the <tt>shared</tt> layout is used.
+	 */
+	@Parameter(defaultValue = LAYOUT_SHARED, property = REPOSITORY_LAYOUT_KEY)
+	private String repositoryLayout;
+
+	/**
+	 * Number of processor cores shared by the builds running at the same time. Every build gets a share of the cores
+	 * as <tt>-T</tt>, depending on the number of running builds and on the speedup the project showed with more
+	 * threads in previous runs, and runs surefire with <tt>forkCount</tt> 1, so each of its threads forks at most one
+	 * test JVM. 0 leaves the threads of the builds to Maven.
+	 */
+	@Parameter(defaultValue = "0", property = CORES_KEY)
+	private int cores;
+
+	/**
+	 * What happens when a project fails while others are running. <tt>cancel</tt> kills the running child builds,
+	 * <tt>drain</tt> lets them finish and <tt>continue</tt> also starts all projects which do not depend on the failed
+	 * project. In all cases the goal fails at the end, the release can be resumed afterwards.
+	 */
+	@Parameter(defaultValue = "drain", property = FAILURE_POLICY_KEY)
+	private String failurePolicy;
+
+	/**
+	 * File into which the metrics of the execution are exported in the OpenMetrics text format, e.g. in the directory
+	 * of the textfile collector of the node exporter. The file is updated after every project. Defaults to
+	 * <tt>multirelease.prom</tt> in the work directory of the plugin.
+	 */
+	@Parameter(property = METRICS_FILE_KEY)
+	private File metricsFile;
+
+	/**
+	 * Injects an event spy into the child builds which reports their modules, mojos, tests and deployed artifacts to
+	 * the plugin. The progress is logged and added to the metrics of the execution. Disabled by default.
+	 */
+	@Parameter(defaultValue = "false", property = PROGRESS_KEY)
+	private boolean progress;
+
+	/**
+	 * Release plan written by the <tt>plan</tt> goal as <tt>plan.properties</tt>. The build order is taken from the
+	 * plan instead of resolving the dependency graph and the planned next development versions override the
+	 * configured ones. The goal fails if a POM changed since the plan was computed.
+	 */
+	@Parameter(property = PLAN_KEY)
+	private File plan;
+
+	/**
+	 * Keep a snapshot of the resolved dependency graph in the work directory. Later executions restore the
+	 * dependencies between projects whose POMs did not change from the snapshot and only resolve the changed ones.
+	 */
+	@Parameter(defaultValue = "true", property = GRAPH_CACHE_KEY)
+	private boolean graphCache;
+
+	/**
+	 * Child builds can run offline because the local repository was pre-warmed.
+	 */
+	private boolean offline;
+
+	/**
+	 * Executor of each worker.
+	 */
+	private final Map<Integer, MavenReleasePluginExecutor> executors =
+			new ConcurrentHashMap<Integer, MavenReleasePluginExecutor>();
+
+	private WorkerRepositoryLayout workerRepositoryLayout;
+
+	private BuildHistory buildHistory;
+
+	private final ReleaseMetrics releaseMetrics = new ReleaseMetrics();
+
+	private OpenMetricsExporter metricsExporter;
+
+	/**
+	 * Hits and misses of the version cache before this execution, the cache lives as long as the plugin is loaded.
+	 */
+	private final long versionCacheHits = Version.getCache().getHits();
+
+	private final long versionCacheMisses = Version.getCache().getMisses();
+
+	/**
+	 * Properties of the release plan, <code>null</code> if no plan is used.
+	 */
+	private Properties planProperties;
+
 	private final static String RELEASE_PROPERTIES = "release.properties";
 
-	protected final Pattern propertyTagPattern = Pattern.compile("\\$\\{(.*)\\}");
+	/**
+	 * Resolves the properties of the POMs, shared by all workers.
+	 */
+	protected final ModelPropertyResolver modelPropertyResolver = new ModelPropertyResolver();
+
+	private ReactorIndex reactorIndex;
 
 	private final static String propertyFileKey = "property-location";
 
 	private final static String RELEASE_PROPERTY_KEY = "release-property-location";
 
+	private final static String PREWARM_KEY = "prewarm";
+
+	private final static String PREWARM_THREADS_KEY = "prewarmThreads";
+
+	private final static String THREADS_KEY = "threads";
+
+	private final static String REPOSITORY_LAYOUT_KEY = "repositoryLayout";
+
+	private final static String CORES_KEY = "cores";
+
+	private final static String FAILURE_POLICY_KEY = "failurePolicy";
+
+	private final static String METRICS_FILE_KEY = "metricsFile";
+
+	private final static String PROGRESS_KEY = "progress";
+
+	private final static String PLAN_KEY = "plan";
+
+	private final static String GRAPH_CACHE_KEY = "graphCache";
+
+	private final static String LAYOUT_SHARED = "shared";
+
+	private final static String LAYOUT_ISOLATED = "isolated";
+
 	public void execute() throws MojoExecutionException, MojoFailureException {
+		long start = System.currentTimeMillis();
 		File file = null;
 		if (propertyFile != null) {
 			String path = (String) mavenSession.getExecutionProperties().get(propertyFileKey);
@@ -74,18 +251,505 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 		}
 
 		PropertyResolver.getInstance().mergeProperties(mavenSession.getExecutionProperties(), parentProject, file);
+		Map<String, String> properties = PropertyResolver.getInstance().getMergedProperties();
+		if (properties.get(PLAN_KEY) != null) {
+			plan = new File(properties.get(PLAN_KEY).trim());
+		}
+		if (plan != null) {
+			getLog().info("Using release plan " + plan);
+			planProperties = PropertyResolver.getInstance().mergePlan(plan);
+		}
+		if (properties.get(GRAPH_CACHE_KEY) != null) {
+			graphCache = Boolean.valueOf(properties.get(GRAPH_CACHE_KEY).trim());
+		}
+		if (properties.get(PREWARM_KEY) != null) {
+			prewarm = Boolean.valueOf(properties.get(PREWARM_KEY));
+		}
+		if (properties.get(PREWARM_THREADS_KEY) != null) {
+			prewarmThreads = getIntProperty(properties, PREWARM_THREADS_KEY);
+		}
+		if (properties.get(THREADS_KEY) != null) {
+			threads = getIntProperty(properties, THREADS_KEY);
+		}
+		if (properties.get(CORES_KEY) != null) {
+			cores = getIntProperty(properties, CORES_KEY);
+		}
+		if (properties.get(REPOSITORY_LAYOUT_KEY) != null) {
+			repositoryLayout = properties.get(REPOSITORY_LAYOUT_KEY).trim();
+		}
+		if (!LAYOUT_SHARED.equals(repositoryLayout) && !LAYOUT_ISOLATED.equals(repositoryLayout)) {
+			throw new MojoExecutionException("Invalid repository layout " + repositoryLayout + ", supported are "
+					+ LAYOUT_SHARED + " and " + LAYOUT_ISOLATED);
+		}
+		if (properties.get(METRICS_FILE_KEY) != null) {
+			metricsFile = new File(properties.get(METRICS_FILE_KEY).trim());
+		}
+		if (properties.get(PROGRESS_KEY) != null) {
+			progress = Boolean.valueOf(properties.get(PROGRESS_KEY).trim());
+		}
+		if (properties.get(FAILURE_POLICY_KEY) != null) {
+			failurePolicy = properties.get(FAILURE_POLICY_KEY).trim();
+		}
+		if (getFailurePolicy() == null) {
+			throw new MojoExecutionException("Invalid failure policy " + failurePolicy
+					+ ", supported are cancel, drain and continue");
+		}
+		releaseMetrics.record(ReleaseMetrics.PROPERTY_MERGE, start);
+	}
+
+	/**
+	 * Gets a merged property which must be a number.
+	 * @param properties the merged properties
+	 * @param key the key of the property
+	 * @return the number
+	 * @throws MojoExecutionException if the property is not a number.
+	 */
+	private int getIntProperty(Map<String, String> properties, String key) throws MojoExecutionException {
+		String value = properties.get(key).trim();
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new MojoExecutionException("Invalid value " + value + " of " + key + ", a number is expected", e);
+		}
+	}
+
+	/**
+	 * Executes the task for all projects on the configured number of workers. A project is started when all projects
+	 * it depends on are finished, the ready project with the longest remaining path according to the durations of
+	 * previous runs is started first.
+	 * @param projects the projects in build order.
+	 * @param phases the phases executed for each project, used to estimate its duration.
+	 * @param task the task executed for each project, it should use the executor of its worker.
+	 * @throws ProjectExecutionException if the task failed for a project.
+	 */
+	protected void executeProjects(List<DependencyMapper> projects, String[] phases, final ProjectTask task)
+			throws ProjectExecutionException {
+		if (LAYOUT_ISOLATED.equals(repositoryLayout) && workerRepositoryLayout == null) {
+			WorkerRepositoryLayout isolatedLayout = new WorkerRepositoryLayout(new File(mavenSession
+					.getLocalRepository().getBasedir()), new File(getWorkDirectory(), "workers"));
+			try {
+				isolatedLayout.checkLinks();
+				workerRepositoryLayout = isolatedLayout;
+			} catch (IOException e) {
+				getLog().warn(e.getMessage() + ", the shared repository layout is used.");
+				repositoryLayout = LAYOUT_SHARED;
+			}
+		}
+		final WorkerRepositoryLayout layout = workerRepositoryLayout;
+		final BuildHistory history = getBuildHistory();
+		ReleaseScheduler scheduler = new ReleaseScheduler(projects, threads);
+		Map<DependencyMapper, Long> durations = new HashMap<DependencyMapper, Long>();
+		for (DependencyMapper dependencyMapper : projects) {
+			long duration = history.getDuration(BuildHistory.getKey(dependencyMapper), phases);
+			if (duration >= 0) {
+				durations.put(dependencyMapper, Long.valueOf(duration));
+			}
+		}
+		scheduler.setEstimatedDurations(durations);
+		for (DependencyMapper dependencyMapper : projects) {
+			releaseMetrics.addProject(BuildHistory.getKey(dependencyMapper));
+		}
+		final CpuBudget cpuBudget = cores > 0 ? new CpuBudget(cores, history) : null;
+		scheduler.setCpuBudget(cpuBudget);
+		scheduler.setFailurePolicy(getFailurePolicy());
+		// Cancelled projects did not fail on their own, they are not recorded as failures in the history.
+		final Set<DependencyMapper> cancelledProjects = Collections.synchronizedSet(new HashSet<DependencyMapper>());
+		scheduler.setCancelHandler(new CancelHandler() {
+
+			public void cancel(DependencyMapper dependencyMapper, int worker) {
+				cancelledProjects.add(dependencyMapper);
+				getExecutor(worker).cancel();
+			}
+		});
+		final ProgressServer progressServer = startProgressServer();
+		long executionStart = System.currentTimeMillis();
+		try {
+			scheduler.execute(new ProjectTask() {
+
+				public void execute(DependencyMapper dependencyMapper, int worker) throws Exception {
+					if (layout != null) {
+						layout.prepare(worker, dependencyMapper);
+					}
+					int buildThreads = cpuBudget != null ? cpuBudget.getThreads(worker) : 0;
+					// A project cancelled before on this worker left the executor cancelled.
+					getExecutor(worker).reset();
+					getExecutor(worker).setBuildThreads(buildThreads);
+					getExecutor(worker).setProgressPort(progressServer != null ? progressServer.getPort() : 0);
+					String key = BuildHistory.getKey(dependencyMapper);
+					releaseMetrics.increment(key, ReleaseMetrics.RETRIES, history.getFailures(key));
+					long start = System.currentTimeMillis();
+					boolean success = false;
+					try {
+						task.execute(dependencyMapper, worker);
+						success = true;
+					} catch (Exception e) {
+						if (!cancelledProjects.contains(dependencyMapper)) {
+							history.recordResult(key, false);
+						}
+						throw e;
+					} finally {
+						// The metrics are exported while the run goes on, so they contain the result of the project.
+						releaseMetrics.setStatus(key, success ? ReleaseMetrics.FINISHED : ReleaseMetrics.FAILED);
+						releaseMetrics.setExecution(key, start, System.currentTimeMillis());
+						exportMetrics();
+					}
+					history.recordResult(key, true);
+					if (buildThreads > 0) {
+						history.recordBuild(key, buildThreads,
+								System.currentTimeMillis() - start);
+					}
+					if (layout != null) {
+						layout.publish(worker, dependencyMapper);
+					}
+				}
+			});
+		} finally {
+			if (progressServer != null) {
+				progressServer.close();
+			}
+			releaseMetrics.record(ReleaseMetrics.EXECUTION, executionStart);
+			recordStatus(scheduler.getFinishedProjects(), ReleaseMetrics.FINISHED);
+			recordStatus(scheduler.getFailedProjects(), ReleaseMetrics.FAILED);
+			recordStatus(scheduler.getSkippedProjects(), ReleaseMetrics.SKIPPED);
+			for (Map.Entry<DependencyMapper, long[]> timing : scheduler.getTimings().entrySet()) {
+				releaseMetrics.setExecution(BuildHistory.getKey(timing.getKey()), timing.getValue()[0],
+						timing.getValue()[1]);
+			}
+			for (Map.Entry<DependencyMapper, Set<DependencyMapper>> upstream : scheduler.getUpstreamProjects()
+					.entrySet()) {
+				releaseMetrics.setUpstreamProjects(BuildHistory.getKey(upstream.getKey()),
+						getKeys(upstream.getValue()));
+			}
+			releaseMetrics.setCriticalPath(getKeys(scheduler.getExecutedCriticalPath().getPath()));
+			try {
+				history.store();
+			} catch (IOException e) {
+				getLog().warn("Build history could not be written.", e);
+			}
+		}
+	}
+
+	/**
+	 * Starts the server receiving the progress of the child builds, if enabled. A server which can not be started is
+	 * not fatal, the child builds then run without progress.
+	 * @return the server, <code>null</code> if not started.
+	 */
+	private ProgressServer startProgressServer() {
+		if (!progress) {
+			return null;
+		}
+		try {
+			return new ProgressServer(new ProgressListener() {
+
+				public void onEvent(ProgressEvent event) {
+					recordProgress(event);
+				}
+			});
+		} catch (IOException e) {
+			getLog().warn("Progress of the child builds can not be received.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Logs an event of a child build and adds it to the metrics of its project.
+	 * @param event the event
+	 */
+	private void recordProgress(ProgressEvent event) {
+		String project = event.get(ProgressEvent.PROJECT);
+		if (project == null) {
+			return;
+		}
+		String module = event.get(ProgressEvent.MODULE);
+		if (ProgressEvent.MOJO_STARTED.equals(event.getType())) {
+			getLog().debug("[" + project + "] " + module + " " + event.get(ProgressEvent.MOJO));
+		} else if (ProgressEvent.MOJO_FINISHED.equals(event.getType())) {
+			releaseMetrics.recordMojo(project, event.get(ProgressEvent.MOJO), event.getLong(ProgressEvent.DURATION));
+		} else if (ProgressEvent.PROJECT_FINISHED.equals(event.getType())) {
+			getLog().info("[" + project + "] " + module + " " + event.get(ProgressEvent.STATUS) + " in "
+					+ ReleaseReport.formatDuration(event.getLong(ProgressEvent.DURATION)));
+		} else if (ProgressEvent.TESTS.equals(event.getType())) {
+			releaseMetrics.increment(project, ReleaseMetrics.TESTS_RUN, event.getLong(ProgressEvent.TESTS_RUN));
+			releaseMetrics.increment(project, ReleaseMetrics.TESTS_FAILED, event.getLong(ProgressEvent.TESTS_FAILED));
+			releaseMetrics.increment(project, ReleaseMetrics.TESTS_SKIPPED, event.getLong(ProgressEvent.TESTS_SKIPPED));
+			getLog().info("[" + project + "] " + module + " tests run: " + event.get(ProgressEvent.TESTS_RUN)
+					+ ", failed: " + event.get(ProgressEvent.TESTS_FAILED) + ", skipped: "
+					+ event.get(ProgressEvent.TESTS_SKIPPED));
+		} else if (ProgressEvent.DEPLOYED.equals(event.getType())) {
+			releaseMetrics.increment(project, ReleaseMetrics.DEPLOYED_ARTIFACTS, 1);
+			releaseMetrics.increment(project, ReleaseMetrics.DEPLOYED_BYTES, event.getLong(ProgressEvent.BYTES));
+			getLog().info("[" + project + "] deployed " + event.get(ProgressEvent.ARTIFACT));
+		}
+	}
+
+	private List<String> getKeys(Collection<DependencyMapper> projects) {
+		List<String> keys = new ArrayList<String>();
+		for (DependencyMapper dependencyMapper : projects) {
+			keys.add(BuildHistory.getKey(dependencyMapper));
+		}
+		return keys;
+	}
+
+	private void recordStatus(Collection<DependencyMapper> projects, String status) {
+		for (DependencyMapper dependencyMapper : projects) {
+			releaseMetrics.setStatus(BuildHistory.getKey(dependencyMapper), status);
+		}
+	}
+
+	/**
+	 * Gets the metrics of this execution.
+	 * @return the release metrics
+	 */
+	protected ReleaseMetrics getReleaseMetrics() {
+		return releaseMetrics;
+	}
+
+	/**
+	 * Writes the report of this execution into the work directory, exports the metrics and logs the summary. A report
+	 * which can not be written is not fatal.
+	 */
+	protected void writeReport() {
+		releaseMetrics.increment(ReleaseMetrics.VERSION_CACHE_HITS, Version.getCache().getHits() - versionCacheHits);
+		releaseMetrics.increment(ReleaseMetrics.VERSION_CACHE_MISSES,
+				Version.getCache().getMisses() - versionCacheMisses);
+		releaseMetrics.finish();
+		exportMetrics();
+		ReleaseReport report = new ReleaseReport(getGoal(), releaseMetrics);
+		try {
+			StringWriter summary = new StringWriter();
+			report.writeSummary(summary);
+			getLog().info("\n" + summary);
+			report.write(getWorkDirectory());
+			new TimelineReport(releaseMetrics).write(new File(getWorkDirectory(), TimelineReport.FILE));
+		} catch (IOException e) {
+			getLog().warn("Release report could not be written.", e);
+		}
+	}
+
+	/**
+	 * Exports the metrics of this execution in the OpenMetrics text format. An export which fails is not fatal.
+	 */
+	protected void exportMetrics() {
+		File file = metricsFile != null ? metricsFile : new File(getWorkDirectory(), "multirelease.prom");
+		try {
+			getMetricsExporter().write(file);
+		} catch (IOException e) {
+			getLog().warn("Metrics could not be exported to " + file + ".", e);
+		}
+	}
+
+	private synchronized OpenMetricsExporter getMetricsExporter() {
+		if (metricsExporter == null) {
+			metricsExporter = new OpenMetricsExporter(getGoal(), releaseMetrics);
+		}
+		return metricsExporter;
+	}
+
+	/**
+	 * Gets the name of the executed goal.
+	 * @return the goal
+	 */
+	protected String getGoal() {
+		return mojoExecution != null ? mojoExecution.getGoal() : "multirelease";
+	}
+
+	/**
+	 * Gets the configured failure policy.
+	 * @return the failure policy, <code>null</code> if not supported.
+	 */
+	protected FailurePolicy getFailurePolicy() {
+		for (FailurePolicy policy : FailurePolicy.values()) {
+			if (policy.name().equalsIgnoreCase(failurePolicy)) {
+				return policy;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the history of the builds of previous runs.
+	 * @return the build history
+	 */
+	protected BuildHistory getBuildHistory() {
+		if (buildHistory == null) {
+			buildHistory = new BuildHistory(new File(getWorkDirectory(), "history.properties"));
+			try {
+				buildHistory.load();
+			} catch (IOException e) {
+				getLog().warn("Build history could not be read.", e);
+			}
+		}
+		return buildHistory;
+	}
+
+	/**
+	 * Logs the failure of a project execution and converts it into a {@link MojoExecutionException}.
+	 * @param e the failure
+	 * @return the exception to throw
+	 */
+	protected MojoExecutionException getExecutionFailure(ProjectExecutionException e) {
+		Throwable cause = e.getCause();
+		if (e.getProject() != null) {
+			getLog().error("Execution of " + e.getProject() + " failed.");
+		}
+		String message;
+		if (cause instanceof MojoExecutionException) {
+			return (MojoExecutionException) cause;
+		} else if (cause instanceof IOException) {
+			message = "Plugin execution failed beacuse of I/O error\n";
+		} else if (cause instanceof XmlPullParserException) {
+			message = "Plugin execution failed because of error while writing POM file\n";
+		} else if (cause instanceof ProcessException) {
+			message = "Plugin execution failed because of process executions failure\n";
+		} else if (cause instanceof ScmException) {
+			message = "Plugin execution failed because of SCM error\n";
+		} else {
+			message = "Plugin execution failed\n";
+		}
+		getLog().error(message, cause);
+		return new MojoExecutionException(message, cause);
+	}
+
+	/**
+	 * Gets the executor of the given worker, which runs the child builds with the local repository of the worker.
+	 * @param worker number of the worker.
+	 * @return the executor of the worker
+	 */
+	protected MavenReleasePluginExecutor getExecutor(int worker) {
+		Integer key = Integer.valueOf(worker);
+		MavenReleasePluginExecutor executor = executors.get(key);
+		if (executor == null) {
+			executor = createExecutor();
+			executor.setOffline(offline);
+			executor.setBuildHistory(getBuildHistory());
+			executor.setReleaseMetrics(releaseMetrics);
+			if (workerRepositoryLayout != null) {
+				executor.setLocalRepository(workerRepositoryLayout.getRepository(worker));
+			}
+			executors.put(key, executor);
+		}
+		return executor;
+	}
+
+	/**
+	 * Creates the executor of a worker.
+	 * @return a new executor
+	 */
+	protected MavenReleasePluginExecutor createExecutor() {
+		return new MavenReleasePluginExecutor();
+	}
+
+	/**
+	 * Creates the SCM manager committing the modified POM files.
+	 * @return a new SCM manager
+	 */
+	protected CustomScmManager createScmManager() {
+		return new CustomScmManager();
+	}
+
+	/**
+	 * Pre-warms the local repository with the external dependencies and plugins of all reactor projects, if enabled.
+	 * A failed pre-warm is not fatal, the child builds will then resolve their dependencies themselves.
+	 * @return true, if the local repository was pre-warmed and child builds can run offline.
+	 */
+	protected boolean prewarmLocalRepository() {
+		offline = false;
+		if (!prewarm) {
+			return false;
+		}
+		getLog().info("Pre-warming local repository.");
+		long start = System.currentTimeMillis();
+		int threads = prewarmThreads > 0 ? prewarmThreads : Runtime.getRuntime().availableProcessors();
+		String localRepository = null;
+		if (mavenSession.getLocalRepository() != null) {
+			localRepository = mavenSession.getLocalRepository().getBasedir();
+		}
+		DependencyPrewarmer prewarmer = new DependencyPrewarmer(reactorProjects);
+		File settingsFile = mavenSession.getRequest() != null ? mavenSession.getRequest().getUserSettingsFile() : null;
+		if (settingsFile != null && settingsFile.isFile()) {
+			prewarmer.setSettingsFile(settingsFile);
+		}
+		try {
+			prewarmer.prewarm(new File(getWorkDirectory(), "prewarm"), threads, localRepository);
+			offline = true;
+			releaseMetrics.record(ReleaseMetrics.PREWARM, start);
+			return true;
+		} catch (IOException e) {
+			getLog().warn("Pre-warming local repository failed, child builds will run online.", e);
+		} catch (ProcessException e) {
+			getLog().warn("Pre-warming local repository failed, child builds will run online.", e);
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the directory in which the plugin keeps its working files.
+	 * @return the work directory
+	 */
+	protected File getWorkDirectory() {
+		return new File(parentProject.getBuild().getDirectory(), "multirelease");
 	}
 
 	/**
-	 * Gets the builds the order in which projects will be built.
+	 * Gets the builds the order in which projects will be built. If a release plan is used, the build order of the
+	 * plan is restored instead of resolving the dependencies. Otherwise the dependencies of unchanged projects are
+	 * restored from the snapshot of the dependency graph if enabled.
 	 * @return the project build order
+	 * @throws MojoExecutionException if the plan does not match the reactor.
 	 */
-	protected List<DependencyMapper> getBuildOrder() {
-		List<DependencyMapper> projects = getAvailableProjects();
-		new DependencyResolver().getBuildOrder(projects);
+	protected List<DependencyMapper> getBuildOrder() throws MojoExecutionException {
+		long start = System.currentTimeMillis();
+		List<DependencyMapper> projects;
+		if (planProperties != null) {
+			projects = ReleasePlan.getBuildOrder(planProperties, getReactorIndex());
+		} else if (graphCache) {
+			projects = getAvailableProjects();
+			GraphSnapshot snapshot = new GraphSnapshot(new File(getWorkDirectory(), GraphSnapshot.FILE));
+			try {
+				snapshot.load(projects);
+			} catch (IOException e) {
+				getLog().warn("Dependency graph snapshot could not be read, resolving all projects.", e);
+				snapshot = new GraphSnapshot(new File(getWorkDirectory(), GraphSnapshot.FILE));
+			}
+			new DependencyResolver(getReactorIndex()).getBuildOrder(projects, snapshot);
+			List<String> changedProjects = snapshot.getChangedProjects();
+			getLog().info("Dependency graph: " + snapshot.getUnchangedProjects() + " projects restored from snapshot, "
+					+ changedProjects.size() + " resolved" + (changedProjects.isEmpty() ? "" : " " + changedProjects));
+			try {
+				snapshot.save(projects);
+			} catch (IOException e) {
+				getLog().warn("Dependency graph snapshot could not be written.", e);
+			}
+		} else {
+			projects = getAvailableProjects();
+			new DependencyResolver(getReactorIndex()).getBuildOrder(projects);
+		}
+		releaseMetrics.record(ReleaseMetrics.GRAPH_BUILD, start);
 		return projects;
 	}
 
+	/**
+	 * Checks that the POMs of the projects did not change since the release plan was computed. Does nothing if no
+	 * plan is used.
+	 * @param projects the projects which will be executed.
+	 * @throws MojoExecutionException if a POM changed.
+	 */
+	protected void checkPlan(List<DependencyMapper> projects) throws MojoExecutionException {
+		if (planProperties == null) {
+			return;
+		}
+		List<String> changedProjects;
+		try {
+			changedProjects = ReleasePlan.getChangedProjects(planProperties, projects, getReactorIndex());
+		} catch (IOException e) {
+			throw new MojoExecutionException("POM files could not be compared with the release plan", e);
+		}
+		if (!changedProjects.isEmpty()) {
+			throw new MojoExecutionException("The POMs of " + changedProjects
+					+ " changed since the release plan was computed, compute a new plan");
+		}
+	}
+
 	/**
 	 * Deletes the release.properties created while running the release goal.
 	 */
@@ -116,20 +780,94 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 		List<DependencyMapper> availableProjects = new ArrayList<DependencyMapper>();
 		List<?> modules = parentProject.getModules();
 		for (Object module : modules) {
-			for (MavenProject mavenProject : reactorProjects) {
-				if (((String) module).contains(mavenProject.getArtifactId())) {
-					DependencyMapper dependencyMapper = new DependencyMapper(mavenProject);
-					for (Object project : mavenProject.getCollectedProjects()) {
-						dependencyMapper.getChildProject().add((MavenProject) project);
-					}
-					availableProjects.add(dependencyMapper);
-					break;
+			MavenProject mavenProject = getModuleProject((String) module);
+			if (mavenProject != null) {
+				DependencyMapper dependencyMapper = new DependencyMapper(mavenProject);
+				for (Object project : mavenProject.getCollectedProjects()) {
+					dependencyMapper.getChildProject().add((MavenProject) project);
 				}
+				availableProjects.add(dependencyMapper);
 			}
 		}
 		return availableProjects;
 	}
 
+	/**
+	 * Gets the project of a module of the parent project. The module is looked up by its directory, modules whose
+	 * path does not lead to a project directory fall back to the first project whose artifact ID the path contains.
+	 * @param module the module as declared in the parent POM
+	 * @return the project, <code>null</code> if the module is not in the reactor.
+	 */
+	private MavenProject getModuleProject(String module) {
+		if (parentProject.getBasedir() != null) {
+			File directory = new File(parentProject.getBasedir(), module);
+			if (directory.isFile()) {
+				directory = directory.getParentFile();
+			}
+			MavenProject mavenProject = getReactorIndex().getProject(directory);
+			if (mavenProject != null) {
+				return mavenProject;
+			}
+		}
+		for (MavenProject mavenProject : reactorProjects) {
+			if (module.contains(mavenProject.getArtifactId())) {
+				return mavenProject;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Rewrites the versions of the parents, dependencies, plugins and extensions of a project and its modules which
+	 * refer to other projects of the release, see {@link VersionReference}. References within the project are left
+	 * to the release plugin. A version defined by a property is changed in the POM owning the property if it belongs
+	 * to the project, otherwise the property is overridden in the POM using it, as the POMs of other projects and
+	 * parents must not change.
+	 * @param dependencyMapper the project
+	 * @param versions the new versions by group ID and artifact ID separated by a dot
+	 * @param releaseVersion <code>true</code> to use the release versions of snapshot versions.
+	 * @return the projects whose POM was changed, in the order of the project and its modules.
+	 */
+	protected List<MavenProject> rewriteDependencyVersions(DependencyMapper dependencyMapper,
+			Map<String, String> versions, boolean releaseVersion) {
+		List<MavenProject> projects = new ArrayList<MavenProject>();
+		projects.add(dependencyMapper.getMavenProject());
+		projects.addAll(dependencyMapper.getChildProject());
+		Set<String> ownKeys = new HashSet<String>();
+		for (MavenProject mavenProject : projects) {
+			ownKeys.add(mavenProject.getGroupId() + "." + mavenProject.getArtifactId());
+		}
+		List<MavenProject> changedProjects = new ArrayList<MavenProject>();
+		for (MavenProject mavenProject : projects) {
+			for (VersionReference reference : VersionReference.getVersionReferences(mavenProject)) {
+				String key = reference.getGroupId() + "." + reference.getArtifactId();
+				String version = versions.get(key);
+				if (version == null || ownKeys.contains(key)) {
+					continue;
+				}
+				if (releaseVersion) {
+					version = version.replace("-SNAPSHOT", "");
+				}
+				MavenProject changedProject = mavenProject;
+				// dependency version is defined in property tag of POM file.
+				String property = ModelPropertyResolver.getPropertyName(reference.getVersion());
+				if (property != null) {
+					MavenProject owner = modelPropertyResolver.getOwner(mavenProject, property);
+					if (projects.contains(owner)) {
+						changedProject = owner;
+					}
+					modelPropertyResolver.setProperty(changedProject, property, version);
+				} else {
+					reference.setVersion(version);
+				}
+				if (!changedProjects.contains(changedProject)) {
+					changedProjects.add(changedProject);
+				}
+			}
+		}
+		return changedProjects;
+	}
+
 	/**
 	 * Updates the POM with modified model and commits in SCM.
 	 * 
@@ -146,7 +884,7 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 		// Commit modified POM to SCM.s
 		getLog().info("commiting POM file in SVN with username " + username);
 		MavenProject project = dependencyMapper.getMavenProject();
-		CustomScmManager customScmManager = new CustomScmManager();
+		CustomScmManager customScmManager = createScmManager();
 		customScmManager.checkin(project.getOriginalModel().getScm().getUrl(), username, password,
 				project.getOriginalModel().getProjectDirectory(), scmCommentPrefix);
 	}
@@ -160,11 +898,14 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 	protected void writePOM(MavenProject project) throws IOException, FileNotFoundException {
 		getLog().info("Updating Dependency versions.");
 		FileOutputStream fileOutputStream = null;
+		PomEvent event = new PomEvent();
+		event.begin();
 		try {
 			MavenXpp3Writer xpp3Writer = new MavenXpp3Writer();
 			fileOutputStream = new FileOutputStream(project.getOriginalModel().getPomFile());
 			xpp3Writer.write(fileOutputStream, project.getOriginalModel());
 		} finally {
+			commitPomEvent(event, "write", project.getOriginalModel().getPomFile());
 			try {
 				if (fileOutputStream != null) {
 					fileOutputStream.close();
@@ -175,6 +916,21 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 		}
 	}
 
+	/**
+	 * Commits the event of a POM access if it is recorded.
+	 * @param event the event
+	 * @param operation either read or write
+	 * @param pomFile the accessed POM file
+	 */
+	protected void commitPomEvent(PomEvent event, String operation, File pomFile) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.setOperation(operation);
+			event.setPath(pomFile.getAbsolutePath());
+			event.commit();
+		}
+	}
+
 	protected File getReleasePropertyfile() throws MojoExecutionException {
 		File file = null;
 		if (releaseProperties != null) {
@@ -197,6 +953,17 @@ public abstract class AbstractReleaseMojo extends AbstractMojo {
 		return reactorProjects;
 	}
 
+	/**
+	 * Gets the index of the reactor projects, it is built on the first call.
+	 * @return the reactor index
+	 */
+	protected synchronized ReactorIndex getReactorIndex() {
+		if (reactorIndex == null) {
+			reactorIndex = new ReactorIndex(reactorProjects);
+		}
+		return reactorIndex;
+	}
+
 	protected MavenProject getParentProject() {
 		return parentProject;
 	}
@@ -0,0 +1,41 @@
+package org.codehaus.openxma.mojo.multirelease.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.openxma.mojo.multirelease.report.DependencyGraph;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Writes the resolved dependency graph of the projects as <tt>graph.dot</tt>, <tt>graph.json</tt> and
+ * <tt>graph.mmd</tt>. The projects are annotated with their durations in previous runs and their number of upstream
+ * and downstream projects, each edge names the dependencies which caused it. Nothing is built or released.
+ */
+@Mojo(name = "graph", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, aggregator = true)
+public class GraphMojo extends AbstractReleaseMojo {
+
+	/**
+	 * Directory into which the graph is written. Defaults to the work directory of the plugin.
+	 */
+	@Parameter(property = "graphDirectory")
+	private File graphDirectory;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		super.execute();
+		List<DependencyMapper> projects = getBuildOrder();
+		File directory = graphDirectory != null ? graphDirectory : getWorkDirectory();
+		try {
+			new DependencyGraph(projects, getBuildHistory()).write(directory);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Dependency graph could not be written to " + directory, e);
+		}
+		getLog().info("Dependency graph of " + projects.size() + " projects written to " + directory);
+	}
+}
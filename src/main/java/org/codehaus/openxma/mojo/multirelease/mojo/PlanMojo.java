@@ -0,0 +1,72 @@
+package org.codehaus.openxma.mojo.multirelease.mojo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan.ProjectPlan;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan.Rewrite;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.MavenReleasePluginExecutor;
+import org.codehaus.openxma.mojo.multirelease.util.PropertyResolver;
+
+/**
+ * Computes the release plan without building anything: the release and next development version of every project
+ * and every dependency and property rewrite of the <tt>release</tt> goal. The plan is logged and written as
+ * <tt>plan.json</tt> and <tt>plan.properties</tt>, the latter can be passed to the <tt>release</tt> goal as
+ * <tt>-Dplan=...</tt>.
+ */
+@Mojo(name = "plan", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, aggregator = true)
+public class PlanMojo extends AbstractReleaseMojo {
+
+	/**
+	 * Directory into which the plan is written. Defaults to the work directory of the plugin.
+	 */
+	@Parameter(property = "planDirectory")
+	private File planDirectory;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		super.execute();
+		List<DependencyMapper> projects = getBuildOrder();
+		Map<String, String> developmentVersions = new HashMap<String, String>();
+		for (DependencyMapper dependencyMapper : projects) {
+			MavenProject mavenProject = dependencyMapper.getMavenProject();
+			String developmentVersion = PropertyResolver.getInstance()
+					.getProjectProperties(mavenProject.getGroupId(), mavenProject.getArtifactId())
+					.get("developmentVersion");
+			if (developmentVersion != null) {
+				MavenReleasePluginExecutor.checkDevelopmentVersion(mavenProject, developmentVersion);
+				developmentVersions.put(mavenProject.getGroupId() + "." + mavenProject.getArtifactId(),
+						developmentVersion);
+			}
+		}
+		ReleasePlan releasePlan;
+		File directory = planDirectory != null ? planDirectory : getWorkDirectory();
+		try {
+			releasePlan = new ReleasePlan(projects, developmentVersions, getReactorIndex());
+			releasePlan.write(directory);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Release plan could not be written to " + directory, e);
+		}
+		for (ProjectPlan plan : releasePlan.getProjects()) {
+			getLog().info(plan.getId() + ": " + plan.getVersion() + " -> " + plan.getReleaseVersion() + " -> "
+					+ plan.getDevelopmentVersion());
+			for (Rewrite rewrite : plan.getRewrites()) {
+				getLog().info("  " + rewrite.getPhase() + " " + rewrite.getDependency()
+						+ (rewrite.getProperty() == null ? "" : " ${" + rewrite.getProperty() + "}") + ": "
+						+ rewrite.getFrom() + " -> " + rewrite.getTo());
+			}
+		}
+		getLog().info("Release plan of " + projects.size() + " projects written to " + directory);
+	}
+}
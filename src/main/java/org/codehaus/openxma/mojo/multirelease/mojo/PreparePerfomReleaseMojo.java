@@ -5,15 +5,17 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.regex.Matcher;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
 import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -23,7 +25,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.scm.ScmException;
+import org.codehaus.openxma.mojo.multirelease.event.PomEvent;
 import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.exception.ProjectExecutionException;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.ProjectTask;
 import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
 import org.codehaus.openxma.mojo.multirelease.util.MavenReleasePluginExecutor;
 import org.codehaus.openxma.mojo.multirelease.util.PropertyResolver;
@@ -47,25 +54,31 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	/**
 	 * Map having Group ID and Artifact ID as key and project version before release as value.
 	 */
-	private final Map<String, String> preReleaseVersion = new HashMap<String, String>();
+	private final Map<String, String> preReleaseVersion = new ConcurrentHashMap<String, String>();
 
 	/**
 	 * Map having Group ID and Artifact ID as key and project version after release as value.
 	 */
-	private final Map<String, String> postReleaseVersion = new HashMap<String, String>();
+	private final Map<String, String> postReleaseVersion = new ConcurrentHashMap<String, String>();
 
 	// Constants
 	private final static String PRE_PHASE = "preReleasePhase";
 	private final static String POST_PHASE = "postReleasePhase";
 	private final static String DRY_RUN_PHASE = "dryRunPhase";
 	private final static String LAST_BUILT = "lastBuilt";
+	private final static String COMPLETED = "completed";
+	private final static String STARTED = "started";
 
 	private final Properties properties = new Properties();
 
-	private final MavenReleasePluginExecutor executor = new MavenReleasePluginExecutor();
-
 	private File releasePropertyFile = null;
 
+	/**
+	 * Group ID and artifact ID separated by a dot of the projects a previous release attempt started but did not
+	 * complete. Their POMs contain the rewrites of the pre release phase.
+	 */
+	private final Set<String> startedProjects = new HashSet<String>();
+
 	/**
 	 * @see org.apache.maven.plugin.Mojo#execute()
 	 */
@@ -79,21 +92,20 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 			if (resume) {
 				projects = getResumableProjects(projects);
 			}
+			// Released and started projects changed their POMs, so only the projects not started must match the plan.
+			checkPlan(getUnstartedProjects(projects));
+			// The perform step deploys the released artifacts, so the release builds always run online.
+			prewarmLocalRepository();
 			executeReleasePlugin(projects);
 			cleanUpAfterRelease(releasePropertyFile);
 			printReleaseSummary(projects);
 		} catch (IOException e) {
 			getLog().error("Plugin execution failed beacuse of I/O error \n", e);
 			throw new MojoExecutionException("Plugin execution failed beacuse of I/O error\n", e);
-		} catch (XmlPullParserException e) {
-			getLog().error("Plugin execution failed because of error while writing POM file \n", e);
-			throw new MojoExecutionException("Plugin execution failed because of error while writing POM file\n", e);
-		} catch (ProcessException e) {
-			getLog().error("Plugin execution failed because of process executions failure\n", e);
-			throw new MojoExecutionException("Plugin execution failed because of process executions failure\n", e);
-		} catch (ScmException e) {
-			getLog().error("Plugin execution failed because of SCM error\n", e);
-			throw new MojoExecutionException("Plugin execution failed because of SCM error\n", e);
+		} catch (ProjectExecutionException e) {
+			throw getExecutionFailure(e);
+		} finally {
+			writeReport();
 		}
 	}
 
@@ -101,46 +113,58 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	 * Executes multi-release release plugin.
 	 * 
 	 * @param projects list of {@link DependencyMapper}
+	 * @throws ProjectExecutionException if the release of a project failed.
+	 */
+	private void executeReleasePlugin(List<DependencyMapper> projects) throws ProjectExecutionException {
+		executeProjects(projects, new String[] { BuildHistory.PREPARE, BuildHistory.PERFORM }, new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) throws Exception {
+				releaseProject(dependencyMapper, getExecutor(worker));
+			}
+		});
+	}
+
+	/**
+	 * Releases the given project.
+	 * 
+	 * @param dependencyMapper the project to release
+	 * @param executor executor of the worker
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 * @throws XmlPullParserException the xml pull parser exception
 	 * @throws MojoExecutionException the mojo execution exception
 	 * @throws ProcessException the process exception
 	 * @throws ScmException the scm exception
 	 */
-	private void executeReleasePlugin(List<DependencyMapper> projects)
+	private void releaseProject(DependencyMapper dependencyMapper, MavenReleasePluginExecutor executor)
 			throws IOException, XmlPullParserException,
 			MojoExecutionException, ProcessException, ScmException {
-		// Dry run successfully executed
 		PropertyResolver propertyResolver = PropertyResolver.getInstance();
-		for (DependencyMapper dependencyMapper : projects) {
+		MavenProject mavenProject = dependencyMapper.getMavenProject();
+		Map<String, String> projectProperties = propertyResolver.getProjectProperties(
+				mavenProject.getGroupId(), mavenProject.getArtifactId());
+		String username = projectProperties.get("username");
+		String password = projectProperties.get("password");
+		String scmcommentPrefix = projectProperties.get("scmCommentPrefix");
+		addStartedProject(dependencyMapper);
+		updateReleaseVersionMap(dependencyMapper, preReleaseVersion);
+		updateDependencyVersion(dependencyMapper, PRE_PHASE, username, password, scmcommentPrefix);
+		getLog().info("Preparing Release.");
+		executor.prepareRelease(mavenProject, projectProperties);
 
-			MavenProject mavenProject = dependencyMapper.getMavenProject();
-			Map<String, String> projectProperties = propertyResolver.getProjectProperties(
-					mavenProject.getGroupId(), mavenProject.getArtifactId());
-			String username = projectProperties.get("username");
-			String password = projectProperties.get("password");
-			String scmcommentPrefix = projectProperties.get("scmCommentPrefix");
-			updateReleaseVersionMap(dependencyMapper, preReleaseVersion);
-			updateDependencyVersion(dependencyMapper, PRE_PHASE, username, password, scmcommentPrefix);
-			getLog().info("Preparing Release.");
-			executor.prepareRelease(mavenProject, projectProperties);
-
-			// Write pre-release version in property file.
-			addProperty(dependencyMapper);
-
-			// Read the updated version.
-			Model model = readPomFile(mavenProject.getOriginalModel().getPomFile());
-			if (model.getVersion() == null) {
-				if (mavenProject.getParent() != null) {
-					model = readPomFile(mavenProject.getParent().getOriginalModel().getPomFile());
-				}
-			}
-			dependencyMapper.getMavenProject().getOriginalModel().setVersion(model.getVersion());
-			dependencyMapper.getMavenProject().setVersion(model.getVersion());
-			updateReleaseVersionMap(dependencyMapper, postReleaseVersion);
-			updateDependencyVersion(dependencyMapper, POST_PHASE, username, password, scmcommentPrefix);
+		// Write pre-release version in property file.
+		addProperty(dependencyMapper);
 
+		// Read the updated version.
+		Model model = readPomFile(mavenProject.getOriginalModel().getPomFile());
+		if (model.getVersion() == null) {
+			if (mavenProject.getParent() != null) {
+				model = readPomFile(mavenProject.getParent().getOriginalModel().getPomFile());
+			}
 		}
+		dependencyMapper.getMavenProject().getOriginalModel().setVersion(model.getVersion());
+		dependencyMapper.getMavenProject().setVersion(model.getVersion());
+		updateReleaseVersionMap(dependencyMapper, postReleaseVersion);
+		updateDependencyVersion(dependencyMapper, POST_PHASE, username, password, scmcommentPrefix);
 	}
 
 	/**
@@ -176,59 +200,37 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	private boolean updateDependencyVersion(DependencyMapper dependencyMapper,
 			String phase, String username, String password, String scmCommentPrefix) throws FileNotFoundException,
 			IOException, ScmException {
-		boolean dependencyUpdated = false;
-
-		List<Dependency> dependencies = null;
-		// If project is multi module then use dependency management section.
-		if (dependencyMapper.getMavenProject().getOriginalModel().getDependencyManagement() == null) {
-			dependencies = dependencyMapper.getMavenProject()
-					.getOriginalModel().getDependencies();
+		long start = System.currentTimeMillis();
+		List<MavenProject> changedProjects;
+		if (PRE_PHASE.equals(phase)) {
+			// Update dependency to release version for prepare phase.
+			changedProjects = rewriteDependencyVersions(dependencyMapper, preReleaseVersion, true);
+		} else if (POST_PHASE.equals(phase)) {
+			changedProjects = rewriteDependencyVersions(dependencyMapper, postReleaseVersion, false);
 		} else {
-			dependencies = dependencyMapper.getMavenProject()
-					.getOriginalModel().getDependencyManagement()
-					.getDependencies();
-		}
-		for (Dependency dependency : dependencies) {
-			String version = null;
-			if (PRE_PHASE.equals(phase)) {
-				version = preReleaseVersion.get(
-						dependency.getGroupId()
-								+ "." + dependency.getArtifactId());
-				// Update dependency to release version for prepare phase.
-				if (version != null) {
-					version = version.replace("-SNAPSHOT", "");
-				}
-			} else if (POST_PHASE.equals(phase)) {
-				version = postReleaseVersion.get(dependency
-						.getGroupId() + "." + dependency.getArtifactId());
-			} else if (DRY_RUN_PHASE.equals(phase)) {
-				version = preReleaseVersion.get(
-						dependency.getGroupId()
-								+ "." + dependency.getArtifactId());
-			}
-			if (version != null) {
-				dependencyUpdated = true;
-				// dependency version is defined in property tag of POM file.
-				Matcher matcher = propertyTagPattern.matcher(dependency.getVersion());
-				if (matcher.find()) {
-					String key = matcher.group(1);
-					dependencyMapper.getMavenProject()
-							.getOriginalModel().getProperties().setProperty(key, version);
-				} else {
-					dependency.setVersion(version);
-				}
-			}
+			changedProjects = rewriteDependencyVersions(dependencyMapper, preReleaseVersion, false);
 		}
+		boolean dependencyUpdated = !changedProjects.isEmpty();
 		// Update POM if dependency is updated.
+		String project = BuildHistory.getKey(dependencyMapper);
+		for (MavenProject changedProject : changedProjects) {
+			writePOM(changedProject);
+		}
+		getReleaseMetrics().record(project, POST_PHASE.equals(phase) ? ReleaseMetrics.POST_REWRITE
+				: ReleaseMetrics.PRE_REWRITE, start);
 		if (dependencyUpdated) {
-			writePOM(dependencyMapper.getMavenProject());
+			start = System.currentTimeMillis();
 			commitModifiedModel(dependencyMapper, username, password, scmCommentPrefix);
+			getReleaseMetrics().record(project, POST_PHASE.equals(phase) ? ReleaseMetrics.POST_COMMIT
+					: ReleaseMetrics.PRE_COMMIT, start);
+			getReleaseMetrics().increment(project, ReleaseMetrics.SCM_COMMITS, 1);
 		}
 		return dependencyUpdated;
 	}
 
 	/**
-	 * Gets the list of projects which can be resumed from previous release attempt.
+	 * Gets the list of projects which can be resumed from previous release attempt. All projects which were not
+	 * released completely are resumed, independent of the order in which the previous attempt executed them.
 	 * @param availableProjects the available projects
 	 * @return the resumable projects
 	 * @throws IOException
@@ -238,32 +240,101 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	private List<DependencyMapper> getResumableProjects(List<DependencyMapper> availableProjects)
 			throws FileNotFoundException, IOException, MojoExecutionException {
 		List<DependencyMapper> resumableProjects = new ArrayList<DependencyMapper>();
-		boolean lastBuiltProjectFound = false;
 		if (releasePropertyFile.exists()) {
 			loadPreReleaseProperties();
-			String lastBuiltProject = properties.getProperty(LAST_BUILT);
+			Set<String> completedProjects = getCompletedProjects(availableProjects);
+			startedProjects.addAll(split(properties.getProperty(STARTED)));
 			for (DependencyMapper dependencyMapper : availableProjects) {
-				if (lastBuiltProjectFound) {
-					resumableProjects.add(dependencyMapper);
-				} else {
-					String key = dependencyMapper.getMavenProject().getGroupId()
-							+ "." + dependencyMapper.getMavenProject().getArtifactId();
+				if (completedProjects.contains(getKey(dependencyMapper))) {
 					updateReleaseVersionMap(dependencyMapper, postReleaseVersion);
-					if (key.equals(lastBuiltProject)) {
-						lastBuiltProjectFound = true;
-					}
+				} else {
+					resumableProjects.add(dependencyMapper);
 				}
 			}
 		}
-		if (resumableProjects.isEmpty()) {
+		if (resumableProjects.isEmpty() || resumableProjects.size() == availableProjects.size()) {
 			postReleaseVersion.clear();
 			return availableProjects;
 		} else {
-			getLog().info("Resuming build from the previous point.");
+			getLog().info("Resuming build from the previous point, "
+					+ (availableProjects.size() - resumableProjects.size()) + " projects are already released.");
 			return resumableProjects;
 		}
 	}
 
+	/**
+	 * Gets the projects released completely by a previous release attempt. Release property files written by older
+	 * versions only contain the last built project, then all projects up to it in build order are completed.
+	 * @param availableProjects the available projects in build order
+	 * @return group ID and artifact ID of the completed projects
+	 */
+	private Set<String> getCompletedProjects(List<DependencyMapper> availableProjects) {
+		Set<String> completedProjects = new HashSet<String>();
+		String completed = properties.getProperty(COMPLETED);
+		if (completed != null) {
+			completedProjects.addAll(split(completed));
+		} else if (properties.getProperty(LAST_BUILT) != null) {
+			String lastBuiltProject = properties.getProperty(LAST_BUILT);
+			for (DependencyMapper dependencyMapper : availableProjects) {
+				completedProjects.add(getKey(dependencyMapper));
+				if (getKey(dependencyMapper).equals(lastBuiltProject)) {
+					break;
+				}
+			}
+		}
+		return completedProjects;
+	}
+
+	/**
+	 * Gets the projects which no previous release attempt started.
+	 * @param projects the projects to release
+	 * @return the projects not started
+	 */
+	private List<DependencyMapper> getUnstartedProjects(List<DependencyMapper> projects) {
+		List<DependencyMapper> unstartedProjects = new ArrayList<DependencyMapper>();
+		for (DependencyMapper dependencyMapper : projects) {
+			if (!startedProjects.contains(getKey(dependencyMapper))) {
+				unstartedProjects.add(dependencyMapper);
+			}
+		}
+		return unstartedProjects;
+	}
+
+	private Set<String> split(String keys) {
+		Set<String> split = new HashSet<String>();
+		if (keys != null) {
+			for (String key : keys.split(",")) {
+				if (key.trim().length() > 0) {
+					split.add(key.trim());
+				}
+			}
+		}
+		return split;
+	}
+
+	private String getKey(DependencyMapper dependencyMapper) {
+		return dependencyMapper.getMavenProject().getGroupId() + "."
+				+ dependencyMapper.getMavenProject().getArtifactId();
+	}
+
+	/**
+	 * Records that the release of the project started, before its POM is rewritten. A resumed release does not expect
+	 * the POM of a started project to match the release plan.
+	 * 
+	 * @param dependencyMapper {@link DependencyMapper}
+	 * @throws FileNotFoundException the file not found exception
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private synchronized void addStartedProject(DependencyMapper dependencyMapper) throws FileNotFoundException,
+			IOException {
+		String key = getKey(dependencyMapper);
+		String started = properties.getProperty(STARTED);
+		if (!split(started).contains(key)) {
+			properties.setProperty(STARTED, started == null ? key : started + "," + key);
+			storeProperties(key);
+		}
+	}
+
 	/**
 	 * Adds the property with group ID and artifact ID as key and version as value..
 	 * 
@@ -271,19 +342,24 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	 * @throws FileNotFoundException the file not found exception
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	private void addProperty(DependencyMapper dependencyMapper) throws FileNotFoundException, IOException {
+	private synchronized void addProperty(DependencyMapper dependencyMapper) throws FileNotFoundException,
+			IOException {
+		String key = getKey(dependencyMapper);
+		properties.setProperty(key, dependencyMapper.getMavenProject().getVersion());
+		String completed = properties.getProperty(COMPLETED);
+		properties.setProperty(COMPLETED, completed == null ? key : completed + "," + key);
+		for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+			key = mavenProject.getGroupId() + "." + mavenProject.getArtifactId();
+			properties.setProperty(key, mavenProject.getVersion());
+		}
+		storeProperties(key);
+	}
+
+	private void storeProperties(String comment) throws FileNotFoundException, IOException {
 		FileOutputStream fileOutputStream = null;
 		try {
-			String key = dependencyMapper.getMavenProject().getGroupId()
-					+ "." + dependencyMapper.getMavenProject().getArtifactId();
-			properties.setProperty(key, dependencyMapper.getMavenProject().getVersion());
-			properties.setProperty(LAST_BUILT, key);
-			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
-				key = mavenProject.getGroupId() + "." + mavenProject.getArtifactId();
-				properties.setProperty(key, mavenProject.getVersion());
-			}
 			fileOutputStream = new FileOutputStream(releasePropertyFile);
-			properties.store(fileOutputStream, key);
+			properties.store(fileOutputStream, comment);
 		} finally {
 			try {
 				if (fileOutputStream != null) {
@@ -307,7 +383,10 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 			fileInputStream = new FileInputStream(releasePropertyFile);
 			properties.load(fileInputStream);
 			for (Entry<Object, Object> entry : properties.entrySet()) {
-				preReleaseVersion.put(entry.getKey().toString(), entry.getValue().toString());
+				if (!COMPLETED.equals(entry.getKey()) && !STARTED.equals(entry.getKey())
+						&& !LAST_BUILT.equals(entry.getKey())) {
+					preReleaseVersion.put(entry.getKey().toString(), entry.getValue().toString());
+				}
 			}
 		} finally {
 			try {
@@ -331,12 +410,15 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	 */
 	private Model readPomFile(File pomFile) throws FileNotFoundException, IOException, XmlPullParserException {
 		FileInputStream fileInputStream = null;
+		PomEvent event = new PomEvent();
+		event.begin();
 		try {
 			MavenXpp3Reader reader = new MavenXpp3Reader();
 			fileInputStream = new FileInputStream(pomFile);
 			Model model = reader.read(fileInputStream);
 			return model;
 		} finally {
+			commitPomEvent(event, "read", pomFile);
 			try {
 				if (fileInputStream != null) {
 					fileInputStream.close();
@@ -351,27 +433,32 @@ public class PreparePerfomReleaseMojo extends AbstractReleaseMojo {
 	 * Prints the release summary at the end of successful release.
 	 */
 	private void printReleaseSummary(List<DependencyMapper> projects) {
-		String summary = "\nRelease Summary:\n";
+		StringWriter summary = new StringWriter();
+		PrintWriter writer = new PrintWriter(summary);
+		writer.print("\nRelease Summary:\n");
 		for (DependencyMapper dependencyMapper : projects) {
-			summary = summary.concat("-------------------------");
-			summary = summary.concat("\n Name: " + dependencyMapper.getMavenProject().getName());
-			summary = summary.concat("\n Group ID: " + dependencyMapper.getMavenProject().getGroupId());
-			summary = summary.concat("\n Artifact Id: " + dependencyMapper.getMavenProject().getArtifactId());
-			String key = dependencyMapper.getMavenProject().getGroupId() + "."
-					+ dependencyMapper.getMavenProject().getArtifactId();
-			summary = summary.concat("\n Release Version: " + preReleaseVersion.get(key).replace("-SNAPSHOT", ""));
-			summary = summary.concat("\n Next Developmentversion: " + postReleaseVersion.get(key) + "\n");
+			writer.print("-------------------------");
+			printProjectSummary(writer, dependencyMapper.getMavenProject());
 			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
-				summary = summary.concat("\n Name: " + mavenProject.getName());
-				summary = summary.concat("\n Group ID: " + mavenProject.getGroupId());
-				summary = summary.concat("\n Artifact Id: " + mavenProject.getArtifactId());
-				key = mavenProject.getGroupId() + "." + mavenProject.getArtifactId();
-				summary = summary.concat("\n Release Version: " + preReleaseVersion.get(key).replace("-SNAPSHOT", ""));
-				summary = summary.concat("\n Next Developmentversion: " + postReleaseVersion.get(key) + "\n");
+				printProjectSummary(writer, mavenProject);
 			}
-			summary = summary.concat("-------------------------");
+			writer.print("-------------------------");
 		}
-		getLog().info(summary);
+		writer.flush();
+		getLog().info(summary.toString());
+	}
+
+	private void printProjectSummary(PrintWriter writer, MavenProject mavenProject) {
+		String key = mavenProject.getGroupId() + "." + mavenProject.getArtifactId();
+		String releaseVersion = preReleaseVersion.get(key).replace("-SNAPSHOT", "");
+		writer.print("\n Name: " + mavenProject.getName());
+		writer.print("\n Group ID: " + mavenProject.getGroupId());
+		writer.print("\n Artifact Id: " + mavenProject.getArtifactId());
+		writer.print("\n Release Version: " + releaseVersion);
+		writer.print("\n Next Developmentversion: " + postReleaseVersion.get(key) + "\n");
+		String project = mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+		getReleaseMetrics().setValue(project, "releaseVersion", releaseVersion);
+		getReleaseMetrics().setValue(project, "developmentVersion", postReleaseVersion.get(key));
 	}
 
 	/**
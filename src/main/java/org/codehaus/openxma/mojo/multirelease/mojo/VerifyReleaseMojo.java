@@ -1,14 +1,11 @@
 package org.codehaus.openxma.mojo.multirelease.mojo;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.model.Dependency;
@@ -19,9 +16,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
-import org.codehaus.openxma.mojo.multirelease.pojo.Version;
+import org.codehaus.openxma.mojo.multirelease.exception.ProjectExecutionException;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.ProjectTask;
 import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
 import org.codehaus.openxma.mojo.multirelease.util.MavenReleasePluginExecutor;
+import org.codehaus.openxma.mojo.multirelease.util.ModelPropertyResolver;
 import org.codehaus.openxma.mojo.multirelease.util.PropertyResolver;
 
 /**
@@ -41,25 +41,20 @@ public class VerifyReleaseMojo extends AbstractReleaseMojo {
 	/**
 	 * Map having Group ID and Artifact ID as key and project version before release as value.
 	 */
-	private final Map<String, String> preReleaseVersion = new HashMap<String, String>();
-
-	private final MavenReleasePluginExecutor executor = new MavenReleasePluginExecutor();
-
-	// Pattern used to identify version is identified in property tag.
-	protected final Pattern propertyTagPattern = Pattern.compile("\\$\\{(.*)\\}");
+	private final Map<String, String> preReleaseVersion = new ConcurrentHashMap<String, String>();
 
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		try {
 			mergeProperties();
 			List<DependencyMapper> projects = getBuildOrder();
+			checkPlan(projects);
+			prewarmLocalRepository();
 			executeDryRun(projects);
-		} catch (IOException e) {
-			getLog().error("Plugin execution failed beacuse of I/O error \n", e);
-			throw new MojoExecutionException("Plugin execution failed beacuse of I/O error\n", e);
-		} catch (ProcessException e) {
-			getLog().error("Plugin execution failed because of process executions failure\n", e);
-			throw new MojoExecutionException("Plugin execution failed because of process executions failure\n", e);
+		} catch (ProjectExecutionException e) {
+			throw getExecutionFailure(e);
+		} finally {
+			writeReport();
 		}
 	}
 
@@ -67,42 +62,62 @@ public class VerifyReleaseMojo extends AbstractReleaseMojo {
 	 * Execute dry run (clean, install) on all projects.
 	 * 
 	 * @param projects the list of available projects
+	 * @throws ProjectExecutionException if the dry run of a project failed.
+	 */
+	private void executeDryRun(List<DependencyMapper> projects) throws ProjectExecutionException {
+		executeProjects(projects, new String[] { BuildHistory.DRY_RUN }, new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) throws Exception {
+				executeDryRun(dependencyMapper, getExecutor(worker));
+			}
+		});
+	}
+
+	/**
+	 * Execute dry run (clean, install) on the given project.
+	 * 
+	 * @param dependencyMapper the project
+	 * @param executor executor of the worker
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 * @throws ProcessException the process exception
 	 * @throws MojoExecutionException
 	 */
-	private void executeDryRun(List<DependencyMapper> projects) throws IOException, ProcessException,
-			MojoExecutionException {
+	private void executeDryRun(DependencyMapper dependencyMapper, MavenReleasePluginExecutor executor)
+			throws IOException, ProcessException, MojoExecutionException {
 		PropertyResolver propertyResolver = PropertyResolver.getInstance();
-		for (DependencyMapper dependencyMapper : projects) {
-			checkSnapshotdependencies(dependencyMapper);
-			MavenProject mavenProject = dependencyMapper.getMavenProject();
-			Map<String, String> properties = propertyResolver.getProjectProperties(mavenProject.getGroupId(),
-					mavenProject.getArtifactId());
-			properties.get("username");
-			properties.get("password");
-			if (properties.get("developmentVersion") != null) {
-				checkDevelopmentVersion(mavenProject, properties.get("developmentVersion"));
-			}
-			updateReleaseVersionMap(dependencyMapper, preReleaseVersion);
-			getLog().info("Executing Dry Run.");
-			File backupFile = null;
-
-			if (rollback) {
-				backupFile = new File(dependencyMapper.getMavenProject().getOriginalModel().getProjectDirectory()
-						.getAbsolutePath() + File.separator + "pom-backup.xml");
-				getLog().debug("Creating backup file.");
-				FileUtils.copyFile(dependencyMapper.getMavenProject().getOriginalModel().getPomFile(), backupFile);
+		checkSnapshotdependencies(dependencyMapper);
+		MavenProject mavenProject = dependencyMapper.getMavenProject();
+		Map<String, String> properties = propertyResolver.getProjectProperties(mavenProject.getGroupId(),
+				mavenProject.getArtifactId());
+		properties.get("username");
+		properties.get("password");
+		if (properties.get("developmentVersion") != null) {
+			MavenReleasePluginExecutor.checkDevelopmentVersion(mavenProject, properties.get("developmentVersion"));
+		}
+		updateReleaseVersionMap(dependencyMapper, preReleaseVersion);
+		getLog().info("Executing Dry Run.");
+		List<MavenProject> changedProjects = new ArrayList<MavenProject>();
+		List<File> backupFiles = new ArrayList<File>();
+		try {
+			changedProjects = rewriteDependencyVersions(dependencyMapper, preReleaseVersion, false);
+			for (MavenProject changedProject : changedProjects) {
+				if (rollback) {
+					File backupFile = new File(changedProject.getOriginalModel().getProjectDirectory()
+							.getAbsolutePath() + File.separator + "pom-backup.xml");
+					getLog().debug("Creating backup file.");
+					FileUtils.copyFile(changedProject.getOriginalModel().getPomFile(), backupFile);
+					backupFiles.add(backupFile);
+				}
+				writePOM(changedProject);
 			}
-			boolean dependencyUpdated = updateDependencyVersion(dependencyMapper);
 			executor.dryRun(mavenProject);
-			if (rollback) {
-				if (dependencyUpdated) {
-					getLog().debug("Copying backup file to original file");
-					FileUtils.copyFile(backupFile, dependencyMapper.getMavenProject().getOriginalModel().getPomFile());
-				}
+		} finally {
+			// Also roll back failed and cancelled dry runs.
+			for (int i = 0; i < backupFiles.size(); i++) {
+				getLog().debug("Copying backup file to original file");
+				FileUtils.copyFile(backupFiles.get(i), changedProjects.get(i).getOriginalModel().getPomFile());
 				getLog().debug("Cleaning backup file.");
-				backupFile.delete();
+				backupFiles.get(i).delete();
 			}
 		}
 	}
@@ -125,71 +140,6 @@ public class VerifyReleaseMojo extends AbstractReleaseMojo {
 		}
 	}
 
-	/**
-	 * Check development version is greater then current version of the project.
-	 * @param mavenProject {@link MavenProject}
-	 * @param entry the entry
-	 * @throws MojoExecutionException the mojo execution exception
-	 */
-	private void checkDevelopmentVersion(MavenProject mavenProject, String version)
-			throws MojoExecutionException {
-		int result = Version.valueOf(version.trim()).compareTo(
-				Version.valueOf(mavenProject.getVersion().replace("-SNAPSHOT", "").trim()));
-		if (result <= 0) {
-			throw new MojoExecutionException("Development version of " + mavenProject.getName()
-					+ " should be greater then current version. The new development version is "
-					+ version.trim() + " and old version is " + mavenProject.getVersion().trim());
-		}
-	}
-
-	/**
-	 * Update dependency version in POM file. IF phase is PRE release then the dependency versions are updated to use
-	 * release versions. If phase is POST release then dependencies are updated to use SNAPSHOT version.
-	 * @param dependencyMapper {@link DependencyMapper}
-	 * @param phase execution phase of the project.
-	 * @param projectVersion current version of the project.
-	 * @throws FileNotFoundException the file not found exception
-	 * @throws IOException Signals that an I/O exception has occurred.
-	 */
-	private boolean updateDependencyVersion(DependencyMapper dependencyMapper) throws FileNotFoundException,
-			IOException {
-		boolean dependencyUpdated = false;
-
-		List<Dependency> dependencies = null;
-		// If project is multi module then use dependency management section.
-		if (dependencyMapper.getMavenProject().getOriginalModel().getDependencyManagement() == null) {
-			dependencies = dependencyMapper.getMavenProject()
-					.getOriginalModel().getDependencies();
-		} else {
-			dependencies = dependencyMapper.getMavenProject()
-					.getOriginalModel().getDependencyManagement()
-					.getDependencies();
-		}
-		for (Dependency dependency : dependencies) {
-			String version = null;
-			version = preReleaseVersion.get(
-					dependency.getGroupId()
-							+ "." + dependency.getArtifactId());
-			if (version != null) {
-				dependencyUpdated = true;
-				// dependency version is defined in property tag of POM file.
-				Matcher matcher = propertyTagPattern.matcher(dependency.getVersion());
-				if (matcher.find()) {
-					String key = matcher.group(1);
-					dependencyMapper.getMavenProject()
-							.getOriginalModel().getProperties().setProperty(key, version);
-				} else {
-					dependency.setVersion(version);
-				}
-			}
-		}
-		// Update POM if dependency is updated.
-		if (dependencyUpdated) {
-			writePOM(dependencyMapper.getMavenProject());
-		}
-		return dependencyUpdated;
-	}
-
 	/**
 	 * Merge properties defined by user with class variablesS.
 	 * 
@@ -211,20 +161,12 @@ public class VerifyReleaseMojo extends AbstractReleaseMojo {
 		projects.add(dependencyMapper.getMavenProject());
 		projects.addAll(dependencyMapper.getChildProject());
 		for (MavenProject mavenProject : projects) {
-			List<Dependency> dependencies = mavenProject.getOriginalModel().getDependencies();
-			if (mavenProject.getOriginalModel().getDependencyManagement() != null) {
-				dependencies.addAll(mavenProject.getOriginalModel().getDependencyManagement().getDependencies());
-			}
-			for (Dependency dependency : dependencies) {
+			// A copy, adding the managed dependencies to the list of the model would change the POM.
+			for (Dependency dependency : ModelPropertyResolver.getVersionedDependencies(mavenProject)) {
 				String version = dependency.getVersion();
 				if (version != null) {
 					// dependency version is defined in property tag of POM file.
-					Matcher matcher = propertyTagPattern.matcher(dependency.getVersion());
-					if (matcher.find()) {
-						String key = matcher.group(1);
-						version = mavenProject.getOriginalModel().getProperties().getProperty(key);
-					}
-
+					version = modelPropertyResolver.resolve(mavenProject, version);
 					if (version.contains("SNAPSHOT")) {
 						if (!isProjectDependency(dependency)) {
 							getLog().error("Can't release " + mavenProject.getName()
@@ -241,14 +183,6 @@ public class VerifyReleaseMojo extends AbstractReleaseMojo {
 	}
 
 	private boolean isProjectDependency(Dependency dependency) {
-		boolean projectDependency = false;
-		for (MavenProject project : getReactorProjects()) {
-			if (project.getArtifactId().equals(dependency.getArtifactId())
-					&& project.getGroupId().equals(dependency.getGroupId())) {
-				projectDependency = true;
-				break;
-			}
-		}
-		return projectDependency;
+		return getReactorIndex().contains(dependency.getGroupId(), dependency.getArtifactId());
 	}
 }
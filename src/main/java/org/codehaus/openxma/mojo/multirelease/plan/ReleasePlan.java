@@ -0,0 +1,616 @@
+package org.codehaus.openxma.mojo.multirelease.plan;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseReport;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.GraphSnapshot;
+import org.codehaus.openxma.mojo.multirelease.util.ModelPropertyResolver;
+import org.codehaus.openxma.mojo.multirelease.util.ReactorIndex;
+import org.codehaus.openxma.mojo.multirelease.util.VersionReference;
+
+/**
+ * Plan of a release computed from the dependency graph without building anything. It contains the release and next
+ * development version of every project and every rewrite of a version or version property which the pre and post
+ * release phases of the <tt>release</tt> goal make, in build order. The rewrites follow the same rules as the release
+ * goal: the parents, managed dependencies, dependencies, plugins and extensions of the project and its modules which
+ * refer to other projects are rewritten, see {@link VersionReference}, and child modules get the version of their
+ * project. A version given by a property is resolved through the parent chain with
+ * {@link ModelPropertyResolver}, the rewrite names the property.
+ * <p>
+ * The properties of the plan also contain the build order, the modules and dependencies of every project and a hash
+ * of its POM files including parents and imported BOMs, so the release goal can execute the plan without resolving
+ * the dependency graph again.
+ */
+public class ReleasePlan {
+
+	/** File name of the plan as JSON. */
+	public static final String JSON_FILE = "plan.json";
+
+	/** File name of the plan as properties, used as input of the release goal. */
+	public static final String PROPERTIES_FILE = "plan.properties";
+
+	/** Rewrite to the release versions before the release. */
+	public static final String PRE = "pre";
+
+	/** Rewrite to the next development versions after the release. */
+	public static final String POST = "post";
+
+	private static final String SNAPSHOT = "-SNAPSHOT";
+
+	private static final String DEVELOPMENT_VERSION = "developmentVersion";
+
+	private static final String IMPORT_SCOPE = "import";
+
+	/** Prefix of the properties which describe the plan itself and are not passed to the projects. */
+	public static final String PLAN_PREFIX = "plan.";
+
+	private static final String PROJECTS = PLAN_PREFIX + "projects";
+
+	private static final String MODULES = ".modules";
+
+	private static final String DEPENDENCIES = ".dependencies";
+
+	private static final String HASH = ".hash";
+
+	private static final Pattern LAST_NUMBER_PATTERN = Pattern.compile("(\\d+)(\\D*)$");
+
+	private final List<ProjectPlan> projects = new ArrayList<ProjectPlan>();
+
+	/**
+	 * Computes the plan, imported BOMs are looked up among the projects of the build order.
+	 * @param buildOrder the projects in build order.
+	 * @param developmentVersions configured next development versions by group ID and artifact ID separated by a dot,
+	 *            the next development version of all other projects is derived from the release version.
+	 * @throws IOException if a POM file can not be read.
+	 */
+	public ReleasePlan(List<DependencyMapper> buildOrder, Map<String, String> developmentVersions)
+			throws IOException {
+		this(buildOrder, developmentVersions, new ReactorIndex(getMavenProjects(buildOrder)));
+	}
+
+	/**
+	 * Computes the plan.
+	 * @param buildOrder the projects in build order.
+	 * @param developmentVersions configured next development versions by group ID and artifact ID separated by a dot,
+	 *            the next development version of all other projects is derived from the release version.
+	 * @param reactorIndex the index of the reactor, used to find the POMs of imported BOMs.
+	 * @throws IOException if a POM file can not be read.
+	 */
+	public ReleasePlan(List<DependencyMapper> buildOrder, Map<String, String> developmentVersions,
+			ReactorIndex reactorIndex) throws IOException {
+		Set<String> plannedProjects = new HashSet<String>();
+		for (MavenProject mavenProject : getMavenProjects(buildOrder)) {
+			plannedProjects.add(getId(mavenProject));
+		}
+		Map<String, String> releaseVersions = new HashMap<String, String>();
+		Map<String, String> nextVersions = new HashMap<String, String>();
+		for (DependencyMapper dependencyMapper : buildOrder) {
+			MavenProject mavenProject = dependencyMapper.getMavenProject();
+			String key = getKey(mavenProject);
+			ProjectPlan plan = new ProjectPlan(mavenProject.getGroupId() + ":" + mavenProject.getArtifactId(),
+					mavenProject.getVersion());
+			plan.releaseVersion = mavenProject.getVersion().replace(SNAPSHOT, "");
+			String developmentVersion = developmentVersions.get(key);
+			plan.developmentVersion = developmentVersion != null ? developmentVersion.trim()
+					: getNextVersion(plan.releaseVersion);
+			plan.developmentVersionConfigured = developmentVersion != null;
+			releaseVersions.put(key, plan.releaseVersion);
+			nextVersions.put(key, plan.developmentVersion);
+			for (MavenProject childProject : dependencyMapper.getChildProject()) {
+				plan.modules.add(childProject.getGroupId() + ":" + childProject.getArtifactId());
+				releaseVersions.put(getKey(childProject), plan.releaseVersion);
+				nextVersions.put(getKey(childProject), plan.developmentVersion);
+			}
+			for (MavenProject dependencyProject : dependencyMapper.getDependencyProject()) {
+				plan.dependencies.add(dependencyProject.getGroupId() + ":" + dependencyProject.getArtifactId());
+			}
+			plan.hash = getHash(dependencyMapper, plannedProjects, reactorIndex);
+			projects.add(plan);
+		}
+		ModelPropertyResolver modelPropertyResolver = new ModelPropertyResolver();
+		for (int i = 0; i < buildOrder.size(); i++) {
+			addRewrites(buildOrder.get(i), projects.get(i), releaseVersions, nextVersions, modelPropertyResolver);
+		}
+	}
+
+	/**
+	 * Derives the next development version from a release version by incrementing its last number, like the release
+	 * plugin does, e.g. <tt>1.2</tt> becomes <tt>1.3-SNAPSHOT</tt> and <tt>2.0-beta-1</tt> becomes
+	 * <tt>2.0-beta-2-SNAPSHOT</tt>.
+	 * @param releaseVersion the release version
+	 * @return the next development version, <code>null</code> if the version contains no number.
+	 */
+	public static String getNextVersion(String releaseVersion) {
+		Matcher matcher = LAST_NUMBER_PATTERN.matcher(releaseVersion);
+		if (!matcher.find()) {
+			return null;
+		}
+		String number = matcher.group(1);
+		String next = String.valueOf(Long.parseLong(number) + 1);
+		// Keep leading zeros, e.g. 1.09 becomes 1.10.
+		while (next.length() < number.length()) {
+			next = "0" + next;
+		}
+		return releaseVersion.substring(0, matcher.start(1)) + next + matcher.group(2) + SNAPSHOT;
+	}
+
+	/**
+	 * Adds the rewrites of the pre and post release phases of a project and its modules.
+	 */
+	private void addRewrites(DependencyMapper dependencyMapper, ProjectPlan plan, Map<String, String> releaseVersions,
+			Map<String, String> nextVersions, ModelPropertyResolver modelPropertyResolver) {
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		mavenProjects.add(dependencyMapper.getMavenProject());
+		mavenProjects.addAll(dependencyMapper.getChildProject());
+		Set<String> ownKeys = new HashSet<String>();
+		for (MavenProject mavenProject : mavenProjects) {
+			ownKeys.add(getKey(mavenProject));
+		}
+		List<Rewrite> postRewrites = new ArrayList<Rewrite>();
+		for (MavenProject mavenProject : mavenProjects) {
+			for (VersionReference reference : VersionReference.getVersionReferences(mavenProject)) {
+				String key = reference.getGroupId() + "." + reference.getArtifactId();
+				String releaseVersion = releaseVersions.get(key);
+				// References within the project are left to the release plugin.
+				if (releaseVersion == null || ownKeys.contains(key)) {
+					continue;
+				}
+				String property = ModelPropertyResolver.getPropertyName(reference.getVersion());
+				String version = modelPropertyResolver.resolve(mavenProject, reference.getVersion());
+				String dependencyId = reference.getGroupId() + ":" + reference.getArtifactId();
+				plan.rewrites.add(new Rewrite(PRE, dependencyId, property, version, releaseVersion));
+				postRewrites.add(new Rewrite(POST, dependencyId, property, releaseVersion, nextVersions.get(key)));
+			}
+		}
+		plan.rewrites.addAll(postRewrites);
+	}
+
+	/**
+	 * Writes the plan as JSON and as properties into the directory.
+	 * @param directory the directory, it is created if missing.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(File directory) throws IOException {
+		directory.mkdirs();
+		OutputStream outputStream = null;
+		try {
+			outputStream = new FileOutputStream(new File(directory, JSON_FILE));
+			Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+			writeJson(writer);
+		} finally {
+			close(outputStream);
+		}
+		outputStream = null;
+		try {
+			outputStream = new FileOutputStream(new File(directory, PROPERTIES_FILE));
+			getProperties().store(outputStream, "Release plan");
+		} finally {
+			close(outputStream);
+		}
+	}
+
+	/**
+	 * Gets the plan as properties in the format of <tt>multirelease.properties</tt>, i.e. the configured next
+	 * development versions as <tt>groupId.artifactId.developmentVersion</tt>. Passed to the release goal as
+	 * <tt>plan</tt>, the release uses the planned versions. Derived development versions are left to the release
+	 * plugin, so the plan does not override versions which were never configured. The build order, modules,
+	 * dependencies and POM hashes are added with the prefix {@link #PLAN_PREFIX}.
+	 * @return the properties
+	 */
+	public Properties getProperties() {
+		Properties properties = new Properties();
+		StringBuilder buildOrder = new StringBuilder();
+		for (ProjectPlan plan : projects) {
+			if (plan.developmentVersionConfigured) {
+				properties.setProperty(plan.id.replace(':', '.') + "." + DEVELOPMENT_VERSION, plan.developmentVersion);
+			}
+			buildOrder.append(buildOrder.length() == 0 ? "" : ",").append(plan.id);
+			properties.setProperty(PLAN_PREFIX + plan.id + MODULES, join(plan.modules));
+			properties.setProperty(PLAN_PREFIX + plan.id + DEPENDENCIES, join(plan.dependencies));
+			if (plan.hash != null) {
+				properties.setProperty(PLAN_PREFIX + plan.id + HASH, plan.hash);
+			}
+		}
+		properties.setProperty(PROJECTS, buildOrder.toString());
+		return properties;
+	}
+
+	/**
+	 * Restores the build order of a plan from its properties. The projects are taken from the reactor, their
+	 * dependencies from the plan, so the dependency graph is not resolved again.
+	 * @param plan the properties of the plan
+	 * @param reactorProjects the projects of the reactor
+	 * @return the projects in build order
+	 * @throws MojoExecutionException if the plan contains a project which is not in the reactor.
+	 */
+	public static List<DependencyMapper> getBuildOrder(Properties plan, Collection<MavenProject> reactorProjects)
+			throws MojoExecutionException {
+		return getBuildOrder(plan, new ReactorIndex(reactorProjects));
+	}
+
+	/**
+	 * Restores the build order of a plan from its properties, looking up the projects in an index of the reactor.
+	 * @param plan the properties of the plan
+	 * @param projects the index of the reactor
+	 * @return the projects in build order
+	 * @throws MojoExecutionException if the plan contains a project which is not in the reactor.
+	 */
+	public static List<DependencyMapper> getBuildOrder(Properties plan, ReactorIndex projects)
+			throws MojoExecutionException {
+		if (plan.getProperty(PROJECTS) == null) {
+			throw new MojoExecutionException("The release plan contains no build order, compute a new plan");
+		}
+		List<DependencyMapper> buildOrder = new ArrayList<DependencyMapper>();
+		for (String id : split(plan.getProperty(PROJECTS))) {
+			DependencyMapper dependencyMapper = new DependencyMapper(getProject(projects, id));
+			for (String module : split(plan.getProperty(PLAN_PREFIX + id + MODULES))) {
+				dependencyMapper.getChildProject().add(getProject(projects, module));
+			}
+			for (String dependency : split(plan.getProperty(PLAN_PREFIX + id + DEPENDENCIES))) {
+				dependencyMapper.addDependencyProject(getProject(projects, dependency));
+			}
+			buildOrder.add(dependencyMapper);
+		}
+		return buildOrder;
+	}
+
+	/**
+	 * Gets the projects whose POM files changed since the plan was computed, imported BOMs are looked up among the
+	 * projects to check.
+	 * @param plan the properties of the plan
+	 * @param projects the projects to check
+	 * @return group ID and artifact ID of the changed projects
+	 * @throws IOException if a POM file can not be read.
+	 */
+	public static List<String> getChangedProjects(Properties plan, List<DependencyMapper> projects)
+			throws IOException {
+		return getChangedProjects(plan, projects, new ReactorIndex(getMavenProjects(projects)));
+	}
+
+	/**
+	 * Gets the projects whose POM files changed since the plan was computed.
+	 * @param plan the properties of the plan
+	 * @param projects the projects to check
+	 * @param reactorIndex the index of the reactor, used to find the POMs of imported BOMs.
+	 * @return group ID and artifact ID of the changed projects
+	 * @throws IOException if a POM file can not be read.
+	 */
+	public static List<String> getChangedProjects(Properties plan, List<DependencyMapper> projects,
+			ReactorIndex reactorIndex) throws IOException {
+		Set<String> plannedProjects = new HashSet<String>();
+		for (String id : split(plan.getProperty(PROJECTS))) {
+			plannedProjects.add(id);
+			plannedProjects.addAll(split(plan.getProperty(PLAN_PREFIX + id + MODULES)));
+		}
+		List<String> changedProjects = new ArrayList<String>();
+		for (DependencyMapper dependencyMapper : projects) {
+			String id = getId(dependencyMapper.getMavenProject());
+			String hash = getHash(dependencyMapper, plannedProjects, reactorIndex);
+			if (hash != null && !hash.equals(plan.getProperty(PLAN_PREFIX + id + HASH))) {
+				changedProjects.add(id);
+			}
+		}
+		return changedProjects;
+	}
+
+	/**
+	 * Computes the SHA-256 hash of the POM files of a project and its modules, of their parents and of the BOMs they
+	 * import. Parents and BOMs which are projects of the plan are left out, their changes are detected by their own
+	 * hash and they change once they are released, e.g. before a resumed release checks the remaining projects.
+	 * @param plannedProjects group ID and artifact ID of the projects and modules of the plan.
+	 * @param reactorIndex the index of the reactor, used to find the POMs of imported BOMs.
+	 * @return the hash as hex string, <code>null</code> if the project has no POM file.
+	 */
+	private static String getHash(DependencyMapper dependencyMapper, Set<String> plannedProjects,
+			ReactorIndex reactorIndex) throws IOException {
+		if (dependencyMapper.getMavenProject().getOriginalModel().getPomFile() == null) {
+			return null;
+		}
+		Collection<File> pomFiles = new LinkedHashSet<File>();
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		mavenProjects.add(dependencyMapper.getMavenProject());
+		mavenProjects.addAll(dependencyMapper.getChildProject());
+		for (MavenProject mavenProject : mavenProjects) {
+			addPomFile(pomFiles, mavenProject);
+		}
+		ModelPropertyResolver modelPropertyResolver = new ModelPropertyResolver();
+		for (MavenProject mavenProject : mavenProjects) {
+			for (MavenProject project = mavenProject; project != null; project = project.getParent()) {
+				if (project != mavenProject && !plannedProjects.contains(getId(project))) {
+					addPomFile(pomFiles, project);
+				}
+				for (MavenProject bom : getImportedProjects(project, modelPropertyResolver, reactorIndex)) {
+					if (!plannedProjects.contains(getId(bom))) {
+						addPomFile(pomFiles, bom);
+					}
+				}
+			}
+		}
+		return GraphSnapshot.getHash(pomFiles);
+	}
+
+	/**
+	 * Gets the projects of the reactor whose POMs a project imports in its dependency management.
+	 */
+	private static List<MavenProject> getImportedProjects(MavenProject mavenProject,
+			ModelPropertyResolver modelPropertyResolver, ReactorIndex reactorIndex) {
+		List<MavenProject> importedProjects = new ArrayList<MavenProject>();
+		Model model = mavenProject.getOriginalModel() != null ? mavenProject.getOriginalModel() : mavenProject
+				.getModel();
+		if (model == null || model.getDependencyManagement() == null) {
+			return importedProjects;
+		}
+		for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+			if (IMPORT_SCOPE.equals(dependency.getScope())) {
+				MavenProject importedProject = reactorIndex.getProject(ReactorIndex.getKey(
+						modelPropertyResolver.resolve(mavenProject, dependency.getGroupId()),
+						modelPropertyResolver.resolve(mavenProject, dependency.getArtifactId())));
+				if (importedProject != null) {
+					importedProjects.add(importedProject);
+				}
+			}
+		}
+		return importedProjects;
+	}
+
+	private static void addPomFile(Collection<File> pomFiles, MavenProject mavenProject) {
+		File pomFile = mavenProject.getOriginalModel() != null ? mavenProject.getOriginalModel().getPomFile() : null;
+		if (pomFile == null) {
+			pomFile = mavenProject.getFile();
+		}
+		if (pomFile != null) {
+			pomFiles.add(pomFile);
+		}
+	}
+
+	private static List<MavenProject> getMavenProjects(List<DependencyMapper> projects) {
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		for (DependencyMapper dependencyMapper : projects) {
+			mavenProjects.add(dependencyMapper.getMavenProject());
+			mavenProjects.addAll(dependencyMapper.getChildProject());
+		}
+		return mavenProjects;
+	}
+
+	private static String getId(MavenProject mavenProject) {
+		return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+
+	private static MavenProject getProject(ReactorIndex projects, String id) throws MojoExecutionException {
+		MavenProject mavenProject = projects.getProject(id);
+		if (mavenProject == null) {
+			throw new MojoExecutionException("Project " + id + " of the release plan is not in the reactor");
+		}
+		return mavenProject;
+	}
+
+	private static String join(Collection<String> values) {
+		StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			joined.append(joined.length() == 0 ? "" : ",").append(value);
+		}
+		return joined.toString();
+	}
+
+	private static List<String> split(String values) {
+		List<String> split = new ArrayList<String>();
+		if (values != null) {
+			for (String value : values.split(",")) {
+				if (value.trim().length() > 0) {
+					split.add(value.trim());
+				}
+			}
+		}
+		return split;
+	}
+
+	/**
+	 * Writes the plan as JSON.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n  \"projects\": [");
+		for (Iterator<ProjectPlan> iterator = projects.iterator(); iterator.hasNext();) {
+			ProjectPlan plan = iterator.next();
+			writer.write("\n    {\"id\": ");
+			ReleaseReport.writeString(writer, plan.id);
+			writer.write(", \"version\": ");
+			ReleaseReport.writeString(writer, plan.version);
+			writer.write(", \"releaseVersion\": ");
+			ReleaseReport.writeString(writer, plan.releaseVersion);
+			writer.write(", \"developmentVersion\": ");
+			ReleaseReport.writeString(writer, plan.developmentVersion);
+			writer.write(", \"developmentVersionConfigured\": " + plan.developmentVersionConfigured);
+			writer.write(", \"modules\": [");
+			String separator = "";
+			for (String module : plan.modules) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, module);
+				separator = ", ";
+			}
+			writer.write("], \"dependencies\": [");
+			separator = "";
+			for (String dependency : plan.dependencies) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, dependency);
+				separator = ", ";
+			}
+			writer.write("], \"hash\": ");
+			ReleaseReport.writeString(writer, plan.hash);
+			writer.write(", \"rewrites\": [");
+			separator = "";
+			for (Rewrite rewrite : plan.rewrites) {
+				writer.write(separator + "\n      {\"phase\": ");
+				ReleaseReport.writeString(writer, rewrite.phase);
+				writer.write(", \"dependency\": ");
+				ReleaseReport.writeString(writer, rewrite.dependency);
+				writer.write(", \"property\": ");
+				ReleaseReport.writeString(writer, rewrite.property);
+				writer.write(", \"from\": ");
+				ReleaseReport.writeString(writer, rewrite.from);
+				writer.write(", \"to\": ");
+				ReleaseReport.writeString(writer, rewrite.to);
+				writer.write("}");
+				separator = ",";
+			}
+			writer.write(iterator.hasNext() ? "]}," : "]}");
+		}
+		writer.write("\n  ]\n}\n");
+		writer.flush();
+	}
+
+	public List<ProjectPlan> getProjects() {
+		return projects;
+	}
+
+	private String getKey(MavenProject mavenProject) {
+		return mavenProject.getGroupId() + "." + mavenProject.getArtifactId();
+	}
+
+	private void close(OutputStream outputStream) {
+		try {
+			if (outputStream != null) {
+				outputStream.close();
+			}
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+
+	/**
+	 * Planned versions and rewrites of a single project.
+	 */
+	public static class ProjectPlan {
+
+		private final String id;
+
+		private final String version;
+
+		private String releaseVersion;
+
+		private String developmentVersion;
+
+		private boolean developmentVersionConfigured;
+
+		private final List<String> modules = new ArrayList<String>();
+
+		private final List<Rewrite> rewrites = new ArrayList<Rewrite>();
+
+		private final Collection<String> dependencies = new LinkedHashSet<String>();
+
+		private String hash;
+
+		ProjectPlan(String id, String version) {
+			this.id = id;
+			this.version = version;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public String getReleaseVersion() {
+			return releaseVersion;
+		}
+
+		public String getDevelopmentVersion() {
+			return developmentVersion;
+		}
+
+		/**
+		 * Tells whether the next development version was configured or derived from the release version.
+		 * @return true, if configured.
+		 */
+		public boolean isDevelopmentVersionConfigured() {
+			return developmentVersionConfigured;
+		}
+
+		public List<String> getModules() {
+			return modules;
+		}
+
+		public List<Rewrite> getRewrites() {
+			return rewrites;
+		}
+
+		public Collection<String> getDependencies() {
+			return dependencies;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Rewrite of a version referring to another project, either in the reference itself or in the property it uses.
+	 */
+	public static class Rewrite {
+
+		private final String phase;
+
+		private final String dependency;
+
+		private final String property;
+
+		private final String from;
+
+		private final String to;
+
+		Rewrite(String phase, String dependency, String property, String from, String to) {
+			this.phase = phase;
+			this.dependency = dependency;
+			this.property = property;
+			this.from = from;
+			this.to = to;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		public String getDependency() {
+			return dependency;
+		}
+
+		public String getProperty() {
+			return property;
+		}
+
+		public String getFrom() {
+			return from;
+		}
+
+		public String getTo() {
+			return to;
+		}
+	}
+}
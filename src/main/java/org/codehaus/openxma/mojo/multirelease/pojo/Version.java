@@ -1,170 +1,466 @@
 package org.codehaus.openxma.mojo.multirelease.pojo;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.Locale;
 
 import org.apache.commons.lang.StringUtils;
 
 /**
- * Class representing a software version. 
- * 
- * It supports the version in major[.minor][.point][-suffix] format. 
- * It does String comparison on the suffix. 
- * 
+ * Class representing a software version.
+ *
+ * Versions are ordered like Maven's <tt>ComparableVersion</tt>: any number of segments separated by dots and hyphens
+ * is supported, a change between digits and letters separates segments as well, numbers are compared numerically
+ * and the qualifiers are ordered <tt>alpha &lt; beta &lt; milestone &lt; rc &lt; snapshot &lt; release &lt; sp</tt>,
+ * followed by all other qualifiers in lexical order. <tt>a1</tt>, <tt>b1</tt> and <tt>m1</tt> are short for alpha,
+ * beta and milestone, <tt>cr</tt> is the same as <tt>rc</tt>, <tt>ga</tt> and <tt>final</tt> are the same as a
+ * release. Trailing zeros and release qualifiers are ignored, so <tt>1.0.0</tt> equals <tt>1</tt>.
+ *
+ * The version is parsed in a single pass. Hyphens followed by a number open a nested list of segments, which is
+ * always the last segment of its list, so the nested lists form a chain and the parsed version is stored as a flat
+ * array of sort keys. Comparing two versions walks both arrays once without allocating, only qualifiers outside the
+ * known ones and very large numbers fall back to comparing characters. Instances are immutable and
+ * are shared through {@link #valueOf(String)}.
+ *
+ * The components <tt>major[.minor][.point][-suffix]</tt> are still available for display.
+ *
  * @author vikas_sit
  *
  */
 public class Version implements Comparable<Version> {
 
-	private static int CANNOT_COMPARE = -2;
+	private static final int SHIFT = 56;
 
-	private String[] versionParts = new String[4];
+	/** Type of a qualifier segment, it is lower than nested lists and numbers. */
+	private static final long STRING = 0;
 
-	private static final Pattern VERSION_NUMBER_PATTERN = Pattern
-			.compile("(?:(\\w+)\\.)?(?:(\\w+)\\.)?(?:(\\w+))?(?:(-\\w+))?$");
+	/** Type of a nested list, it is lower than numbers. */
+	private static final long LIST = 1L << SHIFT;
 
-	public Version(String major, String minor, String point, String suffix) {
-		super();
-		versionParts[0] = major;
-		versionParts[1] = minor;
-		versionParts[2] = point;
-		versionParts[3] = suffix;
-	}
+	/** Type of a numeric segment. */
+	private static final long INTEGER = 2L << SHIFT;
 
-	public static Version valueOf(String version) {
-		if (StringUtils.isBlank(version)) {
-			throw new IllegalArgumentException("Version Number not specified.");
-		}
+	private static final long VALUE_MASK = (1L << SHIFT) - 1;
+
+	/** Value of numbers with more digits than fit into the sort key, they are compared by their digits. */
+	private static final long BIG_INTEGER = VALUE_MASK;
+
+	private static final int MAX_DIGITS = 15;
 
-		Matcher matcher = VERSION_NUMBER_PATTERN.matcher(version);
+	private static final String[] QUALIFIERS = { "alpha", "beta", "milestone", "rc", "snapshot", "", "sp" };
 
-		if (matcher.find()) {
-			int groupCount = matcher.groupCount();
+	/** Rank of a release, i.e. of a missing qualifier. */
+	private static final long RELEASE = 5;
 
-			String[] versionParts = new String[4];
-			int j = 0;
-			for (int i = 0; i < groupCount; i++) {
-				String group = matcher.group(i + 1);
+	/** Rank of all qualifiers which are not known, they are compared by their characters. */
+	private static final long OTHER = QUALIFIERS.length;
 
-				if (StringUtils.isNotBlank(group)) {
-					versionParts[j++] = group;
+	/** Versions parsed by {@link #valueOf(String)}, shared by all projects and workers. */
+	private static final VersionCache CACHE = new VersionCache(4096);
+
+	private final String value;
+
+	/** The value in lower case, used to compare qualifiers and large numbers by their characters. */
+	private final String text;
+
+	/** Type and value of every segment in order, a nested list contains all segments following it. */
+	private final long[] keys;
+
+	/** Start and end of every segment in the text. */
+	private final int[] offsets;
+
+	private int hash;
+
+	public Version(String major, String minor, String point, String suffix) {
+		this((major != null ? major : "")
+				+ (minor != null ? "." + minor : "")
+				+ (point != null ? "." + point : "")
+				+ (suffix != null ? suffix : ""));
+	}
+
+	Version(String value) {
+		this.value = value;
+		this.text = value.toLowerCase(Locale.ENGLISH);
+		int length = text.length();
+		// Every separator, change between digits and letters and nested list adds at most one segment.
+		long[] keys = new long[2 * length + 1];
+		int[] offsets = new int[4 * length + 2];
+		int size = 0;
+		// Index of the nested list currently parsed, -1 for the top level list.
+		int list = -1;
+		boolean digit = false;
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c == '.' || c == '-') {
+				size = addSegment(keys, offsets, size, start, i, digit, false);
+				start = i + 1;
+				if (c == '-' && digit) {
+					// 1.0-* = 1-*
+					size = normalize(keys, size, list);
+					if (i + 1 < length && Character.isDigit(text.charAt(i + 1))) {
+						// A nested list only after digits followed by a digit, to differentiate 1.1 from 1-1.
+						list = size;
+						keys[size] = LIST;
+						offsets[2 * size] = i;
+						offsets[2 * size + 1] = i;
+						size++;
+					}
 				}
+			} else if (Character.isDigit(c)) {
+				if (!digit && i > start) {
+					size = addSegment(keys, offsets, size, start, i, false, true);
+					start = i;
+				}
+				digit = true;
+			} else {
+				if (digit && i > start) {
+					size = addSegment(keys, offsets, size, start, i, true, false);
+					start = i;
+				}
+				digit = false;
 			}
+		}
+		if (length > start) {
+			size = addSegment(keys, offsets, size, start, length, digit, false);
+		}
+		// Normalize the nested lists from the innermost, an emptied list is removed from its parent.
+		while (true) {
+			size = normalize(keys, size, list);
+			if (list < 0) {
+				break;
+			}
+			if (size == list + 1) {
+				size = list;
+			}
+			list = getParent(keys, list);
+		}
+		this.keys = Arrays.copyOf(keys, size);
+		this.offsets = Arrays.copyOf(offsets, 2 * size);
+	}
 
-			return new Version(versionParts[0], versionParts[1],
-					versionParts[2], versionParts[3]);
+	/**
+	 * Gets the parsed version of a string. Versions are interned, every distinct string is parsed once.
+	 * @param version the version string
+	 * @return the shared parsed version
+	 */
+	public static Version valueOf(String version) {
+		if (StringUtils.isBlank(version)) {
+			throw new IllegalArgumentException("Version Number not specified.");
 		}
+		return CACHE.get(version);
+	}
 
-		return null;
+	/**
+	 * Gets the cache of the versions parsed by {@link #valueOf(String)}.
+	 * @return the version cache
+	 */
+	public static VersionCache getCache() {
+		return CACHE;
 	}
 
+	/**
+	 * Gets the text before the first dot or hyphen.
+	 * @return the major version
+	 */
 	public String getMajor() {
-		return versionParts[0] == null ? "" : versionParts[0];
+		return getComponent(0);
 	}
 
+	/**
+	 * Gets the text between the first and the second dot before the first hyphen.
+	 * @return the minor version, empty if there is none.
+	 */
 	public String getMinor() {
-		return versionParts[1] == null ? "" : versionParts[1];
+		return getComponent(1);
 	}
 
+	/**
+	 * Gets the text after the second dot before the first hyphen.
+	 * @return the point version, empty if there is none.
+	 */
 	public String getPoint() {
-		return versionParts[2] == null ? "" : versionParts[2];
+		return getComponent(2);
 	}
 
+	/**
+	 * Gets the text after the first hyphen.
+	 * @return the suffix, empty if there is none.
+	 */
 	public String getSuffix() {
-		return versionParts[3] == null ? "" : versionParts[3].substring(1);
+		int index = value.indexOf('-');
+		return index < 0 ? "" : value.substring(index + 1);
 	}
 
 	@Override
 	public String toString() {
-		return (versionParts[0] != null ? versionParts[0] : "")
-				+ (versionParts[1] != null ? "." + versionParts[1] : "")
-				+ (versionParts[2] != null ? "." + versionParts[2] : "")
-				+ (versionParts[3] != null ? versionParts[3] : "");
+		return value;
 	}
 
 	public int compareTo(Version other) {
-		int result = 1;
 		if (other == null) {
-			result = 1;
+			return 1;
 		}
-
 		if (this == other) {
-			result = 0;
+			return 0;
 		}
-
-		result = compare(this.getMajor(), other.getMajor());
-
-		if (result == 0) {
-			result = compare(this.getMinor(), other.getMinor());
+		int i = 0;
+		int j = 0;
+		while (i < keys.length || j < other.keys.length) {
+			if (i == keys.length || j == other.keys.length) {
+				// 1 < 1.1, 1-rc < 1 and 1 < 1-sp. A nested list ends the list, it compares like its first segment.
+				int result = i == keys.length ? -other.compareToMissing(j) : compareToMissing(i);
+				if (result != 0 || (i == keys.length ? other.keys[j] : keys[i]) == LIST) {
+					return result;
+				}
+				if (i == keys.length) {
+					j++;
+				} else {
+					i++;
+				}
+				continue;
+			}
+			long key = keys[i];
+			long otherKey = other.keys[j];
+			if (key != otherKey) {
+				return key < otherKey ? -1 : 1;
+			}
+			if (key == STRING + OTHER) {
+				int result = compareText(other, i, j);
+				if (result != 0) {
+					return result;
+				}
+			} else if (key == INTEGER + BIG_INTEGER) {
+				int result = compareDigits(other, i, j);
+				if (result != 0) {
+					return result;
+				}
+			}
+			// Two nested lists are compared by continuing with their segments.
+			i++;
+			j++;
 		}
+		return 0;
+	}
 
-		if (result == 0) {
-			result = compare(this.getPoint(), other.getPoint());
+	/**
+	 * Two versions are equal if they consist of the same segments after removing trailing zeros and release
+	 * qualifiers, e.g. <tt>1.0</tt> and <tt>1-ga</tt>.
+	 */
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
 		}
-		
-		if (result == 0) {
-			result = compare(this.getSuffix(), other.getSuffix());
+		if (!(object instanceof Version)) {
+			return false;
 		}
-
-		return result;
+		Version other = (Version) object;
+		if (!Arrays.equals(keys, other.keys)) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if ((keys[i] == STRING + OTHER && compareText(other, i, i) != 0)
+					|| (keys[i] == INTEGER + BIG_INTEGER && compareDigits(other, i, i) != 0)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private int compare(String current, String other) {
-		int result = 0;
-		if (StringUtils.isBlank(current) && StringUtils.isBlank(other)) {
-			result = 0;
-		} else {
-			result = compareNumeric(current, other);
-
-			if (result == CANNOT_COMPARE) {
-				result = comapareStrings(current, other);
+	@Override
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			result = Arrays.hashCode(keys);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == STRING + OTHER || keys[i] == INTEGER + BIG_INTEGER) {
+					int start = offsets[2 * i];
+					if (keys[i] == INTEGER + BIG_INTEGER) {
+						start = skipZeros(start, offsets[2 * i + 1]);
+					}
+					for (int k = start; k < offsets[2 * i + 1]; k++) {
+						result = 31 * result + text.charAt(k);
+					}
+				}
 			}
+			hash = result;
 		}
-
 		return result;
 	}
 
-	private int comapareStrings(String current, String other) {
-		int result = 0;
-
-		if (!StringUtils.isBlank(current) && !StringUtils.isBlank(other)) {
-			result = current.compareTo(other);
-		} else if (!StringUtils.isBlank(current)) {
-			result = 1;
+	/**
+	 * Adds a segment to the current list.
+	 * @return the new number of segments
+	 */
+	private int addSegment(long[] keys, int[] offsets, int size, int start, int end, boolean digit,
+			boolean followedByDigit) {
+		offsets[2 * size] = start;
+		offsets[2 * size + 1] = end;
+		if (start == end) {
+			keys[size] = INTEGER;
+		} else if (digit) {
+			keys[size] = INTEGER + parseNumber(start, end);
 		} else {
-			result = -1;
+			keys[size] = STRING + getQualifierRank(start, end, followedByDigit);
 		}
+		return size + 1;
+	}
 
-		return result;
+	/**
+	 * Removes the trailing zeros and release qualifiers of a list. Segments of nested lists are never removed, their
+	 * list ends the parent list.
+	 * @param list index of the nested list, -1 for the top level list.
+	 * @return the new number of segments
+	 */
+	private int normalize(long[] keys, int size, int list) {
+		while (size > list + 1 && (keys[size - 1] == INTEGER || keys[size - 1] == STRING + RELEASE)) {
+			size--;
+		}
+		return size;
 	}
 
-	private int compareNumeric(String current, String other) {
-		int result = CANNOT_COMPARE;
-		Integer currentInteger = null;
-		Integer otherInteger = null;
-		try {
-			currentInteger = Integer.valueOf(current);
-		} catch (NumberFormatException ex) {
+	/**
+	 * Gets the list containing a nested list.
+	 * @return index of the parent list, -1 for the top level list.
+	 */
+	private int getParent(long[] keys, int list) {
+		for (int i = list - 1; i >= 0; i--) {
+			if (keys[i] == LIST) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses a number into the value of its sort key.
+	 */
+	private long parseNumber(int start, int end) {
+		start = skipZeros(start, end);
+		if (end - start > MAX_DIGITS) {
+			return BIG_INTEGER;
+		}
+		long number = 0;
+		for (int i = start; i < end; i++) {
+			number = number * 10 + Character.digit(text.charAt(i), 10);
+		}
+		return number;
+	}
 
+	/**
+	 * Gets the rank of a qualifier, all qualifiers which are not known have the same rank.
+	 */
+	private long getQualifierRank(int start, int end, boolean followedByDigit) {
+		if (followedByDigit && end - start == 1) {
+			// a1 = alpha-1, b1 = beta-1, m1 = milestone-1
+			switch (text.charAt(start)) {
+				case 'a':
+					return 0;
+				case 'b':
+					return 1;
+				case 'm':
+					return 2;
+			}
+		}
+		if (text.startsWith("ga", start) && end - start == 2 || text.startsWith("final", start) && end - start == 5) {
+			return RELEASE;
+		}
+		if (text.startsWith("cr", start) && end - start == 2) {
+			return 3;
 		}
+		for (int i = 0; i < QUALIFIERS.length; i++) {
+			if (QUALIFIERS[i].length() == end - start && text.startsWith(QUALIFIERS[i], start)) {
+				return i;
+			}
+		}
+		return OTHER;
+	}
 
-		try {
-			otherInteger = Integer.valueOf(other);
-		} catch (NumberFormatException ex) {
+	/**
+	 * Compares a segment to a missing segment of the other version.
+	 */
+	private int compareToMissing(int index) {
+		long key = keys[index];
+		if (key == LIST) {
+			// A nested list compares like its first segment, it is never empty after normalization.
+			return index + 1 < keys.length ? compareToMissing(index + 1) : 0;
+		}
+		if (key >= INTEGER) {
+			return key == INTEGER ? 0 : 1;
+		}
+		long rank = key & VALUE_MASK;
+		return rank == RELEASE ? 0 : rank < RELEASE ? -1 : 1;
+	}
 
+	/**
+	 * Compares two qualifiers which are not known by their characters.
+	 */
+	private int compareText(Version other, int index, int otherIndex) {
+		int start = offsets[2 * index];
+		int length = offsets[2 * index + 1] - start;
+		int otherStart = other.offsets[2 * otherIndex];
+		int otherLength = other.offsets[2 * otherIndex + 1] - otherStart;
+		int common = Math.min(length, otherLength);
+		for (int i = 0; i < common; i++) {
+			char c = text.charAt(start + i);
+			char otherC = other.text.charAt(otherStart + i);
+			if (c != otherC) {
+				return c - otherC;
+			}
 		}
+		return length - otherLength;
+	}
 
-		if (currentInteger != null && otherInteger != null) {
-			result = currentInteger.compareTo(otherInteger);
-		} else if (currentInteger != null) {
-			result = 1;
-		} else if (otherInteger != null) {
-			result = -1;
-		} else {
-			result = CANNOT_COMPARE;
+	/**
+	 * Compares two numbers which are too large for the sort key by their digits.
+	 */
+	private int compareDigits(Version other, int index, int otherIndex) {
+		int end = offsets[2 * index + 1];
+		int start = skipZeros(offsets[2 * index], end);
+		int otherEnd = other.offsets[2 * otherIndex + 1];
+		int otherStart = other.skipZeros(other.offsets[2 * otherIndex], otherEnd);
+		if (end - start != otherEnd - otherStart) {
+			return end - start < otherEnd - otherStart ? -1 : 1;
 		}
+		for (int i = 0; i < end - start; i++) {
+			int digit = Character.digit(text.charAt(start + i), 10);
+			int otherDigit = Character.digit(other.text.charAt(otherStart + i), 10);
+			if (digit != otherDigit) {
+				return digit < otherDigit ? -1 : 1;
+			}
+		}
+		return 0;
+	}
 
-		return result;
+	private int skipZeros(int start, int end) {
+		while (start < end - 1 && Character.digit(text.charAt(start), 10) == 0) {
+			start++;
+		}
+		return start;
 	}
 
+	/**
+	 * Gets major, minor or point, i.e. the text before, between or after the first two dots before the first hyphen.
+	 */
+	private String getComponent(int component) {
+		int end = value.indexOf('-');
+		if (end < 0) {
+			end = value.length();
+		}
+		int start = 0;
+		for (int i = 0; i < component; i++) {
+			int dot = value.indexOf('.', start);
+			if (dot < 0 || dot >= end) {
+				return "";
+			}
+			start = dot + 1;
+		}
+		if (component < 2) {
+			int dot = value.indexOf('.', start);
+			if (dot >= 0 && dot < end) {
+				end = dot;
+			}
+		}
+		return value.substring(start, end);
+	}
 }
@@ -0,0 +1,89 @@
+package org.codehaus.openxma.mojo.multirelease.pojo;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded intern cache of parsed versions, so all projects and workers share one {@link Version} per distinct version
+ * string. Lookups are lock free and thread safe. When the cache is full, further versions are parsed but not cached,
+ * the versions of a release are few and are all seen early. Hits and misses are counted for the report of the
+ * execution.
+ */
+public class VersionCache {
+
+	private final int capacity;
+
+	private final ConcurrentMap<String, Version> versions = new ConcurrentHashMap<String, Version>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param capacity maximum number of cached versions.
+	 */
+	public VersionCache(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Gets the parsed version of a string, parsing it on the first request.
+	 * @param value the version string
+	 * @return the shared parsed version
+	 */
+	public Version get(String value) {
+		Version version = versions.get(value);
+		if (version != null) {
+			hits.incrementAndGet();
+			return version;
+		}
+		misses.incrementAndGet();
+		version = new Version(value);
+		if (versions.size() < capacity) {
+			Version previous = versions.putIfAbsent(value, version);
+			if (previous != null) {
+				// Parsed concurrently by another worker, share its instance.
+				return previous;
+			}
+		}
+		return version;
+	}
+
+	/**
+	 * Removes all cached versions and resets the counters.
+	 */
+	public void clear() {
+		versions.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the number of cached versions.
+	 * @return the size of the cache
+	 */
+	public int size() {
+		return versions.size();
+	}
+
+	/**
+	 * Gets the number of lookups answered from the cache.
+	 * @return the hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups which had to parse the version.
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
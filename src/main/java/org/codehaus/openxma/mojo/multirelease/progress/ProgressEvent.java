@@ -0,0 +1,171 @@
+package org.codehaus.openxma.mojo.multirelease.progress;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Event sent by a child build to the plugin. An event is transferred as a single line: the type followed by
+ * <tt>name=value</tt> fields separated by spaces, names and values are URL encoded.
+ */
+public class ProgressEvent {
+
+	/** A module of the child build was started. */
+	public static final String PROJECT_STARTED = "projectStarted";
+
+	/** A module of the child build finished, see {@link #STATUS}. */
+	public static final String PROJECT_FINISHED = "projectFinished";
+
+	/** A mojo was started. */
+	public static final String MOJO_STARTED = "mojoStarted";
+
+	/** A mojo finished, see {@link #STATUS} and {@link #DURATION}. */
+	public static final String MOJO_FINISHED = "mojoFinished";
+
+	/** Tests were executed, see {@link #TESTS_RUN}. */
+	public static final String TESTS = "tests";
+
+	/** An artifact was deployed, see {@link #ARTIFACT} and {@link #BYTES}. */
+	public static final String DEPLOYED = "deployed";
+
+	/** Field with group ID and artifact ID of the project of the plugin which started the child build. */
+	public static final String PROJECT = "project";
+
+	/** Field with group ID and artifact ID of the module of the child build. */
+	public static final String MODULE = "module";
+
+	/** Field with the mojo as <tt>groupId:artifactId:goal@executionId</tt>. */
+	public static final String MOJO = "mojo";
+
+	/** Field with the status, either <tt>success</tt> or <tt>failure</tt>. */
+	public static final String STATUS = "status";
+
+	/** Field with a duration in milliseconds. */
+	public static final String DURATION = "duration";
+
+	public static final String TESTS_RUN = "run";
+
+	public static final String TESTS_FAILED = "failed";
+
+	public static final String TESTS_SKIPPED = "skipped";
+
+	/** Field with the coordinates of an artifact. */
+	public static final String ARTIFACT = "artifact";
+
+	/** Field with a size in bytes. */
+	public static final String BYTES = "bytes";
+
+	private static final String ENCODING = "UTF-8";
+
+	private final String type;
+
+	private final Map<String, String> fields = new LinkedHashMap<String, String>();
+
+	/**
+	 * @param type type of the event, e.g. {@link #MOJO_FINISHED}.
+	 */
+	public ProgressEvent(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * Parses an event from its line.
+	 * @param line the line
+	 * @return the event, <code>null</code> if the line is empty.
+	 */
+	public static ProgressEvent parse(String line) {
+		String[] parts = line.trim().split(" ");
+		if (parts[0].length() == 0) {
+			return null;
+		}
+		ProgressEvent event = new ProgressEvent(decode(parts[0]));
+		for (int i = 1; i < parts.length; i++) {
+			int separator = parts[i].indexOf('=');
+			if (separator > 0) {
+				event.set(decode(parts[i].substring(0, separator)), decode(parts[i].substring(separator + 1)));
+			}
+		}
+		return event;
+	}
+
+	/**
+	 * Sets a field of the event.
+	 * @param name name of the field
+	 * @param value value of the field, <code>null</code> values are ignored.
+	 * @return this event
+	 */
+	public ProgressEvent set(String name, Object value) {
+		if (value != null) {
+			fields.put(name, String.valueOf(value));
+		}
+		return this;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * Gets a field of the event.
+	 * @param name name of the field
+	 * @return the value, <code>null</code> if not set.
+	 */
+	public String get(String name) {
+		return fields.get(name);
+	}
+
+	/**
+	 * Gets a numeric field of the event.
+	 * @param name name of the field
+	 * @return the value, 0 if not set or not a number.
+	 */
+	public long getLong(String name) {
+		String value = fields.get(name);
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Formats the event as line without line separator.
+	 * @return the line
+	 */
+	public String toLine() {
+		StringBuilder line = new StringBuilder(encode(type));
+		for (Entry<String, String> field : fields.entrySet()) {
+			line.append(' ').append(encode(field.getKey())).append('=').append(encode(field.getValue()));
+		}
+		return line.toString();
+	}
+
+	@Override
+	public String toString() {
+		return toLine();
+	}
+
+	private static String encode(String value) {
+		try {
+			return URLEncoder.encode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String decode(String value) {
+		try {
+			return URLDecoder.decode(value, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalArgumentException e) {
+			return value;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package org.codehaus.openxma.mojo.multirelease.progress;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Maven core extension sending the progress of a child build to the {@link ProgressServer} of the plugin. The plugin
+ * adds its own jar as <tt>maven.ext.class.path</tt> of the child builds together with the port of the server. Without
+ * the port the spy does nothing, a failure to send an event disables it, so the child build is never affected.
+ * <p>
+ * The spy only uses the API of Maven core and the JDK, the plugin jar is the only entry of the extension class path.
+ */
+public class ProgressEventSpy extends AbstractEventSpy {
+
+	/** User property with the port of the {@link ProgressServer}. */
+	public static final String PORT_PROPERTY = "multirelease.progress.port";
+
+	/** User property with group ID and artifact ID of the project the plugin started the build for. */
+	public static final String PROJECT_PROPERTY = "multirelease.progress.project";
+
+	private static final Pattern TESTS_PATTERN = Pattern
+			.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+), Skipped: (\\d+)");
+
+	private final Map<Object, Long> startTimes = new ConcurrentHashMap<Object, Long>();
+
+	private Socket socket;
+
+	private Writer writer;
+
+	private String project;
+
+	@Override
+	public void init(Context context) throws Exception {
+		Object userProperties = context.getData().get("userProperties");
+		if (!(userProperties instanceof Properties)) {
+			return;
+		}
+		String port = ((Properties) userProperties).getProperty(PORT_PROPERTY);
+		if (port == null) {
+			return;
+		}
+		project = ((Properties) userProperties).getProperty(PROJECT_PROPERTY);
+		try {
+			socket = new Socket(InetAddress.getByName(null), Integer.parseInt(port.trim()));
+			writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+		} catch (IOException e) {
+			disable();
+		} catch (NumberFormatException e) {
+			disable();
+		}
+	}
+
+	@Override
+	public void onEvent(Object event) throws Exception {
+		if (writer == null) {
+			return;
+		}
+		if (event instanceof ExecutionEvent) {
+			onExecutionEvent((ExecutionEvent) event);
+		} else if (event.getClass().getName().equals("org.eclipse.aether.RepositoryEvent")) {
+			// Resolved by name, Maven 3.0 ships the Sonatype Aether API instead.
+			onRepositoryEvent(event);
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		disable();
+	}
+
+	private void onExecutionEvent(ExecutionEvent event) {
+		MavenProject mavenProject = event.getProject();
+		MojoExecution mojoExecution = event.getMojoExecution();
+		String module = mavenProject == null ? null : mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+		switch (event.getType()) {
+		case ProjectStarted:
+			startTimes.put(mavenProject, Long.valueOf(System.currentTimeMillis()));
+			send(createEvent(ProgressEvent.PROJECT_STARTED).set(ProgressEvent.MODULE, module));
+			break;
+		case ProjectSucceeded:
+		case ProjectFailed:
+			send(createEvent(ProgressEvent.PROJECT_FINISHED).set(ProgressEvent.MODULE, module)
+					.set(ProgressEvent.STATUS, event.getType() == ExecutionEvent.Type.ProjectSucceeded ? "success"
+							: "failure").set(ProgressEvent.DURATION, getDuration(mavenProject)));
+			break;
+		case MojoStarted:
+			startTimes.put(mojoExecution, Long.valueOf(System.currentTimeMillis()));
+			send(createEvent(ProgressEvent.MOJO_STARTED).set(ProgressEvent.MODULE, module)
+					.set(ProgressEvent.MOJO, getMojo(mojoExecution)));
+			break;
+		case MojoSucceeded:
+		case MojoFailed:
+			send(createEvent(ProgressEvent.MOJO_FINISHED).set(ProgressEvent.MODULE, module)
+					.set(ProgressEvent.MOJO, getMojo(mojoExecution))
+					.set(ProgressEvent.STATUS, event.getType() == ExecutionEvent.Type.MojoSucceeded ? "success"
+							: "failure").set(ProgressEvent.DURATION, getDuration(mojoExecution)));
+			if (mavenProject != null && mojoExecution != null) {
+				sendTests(mavenProject, mojoExecution, module);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void onRepositoryEvent(Object event) {
+		org.eclipse.aether.RepositoryEvent repositoryEvent = (org.eclipse.aether.RepositoryEvent) event;
+		if (repositoryEvent.getType() != org.eclipse.aether.RepositoryEvent.EventType.ARTIFACT_DEPLOYED
+				|| repositoryEvent.getArtifact() == null) {
+			return;
+		}
+		File file = repositoryEvent.getFile() != null ? repositoryEvent.getFile() : repositoryEvent.getArtifact()
+				.getFile();
+		send(createEvent(ProgressEvent.DEPLOYED).set(ProgressEvent.ARTIFACT, repositoryEvent.getArtifact().toString())
+				.set(ProgressEvent.BYTES, file == null ? null : Long.valueOf(file.length())));
+	}
+
+	/**
+	 * Sends the test counts of the reports written by the surefire or failsafe plugin.
+	 */
+	private void sendTests(MavenProject mavenProject, MojoExecution mojoExecution, String module) {
+		String reports;
+		if ("maven-surefire-plugin".equals(mojoExecution.getArtifactId())) {
+			reports = "surefire-reports";
+		} else if ("maven-failsafe-plugin".equals(mojoExecution.getArtifactId())
+				&& "integration-test".equals(mojoExecution.getGoal())) {
+			reports = "failsafe-reports";
+		} else {
+			return;
+		}
+		File[] files = new File(mavenProject.getBuild().getDirectory(), reports).listFiles(new FilenameFilter() {
+
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".txt");
+			}
+		});
+		if (files == null || files.length == 0) {
+			return;
+		}
+		long[] counts = new long[4];
+		for (File file : files) {
+			readTests(file, counts);
+		}
+		send(createEvent(ProgressEvent.TESTS).set(ProgressEvent.MODULE, module)
+				.set(ProgressEvent.MOJO, getMojo(mojoExecution)).set(ProgressEvent.TESTS_RUN, Long.valueOf(counts[0]))
+				.set(ProgressEvent.TESTS_FAILED, Long.valueOf(counts[1] + counts[2]))
+				.set(ProgressEvent.TESTS_SKIPPED, Long.valueOf(counts[3])));
+	}
+
+	private void readTests(File file, long[] counts) {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = TESTS_PATTERN.matcher(line);
+				if (matcher.find()) {
+					for (int i = 0; i < counts.length; i++) {
+						counts[i] += Long.parseLong(matcher.group(i + 1));
+					}
+				}
+			}
+		} catch (IOException e) {
+			// The report is incomplete, it is skipped.
+		} finally {
+			try {
+				if (reader != null) {
+					reader.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+	}
+
+	private ProgressEvent createEvent(String type) {
+		return new ProgressEvent(type).set(ProgressEvent.PROJECT, project);
+	}
+
+	private String getMojo(MojoExecution mojoExecution) {
+		if (mojoExecution == null) {
+			return null;
+		}
+		return mojoExecution.getGroupId() + ":" + mojoExecution.getArtifactId() + ":" + mojoExecution.getGoal() + "@"
+				+ mojoExecution.getExecutionId();
+	}
+
+	private Long getDuration(Object key) {
+		Long start = key == null ? null : startTimes.remove(key);
+		return start == null ? null : Long.valueOf(System.currentTimeMillis() - start.longValue());
+	}
+
+	private synchronized void send(ProgressEvent event) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.write(event.toLine() + "\n");
+			writer.flush();
+		} catch (IOException e) {
+			disable();
+		}
+	}
+
+	private synchronized void disable() {
+		writer = null;
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Do nothing.
+			}
+			socket = null;
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package org.codehaus.openxma.mojo.multirelease.progress;
+
+/**
+ * Receives the events of the child builds. Events of different child builds are delivered concurrently.
+ */
+public interface ProgressListener {
+
+	/**
+	 * Handles an event of a child build.
+	 * @param event the event
+	 */
+	void onEvent(ProgressEvent event);
+}
@@ -0,0 +1,134 @@
+package org.codehaus.openxma.mojo.multirelease.progress;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.shared.invoker.PrintStreamLogger;
+
+/**
+ * Receives the events of the child builds on a socket bound to the loopback address. Every child build connects
+ * once and sends one event per line, each connection is read by its own daemon thread.
+ */
+public class ProgressServer {
+
+	/** Instance logger */
+	private final static PrintStreamLogger log = new PrintStreamLogger();
+
+	private final ProgressListener listener;
+
+	private final ServerSocket serverSocket;
+
+	private final List<Socket> sockets = new ArrayList<Socket>();
+
+	private boolean closed;
+
+	/**
+	 * Opens the socket on a free port and starts accepting connections.
+	 * @param listener listener receiving the events.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public ProgressServer(ProgressListener listener) throws IOException {
+		this.listener = listener;
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName(null));
+		startThread("multirelease-progress", new Runnable() {
+
+			public void run() {
+				accept();
+			}
+		});
+	}
+
+	/**
+	 * Gets the port the child builds connect to.
+	 * @return the port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Closes the server and all connections. Events sent afterwards are lost.
+	 */
+	public void close() {
+		synchronized (sockets) {
+			closed = true;
+			for (Socket socket : sockets) {
+				close(socket);
+			}
+			sockets.clear();
+		}
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				return;
+			}
+			synchronized (sockets) {
+				if (closed) {
+					close(socket);
+					return;
+				}
+				sockets.add(socket);
+			}
+			startThread("multirelease-progress-" + socket.getPort(), new Runnable() {
+
+				public void run() {
+					read(socket);
+				}
+			});
+		}
+	}
+
+	private void read(Socket socket) {
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				ProgressEvent event = ProgressEvent.parse(line);
+				if (event != null) {
+					try {
+						listener.onEvent(event);
+					} catch (RuntimeException e) {
+						log.warn("Failed to handle progress event " + line + ": " + e.getMessage());
+					}
+				}
+			}
+		} catch (IOException e) {
+			// The child build ended or the server was closed.
+		} finally {
+			synchronized (sockets) {
+				sockets.remove(socket);
+			}
+			close(socket);
+		}
+	}
+
+	private void startThread(String name, Runnable runnable) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyKind;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Writes the resolved dependency graph of the projects as Graphviz DOT, JSON and Mermaid. Every project is shown
+ * with its child modules. An edge leads from the referenced module of the upstream project to the downstream project
+ * and names the references which caused it. Edges without a dependency, e.g. only through a parent, plugin or
+ * extension, are drawn dashed and labelled with their kinds. The projects are annotated with their durations in
+ * previous runs, their number of upstream and downstream projects and the number of projects which depend on them
+ * transitively, so hub projects which serialize the release stand out.
+ */
+public class DependencyGraph {
+
+	/** File name of the DOT graph. */
+	public static final String DOT_FILE = "graph.dot";
+
+	/** File name of the JSON graph. */
+	public static final String JSON_FILE = "graph.json";
+
+	/** File name of the Mermaid graph. */
+	public static final String MERMAID_FILE = "graph.mmd";
+
+	private static final String[] PHASES = { BuildHistory.DRY_RUN, BuildHistory.PREPARE, BuildHistory.PERFORM };
+
+	private final List<DependencyMapper> projects;
+
+	private final BuildHistory buildHistory;
+
+	private final Map<String, DependencyMapper> owners = new HashMap<String, DependencyMapper>();
+
+	private final List<Edge> edges = new ArrayList<Edge>();
+
+	private final Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects =
+			new HashMap<DependencyMapper, Set<DependencyMapper>>();
+
+	private final Map<DependencyMapper, Set<DependencyMapper>> downstreamProjects =
+			new HashMap<DependencyMapper, Set<DependencyMapper>>();
+
+	/**
+	 * @param projects the projects with resolved dependencies.
+	 * @param buildHistory history of previous runs, <code>null</code> to write no durations.
+	 */
+	public DependencyGraph(List<DependencyMapper> projects, BuildHistory buildHistory) {
+		this.projects = projects;
+		this.buildHistory = buildHistory;
+		for (DependencyMapper dependencyMapper : projects) {
+			owners.put(getKey(dependencyMapper.getMavenProject()), dependencyMapper);
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				owners.put(getKey(mavenProject), dependencyMapper);
+			}
+			upstreamProjects.put(dependencyMapper, new LinkedHashSet<DependencyMapper>());
+			downstreamProjects.put(dependencyMapper, new LinkedHashSet<DependencyMapper>());
+		}
+		for (DependencyMapper dependencyMapper : projects) {
+			for (MavenProject mavenProject : dependencyMapper.getDependencyProject()) {
+				DependencyMapper owner = owners.get(getKey(mavenProject));
+				if (owner == null || owner == dependencyMapper) {
+					continue;
+				}
+				edges.add(new Edge(owner, mavenProject, dependencyMapper,
+						dependencyMapper.getDependencyCauses(mavenProject),
+						dependencyMapper.getDependencyKinds(mavenProject)));
+				upstreamProjects.get(dependencyMapper).add(owner);
+				downstreamProjects.get(owner).add(dependencyMapper);
+			}
+		}
+	}
+
+	/**
+	 * Writes the graph in all formats into the directory.
+	 * @param directory the directory, it is created if missing.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(File directory) throws IOException {
+		directory.mkdirs();
+		Writer writer = null;
+		try {
+			writer = createWriter(new File(directory, DOT_FILE));
+			writeDot(writer);
+		} finally {
+			close(writer);
+		}
+		writer = null;
+		try {
+			writer = createWriter(new File(directory, JSON_FILE));
+			writeJson(writer);
+		} finally {
+			close(writer);
+		}
+		writer = null;
+		try {
+			writer = createWriter(new File(directory, MERMAID_FILE));
+			writeMermaid(writer);
+		} finally {
+			close(writer);
+		}
+	}
+
+	/**
+	 * Writes the graph in the DOT language of Graphviz. Every project is a cluster containing the project and its
+	 * modules.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeDot(Writer writer) throws IOException {
+		writer.write("digraph multirelease {\n\trankdir=LR;\n\tnode [shape=box];\n");
+		for (int i = 0; i < projects.size(); i++) {
+			DependencyMapper dependencyMapper = projects.get(i);
+			String key = getKey(dependencyMapper.getMavenProject());
+			writer.write("\tsubgraph \"cluster_" + i + "\" {\n\t\tlabel=\"\";\n");
+			writer.write("\t\t" + quoteDot(key) + " [label=" + quoteDot(getLabel(dependencyMapper, "\n")) + "];\n");
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				writer.write("\t\t" + quoteDot(getKey(mavenProject)) + " [shape=ellipse];\n");
+			}
+			writer.write("\t}\n");
+		}
+		for (Edge edge : edges) {
+			writer.write("\t" + quoteDot(getKey(edge.module)) + " -> "
+					+ quoteDot(getKey(edge.downstream.getMavenProject())) + " [label="
+					+ quoteDot(getCauses(edge, "\n")) + (isDependency(edge) ? "" : ", style=dashed") + "];\n");
+		}
+		writer.write("}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Writes the graph as JSON with a list of projects and a list of edges.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n  \"projects\": [");
+		for (Iterator<DependencyMapper> iterator = projects.iterator(); iterator.hasNext();) {
+			DependencyMapper dependencyMapper = iterator.next();
+			writer.write("\n    {\"id\": ");
+			ReleaseReport.writeString(writer, getKey(dependencyMapper.getMavenProject()));
+			writer.write(", \"version\": ");
+			ReleaseReport.writeString(writer, dependencyMapper.getMavenProject().getVersion());
+			writer.write(", \"modules\": [");
+			String separator = "";
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, getKey(mavenProject));
+				separator = ", ";
+			}
+			writer.write("], \"inDegree\": " + upstreamProjects.get(dependencyMapper).size());
+			writer.write(", \"outDegree\": " + downstreamProjects.get(dependencyMapper).size());
+			writer.write(", \"dependents\": " + countDependents(dependencyMapper));
+			writer.write(", \"durations\": {");
+			separator = "";
+			for (Entry<String, Long> duration : getDurations(dependencyMapper).entrySet()) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, duration.getKey());
+				writer.write(": " + duration.getValue());
+				separator = ", ";
+			}
+			writer.write(iterator.hasNext() ? "}}," : "}}");
+		}
+		writer.write("\n  ],\n  \"edges\": [");
+		for (Iterator<Edge> iterator = edges.iterator(); iterator.hasNext();) {
+			Edge edge = iterator.next();
+			writer.write("\n    {\"from\": ");
+			ReleaseReport.writeString(writer, getKey(edge.upstream.getMavenProject()));
+			writer.write(", \"to\": ");
+			ReleaseReport.writeString(writer, getKey(edge.downstream.getMavenProject()));
+			writer.write(", \"module\": ");
+			ReleaseReport.writeString(writer, getKey(edge.module));
+			writer.write(", \"kinds\": [");
+			String separator = "";
+			for (DependencyKind kind : edge.kinds) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, kind.getLabel());
+				separator = ", ";
+			}
+			writer.write("], \"dependencies\": [");
+			separator = "";
+			for (Dependency dependency : edge.causes) {
+				writer.write(separator);
+				ReleaseReport.writeString(writer, getCause(dependency));
+				separator = ", ";
+			}
+			writer.write(iterator.hasNext() ? "]}," : "]}");
+		}
+		writer.write("\n  ]\n}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Writes the graph as Mermaid flowchart. Every project is a subgraph containing the project and its modules.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeMermaid(Writer writer) throws IOException {
+		Map<String, String> ids = new HashMap<String, String>();
+		writer.write("flowchart LR\n");
+		for (int i = 0; i < projects.size(); i++) {
+			DependencyMapper dependencyMapper = projects.get(i);
+			String key = getKey(dependencyMapper.getMavenProject());
+			ids.put(key, "p" + i);
+			writer.write("  subgraph s" + i + " [" + quoteMermaid(key) + "]\n");
+			writer.write("    p" + i + "[" + quoteMermaid(getLabel(dependencyMapper, "<br/>")) + "]\n");
+			int module = 0;
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				String id = "p" + i + "m" + module++;
+				ids.put(getKey(mavenProject), id);
+				writer.write("    " + id + "([" + quoteMermaid(getKey(mavenProject)) + "])\n");
+			}
+			writer.write("  end\n");
+		}
+		for (Edge edge : edges) {
+			writer.write("  " + ids.get(getKey(edge.module)) + (isDependency(edge) ? " -->|" : " -.->|")
+					+ quoteMermaid(getCauses(edge, "<br/>")) + "| " + ids.get(getKey(edge.downstream.getMavenProject()))
+					+ "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Gets the projects each project depends on.
+	 * @return the upstream projects of every project
+	 */
+	public Map<DependencyMapper, Set<DependencyMapper>> getUpstreamProjects() {
+		return upstreamProjects;
+	}
+
+	/**
+	 * Gets the projects which depend on each project.
+	 * @return the downstream projects of every project
+	 */
+	public Map<DependencyMapper, Set<DependencyMapper>> getDownstreamProjects() {
+		return downstreamProjects;
+	}
+
+	/**
+	 * Counts the projects which depend directly or indirectly on the project.
+	 * @param dependencyMapper the project
+	 * @return the number of transitive downstream projects
+	 */
+	public int countDependents(DependencyMapper dependencyMapper) {
+		Set<DependencyMapper> visited = new LinkedHashSet<DependencyMapper>();
+		List<DependencyMapper> queue = new ArrayList<DependencyMapper>(downstreamProjects.get(dependencyMapper));
+		while (!queue.isEmpty()) {
+			DependencyMapper next = queue.remove(queue.size() - 1);
+			if (next != dependencyMapper && visited.add(next)) {
+				queue.addAll(downstreamProjects.get(next));
+			}
+		}
+		return visited.size();
+	}
+
+	private String getLabel(DependencyMapper dependencyMapper, String separator) {
+		StringBuilder label = new StringBuilder(getKey(dependencyMapper.getMavenProject()));
+		label.append(separator).append("in ").append(upstreamProjects.get(dependencyMapper).size()).append(", out ")
+				.append(downstreamProjects.get(dependencyMapper).size()).append(", dependents ")
+				.append(countDependents(dependencyMapper));
+		for (Entry<String, Long> duration : getDurations(dependencyMapper).entrySet()) {
+			label.append(separator).append(duration.getKey()).append(' ')
+					.append(ReleaseReport.formatDuration(duration.getValue().longValue()));
+		}
+		return label.toString();
+	}
+
+	/**
+	 * Gets the known durations of the phases of the project in previous runs.
+	 */
+	private Map<String, Long> getDurations(DependencyMapper dependencyMapper) {
+		Map<String, Long> durations = new LinkedHashMap<String, Long>();
+		if (buildHistory != null) {
+			for (String phase : PHASES) {
+				long duration = buildHistory.getPhaseDuration(BuildHistory.getKey(dependencyMapper), phase);
+				if (duration >= 0) {
+					durations.put(phase, Long.valueOf(duration));
+				}
+			}
+		}
+		return durations;
+	}
+
+	/**
+	 * Checks if one of the references of the edge is a dependency, edges restored without kinds count as dependency.
+	 */
+	private boolean isDependency(Edge edge) {
+		return edge.kinds.isEmpty() || edge.kinds.contains(DependencyKind.DEPENDENCY);
+	}
+
+	private String getCauses(Edge edge, String separator) {
+		StringBuilder causes = new StringBuilder();
+		if (!isDependency(edge)) {
+			for (DependencyKind kind : edge.kinds) {
+				causes.append(causes.length() == 0 ? "" : ", ").append(kind.getLabel());
+			}
+		}
+		for (Dependency dependency : edge.causes) {
+			causes.append(causes.length() == 0 ? "" : separator).append(getCause(dependency));
+		}
+		return causes.toString();
+	}
+
+	private String getCause(Dependency dependency) {
+		return dependency.getGroupId() + ":" + dependency.getArtifactId()
+				+ (dependency.getVersion() == null ? "" : ":" + dependency.getVersion());
+	}
+
+	private String getKey(MavenProject mavenProject) {
+		return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+
+	private String quoteDot(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+
+	private String quoteMermaid(String value) {
+		return "\"" + value.replace("\"", "#quot;") + "\"";
+	}
+
+	private Writer createWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+	}
+
+	private void close(Writer writer) {
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+
+	/**
+	 * Dependency of a project on a module of another project.
+	 */
+	private static class Edge {
+
+		private final DependencyMapper upstream;
+
+		private final MavenProject module;
+
+		private final DependencyMapper downstream;
+
+		private final List<Dependency> causes;
+
+		private final Set<DependencyKind> kinds;
+
+		Edge(DependencyMapper upstream, MavenProject module, DependencyMapper downstream, List<Dependency> causes,
+				Set<DependencyKind> kinds) {
+			this.upstream = upstream;
+			this.module = module;
+			this.downstream = downstream;
+			this.causes = causes;
+			this.kinds = kinds;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.ProjectMetrics;
+
+/**
+ * Exports the metrics of a plugin execution in the OpenMetrics text format, e.g. for the textfile collector of the
+ * node exporter. The file is replaced atomically, so a collector never reads a partially written file.
+ */
+public class OpenMetricsExporter {
+
+	private static final String PREFIX = "multirelease_";
+
+	private final String goal;
+
+	private final ReleaseMetrics metrics;
+
+	/**
+	 * @param goal name of the executed goal, exported as label of all metrics.
+	 * @param metrics metrics of the execution.
+	 */
+	public OpenMetricsExporter(String goal, ReleaseMetrics metrics) {
+		this.goal = goal;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Writes the metrics into the file, replacing the previous content.
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public synchronized void write(File file) throws IOException {
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		File temp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+			write(writer);
+		} finally {
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Writes the metrics in the OpenMetrics text format.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(Writer writer) throws IOException {
+		List<ProjectMetrics> projects = metrics.getProjects();
+		String goalLabel = "goal=\"" + escape(goal) + "\"";
+
+		writeFamily(writer, "run_timestamp_seconds", "seconds", "Start of the last run.");
+		writeSample(writer, "run_timestamp_seconds", goalLabel, metrics.getStart() / 1000.0);
+		writeFamily(writer, "run_duration_seconds", "seconds", "Duration of the last run.");
+		writeSample(writer, "run_duration_seconds", goalLabel, (metrics.getEnd() - metrics.getStart()) / 1000.0);
+		writeFamily(writer, "step_duration_seconds", "seconds", "Duration of a global step of the last run.");
+		for (Entry<String, Long> step : metrics.getSteps().entrySet()) {
+			writeSample(writer, "step_duration_seconds", goalLabel + ",step=\"" + escape(step.getKey()) + "\"",
+					step.getValue().longValue() / 1000.0);
+		}
+
+		writeFamily(writer, "project_duration_seconds", "seconds", "Duration of the execution of a project.");
+		for (ProjectMetrics project : projects) {
+			if (project.getEnd() > 0) {
+				writeSample(writer, "project_duration_seconds", getLabels(goalLabel, project),
+						(project.getEnd() - project.getStart()) / 1000.0);
+			}
+		}
+		writeFamily(writer, "project_success", null, "1 if the project finished, 0 if it failed or was skipped.");
+		for (ProjectMetrics project : projects) {
+			if (project.getStatus() != null) {
+				writeSample(writer, "project_success", getLabels(goalLabel, project),
+						ReleaseMetrics.FINISHED.equals(project.getStatus()) ? 1 : 0);
+			}
+		}
+		writeFamily(writer, "phase_duration_seconds", "seconds", "Duration of a phase of a project.");
+		for (ProjectMetrics project : projects) {
+			for (Entry<String, Long> step : project.getSteps().entrySet()) {
+				writeSample(writer, "phase_duration_seconds", getLabels(goalLabel, project) + ",phase=\""
+						+ escape(step.getKey()) + "\"", step.getValue().longValue() / 1000.0);
+			}
+		}
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.CHILD_PROCESSES, "child_processes", null,
+				"Number of child processes started for a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.OUTPUT_BYTES, "output_bytes", "bytes",
+				"Bytes of log output of the child processes of a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.SCM_COMMITS, "scm_commits", null,
+				"Number of SCM check-ins of a project.");
+		writeFamily(writer, "scm_commit_duration_seconds", "seconds", "Time spent in SCM check-ins of a project.");
+		for (ProjectMetrics project : projects) {
+			Long pre = project.getSteps().get(ReleaseMetrics.PRE_COMMIT);
+			Long post = project.getSteps().get(ReleaseMetrics.POST_COMMIT);
+			if (pre != null || post != null) {
+				long duration = (pre == null ? 0 : pre.longValue()) + (post == null ? 0 : post.longValue());
+				writeSample(writer, "scm_commit_duration_seconds", getLabels(goalLabel, project), duration / 1000.0);
+			}
+		}
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.RETRIES, "retries", null,
+				"Number of failed attempts of a project in previous runs.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.TESTS_RUN, "tests_run", null,
+				"Number of tests run in the child builds of a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.TESTS_FAILED, "tests_failed", null,
+				"Number of tests failed in the child builds of a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.TESTS_SKIPPED, "tests_skipped", null,
+				"Number of tests skipped in the child builds of a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.DEPLOYED_ARTIFACTS, "deployed_artifacts", null,
+				"Number of artifacts deployed by the child builds of a project.");
+		writeCounter(writer, projects, goalLabel, ReleaseMetrics.DEPLOYED_BYTES, "deployed_bytes", "bytes",
+				"Bytes of the artifacts deployed by the child builds of a project.");
+		writeFamily(writer, "mojo_duration_seconds", "seconds",
+				"Time spent in a mojo by the child builds of a project.");
+		for (ProjectMetrics project : projects) {
+			for (Entry<String, Long> mojo : project.getMojos().entrySet()) {
+				writeSample(writer, "mojo_duration_seconds", getLabels(goalLabel, project) + ",mojo=\""
+						+ escape(mojo.getKey()) + "\"", mojo.getValue().longValue() / 1000.0);
+			}
+		}
+		writer.write("# EOF\n");
+		writer.flush();
+	}
+
+	private void writeCounter(Writer writer, List<ProjectMetrics> projects, String goalLabel, String counter,
+			String name, String unit, String help) throws IOException {
+		writeFamily(writer, name, unit, help);
+		for (ProjectMetrics project : projects) {
+			Long value = project.getCounters().get(counter);
+			if (value != null) {
+				writeSample(writer, name, getLabels(goalLabel, project), value.longValue());
+			}
+		}
+	}
+
+	private void writeFamily(Writer writer, String name, String unit, String help) throws IOException {
+		writer.write("# TYPE " + PREFIX + name + " gauge\n");
+		if (unit != null) {
+			writer.write("# UNIT " + PREFIX + name + " " + unit + "\n");
+		}
+		writer.write("# HELP " + PREFIX + name + " " + help + "\n");
+	}
+
+	private void writeSample(Writer writer, String name, String labels, double value) throws IOException {
+		writer.write(PREFIX + name + "{" + labels + "} " + formatValue(value) + "\n");
+	}
+
+	private String getLabels(String goalLabel, ProjectMetrics project) {
+		String key = project.getProject();
+		int separator = key.indexOf(':');
+		String groupId = separator < 0 ? "" : key.substring(0, separator);
+		String artifactId = key.substring(separator + 1);
+		return goalLabel + ",groupId=\"" + escape(groupId) + "\",artifactId=\"" + escape(artifactId) + "\"";
+	}
+
+	private String formatValue(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return String.valueOf((long) value);
+		}
+		return String.valueOf(value);
+	}
+
+	private String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
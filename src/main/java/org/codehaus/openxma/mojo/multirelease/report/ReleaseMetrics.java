@@ -0,0 +1,410 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the durations and time intervals of the steps of a plugin execution. Global steps like reading the
+ * properties are recorded once, the steps of a project are recorded per project. Projects are executed in parallel,
+ * so all methods are thread safe.
+ */
+public class ReleaseMetrics {
+
+	/** Merge of the plugin, system and multirelease.properties configuration. */
+	public static final String PROPERTY_MERGE = "propertyMerge";
+
+	/** Build of the dependency graph and the build order. */
+	public static final String GRAPH_BUILD = "graphBuild";
+
+	/** Pre-warming of the local repository. */
+	public static final String PREWARM = "prewarm";
+
+	/** Execution of all projects. */
+	public static final String EXECUTION = "execution";
+
+	/** Rewrite of the dependencies to the release versions. */
+	public static final String PRE_REWRITE = "preRewrite";
+
+	/** Commit of the dependencies rewritten to the release versions. */
+	public static final String PRE_COMMIT = "preCommit";
+
+	/** Rewrite of the dependencies to the next development versions. */
+	public static final String POST_REWRITE = "postRewrite";
+
+	/** Commit of the dependencies rewritten to the next development versions. */
+	public static final String POST_COMMIT = "postCommit";
+
+	/** Number of child processes started for a project. */
+	public static final String CHILD_PROCESSES = "childProcesses";
+
+	/** Bytes of output written by the child processes of a project. */
+	public static final String OUTPUT_BYTES = "outputBytes";
+
+	/** Number of SCM check-ins of a project. */
+	public static final String SCM_COMMITS = "scmCommits";
+
+	/** Number of failed attempts of a project in previous runs. */
+	public static final String RETRIES = "retries";
+
+	/** Number of tests run in the child builds of a project. */
+	public static final String TESTS_RUN = "testsRun";
+
+	/** Number of tests failed in the child builds of a project. */
+	public static final String TESTS_FAILED = "testsFailed";
+
+	/** Number of tests skipped in the child builds of a project. */
+	public static final String TESTS_SKIPPED = "testsSkipped";
+
+	/** Number of artifacts deployed by the child builds of a project. */
+	public static final String DEPLOYED_ARTIFACTS = "deployedArtifacts";
+
+	/** Bytes of the artifacts deployed by the child builds of a project. */
+	public static final String DEPLOYED_BYTES = "deployedBytes";
+
+	/** Number of versions taken from the version cache. */
+	public static final String VERSION_CACHE_HITS = "versionCacheHits";
+
+	/** Number of versions parsed because they were not in the version cache. */
+	public static final String VERSION_CACHE_MISSES = "versionCacheMisses";
+
+	/** The project finished successfully. */
+	public static final String FINISHED = "finished";
+
+	/** The project failed or was cancelled. */
+	public static final String FAILED = "failed";
+
+	/** The project was not executed because of a failure. */
+	public static final String SKIPPED = "skipped";
+
+	private final long start = System.currentTimeMillis();
+
+	private long end;
+
+	private final Map<String, Long> steps = new LinkedHashMap<String, Long>();
+
+	private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+
+	private final Map<String, ProjectMetrics> projects = new LinkedHashMap<String, ProjectMetrics>();
+
+	private final List<Interval> intervals = new ArrayList<Interval>();
+
+	private final List<String> criticalPath = new ArrayList<String>();
+
+	/**
+	 * Records the duration of a global step.
+	 * @param step name of the step
+	 * @param start start time of the step, the step ends now.
+	 */
+	public synchronized void record(String step, long start) {
+		long end = System.currentTimeMillis();
+		add(steps, step, end - start);
+		intervals.add(new Interval(step, start, end));
+	}
+
+	/**
+	 * Records the duration of a step of a project. A step executed several times is summed up.
+	 * @param project group ID and artifact ID of the project.
+	 * @param step name of the step
+	 * @param start start time of the step, the step ends now.
+	 */
+	public synchronized void record(String project, String step, long start) {
+		record(project, step, start, System.currentTimeMillis());
+	}
+
+	/**
+	 * Records the duration of a step of a project which ended before now.
+	 * @param project group ID and artifact ID of the project.
+	 * @param step name of the step
+	 * @param start start time of the step
+	 * @param end end time of the step
+	 */
+	public synchronized void record(String project, String step, long start, long end) {
+		ProjectMetrics metrics = getProject(project);
+		add(metrics.steps, step, end - start);
+		metrics.intervals.add(new Interval(step, start, end));
+	}
+
+	/**
+	 * Records the duration of a mojo executed by a child build of a project. A mojo executed several times, e.g. in
+	 * several modules or phases, is summed up.
+	 * @param project group ID and artifact ID of the project.
+	 * @param mojo the mojo as <tt>groupId:artifactId:goal@executionId</tt>.
+	 * @param millis duration of the mojo
+	 */
+	public synchronized void recordMojo(String project, String mojo, long millis) {
+		add(getProject(project).mojos, mojo, millis);
+	}
+
+	/**
+	 * Increments a global counter, e.g. {@link #VERSION_CACHE_HITS}.
+	 * @param counter name of the counter
+	 * @param amount the amount added to the counter
+	 */
+	public synchronized void increment(String counter, long amount) {
+		add(counters, counter, amount);
+	}
+
+	/**
+	 * Increments a counter of a project, e.g. {@link #CHILD_PROCESSES}.
+	 * @param project group ID and artifact ID of the project.
+	 * @param counter name of the counter
+	 * @param amount the amount added to the counter
+	 */
+	public synchronized void increment(String project, String counter, long amount) {
+		add(getProject(project).counters, counter, amount);
+	}
+
+	/**
+	 * Adds a project. Projects are reported in the order they are added or first recorded.
+	 * @param project group ID and artifact ID of the project.
+	 */
+	public synchronized void addProject(String project) {
+		getProject(project);
+	}
+
+	/**
+	 * Sets the status of a project, e.g. {@link #FINISHED}.
+	 * @param project group ID and artifact ID of the project.
+	 * @param status the status
+	 */
+	public synchronized void setStatus(String project, String status) {
+		getProject(project).status = status;
+	}
+
+	/**
+	 * Sets when a project was executed.
+	 * @param project group ID and artifact ID of the project.
+	 * @param start start time of the execution
+	 * @param end end time of the execution
+	 */
+	public synchronized void setExecution(String project, long start, long end) {
+		ProjectMetrics metrics = getProject(project);
+		metrics.start = start;
+		metrics.end = end;
+	}
+
+	/**
+	 * Sets a value reported with the project, e.g. its release version.
+	 * @param project group ID and artifact ID of the project.
+	 * @param name name of the value
+	 * @param value the value
+	 */
+	public synchronized void setValue(String project, String name, String value) {
+		getProject(project).values.put(name, value);
+	}
+
+	/**
+	 * Sets the projects a project depends on.
+	 * @param project group ID and artifact ID of the project.
+	 * @param upstreamProjects group ID and artifact ID of the upstream projects.
+	 */
+	public synchronized void setUpstreamProjects(String project, Collection<String> upstreamProjects) {
+		ProjectMetrics metrics = getProject(project);
+		metrics.upstreamProjects.clear();
+		metrics.upstreamProjects.addAll(upstreamProjects);
+	}
+
+	/**
+	 * Sets the critical path of the execution.
+	 * @param criticalPath group ID and artifact ID of the projects on the critical path in execution order.
+	 */
+	public synchronized void setCriticalPath(List<String> criticalPath) {
+		this.criticalPath.clear();
+		this.criticalPath.addAll(criticalPath);
+	}
+
+	/**
+	 * Gets the critical path of the execution.
+	 * @return copy of the projects on the critical path
+	 */
+	public synchronized List<String> getCriticalPath() {
+		return new ArrayList<String>(criticalPath);
+	}
+
+	/**
+	 * Gets the time intervals of the global steps.
+	 * @return copy of the intervals in the order they ended
+	 */
+	public synchronized List<Interval> getIntervals() {
+		return new ArrayList<Interval>(intervals);
+	}
+
+	/**
+	 * Marks the end of the execution.
+	 */
+	public synchronized void finish() {
+		end = System.currentTimeMillis();
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public synchronized long getEnd() {
+		return end > 0 ? end : System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the durations of the global steps.
+	 * @return copy of the durations by step
+	 */
+	public synchronized Map<String, Long> getSteps() {
+		return new LinkedHashMap<String, Long>(steps);
+	}
+
+	/**
+	 * Gets the global counters.
+	 * @return copy of the counters by name
+	 */
+	public synchronized Map<String, Long> getCounters() {
+		return new LinkedHashMap<String, Long>(counters);
+	}
+
+	/**
+	 * Gets the metrics of the projects.
+	 * @return copy of the metrics of all projects
+	 */
+	public synchronized List<ProjectMetrics> getProjects() {
+		List<ProjectMetrics> copy = new ArrayList<ProjectMetrics>();
+		for (ProjectMetrics metrics : projects.values()) {
+			copy.add(new ProjectMetrics(metrics));
+		}
+		return copy;
+	}
+
+	private ProjectMetrics getProject(String project) {
+		ProjectMetrics metrics = projects.get(project);
+		if (metrics == null) {
+			metrics = new ProjectMetrics(project);
+			projects.put(project, metrics);
+		}
+		return metrics;
+	}
+
+	private void add(Map<String, Long> durations, String step, long millis) {
+		Long duration = durations.get(step);
+		durations.put(step, Long.valueOf(duration == null ? millis : duration.longValue() + millis));
+	}
+
+	/**
+	 * Metrics of a single project.
+	 */
+	public static class ProjectMetrics {
+
+		private final String project;
+
+		private String status;
+
+		private long start;
+
+		private long end;
+
+		private final Map<String, Long> steps;
+
+		private final Map<String, String> values;
+
+		private final List<Interval> intervals;
+
+		private final List<String> upstreamProjects;
+
+		private final Map<String, Long> counters;
+
+		private final Map<String, Long> mojos;
+
+		ProjectMetrics(String project) {
+			this.project = project;
+			this.steps = new LinkedHashMap<String, Long>();
+			this.values = new LinkedHashMap<String, String>();
+			this.intervals = new ArrayList<Interval>();
+			this.upstreamProjects = new ArrayList<String>();
+			this.counters = new LinkedHashMap<String, Long>();
+			this.mojos = new LinkedHashMap<String, Long>();
+		}
+
+		ProjectMetrics(ProjectMetrics metrics) {
+			this.project = metrics.project;
+			this.status = metrics.status;
+			this.start = metrics.start;
+			this.end = metrics.end;
+			this.steps = new LinkedHashMap<String, Long>(metrics.steps);
+			this.values = new LinkedHashMap<String, String>(metrics.values);
+			this.intervals = new ArrayList<Interval>(metrics.intervals);
+			this.upstreamProjects = new ArrayList<String>(metrics.upstreamProjects);
+			this.counters = new LinkedHashMap<String, Long>(metrics.counters);
+			this.mojos = new LinkedHashMap<String, Long>(metrics.mojos);
+		}
+
+		public String getProject() {
+			return project;
+		}
+
+		public String getStatus() {
+			return status;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public Map<String, Long> getSteps() {
+			return steps;
+		}
+
+		public Map<String, String> getValues() {
+			return values;
+		}
+
+		public List<Interval> getIntervals() {
+			return intervals;
+		}
+
+		public List<String> getUpstreamProjects() {
+			return upstreamProjects;
+		}
+
+		public Map<String, Long> getCounters() {
+			return counters;
+		}
+
+		public Map<String, Long> getMojos() {
+			return mojos;
+		}
+	}
+
+	/**
+	 * Time interval in which a step was executed.
+	 */
+	public static class Interval {
+
+		private final String step;
+
+		private final long start;
+
+		private final long end;
+
+		Interval(String step, long start, long end) {
+			this.step = step;
+			this.start = start;
+			this.end = end;
+		}
+
+		public String getStep() {
+			return step;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+	}
+}
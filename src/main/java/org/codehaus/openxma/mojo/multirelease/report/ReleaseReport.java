@@ -0,0 +1,225 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.ProjectMetrics;
+
+/**
+ * Writes the metrics of a plugin execution as machine-readable <tt>report.json</tt> and as human readable summary.
+ * Both are streamed to the writer, so the size of the report is not limited by building it in memory.
+ */
+public class ReleaseReport {
+
+	/** File name of the machine-readable report. */
+	public static final String JSON_FILE = "report.json";
+
+	/** File name of the human readable summary. */
+	public static final String SUMMARY_FILE = "summary.txt";
+
+	private final String goal;
+
+	private final ReleaseMetrics metrics;
+
+	/**
+	 * @param goal name of the executed goal.
+	 * @param metrics metrics of the execution.
+	 */
+	public ReleaseReport(String goal, ReleaseMetrics metrics) {
+		this.goal = goal;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Writes the report and the summary into the directory.
+	 * @param directory the directory, it is created if missing.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(File directory) throws IOException {
+		directory.mkdirs();
+		Writer writer = null;
+		try {
+			writer = createWriter(new File(directory, JSON_FILE));
+			writeJson(writer);
+		} finally {
+			close(writer);
+		}
+		writer = null;
+		try {
+			writer = createWriter(new File(directory, SUMMARY_FILE));
+			writeSummary(writer);
+		} finally {
+			close(writer);
+		}
+	}
+
+	/**
+	 * Writes the report as JSON.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeJson(Writer writer) throws IOException {
+		writer.write("{\n  \"goal\": ");
+		writeString(writer, goal);
+		writer.write(",\n  \"start\": " + metrics.getStart());
+		writer.write(",\n  \"duration\": " + (metrics.getEnd() - metrics.getStart()));
+		writer.write(",\n  \"steps\": ");
+		writeValues(writer, metrics.getSteps());
+		Map<String, Long> counters = metrics.getCounters();
+		if (!counters.isEmpty()) {
+			writer.write(",\n  \"counters\": ");
+			writeValues(writer, counters);
+		}
+		writer.write(",\n  \"projects\": [");
+		for (Iterator<ProjectMetrics> iterator = metrics.getProjects().iterator(); iterator.hasNext();) {
+			ProjectMetrics project = iterator.next();
+			writer.write("\n    {\"project\": ");
+			writeString(writer, project.getProject());
+			writer.write(", \"status\": ");
+			writeString(writer, project.getStatus());
+			if (project.getEnd() > 0) {
+				writer.write(", \"start\": " + project.getStart());
+				writer.write(", \"duration\": " + (project.getEnd() - project.getStart()));
+			}
+			for (Entry<String, String> value : project.getValues().entrySet()) {
+				writer.write(", ");
+				writeString(writer, value.getKey());
+				writer.write(": ");
+				writeString(writer, value.getValue());
+			}
+			writer.write(", \"steps\": ");
+			writeValues(writer, project.getSteps());
+			if (!project.getCounters().isEmpty()) {
+				writer.write(", \"counters\": ");
+				writeValues(writer, project.getCounters());
+			}
+			if (!project.getMojos().isEmpty()) {
+				writer.write(", \"mojos\": ");
+				writeValues(writer, project.getMojos());
+			}
+			writer.write(iterator.hasNext() ? "}," : "}");
+		}
+		writer.write("\n  ]\n}\n");
+		writer.flush();
+	}
+
+	/**
+	 * Writes the human readable summary. It shows the duration of every project and its steps, followed by the total
+	 * time spent in each step over all projects, longest first.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void writeSummary(Writer writer) throws IOException {
+		writer.write("Execution of " + goal + " took " + formatDuration(metrics.getEnd() - metrics.getStart())
+				+ "\n");
+		for (Entry<String, Long> step : metrics.getSteps().entrySet()) {
+			writer.write(String.format("  %-20s %s%n", step.getKey(), formatDuration(step.getValue().longValue())));
+		}
+		for (Entry<String, Long> counter : metrics.getCounters().entrySet()) {
+			writer.write(String.format("  %-20s %d%n", counter.getKey(), counter.getValue()));
+		}
+		Map<String, Long> totals = new LinkedHashMap<String, Long>();
+		writer.write("Projects:\n");
+		for (ProjectMetrics project : metrics.getProjects()) {
+			long duration = project.getEnd() - project.getStart();
+			writer.write(String.format("  %-50s %-8s %s", project.getProject(),
+					project.getStatus() == null ? "" : project.getStatus(), formatDuration(duration)));
+			String separator = " (";
+			for (Entry<String, Long> step : project.getSteps().entrySet()) {
+				writer.write(separator + step.getKey() + " " + formatDuration(step.getValue().longValue()));
+				separator = ", ";
+				Long total = totals.get(step.getKey());
+				totals.put(step.getKey(), Long.valueOf(step.getValue().longValue()
+						+ (total == null ? 0 : total.longValue())));
+			}
+			writer.write(project.getSteps().isEmpty() ? "\n" : ")\n");
+		}
+		List<Entry<String, Long>> sortedTotals = new ArrayList<Entry<String, Long>>(totals.entrySet());
+		Collections.sort(sortedTotals, new Comparator<Entry<String, Long>>() {
+
+			public int compare(Entry<String, Long> first, Entry<String, Long> second) {
+				return second.getValue().compareTo(first.getValue());
+			}
+		});
+		writer.write("Time spent per step over all projects:\n");
+		for (Entry<String, Long> total : sortedTotals) {
+			writer.write(String.format("  %-20s %s%n", total.getKey(), formatDuration(total.getValue().longValue())));
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Formats a duration as hours, minutes and seconds.
+	 * @param millis the duration
+	 * @return the formatted duration
+	 */
+	public static String formatDuration(long millis) {
+		long seconds = millis / 1000;
+		return String.format("%d:%02d:%02d", Long.valueOf(seconds / 3600), Long.valueOf(seconds / 60 % 60),
+				Long.valueOf(seconds % 60));
+	}
+
+	private void writeValues(Writer writer, Map<String, Long> values) throws IOException {
+		writer.write("{");
+		String separator = "";
+		for (Entry<String, Long> value : values.entrySet()) {
+			writer.write(separator);
+			writeString(writer, value.getKey());
+			writer.write(": " + value.getValue());
+			separator = ", ";
+		}
+		writer.write("}");
+	}
+
+	/**
+	 * Writes a JSON string.
+	 * @param writer the writer
+	 * @param value the value, <code>null</code> is written as JSON null.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeString(Writer writer, String value) throws IOException {
+		if (value == null) {
+			writer.write("null");
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			} else if (c < 0x20) {
+				writer.write(String.format("\\u%04x", Integer.valueOf(c)));
+			} else {
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+
+	private Writer createWriter(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+	}
+
+	private void close(Writer writer) {
+		try {
+			if (writer != null) {
+				writer.close();
+			}
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+}
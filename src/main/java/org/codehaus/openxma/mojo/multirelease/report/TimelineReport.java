@@ -0,0 +1,247 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.Interval;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.ProjectMetrics;
+
+/**
+ * Writes the metrics of a plugin execution as timeline into a self-contained HTML page. Every project is a row on a
+ * common time axis showing the steps of the project, the dependencies between the projects are drawn as edges and
+ * the critical path is highlighted. The page is plain HTML with inline SVG, it needs no external assets or scripts.
+ */
+public class TimelineReport {
+
+	/** File name of the timeline. */
+	public static final String FILE = "timeline.html";
+
+	private static final int LABEL_WIDTH = 320;
+
+	private static final int CHART_WIDTH = 1000;
+
+	private static final int ROW_HEIGHT = 24;
+
+	private static final int BAR_HEIGHT = 16;
+
+	private static final int AXIS_HEIGHT = 30;
+
+	private static final String CRITICAL_COLOR = "#d62728";
+
+	private static final String[] PALETTE = { "#4e79a7", "#f28e2b", "#59a14f", "#76b7b2", "#edc948", "#b07aa1",
+			"#ff9da7", "#9c755f", "#bab0ac", "#e15759" };
+
+	private static final long[] TICKS = { 1000, 5000, 10000, 30000, 60000, 300000, 600000, 1800000, 3600000,
+			7200000, 21600000 };
+
+	private final ReleaseMetrics metrics;
+
+	private final Map<String, String> colors = new LinkedHashMap<String, String>();
+
+	private long first;
+
+	private long last;
+
+	/**
+	 * @param metrics metrics of the execution.
+	 */
+	public TimelineReport(ReleaseMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Writes the timeline into the file.
+	 * @param file the file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		Writer writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+			write(writer);
+		} finally {
+			try {
+				if (writer != null) {
+					writer.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+	}
+
+	/**
+	 * Writes the timeline as HTML page.
+	 * @param writer the writer
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void write(Writer writer) throws IOException {
+		List<ProjectMetrics> projects = metrics.getProjects();
+		List<Interval> intervals = metrics.getIntervals();
+		Set<String> criticalPath = new HashSet<String>(metrics.getCriticalPath());
+		computeRange(projects, intervals);
+
+		Map<String, Integer> rows = new HashMap<String, Integer>();
+		for (ProjectMetrics project : projects) {
+			rows.put(project.getProject(), Integer.valueOf(rows.size() + 1));
+		}
+		int height = AXIS_HEIGHT + (projects.size() + 1) * ROW_HEIGHT + 10;
+
+		writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n"
+				+ "<title>Multirelease timeline</title>\n");
+		writer.write("<style>\nbody { font-family: sans-serif; font-size: 13px; }\n"
+				+ "svg text { font-size: 12px; }\n.critical { font-weight: bold; fill: " + CRITICAL_COLOR + "; }\n"
+				+ ".legend span { display: inline-block; width: 12px; height: 12px; margin: 0 4px 0 12px; }\n"
+				+ "</style>\n</head>\n<body>\n");
+		writer.write("<h1>Multirelease timeline</h1>\n<p>Duration " + ReleaseReport.formatDuration(last - first)
+				+ ", " + projects.size() + " projects, critical path " + escape(metrics.getCriticalPath().toString())
+				+ "</p>\n");
+		writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + (LABEL_WIDTH + CHART_WIDTH + 20)
+				+ "\" height=\"" + height + "\">\n");
+		writer.write("<defs><marker id=\"arrow\" markerWidth=\"8\" markerHeight=\"8\" refX=\"8\" refY=\"4\" "
+				+ "orient=\"auto\"><path d=\"M0,0 L8,4 L0,8 z\" fill=\"#999\"/></marker>"
+				+ "<marker id=\"critical\" markerWidth=\"8\" markerHeight=\"8\" refX=\"8\" refY=\"4\" "
+				+ "orient=\"auto\"><path d=\"M0,0 L8,4 L0,8 z\" fill=\"" + CRITICAL_COLOR + "\"/></marker></defs>\n");
+		writeAxis(writer, height);
+
+		// Global steps of the plugin.
+		writer.write("<text x=\"4\" y=\"" + (getY(0) + BAR_HEIGHT - 4) + "\">plugin</text>\n");
+		for (Interval interval : intervals) {
+			if (!ReleaseMetrics.EXECUTION.equals(interval.getStep())) {
+				writeInterval(writer, interval, 0);
+			}
+		}
+
+		for (ProjectMetrics project : projects) {
+			int row = rows.get(project.getProject()).intValue();
+			boolean critical = criticalPath.contains(project.getProject());
+			writer.write("<text x=\"4\" y=\"" + (getY(row) + BAR_HEIGHT - 4) + "\"" + (critical ? " class=\"critical\""
+					: "") + ">" + escape(project.getProject()) + "</text>\n");
+			if (project.getEnd() > 0) {
+				writer.write("<rect x=\"" + getX(project.getStart()) + "\" y=\"" + getY(row) + "\" width=\""
+						+ getWidth(project.getStart(), project.getEnd()) + "\" height=\"" + BAR_HEIGHT
+						+ "\" fill=\"#eee\" stroke=\"" + (critical ? CRITICAL_COLOR : "#999") + "\" stroke-width=\""
+						+ (critical ? 2 : 1) + "\"" + (ReleaseMetrics.FAILED.equals(project.getStatus())
+						? " stroke-dasharray=\"4,2\"" : "") + "><title>" + escape(project.getProject()) + " "
+						+ escape(String.valueOf(project.getStatus())) + " "
+						+ ReleaseReport.formatDuration(project.getEnd() - project.getStart()) + "</title></rect>\n");
+			}
+			for (Interval interval : project.getIntervals()) {
+				writeInterval(writer, interval, row);
+			}
+		}
+
+		for (ProjectMetrics project : projects) {
+			for (String upstream : project.getUpstreamProjects()) {
+				writeEdge(writer, projects, rows, upstream, project, criticalPath);
+			}
+		}
+		writer.write("</svg>\n<p class=\"legend\">");
+		for (Map.Entry<String, String> color : colors.entrySet()) {
+			writer.write("<span style=\"background: " + color.getValue() + "\"></span>" + escape(color.getKey()));
+		}
+		writer.write("</p>\n</body>\n</html>\n");
+		writer.flush();
+	}
+
+	private void computeRange(List<ProjectMetrics> projects, List<Interval> intervals) {
+		first = metrics.getStart();
+		last = metrics.getEnd();
+		for (Interval interval : intervals) {
+			first = Math.min(first, interval.getStart());
+			last = Math.max(last, interval.getEnd());
+		}
+		for (ProjectMetrics project : projects) {
+			if (project.getEnd() > 0) {
+				first = Math.min(first, project.getStart());
+				last = Math.max(last, project.getEnd());
+			}
+			for (Interval interval : project.getIntervals()) {
+				first = Math.min(first, interval.getStart());
+				last = Math.max(last, interval.getEnd());
+			}
+		}
+		last = Math.max(last, first + 1);
+	}
+
+	private void writeAxis(Writer writer, int height) throws IOException {
+		long tick = TICKS[TICKS.length - 1];
+		for (long candidate : TICKS) {
+			if ((last - first) / candidate <= 10) {
+				tick = candidate;
+				break;
+			}
+		}
+		for (long time = 0; time <= last - first; time += tick) {
+			int x = getX(first + time);
+			writer.write("<line x1=\"" + x + "\" y1=\"" + (AXIS_HEIGHT - 6) + "\" x2=\"" + x + "\" y2=\"" + height
+					+ "\" stroke=\"#ddd\"/><text x=\"" + x + "\" y=\"" + (AXIS_HEIGHT - 10)
+					+ "\" text-anchor=\"middle\">" + ReleaseReport.formatDuration(time) + "</text>\n");
+		}
+	}
+
+	private void writeInterval(Writer writer, Interval interval, int row) throws IOException {
+		writer.write("<rect x=\"" + getX(interval.getStart()) + "\" y=\"" + (getY(row) + 2) + "\" width=\""
+				+ getWidth(interval.getStart(), interval.getEnd()) + "\" height=\"" + (BAR_HEIGHT - 4) + "\" fill=\""
+				+ getColor(interval.getStep()) + "\"><title>" + escape(interval.getStep()) + " "
+				+ ReleaseReport.formatDuration(interval.getEnd() - interval.getStart()) + "</title></rect>\n");
+	}
+
+	/**
+	 * Draws the edge from the end of the upstream project to the start of the project.
+	 */
+	private void writeEdge(Writer writer, List<ProjectMetrics> projects, Map<String, Integer> rows, String upstream,
+			ProjectMetrics project, Set<String> criticalPath) throws IOException {
+		Integer upstreamRow = rows.get(upstream);
+		if (upstreamRow == null || project.getEnd() <= 0) {
+			return;
+		}
+		ProjectMetrics upstreamProject = projects.get(upstreamRow.intValue() - 1);
+		if (upstreamProject.getEnd() <= 0) {
+			return;
+		}
+		boolean critical = criticalPath.contains(upstream) && criticalPath.contains(project.getProject());
+		int row = rows.get(project.getProject()).intValue();
+		writer.write("<line x1=\"" + getX(upstreamProject.getEnd()) + "\" y1=\""
+				+ (getY(upstreamRow.intValue()) + BAR_HEIGHT / 2) + "\" x2=\"" + getX(project.getStart()) + "\" y2=\""
+				+ (getY(row) + BAR_HEIGHT / 2) + "\" stroke=\"" + (critical ? CRITICAL_COLOR : "#999")
+				+ "\" stroke-width=\"" + (critical ? 2 : 1) + "\" marker-end=\"url(#" + (critical ? "critical"
+				: "arrow") + ")\"/>\n");
+	}
+
+	private String getColor(String step) {
+		String color = colors.get(step);
+		if (color == null) {
+			color = PALETTE[colors.size() % PALETTE.length];
+			colors.put(step, color);
+		}
+		return color;
+	}
+
+	private int getX(long time) {
+		return LABEL_WIDTH + (int) ((time - first) * CHART_WIDTH / (last - first));
+	}
+
+	private int getWidth(long start, long end) {
+		return Math.max(1, getX(end) - getX(start));
+	}
+
+	private int getY(int row) {
+		return AXIS_HEIGHT + row * ROW_HEIGHT;
+	}
+
+	private String escape(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
@@ -0,0 +1,264 @@
+package org.codehaus.openxma.mojo.multirelease.repository;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher;
+
+/**
+ * Resolves the external dependencies and plugins of all reactor projects into the local repository before the child
+ * builds are started. The union of all external artifacts is split into batch modules of a generated aggregator
+ * project, which is resolved by a single parallel Maven build. Child builds can then run offline.
+ * <p>
+ * Artifacts which Maven only resolves while a plugin is executed are not known in advance and are not pre-warmed,
+ * like the test framework providers of the Surefire plugin or the artifacts resolved by the release plugin itself.
+ */
+public class DependencyPrewarmer {
+
+	static final String DEPENDENCY_PLUGIN = "org.apache.maven.plugins:maven-dependency-plugin:2.8";
+
+	private static final String PREWARM_GROUP_ID = "org.codehaus.openxma.mojo.multirelease.prewarm";
+
+	private static final String PREWARM_VERSION = "1";
+
+	private final List<MavenProject> reactorProjects;
+
+	private final ProcessLauncher processLauncher = new ProcessLauncher();
+
+	/** Settings used by the pre-warm build, <code>null</code> for the default ones. */
+	private File settingsFile;
+
+	public DependencyPrewarmer(List<MavenProject> reactorProjects) {
+		this.reactorProjects = reactorProjects;
+	}
+
+	/**
+	 * Sets the settings of the pre-warm build, so it resolves through the same mirrors and servers as the release.
+	 * @param settingsFile the user settings file, <code>null</code> for the default ones.
+	 */
+	public void setSettingsFile(File settingsFile) {
+		this.settingsFile = settingsFile;
+	}
+
+	/**
+	 * Resolves all external dependencies and plugins into the given local repository.
+	 * @param directory directory in which the pre-warm project is generated.
+	 * @param threads number of threads used to resolve the artifacts.
+	 * @param localRepository path of the local repository, <code>null</code> to use the default one.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ProcessException if the artifacts could not be resolved.
+	 */
+	public void prewarm(File directory, int threads, String localRepository) throws IOException, ProcessException {
+		File pomFile = writePrewarmProject(directory, threads);
+		if (pomFile != null) {
+			processLauncher.executeProcess(getPrewarmCommand(pomFile, threads, localRepository));
+		}
+	}
+
+	/**
+	 * Collects the union of dependencies of all reactor projects which are not part of the reactor.
+	 * @return the external dependencies sorted by their coordinates.
+	 */
+	public Map<String, Dependency> collectDependencies() {
+		Set<String> reactorKeys = getReactorKeys();
+		Map<String, Dependency> dependencies = new TreeMap<String, Dependency>();
+		for (MavenProject mavenProject : reactorProjects) {
+			addDependencies(mavenProject.getDependencies(), reactorKeys, dependencies);
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Collects the union of build plugins and managed plugins of all reactor projects which are not part of the
+	 * reactor. Managed plugins are included because the child builds invoke some of them from the command line, like
+	 * the release plugin.
+	 * @return the external plugins sorted by their coordinates.
+	 */
+	public Map<String, Plugin> collectPlugins() {
+		Set<String> reactorKeys = getReactorKeys();
+		Map<String, Plugin> plugins = new TreeMap<String, Plugin>();
+		for (MavenProject mavenProject : reactorProjects) {
+			addPlugins(mavenProject.getBuildPlugins(), reactorKeys, plugins);
+			if (mavenProject.getPluginManagement() != null) {
+				addPlugins(mavenProject.getPluginManagement().getPlugins(), reactorKeys, plugins);
+			}
+		}
+		return plugins;
+	}
+
+	/**
+	 * Writes the aggregator project used to resolve the external artifacts. Each batch module declares a share of
+	 * the dependencies and plugins, so the batches can be resolved in parallel.
+	 * @param directory directory in which the project is generated.
+	 * @param batches number of batch modules.
+	 * @return the aggregator POM file or <code>null</code> if there is nothing to resolve.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public File writePrewarmProject(File directory, int batches) throws IOException {
+		Map<String, Dependency> dependencies = collectDependencies();
+		Map<String, Plugin> plugins = collectPlugins();
+		if (dependencies.isEmpty() && plugins.isEmpty()) {
+			return null;
+		}
+		int size = Math.max(1, Math.min(batches, Math.max(dependencies.size(), plugins.size())));
+		List<Model> modules = new ArrayList<Model>();
+		for (int i = 0; i < size; i++) {
+			Model module = createModel("batch-" + (i + 1), "pom");
+			module.setBuild(new Build());
+			modules.add(module);
+		}
+		int index = 0;
+		for (Dependency dependency : dependencies.values()) {
+			modules.get(index++ % size).addDependency(copyDependency(dependency));
+		}
+		index = 0;
+		for (Plugin plugin : plugins.values()) {
+			Plugin copy = new Plugin();
+			copy.setGroupId(plugin.getGroupId());
+			copy.setArtifactId(plugin.getArtifactId());
+			copy.setVersion(plugin.getVersion());
+			for (Dependency dependency : plugin.getDependencies()) {
+				copy.addDependency(copyDependency(dependency));
+			}
+			modules.get(index++ % size).getBuild().addPlugin(copy);
+		}
+
+		Model aggregator = createModel("prewarm", "pom");
+		for (Model module : modules) {
+			aggregator.addModule(module.getArtifactId());
+			writeModel(module, new File(new File(directory, module.getArtifactId()), "pom.xml"));
+		}
+		File pomFile = new File(directory, "pom.xml");
+		writeModel(aggregator, pomFile);
+		return pomFile;
+	}
+
+	/**
+	 * Gets the command resolving the generated pre-warm project.
+	 * @param pomFile the aggregator POM file.
+	 * @param threads number of threads used by the build.
+	 * @param localRepository path of the local repository, <code>null</code> to use the default one.
+	 * @return the pre-warm command
+	 */
+	public String getPrewarmCommand(File pomFile, int threads, String localRepository) {
+		String command = "mvn -B -T " + threads + " " + DEPENDENCY_PLUGIN + ":resolve " + DEPENDENCY_PLUGIN
+				+ ":resolve-plugins -f" + pomFile.getAbsolutePath();
+		if (settingsFile != null) {
+			command = command.concat(" -s \"" + settingsFile.getAbsolutePath() + "\"");
+		}
+		if (localRepository != null) {
+			command = command.concat(" -Dmaven.repo.local=\"" + localRepository + "\"");
+		}
+		return command;
+	}
+
+	private void addDependencies(List<Dependency> source, Set<String> reactorKeys, Map<String, Dependency> target) {
+		if (source == null) {
+			return;
+		}
+		for (Dependency dependency : source) {
+			// System dependencies are not in any repository and imported POMs are already resolved by the reactor.
+			if (dependency.getVersion() == null || "system".equals(dependency.getScope())
+					|| "import".equals(dependency.getScope())
+					|| reactorKeys.contains(dependency.getGroupId() + ":" + dependency.getArtifactId())) {
+				continue;
+			}
+			target.put(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getType() + ":"
+					+ (dependency.getClassifier() == null ? "" : dependency.getClassifier()) + ":"
+					+ dependency.getVersion(), dependency);
+		}
+	}
+
+	private void addPlugins(List<Plugin> source, Set<String> reactorKeys, Map<String, Plugin> target) {
+		if (source == null) {
+			return;
+		}
+		for (Plugin plugin : source) {
+			String key = plugin.getGroupId() + ":" + plugin.getArtifactId();
+			if (plugin.getVersion() != null && !reactorKeys.contains(key) && !target.containsKey(key + ":"
+					+ plugin.getVersion())) {
+				target.put(key + ":" + plugin.getVersion(), plugin);
+			}
+		}
+	}
+
+	private Dependency copyDependency(Dependency dependency) {
+		Dependency copy = dependency.clone();
+		// Resolve every scope, the child builds will need all of them.
+		copy.setScope(null);
+		copy.setOptional(false);
+		return copy;
+	}
+
+	private Model createModel(String artifactId, String packaging) {
+		Model model = new Model();
+		model.setModelVersion("4.0.0");
+		model.setGroupId(PREWARM_GROUP_ID);
+		model.setArtifactId(artifactId);
+		model.setVersion(PREWARM_VERSION);
+		model.setPackaging(packaging);
+		Set<String> repositoryIds = new HashSet<String>();
+		for (MavenProject mavenProject : reactorProjects) {
+			addRepositories(mavenProject.getRepositories(), repositoryIds, model, false);
+			addRepositories(mavenProject.getPluginRepositories(), repositoryIds, model, true);
+		}
+		return model;
+	}
+
+	private void addRepositories(List<Repository> repositories, Set<String> repositoryIds, Model model,
+			boolean pluginRepository) {
+		if (repositories == null) {
+			return;
+		}
+		for (Repository repository : repositories) {
+			if (repositoryIds.add((pluginRepository ? "plugin:" : "") + repository.getId())) {
+				if (pluginRepository) {
+					model.addPluginRepository(repository);
+				} else {
+					model.addRepository(repository);
+				}
+			}
+		}
+	}
+
+	private Set<String> getReactorKeys() {
+		Set<String> keys = new HashSet<String>();
+		for (MavenProject mavenProject : reactorProjects) {
+			keys.add(mavenProject.getGroupId() + ":" + mavenProject.getArtifactId());
+		}
+		return keys;
+	}
+
+	private void writeModel(Model model, File pomFile) throws IOException, FileNotFoundException {
+		pomFile.getParentFile().mkdirs();
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(pomFile);
+			new MavenXpp3Writer().write(fileOutputStream, model);
+		} finally {
+			try {
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+	}
+}
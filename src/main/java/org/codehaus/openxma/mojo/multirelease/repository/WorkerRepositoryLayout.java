@@ -0,0 +1,240 @@
+package org.codehaus.openxma.mojo.multirelease.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.invoker.PrintStreamLogger;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Local repository layout for parallel execution. Every worker builds against its own writable overlay repository,
+ * which is populated with hard links to the files of the shared base repository. The base repository is only read by
+ * the workers, the artifacts of a finished project are published into the base by the plugin and linked into the
+ * overlays of the other workers before their next project starts.
+ * <p>
+ * Metadata files are updated in place by Maven, they are copied instead of linked. Before a worker builds a project
+ * the overlay directories of the project's own artifacts are removed, so installing them never writes through a link
+ * into the base repository. Hard links need the base repository and the worker repositories on the same file system,
+ * {@link #checkLinks()} tells whether the layout can be used at all. Copying the base repository for every worker
+ * instead would cost more than the isolation saves.
+ */
+public class WorkerRepositoryLayout {
+
+	/** Instance logger */
+	private final static PrintStreamLogger log = new PrintStreamLogger();
+
+	private final File baseRepository;
+
+	private final File workDirectory;
+
+	/**
+	 * Paths relative to the base repository published since the start, in publishing order.
+	 */
+	private final List<String> publishedPaths = new ArrayList<String>();
+
+	/**
+	 * Number of published paths already synchronized into the overlay of each worker.
+	 */
+	private final Map<Integer, Integer> synchronizedPaths = new HashMap<Integer, Integer>();
+
+	/**
+	 * @param baseRepository the shared base repository.
+	 * @param workDirectory directory in which the worker repositories are created.
+	 */
+	public WorkerRepositoryLayout(File baseRepository, File workDirectory) {
+		this.baseRepository = baseRepository;
+		this.workDirectory = workDirectory;
+	}
+
+	/**
+	 * Checks that files of the base repository can be hard linked into the work directory, which fails e.g. if they
+	 * are on different file systems.
+	 * @throws IOException if hard links are not possible, the message tells why.
+	 */
+	public void checkLinks() throws IOException {
+		baseRepository.mkdirs();
+		workDirectory.mkdirs();
+		// Ends like a lock file, so the probe is never linked into a worker repository.
+		File probe = File.createTempFile("multirelease-probe", ".lock", baseRepository);
+		File link = new File(workDirectory, probe.getName());
+		try {
+			Files.createLink(link.toPath(), probe.toPath());
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("Hard links are not supported by the file system of " + baseRepository, e);
+		} catch (FileSystemException e) {
+			throw new IOException("Files of " + baseRepository + " cannot be hard linked into " + workDirectory
+					+ ": " + e.getMessage(), e);
+		} finally {
+			link.delete();
+			probe.delete();
+		}
+	}
+
+	/**
+	 * Gets the overlay repository of a worker.
+	 * @param worker number of the worker.
+	 * @return the local repository of the worker
+	 */
+	public File getRepository(int worker) {
+		return new File(new File(workDirectory, "worker-" + (worker + 1)), "repository");
+	}
+
+	/**
+	 * Prepares the overlay repository of the worker for building the given project. The overlay is created on first
+	 * use and brought up to date with the artifacts published into the base repository.
+	 * @param worker number of the worker.
+	 * @param dependencyMapper the project the worker is going to build.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void prepare(int worker, DependencyMapper dependencyMapper) throws IOException {
+		File repository = getRepository(worker);
+		Integer key = Integer.valueOf(worker);
+		boolean created;
+		synchronized (this) {
+			created = synchronizedPaths.containsKey(key);
+			if (!created) {
+				// Files published while the overlay is linked are linked again below.
+				synchronizedPaths.put(key, Integer.valueOf(publishedPaths.size()));
+			}
+		}
+		if (!created) {
+			log.info("Creating local repository of worker " + (worker + 1) + " in " + repository);
+			FileUtils.deleteDirectory(repository);
+			linkTree(baseRepository, repository);
+		}
+		synchronized (this) {
+			List<String> paths = publishedPaths.subList(synchronizedPaths.get(key).intValue(), publishedPaths.size());
+			for (String path : paths) {
+				File target = new File(repository, path);
+				target.delete();
+				linkFile(new File(baseRepository, path), target);
+			}
+			synchronizedPaths.put(key, Integer.valueOf(publishedPaths.size()));
+		}
+		for (String path : getArtifactPaths(dependencyMapper)) {
+			FileUtils.deleteDirectory(new File(repository, path));
+		}
+	}
+
+	/**
+	 * Publishes the artifacts of the given project and its child projects from the overlay of the worker into the
+	 * base repository.
+	 * @param worker number of the worker.
+	 * @param dependencyMapper the project built by the worker.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void publish(int worker, DependencyMapper dependencyMapper) throws IOException {
+		File repository = getRepository(worker);
+		List<String> paths = new ArrayList<String>();
+		for (String path : getArtifactPaths(dependencyMapper)) {
+			collectFiles(new File(repository, path), path, paths);
+		}
+		synchronized (this) {
+			for (String path : paths) {
+				File source = new File(repository, path);
+				File target = new File(baseRepository, path);
+				if (target.exists() && Files.isSameFile(source.toPath(), target.toPath())) {
+					continue;
+				}
+				target.getParentFile().mkdirs();
+				// Copy next to the target and move it, readers of the base never see a partial file.
+				File temp = new File(target.getParentFile(), target.getName() + ".multirelease");
+				Files.copy(source.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				publishedPaths.add(path);
+			}
+		}
+	}
+
+	/**
+	 * Gets the repository paths of the artifacts of the project and its child projects.
+	 */
+	private List<String> getArtifactPaths(DependencyMapper dependencyMapper) {
+		List<String> paths = new ArrayList<String>();
+		paths.add(getArtifactPath(dependencyMapper.getMavenProject()));
+		for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+			paths.add(getArtifactPath(mavenProject));
+		}
+		return paths;
+	}
+
+	private String getArtifactPath(MavenProject mavenProject) {
+		return mavenProject.getGroupId().replace('.', '/') + "/" + mavenProject.getArtifactId();
+	}
+
+	private void collectFiles(File directory, String path, List<String> paths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			String filePath = path + "/" + file.getName();
+			if (file.isDirectory()) {
+				collectFiles(file, filePath, paths);
+			} else if (!isTransient(file.getName())) {
+				paths.add(filePath);
+			}
+		}
+	}
+
+	private void linkTree(File source, File target) throws IOException {
+		target.mkdirs();
+		File[] files = source.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				linkTree(file, new File(target, file.getName()));
+			} else if (!isTransient(file.getName())) {
+				linkFile(file, new File(target, file.getName()));
+			}
+		}
+	}
+
+	private void linkFile(File source, File target) throws IOException {
+		if (!source.exists()) {
+			return;
+		}
+		target.getParentFile().mkdirs();
+		if (isMutable(source.getName())) {
+			Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.COPY_ATTRIBUTES);
+			return;
+		}
+		try {
+			Files.createLink(target.toPath(), source.toPath());
+		} catch (UnsupportedOperationException e) {
+			throw new IOException("Hard links are not supported by the file system of " + baseRepository, e);
+		} catch (FileSystemException e) {
+			// Copying instead would turn every worker repository into a full copy of the base repository.
+			throw new IOException("Could not link " + source + " into the worker repository " + target
+					+ ", use the shared repository layout: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Files updated in place by Maven, which must not be shared between repositories.
+	 */
+	private boolean isMutable(String name) {
+		return name.startsWith("maven-metadata") || name.equals("_remote.repositories")
+				|| name.endsWith(".properties") || name.endsWith(".lastUpdated");
+	}
+
+	/**
+	 * Files of downloads or installations in progress.
+	 */
+	private boolean isTransient(String name) {
+		return name.endsWith(".part") || name.endsWith(".lock") || name.endsWith(".multirelease")
+				|| name.endsWith(".lastUpdated");
+	}
+}
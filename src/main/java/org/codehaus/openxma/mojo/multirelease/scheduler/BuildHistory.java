@@ -0,0 +1,221 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Durations of the builds of previous runs, stored in a property file. Every duration is kept as moving average of
+ * the runs, so a single slow run does not dominate the history.
+ */
+public class BuildHistory {
+
+	/** Preparation of the release with <tt>release:prepare</tt>. */
+	public static final String PREPARE = "prepare";
+
+	/** Release of the prepared project with <tt>release:perform</tt>. */
+	public static final String PERFORM = "perform";
+
+	/** Dry run of the verify goal. */
+	public static final String DRY_RUN = "dryRun";
+
+	private static final String BUILD_PREFIX = "build.";
+
+	private static final String PHASE_PREFIX = "phase.";
+
+	private static final String FAILURES_PREFIX = "failures.";
+
+	private final File file;
+
+	private final Properties properties = new Properties();
+
+	/**
+	 * @param file the history file, it is created on first store.
+	 */
+	public BuildHistory(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Load the history of previous runs, if available.
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public synchronized void load() throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+		FileInputStream fileInputStream = null;
+		try {
+			fileInputStream = new FileInputStream(file);
+			properties.load(fileInputStream);
+		} finally {
+			try {
+				if (fileInputStream != null) {
+					fileInputStream.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+	}
+
+	/**
+	 * Store the history for the next runs.
+	 * @throws FileNotFoundException the file not found exception
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public synchronized void store() throws FileNotFoundException, IOException {
+		file.getParentFile().mkdirs();
+		FileOutputStream fileOutputStream = null;
+		try {
+			fileOutputStream = new FileOutputStream(file);
+			properties.store(fileOutputStream, "Build history of multirelease maven plugin");
+		} finally {
+			try {
+				if (fileOutputStream != null) {
+					fileOutputStream.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+	}
+
+	/**
+	 * Records the duration of a build executed with the given number of threads.
+	 * @param key group ID and artifact ID of the project.
+	 * @param threads number of threads used by the build.
+	 * @param millis duration of the build.
+	 */
+	public synchronized void recordBuild(String key, int threads, long millis) {
+		record(BUILD_PREFIX + key + "@" + threads, millis);
+	}
+
+	/**
+	 * Records the duration of a phase of a project.
+	 * @param key group ID and artifact ID of the project.
+	 * @param phase the phase, e.g. {@link #PREPARE}.
+	 * @param millis duration of the phase.
+	 */
+	public synchronized void recordPhase(String key, String phase, long millis) {
+		record(PHASE_PREFIX + key + "." + phase, millis);
+	}
+
+	/**
+	 * Gets the duration of a phase of a project in previous runs.
+	 * @param key group ID and artifact ID of the project.
+	 * @param phase the phase, e.g. {@link #PREPARE}.
+	 * @return the duration, a negative value if unknown.
+	 */
+	public synchronized long getPhaseDuration(String key, String phase) {
+		return getDuration(PHASE_PREFIX + key + "." + phase);
+	}
+
+	/**
+	 * Gets the estimated duration of a project, the sum of the durations of the given phases.
+	 * @param key group ID and artifact ID of the project.
+	 * @param phases the phases executed for the project.
+	 * @return the duration, a negative value if a phase is unknown.
+	 */
+	public synchronized long getDuration(String key, String[] phases) {
+		long duration = 0;
+		for (String phase : phases) {
+			long phaseDuration = getPhaseDuration(key, phase);
+			if (phaseDuration < 0) {
+				return -1;
+			}
+			duration += phaseDuration;
+		}
+		return duration;
+	}
+
+	/**
+	 * Records the result of an execution of a project. Failed executions are counted until the project succeeds.
+	 * @param key group ID and artifact ID of the project.
+	 * @param success true, if the execution succeeded.
+	 */
+	public synchronized void recordResult(String key, boolean success) {
+		if (success) {
+			properties.remove(FAILURES_PREFIX + key);
+		} else {
+			properties.setProperty(FAILURES_PREFIX + key, String.valueOf(getFailures(key) + 1));
+		}
+	}
+
+	/**
+	 * Gets the number of failed executions of the project since its last successful execution.
+	 * @param key group ID and artifact ID of the project.
+	 * @return the number of failures
+	 */
+	public synchronized int getFailures(String key) {
+		String value = properties.getProperty(FAILURES_PREFIX + key);
+		return value == null ? 0 : Integer.parseInt(value);
+	}
+
+	/**
+	 * Estimates the parallel fraction of a build according to Amdahl's law from the durations with the lowest and the
+	 * highest number of threads.
+	 * @param key group ID and artifact ID of the project.
+	 * @return the parallel fraction between 0 and 1, or a negative value if not enough builds are recorded.
+	 */
+	public synchronized double getParallelFraction(String key) {
+		String prefix = BUILD_PREFIX + key + "@";
+		int minThreads = Integer.MAX_VALUE;
+		int maxThreads = 0;
+		for (String name : properties.stringPropertyNames()) {
+			if (name.startsWith(prefix)) {
+				int threads = Integer.parseInt(name.substring(prefix.length()));
+				minThreads = Math.min(minThreads, threads);
+				maxThreads = Math.max(maxThreads, threads);
+			}
+		}
+		if (maxThreads <= minThreads) {
+			return -1;
+		}
+		double ratio = (double) getDuration(prefix + minThreads) / getDuration(prefix + maxThreads);
+		double fraction = (1 - ratio) / (1 - ratio - 1.0 / minThreads + ratio / maxThreads);
+		return Math.max(0, Math.min(1, fraction));
+	}
+
+	/**
+	 * Gets the highest number of threads the build of the project uses with at least the given efficiency. The
+	 * efficiency is the speedup divided by the number of threads.
+	 * @param key group ID and artifact ID of the project.
+	 * @param efficiency the minimal efficiency between 0 and 1.
+	 * @return the number of useful threads, {@link Integer#MAX_VALUE} if unknown.
+	 */
+	public int getUsefulThreads(String key, double efficiency) {
+		double fraction = getParallelFraction(key);
+		if (fraction < 0 || fraction >= 1) {
+			return Integer.MAX_VALUE;
+		}
+		// speedup(T) / T >= efficiency with speedup(T) = 1 / ((1 - p) + p / T)
+		return Math.max(1, (int) ((1 / efficiency - fraction) / (1 - fraction)));
+	}
+
+	protected void record(String name, long millis) {
+		long duration = getDuration(name);
+		properties.setProperty(name, String.valueOf(duration < 0 ? millis : (duration + millis) / 2));
+	}
+
+	protected long getDuration(String name) {
+		String value = properties.getProperty(name);
+		return value == null ? -1 : Long.parseLong(value);
+	}
+
+	/**
+	 * Gets the key of the project used in the build history.
+	 * @param dependencyMapper the project
+	 * @return group ID and artifact ID of the project
+	 */
+	public static String getKey(DependencyMapper dependencyMapper) {
+		MavenProject mavenProject = dependencyMapper.getMavenProject();
+		return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+}
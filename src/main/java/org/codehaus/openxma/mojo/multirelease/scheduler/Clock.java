@@ -0,0 +1,23 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+/**
+ * Source of the current time used to measure the executed projects.
+ */
+public interface Clock {
+
+	/**
+	 * The system clock.
+	 */
+	Clock SYSTEM = new Clock() {
+
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+	};
+
+	/**
+	 * Gets the current time.
+	 * @return the current time in milliseconds
+	 */
+	long currentTimeMillis();
+}
@@ -0,0 +1,76 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Global budget of processor cores shared by the builds running at the same time. Every build gets a fair share of
+ * the cores, limited by the cores still free and by the number of threads the build used efficiently in previous runs.
+ */
+public class CpuBudget {
+
+	/**
+	 * Minimal speedup per thread, more threads than that are of no use for a build.
+	 */
+	private static final double EFFICIENCY = 0.5;
+
+	private final int cores;
+
+	private final BuildHistory history;
+
+	/**
+	 * Threads allocated to the build of each worker.
+	 */
+	private final Map<Integer, Integer> allocations = new HashMap<Integer, Integer>();
+
+	private int allocated;
+
+	/**
+	 * @param cores number of cores shared by all builds.
+	 * @param history history of previous builds, used to estimate their speedup.
+	 */
+	public CpuBudget(int cores, BuildHistory history) {
+		this.cores = Math.max(1, cores);
+		this.history = history;
+	}
+
+	/**
+	 * Allocates threads for the build of the project on the given worker. A build always gets at least one thread.
+	 * @param worker number of the worker starting the build.
+	 * @param dependencyMapper the project to build.
+	 * @param concurrency number of builds expected to run at the same time, including this one.
+	 * @return the number of threads of the build
+	 */
+	public synchronized int acquire(int worker, DependencyMapper dependencyMapper, int concurrency) {
+		int share = cores / Math.max(1, concurrency);
+		int threads = Math.min(share, cores - allocated);
+		threads = Math.min(threads, history.getUsefulThreads(BuildHistory.getKey(dependencyMapper), EFFICIENCY));
+		threads = Math.max(1, threads);
+		allocations.put(Integer.valueOf(worker), Integer.valueOf(threads));
+		allocated += threads;
+		return threads;
+	}
+
+	/**
+	 * Releases the threads allocated to the build of the worker.
+	 * @param worker number of the worker whose build finished.
+	 */
+	public synchronized void release(int worker) {
+		Integer threads = allocations.remove(Integer.valueOf(worker));
+		if (threads != null) {
+			allocated -= threads.intValue();
+		}
+	}
+
+	/**
+	 * Gets the threads allocated to the build of the worker.
+	 * @param worker number of the worker.
+	 * @return the number of threads, 0 if no build is running on the worker.
+	 */
+	public synchronized int getThreads(int worker) {
+		Integer threads = allocations.get(Integer.valueOf(worker));
+		return threads == null ? 0 : threads.intValue();
+	}
+}
@@ -0,0 +1,116 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Longest paths through the project graph weighted with the durations of the projects. The remaining path of a
+ * project is its own duration plus the longest remaining path of the projects depending on it, that is the minimal
+ * time needed to finish all work starting with the project. Dependency cycles are cut where they are found.
+ */
+public class CriticalPath {
+
+	private final Map<DependencyMapper, Set<DependencyMapper>> downstreamProjects =
+			new HashMap<DependencyMapper, Set<DependencyMapper>>();
+
+	private final Map<DependencyMapper, Long> durations;
+
+	private final Map<DependencyMapper, Long> remaining = new HashMap<DependencyMapper, Long>();
+
+	private final Map<DependencyMapper, DependencyMapper> successors =
+			new HashMap<DependencyMapper, DependencyMapper>();
+
+	/**
+	 * @param projects the projects in build order.
+	 * @param upstreamProjects the projects each project depends on.
+	 * @param durations the duration of every project.
+	 */
+	public CriticalPath(List<DependencyMapper> projects, Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects,
+			Map<DependencyMapper, Long> durations) {
+		this.durations = durations;
+		for (DependencyMapper dependencyMapper : projects) {
+			downstreamProjects.put(dependencyMapper, new HashSet<DependencyMapper>());
+		}
+		for (DependencyMapper dependencyMapper : projects) {
+			for (DependencyMapper upstream : upstreamProjects.get(dependencyMapper)) {
+				if (downstreamProjects.containsKey(upstream)) {
+					downstreamProjects.get(upstream).add(dependencyMapper);
+				}
+			}
+		}
+		Set<DependencyMapper> visiting = new HashSet<DependencyMapper>();
+		for (DependencyMapper dependencyMapper : projects) {
+			computeRemaining(dependencyMapper, visiting);
+		}
+	}
+
+	/**
+	 * Gets the longest remaining path starting with the project.
+	 * @param dependencyMapper the project
+	 * @return the length of the path
+	 */
+	public long getRemaining(DependencyMapper dependencyMapper) {
+		Long length = remaining.get(dependencyMapper);
+		return length == null ? 0 : length.longValue();
+	}
+
+	/**
+	 * Gets the length of the critical path, the longest path through the graph.
+	 * @return the length of the critical path
+	 */
+	public long getLength() {
+		long length = 0;
+		for (Long value : remaining.values()) {
+			length = Math.max(length, value.longValue());
+		}
+		return length;
+	}
+
+	/**
+	 * Gets the projects on the critical path.
+	 * @return the projects on the critical path in execution order
+	 */
+	public List<DependencyMapper> getPath() {
+		List<DependencyMapper> path = new ArrayList<DependencyMapper>();
+		DependencyMapper start = null;
+		for (Map.Entry<DependencyMapper, Long> entry : remaining.entrySet()) {
+			if (start == null || entry.getValue().longValue() > remaining.get(start).longValue()) {
+				start = entry.getKey();
+			}
+		}
+		for (DependencyMapper next = start; next != null; next = successors.get(next)) {
+			path.add(next);
+		}
+		return path;
+	}
+
+	private long computeRemaining(DependencyMapper dependencyMapper, Set<DependencyMapper> visiting) {
+		Long length = remaining.get(dependencyMapper);
+		if (length != null) {
+			return length.longValue();
+		}
+		if (!visiting.add(dependencyMapper)) {
+			// Cycle, the path ends here.
+			return 0;
+		}
+		long longest = 0;
+		for (DependencyMapper downstream : downstreamProjects.get(dependencyMapper)) {
+			long downstreamLength = computeRemaining(downstream, visiting);
+			if (downstreamLength > longest) {
+				longest = downstreamLength;
+				successors.put(dependencyMapper, downstream);
+			}
+		}
+		visiting.remove(dependencyMapper);
+		Long duration = durations.get(dependencyMapper);
+		long total = longest + (duration == null ? 0 : duration.longValue());
+		remaining.put(dependencyMapper, Long.valueOf(total));
+		return total;
+	}
+}
@@ -0,0 +1,505 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.invoker.PrintStreamLogger;
+import org.codehaus.openxma.mojo.multirelease.exception.ProjectExecutionException;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseReport;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Executes a task for each project on a fixed number of workers. A project is started as soon as all projects it
+ * depends on are finished successfully. If the durations of the projects are known, the ready project with the longest
+ * remaining path through the graph is started first, otherwise ready projects are started in build order. With a
+ * single worker the projects are executed one after the other.
+ */
+public class ReleaseScheduler {
+
+	/**
+	 * Task executed for each scheduled project.
+	 */
+	public interface ProjectTask {
+
+		/**
+		 * Executes the task for the given project.
+		 * @param dependencyMapper the project to execute.
+		 * @param worker number of the worker executing the project, between 0 and the number of workers.
+		 * @throws Exception if the execution failed.
+		 */
+		void execute(DependencyMapper dependencyMapper, int worker) throws Exception;
+	}
+
+	/**
+	 * Cancels projects running on a worker.
+	 */
+	public interface CancelHandler {
+
+		/**
+		 * Cancels the execution of the project, e.g. by killing its processes. The task of the project is expected
+		 * to fail soon after.
+		 * @param dependencyMapper the project to cancel.
+		 * @param worker number of the worker executing the project.
+		 */
+		void cancel(DependencyMapper dependencyMapper, int worker);
+	}
+
+	/**
+	 * What to do when the execution of a project failed.
+	 */
+	public enum FailurePolicy {
+
+		/** Cancel all running projects and start no further projects. */
+		CANCEL,
+
+		/** Let the running projects finish, but start no further projects. */
+		DRAIN,
+
+		/** Continue with all projects which do not depend on a failed project. */
+		CONTINUE
+	}
+
+	/** Instance logger */
+	private final static PrintStreamLogger log = new PrintStreamLogger();
+
+	private final List<DependencyMapper> projects;
+
+	private final int workers;
+
+	private final Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects;
+
+	private CpuBudget cpuBudget;
+
+	private FailurePolicy failurePolicy = FailurePolicy.DRAIN;
+
+	private CancelHandler cancelHandler;
+
+	private Clock clock = Clock.SYSTEM;
+
+	private final Set<DependencyMapper> finished = new HashSet<DependencyMapper>();
+
+	private final Set<DependencyMapper> failed = new LinkedHashSet<DependencyMapper>();
+
+	private final Set<DependencyMapper> skipped = new LinkedHashSet<DependencyMapper>();
+
+	private CriticalPath criticalPath;
+
+	/**
+	 * Start and end time of every executed project.
+	 */
+	private final Map<DependencyMapper, long[]> timings = new HashMap<DependencyMapper, long[]>();
+
+	/**
+	 * @param projects projects to execute in build order.
+	 * @param workers number of projects executed at the same time.
+	 */
+	public ReleaseScheduler(List<DependencyMapper> projects, int workers) {
+		this.projects = projects;
+		this.workers = Math.max(1, workers);
+		this.upstreamProjects = computeUpstreamProjects();
+	}
+
+	/**
+	 * Executes the task for all projects. What happens when a project fails depends on the failure policy, at the
+	 * end the first failure is thrown.
+	 * @param task the task to execute.
+	 * @throws ProjectExecutionException if the task failed for a project.
+	 */
+	public void execute(ProjectTask task) throws ProjectExecutionException {
+		List<DependencyMapper> pending = new ArrayList<DependencyMapper>(projects);
+		LinkedList<Integer> idleWorkers = new LinkedList<Integer>();
+		for (int i = 0; i < workers; i++) {
+			idleWorkers.add(Integer.valueOf(i));
+		}
+		Map<Future<DependencyMapper>, Job> running = new HashMap<Future<DependencyMapper>, Job>();
+		Set<DependencyMapper> cancelled = new HashSet<DependencyMapper>();
+		ProjectExecutionException failure = null;
+		boolean dispatch = true;
+
+		ExecutorService executorService = Executors.newFixedThreadPool(workers);
+		CompletionService<DependencyMapper> completionService =
+				new ExecutorCompletionService<DependencyMapper>(executorService);
+		try {
+			while (!running.isEmpty() || (dispatch && !pending.isEmpty())) {
+				while (dispatch && !idleWorkers.isEmpty()) {
+					DependencyMapper next = getNextProject(pending, running.isEmpty());
+					if (next == null) {
+						break;
+					}
+					pending.remove(next);
+					Job job = new Job(next, idleWorkers.removeFirst().intValue(), task, clock);
+					if (cpuBudget != null) {
+						int concurrency = running.size() + 1 + countReadyProjects(pending);
+						cpuBudget.acquire(job.worker, next, Math.min(workers, concurrency));
+					}
+					running.put(completionService.submit(job), job);
+				}
+				if (running.isEmpty()) {
+					break;
+				}
+				Future<DependencyMapper> future = completionService.take();
+				Job job = running.remove(future);
+				timings.put(job.project, new long[] { job.start, job.end });
+				idleWorkers.add(Integer.valueOf(job.worker));
+				if (cpuBudget != null) {
+					cpuBudget.release(job.worker);
+				}
+				try {
+					finished.add(future.get());
+				} catch (ExecutionException e) {
+					failed.add(job.project);
+					if (cancelled.contains(job.project)) {
+						log.warn("Execution of " + job.project + " was cancelled");
+					} else if (failure == null) {
+						failure = new ProjectExecutionException(job.project, e.getCause());
+					} else {
+						log.error("Execution of " + job.project + " failed as well", e.getCause());
+					}
+					if (failurePolicy == FailurePolicy.CANCEL) {
+						dispatch = false;
+						cancelRunning(running.values(), cancelled);
+					} else if (failurePolicy == FailurePolicy.DRAIN) {
+						dispatch = false;
+					} else {
+						skipDownstream(pending);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancelRunning(running.values(), cancelled);
+			failure = new ProjectExecutionException("Execution of projects was interrupted", e);
+		} finally {
+			executorService.shutdownNow();
+		}
+		skipped.addAll(pending);
+		if (!timings.isEmpty()) {
+			log.info(getMakespanReport());
+		}
+		if (!failed.isEmpty() || !skipped.isEmpty()) {
+			log.warn(finished.size() + " projects finished, " + failed.size() + " failed: " + failed + ", "
+					+ skipped.size() + " not executed: " + skipped);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Gets the projects executed successfully.
+	 * @return the finished projects
+	 */
+	public Set<DependencyMapper> getFinishedProjects() {
+		return finished;
+	}
+
+	/**
+	 * Gets the projects which failed or were cancelled.
+	 * @return the failed projects
+	 */
+	public Set<DependencyMapper> getFailedProjects() {
+		return failed;
+	}
+
+	/**
+	 * Gets the projects which were not executed because of a failure.
+	 * @return the skipped projects
+	 */
+	public Set<DependencyMapper> getSkippedProjects() {
+		return skipped;
+	}
+
+	/**
+	 * Compares the time needed to execute the projects with its theoretical lower bound. No schedule can be shorter
+	 * than the critical path of the executed projects, nor than their total duration divided by the workers.
+	 * @return the report
+	 */
+	public String getMakespanReport() {
+		long first = Long.MAX_VALUE;
+		long last = 0;
+		long work = 0;
+		int executed = 0;
+		for (DependencyMapper dependencyMapper : projects) {
+			long[] timing = timings.get(dependencyMapper);
+			if (timing != null) {
+				first = Math.min(first, timing[0]);
+				last = Math.max(last, timing[1]);
+				work += timing[1] - timing[0];
+				executed++;
+			}
+		}
+		long makespan = Math.max(0, last - first);
+		long pathLength = getExecutedCriticalPath().getLength();
+		long lowerBound = Math.max(pathLength, work / workers);
+		StringBuilder report = new StringBuilder();
+		report.append("Executed ").append(executed).append(" projects on ").append(workers)
+				.append(" workers in ").append(ReleaseReport.formatDuration(makespan));
+		report.append(", lower bound ").append(ReleaseReport.formatDuration(lowerBound)).append(" (critical path ")
+				.append(ReleaseReport.formatDuration(pathLength)).append(", total work ")
+				.append(ReleaseReport.formatDuration(work)).append(")");
+		if (makespan > 0) {
+			report.append(", efficiency ").append(lowerBound * 100 / makespan).append("%");
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Gets the critical path of the executed projects weighted with their actual durations.
+	 * @return the critical path of the execution
+	 */
+	public CriticalPath getExecutedCriticalPath() {
+		Map<DependencyMapper, Long> durations = new HashMap<DependencyMapper, Long>();
+		List<DependencyMapper> executed = new ArrayList<DependencyMapper>();
+		for (DependencyMapper dependencyMapper : projects) {
+			long[] timing = timings.get(dependencyMapper);
+			if (timing != null) {
+				durations.put(dependencyMapper, Long.valueOf(timing[1] - timing[0]));
+				executed.add(dependencyMapper);
+			}
+		}
+		return new CriticalPath(executed, upstreamProjects, durations);
+	}
+
+	/**
+	 * Gets the start and end time of every executed project.
+	 * @return the timings of the projects
+	 */
+	public Map<DependencyMapper, long[]> getTimings() {
+		return timings;
+	}
+
+	/**
+	 * Gets the projects each project depends on.
+	 * @return the upstream projects of every project
+	 */
+	public Map<DependencyMapper, Set<DependencyMapper>> getUpstreamProjects() {
+		return upstreamProjects;
+	}
+
+	/**
+	 * Sets the estimated durations of the projects, which are used to start the projects on the critical path first.
+	 * Projects without estimation are weighted with the average estimation. Without any estimation the projects are
+	 * started in build order.
+	 * @param durations estimated durations of the projects.
+	 */
+	public void setEstimatedDurations(Map<DependencyMapper, Long> durations) {
+		long total = 0;
+		int known = 0;
+		for (DependencyMapper dependencyMapper : projects) {
+			Long duration = durations.get(dependencyMapper);
+			if (duration != null) {
+				total += duration.longValue();
+				known++;
+			}
+		}
+		if (known == 0) {
+			criticalPath = null;
+			return;
+		}
+		Long average = Long.valueOf(Math.max(1, total / known));
+		Map<DependencyMapper, Long> weights = new HashMap<DependencyMapper, Long>();
+		for (DependencyMapper dependencyMapper : projects) {
+			Long duration = durations.get(dependencyMapper);
+			weights.put(dependencyMapper, duration == null ? average : duration);
+		}
+		criticalPath = new CriticalPath(projects, upstreamProjects, weights);
+	}
+
+	/**
+	 * Gets the next project whose upstream projects are all finished. If no project is ready and nothing is running
+	 * the projects depend on each other, then the next project in build order is returned.
+	 */
+	private DependencyMapper getNextProject(List<DependencyMapper> pending, boolean idle) {
+		DependencyMapper next = null;
+		for (DependencyMapper dependencyMapper : pending) {
+			if (finished.containsAll(upstreamProjects.get(dependencyMapper))) {
+				if (criticalPath == null) {
+					return dependencyMapper;
+				}
+				if (next == null || criticalPath.getRemaining(dependencyMapper) > criticalPath.getRemaining(next)) {
+					next = dependencyMapper;
+				}
+			}
+		}
+		if (next == null && idle && !pending.isEmpty()) {
+			log.warn("Cyclic dependency detected, continuing with " + pending.get(0));
+			return pending.get(0);
+		}
+		return next;
+	}
+
+	private int countReadyProjects(List<DependencyMapper> pending) {
+		int ready = 0;
+		for (DependencyMapper dependencyMapper : pending) {
+			if (finished.containsAll(upstreamProjects.get(dependencyMapper))) {
+				ready++;
+			}
+		}
+		return ready;
+	}
+
+	/**
+	 * Cancels the running projects with the cancel handler.
+	 */
+	private void cancelRunning(Collection<Job> jobs, Set<DependencyMapper> cancelled) {
+		for (Job job : jobs) {
+			if (cancelled.add(job.project) && cancelHandler != null) {
+				log.warn("Cancelling execution of " + job.project);
+				cancelHandler.cancel(job.project, job.worker);
+			}
+		}
+	}
+
+	/**
+	 * Removes all pending projects which directly or indirectly depend on a failed project.
+	 */
+	private void skipDownstream(List<DependencyMapper> pending) {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Iterator<DependencyMapper> iterator = pending.iterator(); iterator.hasNext();) {
+				DependencyMapper dependencyMapper = iterator.next();
+				for (DependencyMapper upstream : upstreamProjects.get(dependencyMapper)) {
+					if (failed.contains(upstream) || skipped.contains(upstream)) {
+						log.warn("Skipping " + dependencyMapper + " because it depends on " + upstream);
+						iterator.remove();
+						skipped.add(dependencyMapper);
+						changed = true;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Maps every project to the scheduled projects it depends on.
+	 * @return the upstream projects of every project
+	 */
+	private Map<DependencyMapper, Set<DependencyMapper>> computeUpstreamProjects() {
+		Map<String, DependencyMapper> owners = new HashMap<String, DependencyMapper>();
+		for (DependencyMapper dependencyMapper : projects) {
+			owners.put(getKey(dependencyMapper.getMavenProject()), dependencyMapper);
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				owners.put(getKey(mavenProject), dependencyMapper);
+			}
+		}
+		Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects =
+				new HashMap<DependencyMapper, Set<DependencyMapper>>();
+		for (DependencyMapper dependencyMapper : projects) {
+			Set<DependencyMapper> upstream = new LinkedHashSet<DependencyMapper>();
+			for (MavenProject mavenProject : dependencyMapper.getDependencyProject()) {
+				DependencyMapper owner = owners.get(getKey(mavenProject));
+				if (owner != null && owner != dependencyMapper) {
+					upstream.add(owner);
+				}
+			}
+			upstreamProjects.put(dependencyMapper, upstream);
+		}
+		return upstreamProjects;
+	}
+
+	public CpuBudget getCpuBudget() {
+		return cpuBudget;
+	}
+
+	/**
+	 * Sets the budget of cores shared by the running projects. Threads are allocated when a project is started and
+	 * released when it is finished.
+	 * @param cpuBudget the budget, <code>null</code> to not allocate threads.
+	 */
+	public void setCpuBudget(CpuBudget cpuBudget) {
+		this.cpuBudget = cpuBudget;
+	}
+
+	public FailurePolicy getFailurePolicy() {
+		return failurePolicy;
+	}
+
+	/**
+	 * Sets the policy applied when a project fails, {@link FailurePolicy#DRAIN} by default.
+	 * @param failurePolicy the failure policy
+	 */
+	public void setFailurePolicy(FailurePolicy failurePolicy) {
+		this.failurePolicy = failurePolicy;
+	}
+
+	public CancelHandler getCancelHandler() {
+		return cancelHandler;
+	}
+
+	/**
+	 * Sets the handler used to cancel running projects with {@link FailurePolicy#CANCEL}.
+	 * @param cancelHandler the cancel handler
+	 */
+	public void setCancelHandler(CancelHandler cancelHandler) {
+		this.cancelHandler = cancelHandler;
+	}
+
+	public Clock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Sets the clock measuring the start and end of the projects, {@link Clock#SYSTEM} by default.
+	 * @param clock the clock
+	 */
+	public void setClock(Clock clock) {
+		this.clock = clock;
+	}
+
+	private String getKey(MavenProject mavenProject) {
+		return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+
+	/**
+	 * Execution of a project on a worker.
+	 */
+	private static class Job implements Callable<DependencyMapper> {
+
+		private final DependencyMapper project;
+
+		private final int worker;
+
+		private final ProjectTask task;
+
+		private final Clock clock;
+
+		private volatile long start;
+
+		private volatile long end;
+
+		Job(DependencyMapper project, int worker, ProjectTask task, Clock clock) {
+			this.project = project;
+			this.worker = worker;
+			this.task = task;
+			this.clock = clock;
+		}
+
+		public DependencyMapper call() throws Exception {
+			start = clock.currentTimeMillis();
+			try {
+				task.execute(project, worker);
+			} finally {
+				end = clock.currentTimeMillis();
+			}
+			return project;
+		}
+	}
+}
@@ -28,6 +28,7 @@ import org.apache.maven.scm.provider.synergy.SynergyScmProvider;
 import org.apache.maven.scm.provider.vss.VssScmProvider;
 import org.apache.maven.scm.repository.ScmRepository;
 import org.apache.maven.shared.invoker.PrintStreamLogger;
+import org.codehaus.openxma.mojo.multirelease.event.ScmCheckinEvent;
 
 /***
  * SCM manager to commit files in the provided SCM. SCM is identified by the SCM URL.
@@ -71,19 +72,33 @@ public class CustomScmManager {
 	 */
 	public void checkin(String scmURL, String username, String password, File workingCopyPath, String scmCommentPrefix)
 			throws ScmException {
-		ScmRepository repository = scmManager.makeScmRepository(scmURL);
-		repository.getProviderRepository().setUser(username);
-		repository.getProviderRepository().setPassword(password);
-		checkIn(repository, workingCopyPath, null, scmCommentPrefix);
-
+		ScmCheckinEvent event = new ScmCheckinEvent();
+		event.begin();
+		CheckInScmResult result = null;
+		try {
+			ScmRepository repository = scmManager.makeScmRepository(scmURL);
+			repository.getProviderRepository().setUser(username);
+			repository.getProviderRepository().setPassword(password);
+			result = checkIn(repository, workingCopyPath, null, scmCommentPrefix);
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.setUrl(scmURL);
+				event.setDirectory(workingCopyPath.getAbsolutePath());
+				event.setSuccess(result != null && result.isSuccess());
+				event.setFiles(result == null || result.getCheckedInFiles() == null ? 0 : result.getCheckedInFiles()
+						.size());
+				event.commit();
+			}
+		}
 	}
 
-	private void checkIn(ScmRepository scmRepository, File workingDirectory, ScmVersion version, String scmCommentPrefix)
-			throws ScmException {
+	private CheckInScmResult checkIn(ScmRepository scmRepository, File workingDirectory, ScmVersion version,
+			String scmCommentPrefix) throws ScmException {
 		if (!workingDirectory.exists()) {
 			System.err.println("The working directory doesn't exist: '" + workingDirectory.getAbsolutePath()
 					+ "'.");
-			return;
+			return null;
 		}
 
 		CheckInScmResult result =
@@ -91,7 +106,7 @@ public class CustomScmManager {
 
 		if (!result.isSuccess()) {
 			showError(result);
-			return;
+			return result;
 		}
 
 		List<ScmFile> checkedInFiles = result.getCheckedInFiles();
@@ -101,6 +116,7 @@ public class CustomScmManager {
 		for (ScmFile file : checkedInFiles) {
 			log.info(" " + file.getPath());
 		}
+		return result;
 	}
 
 	/**
@@ -0,0 +1,31 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+/**
+ * Kind of reference through which a project depends on another project of the workspace. All kinds require the
+ * referenced project to be released first.
+ */
+public enum DependencyKind {
+
+	/** The referenced project is the parent POM. */
+	PARENT,
+
+	/** The referenced project is a BOM imported into the dependency management. */
+	IMPORT,
+
+	/** The referenced project is a dependency or a managed dependency. */
+	DEPENDENCY,
+
+	/** The referenced project is a build or managed plugin or a dependency of such a plugin. */
+	PLUGIN,
+
+	/** The referenced project is a build extension. */
+	EXTENSION;
+
+	/**
+	 * Gets the name used in reports.
+	 * @return the name in lower case
+	 */
+	public String getLabel() {
+		return name().toLowerCase();
+	}
+}
@@ -1,10 +1,14 @@
 package org.codehaus.openxma.mojo.multirelease.util;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.maven.model.Dependency;
 import org.apache.maven.project.MavenProject;
 
 /**
@@ -20,7 +24,7 @@ public class DependencyMapper implements Comparable<DependencyMapper> {
 	private MavenProject mavenProject;
 
 	/**
-	 * List of projects in which this project is referenced.
+	 * List of projects in which this project is referenced, every project once in the order it was added.
 	 */
 	private List<MavenProject> dependencyProject;
 
@@ -29,6 +33,29 @@ public class DependencyMapper implements Comparable<DependencyMapper> {
 	 */
 	private List<MavenProject> childProject;
 
+	/**
+	 * Dependencies declared by this project which caused the entries of the dependency projects. Projects are told
+	 * apart by identity, their equality depends on their versions which change during a release.
+	 */
+	private final Map<MavenProject, List<Dependency>> dependencyCauses =
+			new IdentityHashMap<MavenProject, List<Dependency>>();
+
+	/**
+	 * Kinds of the references of this project to the entries of the dependency projects, by identity.
+	 */
+	private final Map<MavenProject, Set<DependencyKind>> dependencyKinds =
+			new IdentityHashMap<MavenProject, Set<DependencyKind>>();
+
+	/**
+	 * Distinct root projects of the dependency projects, <code>null</code> until the graph is finalized.
+	 */
+	private Set<MavenProject> rootProjects;
+
+	/**
+	 * Number of distinct root projects of the dependency projects, the sort key of the build order.
+	 */
+	private int rootProjectCount;
+
 	public DependencyMapper() {
 		dependencyProject = new ArrayList<MavenProject>();
 		childProject = new ArrayList<MavenProject>();
@@ -48,12 +75,88 @@ public class DependencyMapper implements Comparable<DependencyMapper> {
 		this.mavenProject = mavenProject;
 	}
 
+	/**
+	 * Gets the projects this project depends on, projects are added through the <tt>addDependencyProject</tt>
+	 * methods.
+	 * @return the projects, unmodifiable.
+	 */
 	public List<MavenProject> getDependencyProject() {
-		return dependencyProject;
+		return Collections.unmodifiableList(dependencyProject);
 	}
 
 	public void setDependencyProject(List<MavenProject> dependency) {
-		this.dependencyProject = dependency;
+		this.dependencyProject = new ArrayList<MavenProject>();
+		this.rootProjects = null;
+		dependencyCauses.clear();
+		dependencyKinds.clear();
+		for (MavenProject mavenProject : dependency) {
+			getCauses(mavenProject);
+		}
+	}
+
+	/**
+	 * Adds a project this project depends on together with the dependency which references it. A project referenced
+	 * by several dependencies is added once with all of them as causes.
+	 * @param mavenProject the referenced project, either a parent project or a child project.
+	 * @param dependency the dependency of this project
+	 */
+	public void addDependencyProject(MavenProject mavenProject, Dependency dependency) {
+		addDependencyProject(mavenProject, DependencyKind.DEPENDENCY, dependency);
+	}
+
+	/**
+	 * Adds a project this project depends on together with the kind of the reference and its cause.
+	 * @param mavenProject the referenced project, either a parent project or a child project.
+	 * @param kind the kind of the reference
+	 * @param cause the reference as dependency, e.g. the parent or plugin coordinates, may be <code>null</code>.
+	 */
+	public void addDependencyProject(MavenProject mavenProject, DependencyKind kind, Dependency cause) {
+		List<Dependency> causes = getCauses(mavenProject);
+		if (cause != null) {
+			causes.add(cause);
+		}
+		dependencyKinds.get(mavenProject).add(kind);
+	}
+
+	/**
+	 * Adds a project this project depends on without the dependency which references it, e.g. when the dependencies
+	 * are restored from a release plan. A project already added is not added again.
+	 * @param mavenProject the referenced project, either a parent project or a child project.
+	 */
+	public void addDependencyProject(MavenProject mavenProject) {
+		getCauses(mavenProject);
+	}
+
+	private List<Dependency> getCauses(MavenProject mavenProject) {
+		List<Dependency> causes = dependencyCauses.get(mavenProject);
+		if (causes == null) {
+			causes = new ArrayList<Dependency>(1);
+			dependencyCauses.put(mavenProject, causes);
+			dependencyKinds.put(mavenProject, EnumSet.noneOf(DependencyKind.class));
+			dependencyProject.add(mavenProject);
+			rootProjects = null;
+		}
+		return causes;
+	}
+
+	/**
+	 * Gets the dependencies of this project which reference the given project.
+	 * @param mavenProject a project this project depends on.
+	 * @return the dependencies, empty if the project was added without dependency.
+	 */
+	public List<Dependency> getDependencyCauses(MavenProject mavenProject) {
+		List<Dependency> causes = dependencyCauses.get(mavenProject);
+		return causes == null ? Collections.<Dependency> emptyList() : causes;
+	}
+
+	/**
+	 * Gets the kinds of the references of this project to the given project.
+	 * @param mavenProject a project this project depends on.
+	 * @return the kinds, empty if the project was added without kind.
+	 */
+	public Set<DependencyKind> getDependencyKinds(MavenProject mavenProject) {
+		Set<DependencyKind> kinds = dependencyKinds.get(mavenProject);
+		return kinds == null ? Collections.<DependencyKind> emptySet() : Collections.unmodifiableSet(kinds);
 	}
 
 	public List<MavenProject> getChildProject() {
@@ -64,25 +167,48 @@ public class DependencyMapper implements Comparable<DependencyMapper> {
 		this.childProject = childProject;
 	}
 
-	public int compareTo(DependencyMapper dependencyMapper) {
-		// The project which has minimum number of dependent project will be built first.
-		Set<MavenProject> dependentProjects = new HashSet<MavenProject>();
+	/**
+	 * Computes the distinct root projects of the dependency projects, i.e. the top most parents of the referenced
+	 * projects and modules. Called when the graph is finalized, the result is kept until a dependency project is
+	 * added through this mapper.
+	 */
+	public void resolveRootProjects() {
+		Set<MavenProject> roots = Collections.newSetFromMap(new IdentityHashMap<MavenProject, Boolean>());
 		for (MavenProject mavenProject : dependencyProject) {
 			while (mavenProject.getParent() != null) {
 				mavenProject = mavenProject.getParent();
 			}
-			dependentProjects.add(mavenProject);
+			roots.add(mavenProject);
 		}
-		int size = dependentProjects.size();
-		dependentProjects.clear();
-		for (MavenProject mavenProject : dependencyMapper
-				.getDependencyProject()) {
-			while (mavenProject.getParent() != null) {
-				mavenProject = mavenProject.getParent();
-			}
-			dependentProjects.add(mavenProject);
+		rootProjects = Collections.unmodifiableSet(roots);
+		rootProjectCount = roots.size();
+	}
+
+	/**
+	 * Gets the distinct root projects of the dependency projects.
+	 * @return the root projects, computed on the first call if the graph was not finalized.
+	 */
+	public Set<MavenProject> getRootProjects() {
+		if (rootProjects == null) {
+			resolveRootProjects();
+		}
+		return rootProjects;
+	}
+
+	/**
+	 * Gets the number of distinct root projects of the dependency projects.
+	 * @return the number of root projects
+	 */
+	public int getRootProjectCount() {
+		if (rootProjects == null) {
+			resolveRootProjects();
 		}
-		return size - dependentProjects.size();
+		return rootProjectCount;
+	}
+
+	public int compareTo(DependencyMapper dependencyMapper) {
+		// The project which has minimum number of dependent project will be built first.
+		return getRootProjectCount() - dependencyMapper.getRootProjectCount();
 	}
 
 	@Override
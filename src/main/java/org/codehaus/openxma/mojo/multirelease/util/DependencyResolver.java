@@ -1,87 +1,247 @@
 package org.codehaus.openxma.mojo.multirelease.util;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Build;
 import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.event.DependencyTreeEvent;
 
 /**
- * Resolves the dependency of one project on the other project.
+ * Resolves the dependency of one project on the other project. A project depends on another project if it or one of
+ * its modules references the other project or one of its modules as parent, imported BOM, dependency, managed
+ * dependency, build plugin, managed plugin, plugin dependency or build extension. Every edge is tagged with the
+ * {@link DependencyKind kinds} of its references.
  * @author Rakshit Jain
- * 
+ *
  */
 public class DependencyResolver {
+
+	private static final String IMPORT_SCOPE = "import";
+
+	private final ReactorIndex reactorIndex;
+
+	private final ModelPropertyResolver modelPropertyResolver = new ModelPropertyResolver();
+
+	public DependencyResolver() {
+		this(null);
+	}
+
+	/**
+	 * @param reactorIndex the index of the reactor to look up referenced projects in, <code>null</code> to index the
+	 *            available projects and their modules.
+	 */
+	public DependencyResolver(ReactorIndex reactorIndex) {
+		this.reactorIndex = reactorIndex;
+	}
+
 	public List<DependencyMapper> getBuildOrder(List<DependencyMapper> availableProjects) {
-		buildDependencyTree(availableProjects);
+		return getBuildOrder(availableProjects, null);
+	}
+
+	/**
+	 * Resolves the dependencies between the projects and sorts them into build order. The edges of projects which did
+	 * not change since the snapshot are restored from it instead of being resolved.
+	 * @param availableProjects list of available projects of type {@link DependencyMapper}.
+	 * @param snapshot the loaded snapshot of a previous execution, <code>null</code> to resolve all projects.
+	 * @return the projects in build order
+	 */
+	public List<DependencyMapper> getBuildOrder(List<DependencyMapper> availableProjects, GraphSnapshot snapshot) {
+		DependencyTreeEvent event = new DependencyTreeEvent();
+		event.begin();
+		buildDependencyTree(availableProjects, snapshot);
+		for (DependencyMapper dependencyMapper : availableProjects) {
+			dependencyMapper.resolveRootProjects();
+		}
 		Collections.sort(availableProjects);
+		event.end();
+		if (event.shouldCommit()) {
+			int dependencies = 0;
+			for (DependencyMapper dependencyMapper : availableProjects) {
+				dependencies += dependencyMapper.getDependencyProject().size();
+			}
+			event.setProjects(availableProjects.size());
+			event.setDependencies(dependencies);
+			event.commit();
+		}
 		return availableProjects;
 	}
 
 	/**
-	 * Builds the dependency tree by resolving the available project dependency.
+	 * Builds the dependency tree in a single pass over the references of every project, which are looked up in the
+	 * index of the reactor.
 	 * @param availableProjects list of available projects of type {@link DependencyMapper}.
+	 * @param snapshot the snapshot to restore unchanged edges from, may be <code>null</code>.
 	 */
-	private void buildDependencyTree(List<DependencyMapper> availableProjects) {
+	private void buildDependencyTree(List<DependencyMapper> availableProjects, GraphSnapshot snapshot) {
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		Map<String, DependencyMapper> owners = new HashMap<String, DependencyMapper>();
 		for (DependencyMapper availableProject : availableProjects) {
-			Artifact availableArtifact = availableProject.getMavenProject()
-					.getArtifact();
-			for (DependencyMapper project : availableProjects) {
-				if (!project.getMavenProject().getArtifact()
-						.equals(availableArtifact)) {
-					List<Dependency> dependencies = null;
-					// Check if dependency management section is available.
-					// Dependency management section will be used in case of multi module project.
-					if (project.getMavenProject().getDependencyManagement() != null) {
-						dependencies = project.getMavenProject()
-								.getDependencyManagement().getDependencies();
-					} else {
-						dependencies = project.getMavenProject()
-								.getOriginalModel().getDependencies();
+			addOwner(owners, mavenProjects, availableProject.getMavenProject(), availableProject);
+			for (MavenProject mavenProject : availableProject.getChildProject()) {
+				addOwner(owners, mavenProjects, mavenProject, availableProject);
+			}
+		}
+		ReactorIndex targets = reactorIndex != null ? reactorIndex : new ReactorIndex(mavenProjects);
+		for (DependencyMapper project : availableProjects) {
+			if (snapshot == null || !snapshot.restore(project, owners)) {
+				List<Reference> references = getReferences(project, modelPropertyResolver);
+				if (snapshot != null) {
+					snapshot.setReferences(project, references);
+				}
+				for (Reference reference : references) {
+					DependencyMapper owner = owners.get(reference.key);
+					MavenProject target = targets.getProject(reference.key);
+					if (owner != null && owner != project && target != null) {
+						project.addDependencyProject(target, reference.kind, reference.cause);
 					}
-					// Check If available project dependency exist in other project dependencies.
-					for (Dependency dependency : dependencies) {
-						if (compareDependencyWithArtifact(dependency,
-								availableArtifact)) {
-							project.getDependencyProject().add(
-									availableProject.getMavenProject());
-						} else {
-							for (MavenProject mavenProject : availableProject
-									.getChildProject()) {
-								if (compareDependencyWithArtifact(dependency,
-										mavenProject.getArtifact())) {
-									// Add dependent project to the list.
-									project.getDependencyProject().add(
-											mavenProject);
-								}
-							}
-
-						}
+				}
+			}
+		}
+	}
+
+	private void addOwner(Map<String, DependencyMapper> owners, List<MavenProject> mavenProjects,
+			MavenProject mavenProject, DependencyMapper owner) {
+		String key = ReactorIndex.getKey(mavenProject.getGroupId(), mavenProject.getArtifactId());
+		if (!owners.containsKey(key)) {
+			owners.put(key, owner);
+		}
+		mavenProjects.add(mavenProject);
+	}
+
+	/**
+	 * Gets all references of a project and its modules which can point to other projects, in a stable order: parents,
+	 * imported BOMs, dependencies, plugins and extensions. The dependencies are the managed dependencies of the
+	 * project followed by the dependencies of the project and of its modules, the plugins are the build plugins
+	 * followed by the managed plugins, as the release rewrites the versions of both.
+	 * @param dependencyMapper the project
+	 * @param modelPropertyResolver resolves the properties used in group and artifact IDs.
+	 * @return the references
+	 */
+	static List<Reference> getReferences(DependencyMapper dependencyMapper,
+			ModelPropertyResolver modelPropertyResolver) {
+		List<Reference> references = new ArrayList<Reference>();
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		mavenProjects.add(dependencyMapper.getMavenProject());
+		mavenProjects.addAll(dependencyMapper.getChildProject());
+		for (MavenProject mavenProject : mavenProjects) {
+			Parent parent = getModel(mavenProject).getParent();
+			if (parent != null) {
+				addReference(references, modelPropertyResolver, mavenProject, DependencyKind.PARENT,
+						createDependency(parent.getGroupId(), parent.getArtifactId(), parent.getVersion(), "pom"));
+			}
+		}
+		for (MavenProject mavenProject : mavenProjects) {
+			Model model = getModel(mavenProject);
+			if (model.getDependencyManagement() != null) {
+				for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+					if (IMPORT_SCOPE.equals(dependency.getScope())) {
+						addReference(references, modelPropertyResolver, mavenProject, DependencyKind.IMPORT,
+								dependency);
 					}
 				}
 			}
+		}
+		MavenProject project = dependencyMapper.getMavenProject();
+		if (project.getDependencyManagement() != null) {
+			for (Dependency dependency : project.getDependencyManagement().getDependencies()) {
+				if (!IMPORT_SCOPE.equals(dependency.getScope())) {
+					addReference(references, modelPropertyResolver, project, DependencyKind.DEPENDENCY,
+							dependency);
+				}
+			}
+		}
+		for (MavenProject mavenProject : mavenProjects) {
+			for (Dependency dependency : getModel(mavenProject).getDependencies()) {
+				addReference(references, modelPropertyResolver, mavenProject, DependencyKind.DEPENDENCY,
+						dependency);
+			}
+		}
+		for (MavenProject mavenProject : mavenProjects) {
+			Build build = getModel(mavenProject).getBuild();
+			if (build != null) {
+				addPluginReferences(references, modelPropertyResolver, mavenProject, build.getPlugins());
+				if (build.getPluginManagement() != null) {
+					addPluginReferences(references, modelPropertyResolver, mavenProject,
+							build.getPluginManagement().getPlugins());
+				}
+			}
+		}
+		for (MavenProject mavenProject : mavenProjects) {
+			Build build = getModel(mavenProject).getBuild();
+			if (build != null) {
+				for (Extension extension : build.getExtensions()) {
+					addReference(references, modelPropertyResolver, mavenProject, DependencyKind.EXTENSION,
+							createDependency(extension.getGroupId(), extension.getArtifactId(),
+									extension.getVersion(), "jar"));
+				}
+			}
+		}
+		return references;
+	}
 
+	private static void addPluginReferences(List<Reference> references, ModelPropertyResolver modelPropertyResolver,
+			MavenProject mavenProject, List<Plugin> plugins) {
+		for (Plugin plugin : plugins) {
+			addReference(references, modelPropertyResolver, mavenProject, DependencyKind.PLUGIN,
+					createDependency(plugin.getGroupId(), plugin.getArtifactId(), plugin.getVersion(), "maven-plugin"));
+			for (Dependency dependency : plugin.getDependencies()) {
+				addReference(references, modelPropertyResolver, mavenProject, DependencyKind.PLUGIN, dependency);
+			}
 		}
+	}
+
+	private static void addReference(List<Reference> references, ModelPropertyResolver modelPropertyResolver,
+			MavenProject mavenProject, DependencyKind kind, Dependency cause) {
+		String groupId = modelPropertyResolver.resolve(mavenProject, cause.getGroupId());
+		String artifactId = modelPropertyResolver.resolve(mavenProject, cause.getArtifactId());
+		if (groupId != null && artifactId != null) {
+			references.add(new Reference(ReactorIndex.getKey(groupId, artifactId), kind, cause));
+		}
+	}
+
+	/**
+	 * Gets the model as written in the POM, the references are taken from it so that inherited references are not
+	 * attributed to every module.
+	 */
+	private static Model getModel(MavenProject mavenProject) {
+		return mavenProject.getOriginalModel() != null ? mavenProject.getOriginalModel() : mavenProject.getModel();
+	}
 
+	private static Dependency createDependency(String groupId, String artifactId, String version, String type) {
+		Dependency dependency = new Dependency();
+		dependency.setGroupId(groupId);
+		dependency.setArtifactId(artifactId);
+		dependency.setVersion(version);
+		dependency.setType(type);
+		return dependency;
 	}
 
 	/**
-	 * Compare dependency with artifact. If artifact and group id are same then both are considered to be equal.
-	 * @param dependency {@link Dependency}
-	 * @param artifact {@link Artifact}
-	 * @return true, if equal
+	 * Reference of a project or module to an artifact which may be another project of the workspace.
 	 */
-	private boolean compareDependencyWithArtifact(Dependency dependency,
-			Artifact artifact) {
-		boolean equal = true;
-		if (!artifact.getGroupId().equals(dependency.getGroupId())) {
-			equal = false;
-		} else if (!artifact.getArtifactId().equals(dependency.getArtifactId())) {
-			equal = false;
+	static class Reference {
+
+		/** Group ID and artifact ID of the referenced artifact. */
+		final String key;
+
+		final DependencyKind kind;
+
+		/** The reference as dependency, for parents, plugins and extensions a dependency with their coordinates. */
+		final Dependency cause;
+
+		Reference(String key, DependencyKind kind, Dependency cause) {
+			this.key = key;
+			this.kind = kind;
+			this.cause = cause;
 		}
-		// We don't consider the version range in the comparison, just the
-		// resolved version
-		return equal;
 	}
 }
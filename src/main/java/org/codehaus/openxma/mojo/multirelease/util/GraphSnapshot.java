@@ -0,0 +1,449 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver.Reference;
+
+/**
+ * Snapshot of the resolved dependency graph, persisted as compact binary file between executions. Every project is
+ * stored with a hash of its POM files, the POM files of its modules and of their parents, together with its
+ * references, the projects it depends on and the indexes of the references which caused each edge.
+ * <p>
+ * The edges of a project only depend on its own POMs and on the POMs of the projects its references point to, so the
+ * {@link DependencyResolver} restores the edges of an unchanged project whose references only point to unchanged
+ * projects from the snapshot, without reading its references from the model, and resolves all other projects. The
+ * result is the same as resolving the whole graph, except that the causes of restored edges are copies of the
+ * dependencies of the model.
+ * <p>
+ * The POM files are only hashed if their paths, sizes or modification times differ from the snapshot.
+ */
+public class GraphSnapshot {
+
+	/** File name of the snapshot in the work directory. */
+	public static final String FILE = "graph.bin";
+
+	private static final int MAGIC = 0x4d52474e;
+
+	private static final int FORMAT = 4;
+
+	private final File file;
+
+	/** Paths, sizes and modification times of the POM files of every project in the snapshot, hashed. */
+	private final Map<String, String> stamps = new HashMap<String, String>();
+
+	/** Hash of the POM files of every project in the snapshot, by group ID and artifact ID. */
+	private final Map<String, String> hashes = new HashMap<String, String>();
+
+	/** References of every project in the snapshot, by group ID and artifact ID. */
+	private final Map<String, List<Reference>> storedReferences = new HashMap<String, List<Reference>>();
+
+	/** Edges of every project in the snapshot, by group ID and artifact ID. */
+	private final Map<String, List<Edge>> edges = new HashMap<String, List<Edge>>();
+
+	/** Current stamp of the POM files of every project. */
+	private final Map<DependencyMapper, String> currentStamps = new HashMap<DependencyMapper, String>();
+
+	/** Current hash of the POM files of every project. */
+	private final Map<DependencyMapper, String> currentHashes = new LinkedHashMap<DependencyMapper, String>();
+
+	/** Projects whose POM files are the same as in the snapshot. */
+	private final Set<DependencyMapper> unchangedProjects = new HashSet<DependencyMapper>();
+
+	/**
+	 * References of every project of the current execution, restored or resolved. The causes of its edges are stored
+	 * as their index.
+	 */
+	private final Map<DependencyMapper, List<Reference>> references = new HashMap<DependencyMapper, List<Reference>>();
+
+	/**
+	 * @param file the file of the snapshot.
+	 */
+	public GraphSnapshot(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads the snapshot if it exists and compares it with the POM files of the projects.
+	 * @param projects the projects of the current execution
+	 * @throws IOException if the snapshot or a POM file can not be read.
+	 */
+	public void load(List<DependencyMapper> projects) throws IOException {
+		if (file.isFile()) {
+			DataInputStream input = null;
+			try {
+				input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+				read(input);
+			} finally {
+				close(input);
+			}
+		}
+		for (DependencyMapper dependencyMapper : projects) {
+			String id = getId(dependencyMapper.getMavenProject());
+			Collection<File> pomFiles = getPomFiles(dependencyMapper);
+			String stamp = getStamp(pomFiles);
+			String hash = stamp.equals(stamps.get(id)) ? hashes.get(id) : getHash(pomFiles);
+			currentStamps.put(dependencyMapper, stamp);
+			currentHashes.put(dependencyMapper, hash);
+			if (hash.equals(hashes.get(id))) {
+				unchangedProjects.add(dependencyMapper);
+			}
+		}
+	}
+
+	private void read(DataInputStream input) throws IOException {
+		if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+			// Written by another version of the plugin, resolve all projects.
+			return;
+		}
+		int projects = input.readInt();
+		for (int i = 0; i < projects; i++) {
+			String id = input.readUTF();
+			stamps.put(id, input.readUTF());
+			hashes.put(id, input.readUTF());
+			int size = input.readInt();
+			List<Reference> projectReferences = new ArrayList<Reference>(size);
+			for (int j = 0; j < size; j++) {
+				String key = input.readUTF();
+				DependencyKind kind = DependencyKind.valueOf(input.readUTF());
+				Dependency cause = new Dependency();
+				cause.setGroupId(readString(input));
+				cause.setArtifactId(readString(input));
+				cause.setVersion(readString(input));
+				cause.setType(readString(input));
+				cause.setClassifier(readString(input));
+				cause.setScope(readString(input));
+				projectReferences.add(new Reference(key, kind, cause));
+			}
+			storedReferences.put(id, projectReferences);
+			size = input.readInt();
+			List<Edge> projectEdges = new ArrayList<Edge>(size);
+			for (int j = 0; j < size; j++) {
+				String owner = input.readUTF();
+				String target = input.readUTF();
+				int[] causes = new int[input.readInt()];
+				for (int k = 0; k < causes.length; k++) {
+					causes[k] = input.readInt();
+				}
+				projectEdges.add(new Edge(owner, target, causes));
+			}
+			edges.put(id, projectEdges);
+		}
+	}
+
+	/**
+	 * Restores the edges of a project from its stored references. Does nothing if the project changed, if one of its
+	 * references points to a changed project or if the snapshot does not match the references.
+	 * @param project the depending project
+	 * @param owners the projects owning each project and module, by group ID and artifact ID.
+	 * @return <code>true</code> if the edges were restored, <code>false</code> if they must be resolved.
+	 */
+	boolean restore(DependencyMapper project, Map<String, DependencyMapper> owners) {
+		if (!unchangedProjects.contains(project)) {
+			return false;
+		}
+		String id = getId(project.getMavenProject());
+		List<Reference> projectReferences = storedReferences.get(id);
+		for (Reference reference : projectReferences) {
+			DependencyMapper owner = owners.get(reference.key);
+			if (owner != null && owner != project && !unchangedProjects.contains(owner)) {
+				return false;
+			}
+		}
+		List<Edge> projectEdges = edges.get(id);
+		for (Edge edge : projectEdges) {
+			DependencyMapper owner = owners.get(edge.owner);
+			if (owner != null && getTarget(owner, edge.target) == null) {
+				return false;
+			}
+			for (int cause : edge.causes) {
+				if (cause < 0 || cause >= projectReferences.size()) {
+					return false;
+				}
+			}
+		}
+		for (Edge edge : projectEdges) {
+			// Edges to projects which are no longer in the reactor are dropped.
+			DependencyMapper owner = owners.get(edge.owner);
+			if (owner != null) {
+				MavenProject target = getTarget(owner, edge.target);
+				project.addDependencyProject(target);
+				for (int cause : edge.causes) {
+					Reference reference = projectReferences.get(cause);
+					project.addDependencyProject(target, reference.kind, reference.cause);
+				}
+			}
+		}
+		references.put(project, projectReferences);
+		return true;
+	}
+
+	/**
+	 * Sets the references of a project whose edges were resolved, they are stored when the snapshot is saved.
+	 * @param project the depending project
+	 * @param projectReferences the references of the project
+	 */
+	void setReferences(DependencyMapper project, List<Reference> projectReferences) {
+		references.put(project, projectReferences);
+	}
+
+	/**
+	 * Writes the snapshot of the resolved projects. The file is replaced atomically.
+	 * @param projects the projects with resolved dependencies
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void save(List<DependencyMapper> projects) throws IOException {
+		Map<MavenProject, String> owners = new IdentityHashMap<MavenProject, String>();
+		for (DependencyMapper dependencyMapper : projects) {
+			String id = getId(dependencyMapper.getMavenProject());
+			owners.put(dependencyMapper.getMavenProject(), id);
+			for (MavenProject mavenProject : dependencyMapper.getChildProject()) {
+				owners.put(mavenProject, id);
+			}
+		}
+		ModelPropertyResolver modelPropertyResolver = new ModelPropertyResolver();
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		File temp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+		DataOutputStream output = null;
+		try {
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT);
+			output.writeInt(projects.size());
+			for (DependencyMapper dependencyMapper : projects) {
+				output.writeUTF(getId(dependencyMapper.getMavenProject()));
+				String stamp = currentStamps.get(dependencyMapper);
+				output.writeUTF(stamp != null ? stamp : getStamp(getPomFiles(dependencyMapper)));
+				String hash = currentHashes.get(dependencyMapper);
+				output.writeUTF(hash != null ? hash : getHash(getPomFiles(dependencyMapper)));
+				List<Reference> projectReferences = references.get(dependencyMapper);
+				if (projectReferences == null) {
+					projectReferences = DependencyResolver.getReferences(dependencyMapper, modelPropertyResolver);
+				}
+				Map<Dependency, Integer> causeIndexes = new IdentityHashMap<Dependency, Integer>();
+				output.writeInt(projectReferences.size());
+				for (int i = 0; i < projectReferences.size(); i++) {
+					Reference reference = projectReferences.get(i);
+					causeIndexes.put(reference.cause, Integer.valueOf(i));
+					output.writeUTF(reference.key);
+					output.writeUTF(reference.kind.name());
+					writeString(output, reference.cause.getGroupId());
+					writeString(output, reference.cause.getArtifactId());
+					writeString(output, reference.cause.getVersion());
+					writeString(output, reference.cause.getType());
+					writeString(output, reference.cause.getClassifier());
+					writeString(output, reference.cause.getScope());
+				}
+				output.writeInt(dependencyMapper.getDependencyProject().size());
+				for (MavenProject target : dependencyMapper.getDependencyProject()) {
+					String id = getId(target);
+					output.writeUTF(owners.containsKey(target) ? owners.get(target) : id);
+					output.writeUTF(id);
+					List<Dependency> causes = dependencyMapper.getDependencyCauses(target);
+					output.writeInt(causes.size());
+					for (Dependency cause : causes) {
+						Integer index = causeIndexes.get(cause);
+						output.writeInt(index != null ? index.intValue() : -1);
+					}
+				}
+			}
+		} finally {
+			close(output);
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Gets the projects whose POM files changed since the snapshot was written, including new projects.
+	 * @return group ID and artifact ID of the changed projects
+	 */
+	public List<String> getChangedProjects() {
+		List<String> changedProjects = new ArrayList<String>();
+		for (DependencyMapper dependencyMapper : currentHashes.keySet()) {
+			if (!unchangedProjects.contains(dependencyMapper)) {
+				changedProjects.add(getId(dependencyMapper.getMavenProject()));
+			}
+		}
+		return changedProjects;
+	}
+
+	/**
+	 * Gets the number of projects whose edges to unchanged projects are restored from the snapshot.
+	 * @return the number of unchanged projects
+	 */
+	public int getUnchangedProjects() {
+		return unchangedProjects.size();
+	}
+
+	/**
+	 * Computes the SHA-256 hash of files.
+	 * @param files the files, files which do not exist are skipped.
+	 * @return the hash as hex string
+	 * @throws IOException if a file can not be read.
+	 */
+	public static String getHash(Collection<File> files) throws IOException {
+		MessageDigest digest = getDigest();
+		byte[] buffer = new byte[8192];
+		for (File file : files) {
+			if (!file.isFile()) {
+				continue;
+			}
+			InputStream inputStream = null;
+			try {
+				inputStream = new FileInputStream(file);
+				for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				close(inputStream);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest getDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", Integer.valueOf(b & 0xff)));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Computes a stamp of files from their paths, sizes and modification times, without reading them.
+	 * @param files the files
+	 * @return the stamp as hex string
+	 */
+	private static String getStamp(Collection<File> files) {
+		StringBuilder stamp = new StringBuilder();
+		for (File file : files) {
+			stamp.append(file.getAbsolutePath()).append('\0').append(file.length()).append('\0')
+					.append(file.lastModified()).append('\n');
+		}
+		MessageDigest digest = getDigest();
+		try {
+			return toHex(digest.digest(stamp.toString().getBytes("UTF-8")));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the POM files which determine the edges of a project: its own, the ones of its modules and the ones of
+	 * their parents, which contribute to the dependency management.
+	 */
+	private static Collection<File> getPomFiles(DependencyMapper dependencyMapper) {
+		Collection<File> pomFiles = new LinkedHashSet<File>();
+		List<MavenProject> mavenProjects = new ArrayList<MavenProject>();
+		mavenProjects.add(dependencyMapper.getMavenProject());
+		mavenProjects.addAll(dependencyMapper.getChildProject());
+		for (MavenProject mavenProject : mavenProjects) {
+			for (MavenProject project = mavenProject; project != null; project = project.getParent()) {
+				File pomFile = project.getOriginalModel() != null ? project.getOriginalModel().getPomFile() : null;
+				if (pomFile == null) {
+					pomFile = project.getFile();
+				}
+				if (pomFile != null) {
+					pomFiles.add(pomFile);
+				}
+			}
+		}
+		return pomFiles;
+	}
+
+	private static MavenProject getTarget(DependencyMapper owner, String id) {
+		if (getId(owner.getMavenProject()).equals(id)) {
+			return owner.getMavenProject();
+		}
+		for (MavenProject mavenProject : owner.getChildProject()) {
+			if (getId(mavenProject).equals(id)) {
+				return mavenProject;
+			}
+		}
+		return null;
+	}
+
+	private static String getId(MavenProject mavenProject) {
+		return mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		try {
+			if (closeable != null) {
+				closeable.close();
+			}
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+
+	/**
+	 * Edge from a project to a project or module it depends on.
+	 */
+	private static class Edge {
+
+		/** The project owning the target, the target itself or its parent project. */
+		private final String owner;
+
+		private final String target;
+
+		/** Indexes of the references which caused the edge, -1 if unknown. */
+		private final int[] causes;
+
+		Edge(String owner, String target, int[] causes) {
+			this.owner = owner;
+			this.target = target;
+			this.causes = causes;
+		}
+	}
+}
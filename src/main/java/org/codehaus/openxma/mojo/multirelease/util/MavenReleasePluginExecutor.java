@@ -1,16 +1,24 @@
 package org.codehaus.openxma.mojo.multirelease.util;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
 import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher;
+import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher.OutputListener;
 import org.codehaus.openxma.mojo.multirelease.pojo.Version;
+import org.codehaus.openxma.mojo.multirelease.progress.ProgressEvent;
+import org.codehaus.openxma.mojo.multirelease.progress.ProgressEventSpy;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
 
 /**
  * Class to execute maven release plugin.
@@ -19,11 +27,58 @@ import org.codehaus.openxma.mojo.multirelease.pojo.Version;
  */
 public class MavenReleasePluginExecutor {
 
-	private final ProcessLauncher processLauncher = new ProcessLauncher();
+	/**
+	 * Line logged by Maven when the perform goal of the release plugin starts.
+	 */
+	private static final Pattern PERFORM_MARKER = Pattern.compile("--- (maven-release-plugin|release):\\S+:perform ");
+
+	private final ProcessLauncher processLauncher;
 	private final PropertyResolver propertyResolver = PropertyResolver.getInstance();
 
 	/**
-	 * Runs the clean,prepare and release goal of maven release plugin.
+	 * Run the dry run builds in offline mode.
+	 */
+	private boolean offline;
+
+	/**
+	 * Local repository used by the builds, <code>null</code> to use the default one.
+	 */
+	private File localRepository;
+
+	/**
+	 * Number of threads of the next build, 0 to let Maven decide.
+	 */
+	private int buildThreads;
+
+	/**
+	 * History in which the durations of the phases are recorded, <code>null</code> to not record them.
+	 */
+	private BuildHistory buildHistory;
+
+	/**
+	 * Metrics in which the durations of the phases are recorded, <code>null</code> to not record them.
+	 */
+	private ReleaseMetrics releaseMetrics;
+
+	/**
+	 * Port of the server receiving the progress of the builds, 0 to not report progress.
+	 */
+	private int progressPort;
+
+	public MavenReleasePluginExecutor() {
+		this(new ProcessLauncher());
+	}
+
+	/**
+	 * @param processLauncher launcher executing the builds.
+	 */
+	public MavenReleasePluginExecutor(ProcessLauncher processLauncher) {
+		this.processLauncher = processLauncher;
+	}
+
+	/**
+	 * Runs the prepare and perform goal of maven release plugin in one build. The durations of both phases are
+	 * recorded separately, the perform phase starts when the build logs the execution of the perform goal.
 	 * @param mavenProject {@link MavenProject}
 	 * @throws FileNotFoundException the file not found exception
 	 * @throws IOException Signals that an I/O exception has occurred.
@@ -32,8 +87,9 @@ public class MavenReleasePluginExecutor {
 	 */
 	public void prepareRelease(MavenProject mavenProject, Map<String, String> projectProperties)
 			throws FileNotFoundException, IOException, ProcessException, MojoExecutionException {
-		String command = getPreparePerformReleaseCommand(mavenProject, projectProperties);
-		processLauncher.executeProcess(command);
+		String command = getReleaseCommand(mavenProject, projectProperties, "release:prepare release:perform");
+		executeProcess(mavenProject, new String[] { BuildHistory.PREPARE, BuildHistory.PERFORM },
+				new Pattern[] { PERFORM_MARKER }, command);
 	}
 
 	/**
@@ -47,59 +103,165 @@ public class MavenReleasePluginExecutor {
 		String pomPath = mavenProject.getOriginalModel().getPomFile()
 				.getAbsolutePath();
 		String command = null;
-		command = getDryRunCommand(pomPath);
-		processLauncher.executeProcess(command);
+		command = getDryRunCommand(pomPath).concat(getProgressArguments(mavenProject, false));
+		executeProcess(mavenProject, BuildHistory.DRY_RUN, command);
 	}
 
 	public void rollback(MavenProject mavenProject) throws IOException,
 			ProcessException {
 		String command = null;
 		command = getRollbackCommand(mavenProject);
-		processLauncher.executeProcess(command);
+		processLauncher.executeProcess(command, getOutputPrefix(mavenProject), null);
+	}
+
+	/**
+	 * Cancels the executor. The running build is killed and further builds of this executor fail until it is reset.
+	 */
+	public void cancel() {
+		processLauncher.cancel();
+	}
+
+	/**
+	 * Resets a cancelled executor, so it runs builds again.
+	 */
+	public void reset() {
+		processLauncher.reset();
 	}
 
 	public void clean(List<MavenProject> projects) throws IOException, ProcessException {
 		for (MavenProject mavenProject : projects) {
 			String pomPath = mavenProject.getOriginalModel().getPomFile().getAbsolutePath();
-			processLauncher.executeProcess("mvn release:clean -f" + pomPath);
+			processLauncher.executeProcess("mvn release:clean -f" + pomPath, getOutputPrefix(mavenProject), null);
 		}
 	}
 
 	/**
-	 * Gets the prepare perform release goal command. Parameters defined in multirelease.properties are added as system
-	 * configuration in the command.
-	 * @param releaseConfiguration {@link ReleaseConfiguration}
+	 * Gets the prefix of the output of the builds of a project, so the output of builds running at the same time can
+	 * be told apart.
+	 */
+	private String getOutputPrefix(MavenProject mavenProject) {
+		return "[" + mavenProject.getGroupId() + ":" + mavenProject.getArtifactId() + "] ";
+	}
+
+	/**
+	 * Executes the command of a phase and records its duration.
 	 * @param mavenProject {@link MavenProject}
-	 * @return the prepare perform release command
+	 * @param phase the executed phase
+	 * @param command the command to execute
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ProcessException the process exception
+	 */
+	private void executeProcess(MavenProject mavenProject, String phase, String command) throws IOException,
+			ProcessException {
+		executeProcess(mavenProject, new String[] { phase }, new Pattern[0], command);
+	}
+
+	/**
+	 * Executes the command of one or more phases and records their durations. Every phase after the first starts
+	 * when the output matches its marker. A phase whose marker is not logged, e.g. after a failure, and the phases
+	 * after it are not recorded.
+	 * @param mavenProject {@link MavenProject}
+	 * @param phases the executed phases
+	 * @param markers the markers of the phases after the first
+	 * @param command the command to execute
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ProcessException the process exception
+	 */
+	private void executeProcess(MavenProject mavenProject, String[] phases, final Pattern[] markers, String command)
+			throws IOException, ProcessException {
+		String key = mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+		long processCount = processLauncher.getProcessCount();
+		long outputBytes = processLauncher.getOutputBytes();
+		final long[] starts = new long[phases.length];
+		starts[0] = System.currentTimeMillis();
+		boolean success = false;
+		try {
+			processLauncher.executeProcess(command, getOutputPrefix(mavenProject), new OutputListener() {
+
+				public void onLine(String line) {
+					for (int i = 0; i < markers.length; i++) {
+						if (starts[i + 1] == 0 && markers[i].matcher(line).find()) {
+							starts[i + 1] = System.currentTimeMillis();
+						}
+					}
+				}
+			});
+			success = true;
+		} finally {
+			long end = System.currentTimeMillis();
+			for (int i = 0; i < phases.length && starts[i] != 0; i++) {
+				long phaseEnd = i + 1 < phases.length && starts[i + 1] != 0 ? starts[i + 1] : end;
+				if (releaseMetrics != null) {
+					releaseMetrics.record(key, phases[i], starts[i], phaseEnd);
+				}
+				if (buildHistory != null && success) {
+					buildHistory.recordPhase(key, phases[i], phaseEnd - starts[i]);
+				}
+			}
+			if (releaseMetrics != null) {
+				releaseMetrics.increment(key, ReleaseMetrics.CHILD_PROCESSES,
+						processLauncher.getProcessCount() - processCount);
+				releaseMetrics.increment(key, ReleaseMetrics.OUTPUT_BYTES,
+						processLauncher.getOutputBytes() - outputBytes);
+			}
+		}
+	}
+
+	/**
+	 * Gets the command of a goal of the release plugin. Parameters defined in multirelease.properties are added as
+	 * system configuration in the command.
+	 * @param mavenProject {@link MavenProject}
+	 * @param projectProperties the properties of the project
+	 * @param goal the goal of the release plugin
+	 * @return the release command
 	 * @throws MojoExecutionException
 	 */
-	private String getPreparePerformReleaseCommand(MavenProject mavenProject, Map<String, String> projectProperties)
+	private String getReleaseCommand(MavenProject mavenProject, Map<String, String> projectProperties, String goal)
 			throws MojoExecutionException {
 		String pomPath = mavenProject.getOriginalModel().getPomFile()
 				.getAbsolutePath();
 		String releaseCommand = "mvn";
-		String releaseGoal = " release:prepare release:perform -B -f" + pomPath;
-		for (Entry<String, String> entry : projectProperties.entrySet()) {
+		String releaseGoal = " " + goal + " -B -f" + pomPath;
+		Map<String, String> properties = new HashMap<String, String>(projectProperties);
+		if (localRepository != null) {
+			releaseGoal = releaseGoal.concat(getLocalRepositoryArgument());
+		}
+		// The release plugin forks further builds, which need the same local repository and threads.
+		String forkArguments = "";
+		if (localRepository != null) {
+			forkArguments = forkArguments.concat(getLocalRepositoryArgument(true));
+		}
+		if (buildThreads > 0) {
+			forkArguments = forkArguments.concat(getThreadArguments());
+		}
+		forkArguments = forkArguments.concat(getProgressArguments(mavenProject, true));
+		if (forkArguments.length() > 0) {
+			String arguments = properties.get("arguments");
+			properties.put("arguments", ((arguments == null ? "" : arguments) + forkArguments).trim());
+		}
+		for (Entry<String, String> entry : properties.entrySet()) {
 			if (entry.getKey().equals("developmentVersion")) {
-				checkDevelopmentVersion(mavenProject, entry);
+				checkDevelopmentVersion(mavenProject, entry.getValue());
 			}
 			releaseCommand = releaseCommand.concat(" -D" + entry.getKey() + "=\"" + entry.getValue() + "\"");
 		}
-		return releaseCommand.concat(releaseGoal);
+		return releaseCommand.concat(releaseGoal).concat(getProgressArguments(mavenProject, false));
 	}
 
 	/**
 	 * Check development version is greater then current version of the project.
 	 * @param mavenProject {@link MavenProject}
-	 * @param entry the entry
+	 * @param version the configured development version
 	 * @throws MojoExecutionException the mojo execution exception
 	 */
-	private void checkDevelopmentVersion(MavenProject mavenProject, Entry<String, String> entry)
+	public static void checkDevelopmentVersion(MavenProject mavenProject, String version)
 			throws MojoExecutionException {
-		int result = Version.valueOf(entry.getValue().trim()).compareTo(Version.valueOf(mavenProject.getVersion().replace("-SNAPSHOT", "").trim()));
+		int result = Version.valueOf(version.trim()).compareTo(
+				Version.valueOf(mavenProject.getVersion().replace("-SNAPSHOT", "").trim()));
 		if (result <= 0) {
-			throw new MojoExecutionException("Development version of " + mavenProject.getName() + " should be greater then current version. The new development version is "
-					+ entry.getValue().trim() + " and old version is " + mavenProject.getVersion().trim());
+			throw new MojoExecutionException("Development version of " + mavenProject.getName()
+					+ " should be greater then current version. The new development version is "
+					+ version.trim() + " and old version is " + mavenProject.getVersion().trim());
 		}
 	}
 
@@ -110,6 +272,15 @@ public class MavenReleasePluginExecutor {
 	 */
 	private String getDryRunCommand(String pomPath) {
 		String command = "mvn clean install -f" + pomPath;
+		if (offline) {
+			command = command.concat(" -o");
+		}
+		if (localRepository != null) {
+			command = command.concat(getLocalRepositoryArgument());
+		}
+		if (buildThreads > 0) {
+			command = command.concat(getThreadArguments());
+		}
 		return command;
 	}
 
@@ -123,6 +294,9 @@ public class MavenReleasePluginExecutor {
 				.getAbsolutePath();
 		String releaseCommand = "mvn";
 		String releaseGoal = " release:rollback -B -f" + pomPath;
+		if (localRepository != null) {
+			releaseGoal = releaseGoal.concat(getLocalRepositoryArgument());
+		}
 		Map<String, String> properties = propertyResolver.getProjectProperties(mavenProject.getGroupId(),
 				mavenProject.getArtifactId());
 		for (Entry<String, String> entry : properties.entrySet()) {
@@ -130,4 +304,114 @@ public class MavenReleasePluginExecutor {
 		}
 		return releaseCommand.concat(releaseGoal);
 	}
+
+	private String getLocalRepositoryArgument() {
+		return getLocalRepositoryArgument(false);
+	}
+
+	/**
+	 * Gets the argument using the local repository, with its path quoted.
+	 * @param forked for the arguments of builds forked by the release plugin, which are themselves quoted.
+	 */
+	private String getLocalRepositoryArgument(boolean forked) {
+		return " -Dmaven.repo.local=" + quote(localRepository.getAbsolutePath(), forked);
+	}
+
+	/**
+	 * Quotes a path for the command line. Within the quoted arguments of forked builds the quotes are escaped, the
+	 * release plugin removes the escaping when it splits the arguments.
+	 */
+	private String quote(String path, boolean forked) {
+		String quote = forked ? "\\\"" : "\"";
+		return quote + path + quote;
+	}
+
+	/**
+	 * Gets the arguments loading the {@link ProgressEventSpy} into the build, if progress is reported.
+	 * @param mavenProject the project the build is run for.
+	 * @param forked for the arguments of builds forked by the release plugin.
+	 * @return the arguments, empty if progress is not reported or the plugin is not loaded from a jar.
+	 */
+	private String getProgressArguments(MavenProject mavenProject, boolean forked) {
+		if (progressPort <= 0) {
+			return "";
+		}
+		File extension = getExtensionFile();
+		if (extension == null) {
+			return "";
+		}
+		return " -Dmaven.ext.class.path=" + quote(extension.getAbsolutePath(), forked) + " -D"
+				+ ProgressEventSpy.PORT_PROPERTY + "=" + progressPort + " -D" + ProgressEventSpy.PROJECT_PROPERTY + "="
+				+ mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+	}
+
+	/**
+	 * Gets the jar of the plugin, which contains the {@link ProgressEventSpy}. The spy itself is not loaded, because
+	 * Maven does not export the event spy API to plugins.
+	 * @return the jar, <code>null</code> if the plugin is loaded from a directory.
+	 */
+	private File getExtensionFile() {
+		try {
+			File file = new File(ProgressEvent.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			return file.isFile() ? file : null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the arguments running the build with the allocated number of threads. Every module thread forks a single
+	 * test JVM, so the build does not run more test JVMs than threads.
+	 */
+	private String getThreadArguments() {
+		return " -T " + buildThreads + " -DforkCount=1";
+	}
+
+	public boolean isOffline() {
+		return offline;
+	}
+
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+
+	public File getLocalRepository() {
+		return localRepository;
+	}
+
+	public void setLocalRepository(File localRepository) {
+		this.localRepository = localRepository;
+	}
+
+	public int getBuildThreads() {
+		return buildThreads;
+	}
+
+	public void setBuildThreads(int buildThreads) {
+		this.buildThreads = buildThreads;
+	}
+
+	public BuildHistory getBuildHistory() {
+		return buildHistory;
+	}
+
+	public void setBuildHistory(BuildHistory buildHistory) {
+		this.buildHistory = buildHistory;
+	}
+
+	public int getProgressPort() {
+		return progressPort;
+	}
+
+	public void setProgressPort(int progressPort) {
+		this.progressPort = progressPort;
+	}
+
+	public ReleaseMetrics getReleaseMetrics() {
+		return releaseMetrics;
+	}
+
+	public void setReleaseMetrics(ReleaseMetrics releaseMetrics) {
+		this.releaseMetrics = releaseMetrics;
+	}
 }
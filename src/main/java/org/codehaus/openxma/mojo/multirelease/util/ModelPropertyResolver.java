@@ -0,0 +1,224 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Resolves the properties used in the POMs of projects as written, e.g. in the versions or group IDs of dependencies.
+ * Properties are looked up through the parent chain like Maven inherits them, the nearest POM defining a property owns
+ * it. The owners of the properties of a project are determined once and resolved values are memoized until a property
+ * is changed through {@link #setProperty(MavenProject, String, String)}. Values using the coordinates of the project
+ * or its parent, like <tt>${project.version}</tt>, are not memoized, as the versions change during a release. For the
+ * same reason projects are told apart by identity. The resolver is thread safe, all workers share one instance.
+ */
+public class ModelPropertyResolver {
+
+	private static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	/**
+	 * Maximum nesting of properties referencing other properties, guards against cycles.
+	 */
+	private static final int MAX_DEPTH = 10;
+
+	private final Map<MavenProject, Map<String, MavenProject>> owners =
+			new IdentityHashMap<MavenProject, Map<String, MavenProject>>();
+
+	private final Map<MavenProject, Map<String, String>> values =
+			new IdentityHashMap<MavenProject, Map<String, String>>();
+
+	/** Whether the value being interpolated uses the coordinates of the project, guarded by the resolver. */
+	private boolean coordinatesUsed;
+
+	/**
+	 * Gets the name of the property a value refers to, e.g. <tt>core.version</tt> for <tt>${core.version}</tt>.
+	 * @param value the value, may be <code>null</code>.
+	 * @return the name of the first property in the value, <code>null</code> if it contains none.
+	 */
+	public static String getPropertyName(String value) {
+		if (value == null) {
+			return null;
+		}
+		Matcher matcher = PROPERTY_PATTERN.matcher(value);
+		return matcher.find() ? matcher.group(1) : null;
+	}
+
+	/**
+	 * Gets the dependencies of a POM as written which have a version, first the managed dependencies and then the
+	 * dependencies. These are the versions a release may rewrite.
+	 * @param mavenProject the project
+	 * @return the dependencies
+	 */
+	public static List<Dependency> getVersionedDependencies(MavenProject mavenProject) {
+		Model model = getModel(mavenProject);
+		List<Dependency> dependencies = new ArrayList<Dependency>();
+		if (model.getDependencyManagement() != null) {
+			for (Dependency dependency : model.getDependencyManagement().getDependencies()) {
+				if (dependency.getVersion() != null) {
+					dependencies.add(dependency);
+				}
+			}
+		}
+		for (Dependency dependency : model.getDependencies()) {
+			if (dependency.getVersion() != null) {
+				dependencies.add(dependency);
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Resolves the properties in a value for a project, properties which are not defined are kept as they are.
+	 * @param mavenProject the project using the value
+	 * @param value the value, e.g. the version of a dependency.
+	 * @return the resolved value
+	 */
+	public synchronized String resolve(MavenProject mavenProject, String value) {
+		if (value == null || value.indexOf("${") < 0) {
+			return value;
+		}
+		Map<String, String> projectValues = values.get(mavenProject);
+		if (projectValues == null) {
+			projectValues = new HashMap<String, String>();
+			values.put(mavenProject, projectValues);
+		}
+		String resolved = projectValues.get(value);
+		if (resolved == null) {
+			coordinatesUsed = false;
+			resolved = interpolate(mavenProject, value, 0);
+			if (!coordinatesUsed) {
+				projectValues.put(value, resolved);
+			}
+		}
+		return resolved;
+	}
+
+	/**
+	 * Gets the project whose POM defines a property as seen from a project, i.e. the project itself or the nearest
+	 * parent defining it.
+	 * @param mavenProject the project using the property
+	 * @param name the name of the property
+	 * @return the owner, <code>null</code> if no POM of the parent chain defines the property.
+	 */
+	public synchronized MavenProject getOwner(MavenProject mavenProject, String name) {
+		return getOwners(mavenProject).get(name);
+	}
+
+	/**
+	 * Sets a property in the POM of a project and drops the memoized values of all projects which inherit from it.
+	 * @param owner the project whose POM is changed
+	 * @param name the name of the property
+	 * @param value the new value
+	 */
+	public synchronized void setProperty(MavenProject owner, String name, String value) {
+		getModel(owner).getProperties().setProperty(name, value);
+		invalidate(owners.keySet().iterator(), owner);
+		invalidate(values.keySet().iterator(), owner);
+	}
+
+	private void invalidate(Iterator<MavenProject> projects, MavenProject owner) {
+		while (projects.hasNext()) {
+			for (MavenProject project : getParentChain(projects.next())) {
+				if (project == owner) {
+					projects.remove();
+					break;
+				}
+			}
+		}
+	}
+
+	private String interpolate(MavenProject mavenProject, String value, int depth) {
+		Matcher matcher = PROPERTY_PATTERN.matcher(value);
+		StringBuffer interpolated = new StringBuffer();
+		while (matcher.find()) {
+			String replacement = getValue(mavenProject, matcher.group(1));
+			if (replacement != null && replacement.indexOf("${") >= 0) {
+				replacement = depth < MAX_DEPTH ? interpolate(mavenProject, replacement, depth + 1) : null;
+			}
+			matcher.appendReplacement(interpolated, Matcher.quoteReplacement(replacement != null ? replacement
+					: matcher.group()));
+		}
+		matcher.appendTail(interpolated);
+		return interpolated.toString();
+	}
+
+	private String getValue(MavenProject mavenProject, String name) {
+		String value = getCoordinate(mavenProject, name);
+		if (value != null) {
+			coordinatesUsed = true;
+			return value;
+		}
+		MavenProject owner = getOwner(mavenProject, name);
+		// Properties of active profiles are only in the effective model.
+		return owner == null ? mavenProject.getModel().getProperties().getProperty(name) : getModel(owner)
+				.getProperties().getProperty(name);
+	}
+
+	private static String getCoordinate(MavenProject mavenProject, String name) {
+		if ("project.version".equals(name) || "pom.version".equals(name) || "version".equals(name)) {
+			return mavenProject.getVersion();
+		} else if ("project.groupId".equals(name) || "pom.groupId".equals(name) || "groupId".equals(name)) {
+			return mavenProject.getGroupId();
+		} else if ("project.artifactId".equals(name) || "pom.artifactId".equals(name)) {
+			return mavenProject.getArtifactId();
+		}
+		Parent parent = mavenProject.getModel().getParent();
+		if (parent == null) {
+			return null;
+		} else if ("project.parent.version".equals(name)) {
+			return parent.getVersion();
+		} else if ("project.parent.groupId".equals(name)) {
+			return parent.getGroupId();
+		} else if ("project.parent.artifactId".equals(name)) {
+			return parent.getArtifactId();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the owners of all properties visible to a project, computed once per project.
+	 */
+	private Map<String, MavenProject> getOwners(MavenProject mavenProject) {
+		Map<String, MavenProject> projectOwners = owners.get(mavenProject);
+		if (projectOwners == null) {
+			projectOwners = new HashMap<String, MavenProject>();
+			List<MavenProject> parentChain = getParentChain(mavenProject);
+			// From the root down, so the nearest definition wins.
+			for (int i = parentChain.size() - 1; i >= 0; i--) {
+				for (String name : getModel(parentChain.get(i)).getProperties().stringPropertyNames()) {
+					projectOwners.put(name, parentChain.get(i));
+				}
+			}
+			owners.put(mavenProject, projectOwners);
+		}
+		return projectOwners;
+	}
+
+	private static List<MavenProject> getParentChain(MavenProject mavenProject) {
+		List<MavenProject> parentChain = new ArrayList<MavenProject>();
+		for (MavenProject project = mavenProject; project != null; project = project.getParent()) {
+			for (MavenProject child : parentChain) {
+				if (child == project) {
+					// A cycle, the POMs are broken anyway.
+					return parentChain;
+				}
+			}
+			parentChain.add(project);
+		}
+		return parentChain;
+	}
+
+	private static Model getModel(MavenProject mavenProject) {
+		return mavenProject.getOriginalModel() != null ? mavenProject.getOriginalModel() : mavenProject.getModel();
+	}
+}
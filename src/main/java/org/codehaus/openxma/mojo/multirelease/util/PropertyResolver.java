@@ -14,6 +14,8 @@ import java.util.regex.Pattern;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.invoker.PrintStreamLogger;
+import org.codehaus.openxma.mojo.multirelease.event.PropertyResolutionEvent;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 
 /**
@@ -37,6 +39,11 @@ public class PropertyResolver {
 
 	private static final String DRY_RUN = "dryRun";
 
+	/** Properties used by the plugin itself which are not passed to the release plugin. **/
+	private static final String[] PLUGIN_PROPERTIES = { "prewarm", "prewarmThreads", "threads",
+			"repositoryLayout", "cores", "failurePolicy", "metricsFile", "progress", "plan",
+			"graphCache" };
+
 	/** Regex to identify property defined for all projects. **/
 	private static final String propertyRegex = "^[A-Z a-z]+$";
 
@@ -81,6 +88,9 @@ public class PropertyResolver {
 		props.remove("allowTimestampedSnapshots");
 		props.remove("autoVersionSubmodules");
 		props.remove("releaseVersion");
+		for (String property : PLUGIN_PROPERTIES) {
+			props.remove(property);
+		}
 		return props;
 	}
 
@@ -93,6 +103,8 @@ public class PropertyResolver {
 	 */
 	public void mergeProperties(Properties commandLineProperties, MavenProject parentProject, File propertyFile)
 			throws MojoFailureException {
+		PropertyResolutionEvent event = new PropertyResolutionEvent();
+		event.begin();
 		Map<String, String> props = new HashMap<String, String>();
 		// Add default SCM comment prefix.
 		props.put("scmCommentPrefix", "[multi-release-plugin ] ");
@@ -120,6 +132,44 @@ public class PropertyResolver {
 		props.remove("autoVersionSubmodules");
 		props.remove("releaseVersion");
 		mergedProperties = props;
+		event.end();
+		if (event.shouldCommit()) {
+			event.setPropertyFile(propertyFile == null ? null : propertyFile.getAbsolutePath());
+			event.setProperties(props.size());
+			event.commit();
+		}
+	}
+
+	/**
+	 * Merges the properties of a release plan written by the plan goal. The planned properties override all other
+	 * properties, so the release uses the planned versions. The properties describing the plan itself are not merged.
+	 * @param planFile the <tt>plan.properties</tt> file.
+	 * @return all properties of the plan
+	 * @throws MojoFailureException if the plan can not be read.
+	 */
+	public Properties mergePlan(File planFile) throws MojoFailureException {
+		FileInputStream fileInputStream = null;
+		Properties properties = new Properties();
+		try {
+			fileInputStream = new FileInputStream(planFile);
+			properties.load(fileInputStream);
+		} catch (IOException e) {
+			throw new MojoFailureException("Release plan " + planFile + " can not be read", e);
+		} finally {
+			try {
+				if (fileInputStream != null) {
+					fileInputStream.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+		for (Entry<Object, Object> entry : properties.entrySet()) {
+			if (!((String) entry.getKey()).startsWith(ReleasePlan.PLAN_PREFIX)) {
+				mergedProperties.put((String) entry.getKey(), (String) entry.getValue());
+			}
+		}
+		return properties;
 	}
 
 	/**
@@ -201,7 +251,9 @@ public class PropertyResolver {
 				"preparationGoals", "providerImplementations", "pushChanges", "remoteTagging",
 				"resume", "scmCommentPrefix", "dryRun", "suppressCommitBeforeTag", "tag", "tagBase", "tagNameFormat",
 				"useEditMode", "username", "waitBeforeTagging", "updateWorkingCopyVersions",
-				"useReleaseProfile", "javaHome", "localCheckout", "releaseProfiles", "rollback" };
+				"useReleaseProfile", "javaHome", "localCheckout", "releaseProfiles", "rollback", "prewarm",
+				"prewarmThreads", "threads", "repositoryLayout", "cores", "failurePolicy", "metricsFile",
+				"progress", "plan", "graphCache" };
 
 		return props;
 	}
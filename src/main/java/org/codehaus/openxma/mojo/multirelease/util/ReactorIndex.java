@@ -0,0 +1,102 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Index of the projects of a reactor by group ID and artifact ID and by project directory, built once per execution
+ * so membership lookups do not scan the reactor. If a key occurs twice, the first project of the reactor wins.
+ */
+public class ReactorIndex {
+
+	private final List<MavenProject> projects;
+
+	private final Map<String, MavenProject> projectsByKey = new HashMap<String, MavenProject>();
+
+	private Map<File, MavenProject> projectsByDirectory;
+
+	/**
+	 * @param projects the projects of the reactor
+	 */
+	public ReactorIndex(Collection<MavenProject> projects) {
+		this.projects = new ArrayList<MavenProject>(projects);
+		for (MavenProject mavenProject : this.projects) {
+			String key = getKey(mavenProject.getGroupId(), mavenProject.getArtifactId());
+			if (!projectsByKey.containsKey(key)) {
+				projectsByKey.put(key, mavenProject);
+			}
+		}
+	}
+
+	/**
+	 * Gets the key of a project in the index.
+	 * @param groupId the group ID
+	 * @param artifactId the artifact ID
+	 * @return group ID and artifact ID separated by a colon
+	 */
+	public static String getKey(String groupId, String artifactId) {
+		return groupId + ":" + artifactId;
+	}
+
+	/**
+	 * Gets the project with a key.
+	 * @param key group ID and artifact ID separated by a colon
+	 * @return the project, <code>null</code> if it is not in the reactor.
+	 */
+	public MavenProject getProject(String key) {
+		return projectsByKey.get(key);
+	}
+
+	/**
+	 * Checks if a project is in the reactor.
+	 * @param groupId the group ID
+	 * @param artifactId the artifact ID
+	 * @return <code>true</code> if the reactor contains the project.
+	 */
+	public boolean contains(String groupId, String artifactId) {
+		return projectsByKey.containsKey(getKey(groupId, artifactId));
+	}
+
+	/**
+	 * Gets the project in a directory. The directory index is built on the first call.
+	 * @param directory the project directory
+	 * @return the project, <code>null</code> if no project of the reactor is in the directory.
+	 */
+	public synchronized MavenProject getProject(File directory) {
+		if (projectsByDirectory == null) {
+			projectsByDirectory = new HashMap<File, MavenProject>();
+			for (MavenProject mavenProject : projects) {
+				if (mavenProject.getBasedir() != null) {
+					File basedir = getCanonicalFile(mavenProject.getBasedir());
+					if (!projectsByDirectory.containsKey(basedir)) {
+						projectsByDirectory.put(basedir, mavenProject);
+					}
+				}
+			}
+		}
+		return projectsByDirectory.get(getCanonicalFile(directory));
+	}
+
+	/**
+	 * Gets the projects of the reactor in reactor order.
+	 * @return the projects
+	 */
+	public List<MavenProject> getProjects() {
+		return projects;
+	}
+
+	private static File getCanonicalFile(File file) {
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+}
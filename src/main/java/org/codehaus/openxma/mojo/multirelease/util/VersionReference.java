@@ -0,0 +1,153 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Version in the POM of a project as written which refers to another artifact, of the same {@link DependencyKind
+ * kinds} the release is ordered by: the version of the parent, of a managed or declared dependency, of a build or
+ * managed plugin, of a plugin dependency or of a build extension. These are the versions a release may rewrite.
+ */
+public abstract class VersionReference {
+
+	private final DependencyKind kind;
+
+	private final String groupId;
+
+	private final String artifactId;
+
+	VersionReference(DependencyKind kind, String groupId, String artifactId) {
+		this.kind = kind;
+		this.groupId = groupId;
+		this.artifactId = artifactId;
+	}
+
+	/**
+	 * Gets the references of a POM as written which have a version: the parent, the managed dependencies, the
+	 * dependencies, the build plugins, the managed plugins and the build extensions. Dependencies of plugins follow
+	 * their plugin.
+	 * @param mavenProject the project
+	 * @return the references
+	 */
+	public static List<VersionReference> getVersionReferences(MavenProject mavenProject) {
+		Model model = mavenProject.getOriginalModel() != null ? mavenProject.getOriginalModel() : mavenProject
+				.getModel();
+		List<VersionReference> references = new ArrayList<VersionReference>();
+		final Parent parent = model.getParent();
+		if (parent != null && parent.getVersion() != null) {
+			references.add(new VersionReference(DependencyKind.PARENT, parent.getGroupId(), parent.getArtifactId()) {
+
+				@Override
+				public String getVersion() {
+					return parent.getVersion();
+				}
+
+				@Override
+				public void setVersion(String version) {
+					parent.setVersion(version);
+				}
+			});
+		}
+		for (Dependency dependency : ModelPropertyResolver.getVersionedDependencies(mavenProject)) {
+			addDependency(references, DependencyKind.DEPENDENCY, dependency);
+		}
+		Build build = model.getBuild();
+		if (build != null) {
+			addPlugins(references, build.getPlugins());
+			if (build.getPluginManagement() != null) {
+				addPlugins(references, build.getPluginManagement().getPlugins());
+			}
+			for (final Extension extension : build.getExtensions()) {
+				if (extension.getVersion() != null) {
+					references.add(new VersionReference(DependencyKind.EXTENSION, extension.getGroupId(), extension
+							.getArtifactId()) {
+
+						@Override
+						public String getVersion() {
+							return extension.getVersion();
+						}
+
+						@Override
+						public void setVersion(String version) {
+							extension.setVersion(version);
+						}
+					});
+				}
+			}
+		}
+		return references;
+	}
+
+	private static void addPlugins(List<VersionReference> references, List<Plugin> plugins) {
+		for (final Plugin plugin : plugins) {
+			if (plugin.getVersion() != null) {
+				references.add(new VersionReference(DependencyKind.PLUGIN, plugin.getGroupId(), plugin
+						.getArtifactId()) {
+
+					@Override
+					public String getVersion() {
+						return plugin.getVersion();
+					}
+
+					@Override
+					public void setVersion(String version) {
+						plugin.setVersion(version);
+					}
+				});
+			}
+			for (Dependency dependency : plugin.getDependencies()) {
+				if (dependency.getVersion() != null) {
+					addDependency(references, DependencyKind.PLUGIN, dependency);
+				}
+			}
+		}
+	}
+
+	private static void addDependency(List<VersionReference> references, DependencyKind kind,
+			final Dependency dependency) {
+		references.add(new VersionReference(kind, dependency.getGroupId(), dependency.getArtifactId()) {
+
+			@Override
+			public String getVersion() {
+				return dependency.getVersion();
+			}
+
+			@Override
+			public void setVersion(String version) {
+				dependency.setVersion(version);
+			}
+		});
+	}
+
+	public DependencyKind getKind() {
+		return kind;
+	}
+
+	public String getGroupId() {
+		return groupId;
+	}
+
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * Gets the version as written, it may refer to properties.
+	 * @return the version
+	 */
+	public abstract String getVersion();
+
+	/**
+	 * Sets the version in the POM as written.
+	 * @param version the new version
+	 */
+	public abstract void setVersion(String version);
+}
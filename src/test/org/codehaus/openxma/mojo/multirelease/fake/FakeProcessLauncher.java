@@ -0,0 +1,154 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher;
+
+/**
+ * Process launcher which starts no process. Each command takes the configured virtual latency, split evenly between
+ * its goals, and fails if it contains a configured failure pattern or the launcher is cancelled meanwhile. The start
+ * of every goal of the release plugin is logged like Maven does. The invocation is recorded with the goals of the
+ * command as operation and the path of the POM as target.
+ */
+public class FakeProcessLauncher extends ProcessLauncher {
+
+	private final VirtualClock clock;
+
+	private final InvocationLog log;
+
+	private final Map<String, Long> latencies = new LinkedHashMap<String, Long>();
+
+	private final Set<String> failures = new LinkedHashSet<String>();
+
+	/**
+	 * @param clock clock used to simulate the latency.
+	 * @param log log recording the invocations.
+	 */
+	public FakeProcessLauncher(VirtualClock clock, InvocationLog log) {
+		this.clock = clock;
+		this.log = log;
+	}
+
+	/**
+	 * Sets the latency of the commands containing all given parts, the first matching latency is used.
+	 * @param millis the latency
+	 * @param parts parts of the command, e.g. the goal and the path of the project.
+	 */
+	public synchronized void setLatency(long millis, String... parts) {
+		latencies.put(join(parts), Long.valueOf(millis));
+	}
+
+	/**
+	 * Lets the commands containing all given parts fail after their latency.
+	 * @param parts parts of the command, e.g. the goal and the path of the project.
+	 */
+	public synchronized void failOn(String... parts) {
+		failures.add(join(parts));
+	}
+
+	/**
+	 * Lets all commands succeed again, e.g. before a release is resumed.
+	 */
+	public synchronized void clearFailures() {
+		failures.clear();
+	}
+
+	@Override
+	public void executeProcess(String command, String prefix, OutputListener listener) throws IOException,
+			ProcessException {
+		if (isCancelled()) {
+			throw new ProcessException("Process was cancelled");
+		}
+		InvocationLog.Invocation invocation = log.start(getOperation(command), getTarget(command),
+				clock.currentTimeMillis());
+		boolean failed = true;
+		try {
+			String[] goals = getOperation(command).split(" ");
+			for (String goal : goals) {
+				if (listener != null && goal.startsWith("release:")) {
+					listener.onLine("[INFO] --- maven-release-plugin:2.5.3:" + goal.substring("release:".length())
+							+ " (default-cli) @ " + getTarget(command) + " ---");
+				}
+				clock.sleep(getLatency(command) / goals.length);
+				if (isCancelled()) {
+					throw new ProcessException("Process was cancelled");
+				}
+			}
+			if (matches(command, failures)) {
+				throw new ProcessException("Injected failure of " + command);
+			}
+			failed = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ProcessException("Interrupted", e);
+		} finally {
+			invocation.finish(clock.currentTimeMillis(), failed);
+		}
+	}
+
+	private synchronized long getLatency(String command) {
+		for (Entry<String, Long> latency : latencies.entrySet()) {
+			if (matches(command, latency.getKey())) {
+				return latency.getValue().longValue();
+			}
+		}
+		return 0;
+	}
+
+	private synchronized boolean matches(String command, Set<String> patterns) {
+		for (String pattern : patterns) {
+			if (matches(command, pattern)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(String command, String pattern) {
+		for (String part : pattern.split("\n")) {
+			if (!command.contains(part)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String join(String... parts) {
+		StringBuilder pattern = new StringBuilder();
+		for (String part : parts) {
+			pattern.append(pattern.length() == 0 ? "" : "\n").append(part);
+		}
+		return pattern.toString();
+	}
+
+	/**
+	 * Gets the goals of a Maven command, e.g. <tt>release:prepare</tt> or <tt>clean install</tt>.
+	 */
+	private String getOperation(String command) {
+		StringBuilder goals = new StringBuilder();
+		for (String argument : command.replaceAll("\"[^\"]*\"", "").split(" ")) {
+			if (argument.length() > 0 && !argument.startsWith("-") && !argument.equals("mvn")) {
+				goals.append(goals.length() == 0 ? "" : " ").append(argument);
+			}
+		}
+		return goals.toString();
+	}
+
+	/**
+	 * Gets the POM file of a Maven command.
+	 */
+	private String getTarget(String command) {
+		int index = command.indexOf(" -f");
+		if (index < 0) {
+			return "";
+		}
+		int end = command.indexOf(' ', index + 3);
+		return command.substring(index + 3, end < 0 ? command.length() : end);
+	}
+}
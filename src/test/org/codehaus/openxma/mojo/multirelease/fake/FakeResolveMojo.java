@@ -0,0 +1,15 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import org.apache.maven.plugin.AbstractMojo;
+
+/**
+ * Mojo which does nothing. Declared with dependency resolution, it stands in for the goals of the dependency plugin in
+ * forked builds which have no access to Maven Central: Maven itself resolves the dependencies of the project before
+ * the mojo is executed.
+ */
+public class FakeResolveMojo extends AbstractMojo {
+
+	public void execute() {
+		// The dependencies are resolved before.
+	}
+}
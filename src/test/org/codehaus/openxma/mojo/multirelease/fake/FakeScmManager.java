@@ -0,0 +1,72 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.maven.scm.ScmException;
+import org.codehaus.openxma.mojo.multirelease.scm.CustomScmManager;
+
+/**
+ * SCM manager which commits nothing. Each check-in takes the configured virtual latency and fails for the configured
+ * working copies. The invocation is recorded with <tt>checkin</tt> as operation and the working copy as target.
+ */
+public class FakeScmManager extends CustomScmManager {
+
+	/** Operation recorded for a check-in. */
+	public static final String CHECKIN = "checkin";
+
+	private final VirtualClock clock;
+
+	private final InvocationLog log;
+
+	private long latency;
+
+	private final Set<File> failures = new HashSet<File>();
+
+	/**
+	 * @param clock clock used to simulate the latency.
+	 * @param log log recording the invocations.
+	 */
+	public FakeScmManager(VirtualClock clock, InvocationLog log) {
+		this.clock = clock;
+		this.log = log;
+	}
+
+	/**
+	 * Sets the latency of every check-in.
+	 * @param millis the latency
+	 */
+	public void setLatency(long millis) {
+		this.latency = millis;
+	}
+
+	/**
+	 * Lets the check-ins of a working copy fail after their latency.
+	 * @param workingCopy the working copy
+	 */
+	public synchronized void failOn(File workingCopy) {
+		failures.add(workingCopy);
+	}
+
+	@Override
+	public void checkin(String scmURL, String username, String password, File workingCopyPath,
+			String scmCommentPrefix) throws ScmException {
+		InvocationLog.Invocation invocation = log.start(CHECKIN, workingCopyPath.getPath(), clock.currentTimeMillis());
+		boolean failed = true;
+		try {
+			clock.sleep(latency);
+			synchronized (this) {
+				if (failures.contains(workingCopyPath)) {
+					throw new ScmException("Injected failure of the check-in of " + workingCopyPath);
+				}
+			}
+			failed = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ScmException("Interrupted", e);
+		} finally {
+			invocation.finish(clock.currentTimeMillis(), failed);
+		}
+	}
+}
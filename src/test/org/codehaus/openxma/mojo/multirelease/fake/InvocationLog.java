@@ -0,0 +1,97 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the invocations of the fakes in the order they started, with their virtual start and end time.
+ */
+public class InvocationLog {
+
+	private final List<Invocation> invocations = new ArrayList<Invocation>();
+
+	synchronized Invocation start(String operation, String target, long time) {
+		Invocation invocation = new Invocation(operation, target, time);
+		invocations.add(invocation);
+		return invocation;
+	}
+
+	/**
+	 * Gets all invocations.
+	 * @return copy of the invocations in the order they started
+	 */
+	public synchronized List<Invocation> getInvocations() {
+		return new ArrayList<Invocation>(invocations);
+	}
+
+	/**
+	 * Gets the invocations of an operation on a target.
+	 * @param operation the operation, e.g. <tt>release:perform</tt>.
+	 * @param target the target, e.g. the path of the project.
+	 * @return the matching invocations in the order they started
+	 */
+	public synchronized List<Invocation> find(String operation, String target) {
+		List<Invocation> found = new ArrayList<Invocation>();
+		for (Invocation invocation : invocations) {
+			if (invocation.getOperation().equals(operation) && invocation.getTarget().equals(target)) {
+				found.add(invocation);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Invocation of a fake.
+	 */
+	public static class Invocation {
+
+		private final String operation;
+
+		private final String target;
+
+		private final long start;
+
+		private volatile long end = -1;
+
+		private volatile boolean failed;
+
+		Invocation(String operation, String target, long start) {
+			this.operation = operation;
+			this.target = target;
+			this.start = start;
+		}
+
+		void finish(long end, boolean failed) {
+			this.end = end;
+			this.failed = failed;
+		}
+
+		public String getOperation() {
+			return operation;
+		}
+
+		public String getTarget() {
+			return target;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		/**
+		 * @return the virtual end time, -1 if still running.
+		 */
+		public long getEnd() {
+			return end;
+		}
+
+		public boolean isFailed() {
+			return failed;
+		}
+
+		@Override
+		public String toString() {
+			return operation + " " + target + " [" + start + ", " + end + "]" + (failed ? " failed" : "");
+		}
+	}
+}
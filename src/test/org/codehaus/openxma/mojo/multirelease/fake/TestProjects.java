@@ -0,0 +1,112 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+
+/**
+ * Projects for the tests, built like Maven builds them for a reactor: the model of a project is its original model as
+ * well, so the POM as written and the effective POM are the same, and the project has its jar artifact.
+ */
+public final class TestProjects {
+
+	public static final String GROUP_ID = "org.example";
+
+	public static final String VERSION = "1.0-SNAPSHOT";
+
+	private TestProjects() {
+	}
+
+	public static Model createModel(String groupId, String artifactId, String version) {
+		Model model = new Model();
+		model.setModelVersion("4.0.0");
+		model.setGroupId(groupId);
+		model.setArtifactId(artifactId);
+		model.setVersion(version);
+		return model;
+	}
+
+	public static MavenProject createProject(Model model) {
+		MavenProject mavenProject = new MavenProject(model);
+		mavenProject.setOriginalModel(model);
+		mavenProject.setArtifact(new DefaultArtifact(model.getGroupId(), model.getArtifactId(), model.getVersion(),
+				"compile", "jar", null, new DefaultArtifactHandler("jar")));
+		return mavenProject;
+	}
+
+	public static MavenProject createProject(String groupId, String artifactId, String version) {
+		return createProject(createModel(groupId, artifactId, version));
+	}
+
+	public static MavenProject createProject(String groupId, String artifactId) {
+		return createProject(groupId, artifactId, VERSION);
+	}
+
+	/**
+	 * Creates a project of {@link #GROUP_ID} and {@link #VERSION} which depends on other projects.
+	 */
+	public static MavenProject createProject(String artifactId, MavenProject... upstreamProjects) {
+		MavenProject mavenProject = createProject(GROUP_ID, artifactId);
+		for (MavenProject upstreamProject : upstreamProjects) {
+			addDependency(mavenProject, upstreamProject);
+		}
+		return mavenProject;
+	}
+
+	public static DependencyMapper createMapper(String groupId, String artifactId) {
+		return new DependencyMapper(createProject(groupId, artifactId));
+	}
+
+	public static Dependency createDependency(String groupId, String artifactId, String version) {
+		Dependency dependency = new Dependency();
+		dependency.setGroupId(groupId);
+		dependency.setArtifactId(artifactId);
+		dependency.setVersion(version);
+		return dependency;
+	}
+
+	/**
+	 * Adds a dependency to the POM of a project as written.
+	 * @return the dependency
+	 */
+	public static Dependency addDependency(MavenProject mavenProject, String groupId, String artifactId,
+			String version) {
+		Dependency dependency = createDependency(groupId, artifactId, version);
+		mavenProject.getOriginalModel().addDependency(dependency);
+		return dependency;
+	}
+
+	/**
+	 * Adds a dependency on the current version of another project to the POM of a project as written.
+	 * @return the dependency
+	 */
+	public static Dependency addDependency(MavenProject mavenProject, MavenProject upstreamProject) {
+		return addDependency(mavenProject, upstreamProject.getGroupId(), upstreamProject.getArtifactId(),
+				upstreamProject.getVersion());
+	}
+
+	/**
+	 * Writes the POM of a project and makes it the file of the project.
+	 * @return the project
+	 */
+	public static MavenProject writePom(MavenProject mavenProject, File pomFile) throws IOException {
+		pomFile.getParentFile().mkdirs();
+		FileOutputStream fileOutputStream = new FileOutputStream(pomFile);
+		try {
+			new MavenXpp3Writer().write(fileOutputStream, mavenProject.getOriginalModel());
+		} finally {
+			fileOutputStream.close();
+		}
+		mavenProject.getOriginalModel().setPomFile(pomFile);
+		mavenProject.setFile(pomFile);
+		return mavenProject;
+	}
+}
@@ -0,0 +1,133 @@
+package org.codehaus.openxma.mojo.multirelease.fake;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.codehaus.openxma.mojo.multirelease.scheduler.Clock;
+
+/**
+ * Clock whose time only advances when every thread of the simulation is waiting. Threads simulate latency with
+ * {@link #sleep(long)}, which returns as soon as the virtual time reached the wake time, so minutes of simulated work
+ * take milliseconds. The simulation runs in its own thread group, threads started by it, e.g. the workers of an
+ * executor service, belong to the group as well and are taken into account.
+ */
+public class VirtualClock implements Clock {
+
+	/**
+	 * Real time in nanoseconds the thread group must stay quiet before the time advances. A thread which was just
+	 * signalled, e.g. by a completed future, appears to be waiting until it is scheduled, which can take a while on a
+	 * loaded machine.
+	 */
+	private static final long QUIET_NANOS = 5000000;
+
+	/**
+	 * Real time in nanoseconds the thread group must stay quiet without any sleeping thread before the simulation is
+	 * considered deadlocked.
+	 */
+	private static final long DEADLOCK_NANOS = 2000000000;
+
+	private long now;
+
+	private long nextWake = Long.MAX_VALUE;
+
+	private int sleepers;
+
+	private long activity;
+
+	public synchronized long currentTimeMillis() {
+		return now;
+	}
+
+	/**
+	 * Blocks the calling thread until the virtual time advanced by the given duration.
+	 * @param millis the duration
+	 * @throws InterruptedException if interrupted while sleeping.
+	 */
+	public synchronized void sleep(long millis) throws InterruptedException {
+		long wake = now + Math.max(0, millis);
+		activity++;
+		sleepers++;
+		try {
+			while (now < wake) {
+				nextWake = Math.min(nextWake, wake);
+				wait();
+			}
+		} finally {
+			sleepers--;
+			activity++;
+		}
+	}
+
+	/**
+	 * Runs the simulation and advances the time whenever all its threads are waiting.
+	 * @param simulation the simulation
+	 * @return the result of the simulation
+	 * @throws Exception the failure of the simulation, or an {@link IllegalStateException} if all threads of the
+	 *             simulation wait for each other.
+	 */
+	public <T> T run(final Callable<T> simulation) throws Exception {
+		final AtomicReference<T> result = new AtomicReference<T>();
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		ThreadGroup group = new ThreadGroup("simulation");
+		Thread main = new Thread(group, new Runnable() {
+
+			public void run() {
+				try {
+					result.set(simulation.call());
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		}, "simulation-main");
+		main.setDaemon(true);
+		main.start();
+		long quietSince = 0;
+		long lastActivity = -1;
+		while (main.isAlive()) {
+			Thread.sleep(0, 200000);
+			long currentActivity;
+			synchronized (this) {
+				currentActivity = activity;
+			}
+			if (!isQuiet(group) || currentActivity != lastActivity) {
+				quietSince = System.nanoTime();
+				lastActivity = currentActivity;
+				continue;
+			}
+			long quiet = System.nanoTime() - quietSince;
+			synchronized (this) {
+				if (sleepers == 0) {
+					if (quiet >= DEADLOCK_NANOS) {
+						throw new IllegalStateException("Simulation is deadlocked at " + now + "ms");
+					}
+					continue;
+				}
+				if (quiet < QUIET_NANOS) {
+					continue;
+				}
+				quietSince = System.nanoTime();
+				now = nextWake;
+				nextWake = Long.MAX_VALUE;
+				activity++;
+				notifyAll();
+			}
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return result.get();
+	}
+
+	private boolean isQuiet(ThreadGroup group) {
+		Thread[] threads = new Thread[group.activeCount() + 16];
+		int count = group.enumerate(threads, true);
+		for (int i = 0; i < count; i++) {
+			Thread.State state = threads[i].getState();
+			if (state != Thread.State.WAITING && state != Thread.State.TIMED_WAITING
+					&& state != Thread.State.TERMINATED) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
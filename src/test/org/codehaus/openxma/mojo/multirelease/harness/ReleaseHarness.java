@@ -0,0 +1,193 @@
+package org.codehaus.openxma.mojo.multirelease.harness;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a goal of the plugin on a generated workspace in a separate Maven process and measures it. The plugin must be
+ * installed in the local repository. Besides the wall-clock time it records the number of child processes reported
+ * by the plugin in its OpenMetrics export and the peak resident set size of the whole process tree, sampled from
+ * <tt>/proc</tt> (0 on other systems).
+ */
+public class ReleaseHarness {
+
+	private static final String PLUGIN = "org.codehaus.openxma.mojo:multirelease-maven-plugin:1.0.0-SNAPSHOT";
+
+	private static final long SAMPLE_INTERVAL = 200;
+
+	private final File pomFile;
+
+	private final Map<String, String> properties = new TreeMap<String, String>();
+
+	/**
+	 * @param pomFile POM of the aggregator running the plugin.
+	 */
+	public ReleaseHarness(File pomFile) {
+		this.pomFile = pomFile;
+	}
+
+	/**
+	 * Sets a property passed to the plugin, e.g. <tt>threads</tt>.
+	 * @param name name of the property
+	 * @param value value of the property
+	 */
+	public void setProperty(String name, String value) {
+		properties.put(name, value);
+	}
+
+	/**
+	 * Runs a goal of the plugin and waits for it.
+	 * @param goal the goal, e.g. <tt>verify</tt>.
+	 * @param log file receiving the output of the build.
+	 * @return the measurements
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws InterruptedException if interrupted while waiting for the build.
+	 */
+	public Result run(String goal, File log) throws IOException, InterruptedException {
+		File metricsFile = new File(log.getParentFile(), goal + ".prom");
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("os.name").toLowerCase().contains("win") ? "mvn.cmd" : "mvn");
+		command.add("-B");
+		command.add(PLUGIN + ":" + goal);
+		command.add("-f");
+		command.add(pomFile.getAbsolutePath());
+		command.add("-DmetricsFile=" + metricsFile.getAbsolutePath());
+		for (Entry<String, String> property : properties.entrySet()) {
+			command.add("-D" + property.getKey() + "=" + property.getValue());
+		}
+		log.getParentFile().mkdirs();
+		long start = System.currentTimeMillis();
+		Process process = new ProcessBuilder(command).directory(pomFile.getParentFile()).redirectErrorStream(true)
+				.redirectOutput(log).start();
+		long peakRss = 0;
+		while (!process.waitFor(SAMPLE_INTERVAL, TimeUnit.MILLISECONDS)) {
+			peakRss = Math.max(peakRss, getTreeRss(process.toHandle()));
+		}
+		Result result = new Result(goal, process.exitValue(), System.currentTimeMillis() - start, peakRss);
+		if (metricsFile.isFile()) {
+			result.childProcesses = sumSamples(metricsFile, "multirelease_child_processes");
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the resident set size of the process and all its descendants.
+	 */
+	private long getTreeRss(ProcessHandle process) {
+		long rss = getRss(process.pid());
+		for (Iterator<ProcessHandle> iterator = process.descendants().iterator(); iterator.hasNext();) {
+			rss += getRss(iterator.next().pid());
+		}
+		return rss;
+	}
+
+	private long getRss(long pid) {
+		File status = new File("/proc/" + pid + "/status");
+		if (!status.isFile()) {
+			return 0;
+		}
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(status), StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+				}
+			}
+		} catch (IOException e) {
+			// The process ended while reading.
+		} catch (NumberFormatException e) {
+			// Unknown format.
+		} finally {
+			try {
+				if (reader != null) {
+					reader.close();
+				}
+			} catch (IOException e) {
+				// Do nothing.
+			}
+		}
+		return 0;
+	}
+
+	private long sumSamples(File metricsFile, String name) throws IOException {
+		long sum = 0;
+		for (String line : Files.readAllLines(metricsFile.toPath(), StandardCharsets.UTF_8)) {
+			if (line.startsWith(name + "{")) {
+				sum += (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Measurements of a run.
+	 */
+	public static class Result {
+
+		private final String goal;
+
+		private final int exitCode;
+
+		private final long duration;
+
+		private final long peakRss;
+
+		private long childProcesses;
+
+		Result(String goal, int exitCode, long duration, long peakRss) {
+			this.goal = goal;
+			this.exitCode = exitCode;
+			this.duration = duration;
+			this.peakRss = peakRss;
+		}
+
+		public String getGoal() {
+			return goal;
+		}
+
+		public int getExitCode() {
+			return exitCode;
+		}
+
+		/**
+		 * @return wall-clock time in milliseconds.
+		 */
+		public long getDuration() {
+			return duration;
+		}
+
+		/**
+		 * @return peak resident set size of the process tree in bytes.
+		 */
+		public long getPeakRss() {
+			return peakRss;
+		}
+
+		/**
+		 * @return number of child processes started by the plugin.
+		 */
+		public long getChildProcesses() {
+			return childProcesses;
+		}
+
+		@Override
+		public String toString() {
+			return goal + ": exitCode=" + exitCode + ", duration=" + duration + "ms, childProcesses="
+					+ childProcesses + ", peakRss=" + peakRss / (1024 * 1024) + "MiB";
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.codehaus.openxma.mojo.multirelease.harness;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the workspace generator and, if enabled, measures the release flow on a generated workspace. The harness is
+ * enabled with <tt>-Dmultirelease.harness.projects=N</tt> after installing the plugin, it also reads
+ * <tt>multirelease.harness.modules</tt>, <tt>.fanIn</tt>, <tt>.fanOut</tt> and <tt>.threads</tt>. The results are
+ * written to <tt>target/harness/results.txt</tt>.
+ */
+public class ReleaseHarnessTest {
+
+	private File directory;
+
+	@Before
+	public void setUp() {
+		directory = new File(System.getProperty("java.io.tmpdir"), "multirelease-harness-" + System.nanoTime());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testGenerate() throws Exception {
+		WorkspaceGenerator generator = new WorkspaceGenerator(20);
+		generator.setFanIn(3);
+		generator.setFanOut(2);
+		File pomFile = generator.generate(directory, false);
+
+		Model aggregator = readModel(pomFile);
+		assertEquals(20, aggregator.getModules().size());
+		int[] dependents = new int[20];
+		List<List<Integer>> upstreamProjects = generator.getUpstreamProjects();
+		for (int i = 0; i < 20; i++) {
+			assertTrue(upstreamProjects.get(i).size() <= 3);
+			for (Integer upstream : upstreamProjects.get(i)) {
+				assertTrue(upstream.intValue() < i);
+				dependents[upstream.intValue()]++;
+			}
+			Model project = readModel(new File(pomFile.getParentFile(), aggregator.getModules().get(i) + "/pom.xml"));
+			assertEquals(2, project.getModules().size());
+			assertEquals(upstreamProjects.get(i).size() * 2, project.getDependencyManagement().getDependencies()
+					.size());
+			assertTrue(project.getScm().getConnection().startsWith("scm:git:file:"));
+			assertTrue(project.getDistributionManagement().getRepository().getUrl().startsWith("file:"));
+		}
+		for (int count : dependents) {
+			assertTrue(count <= 2);
+		}
+		assertTrue(new File(directory, "deploy").isDirectory());
+	}
+
+	@Test
+	public void testRelease() throws Exception {
+		String projects = System.getProperty("multirelease.harness.projects");
+		assumeNotNull(projects);
+		WorkspaceGenerator generator = new WorkspaceGenerator(Integer.parseInt(projects));
+		generator.setModules(Integer.getInteger("multirelease.harness.modules", 2).intValue());
+		generator.setFanIn(Integer.getInteger("multirelease.harness.fanIn", 2).intValue());
+		generator.setFanOut(Integer.getInteger("multirelease.harness.fanOut", 3).intValue());
+		File pomFile = generator.generate(directory, true);
+
+		ReleaseHarness harness = new ReleaseHarness(pomFile);
+		harness.setProperty("threads", System.getProperty("multirelease.harness.threads", "1"));
+		File results = new File("target/harness");
+		ReleaseHarness.Result verify = harness.run("verify", new File(results, "verify.log"));
+		writeResult(results, generator, verify);
+		assertEquals(0, verify.getExitCode());
+		ReleaseHarness.Result release = harness.run("release", new File(results, "release.log"));
+		writeResult(results, generator, release);
+		assertEquals(0, release.getExitCode());
+		assertTrue(new File(directory, "deploy/" + WorkspaceGenerator.GROUP_ID.replace('.', '/')).isDirectory());
+	}
+
+	private void writeResult(File results, WorkspaceGenerator generator, ReleaseHarness.Result result)
+			throws IOException {
+		String line = "projects=" + generator.getProjects() + ", modules=" + generator.getModules() + ", fanIn="
+				+ generator.getFanIn() + ", fanOut=" + generator.getFanOut() + ", " + result;
+		FileWriter writer = new FileWriter(new File(results, "results.txt"), true);
+		try {
+			writer.write(line + "\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	private Model readModel(File file) throws Exception {
+		return new MavenXpp3Reader().read(ReaderFactory.newXmlReader(file));
+	}
+}
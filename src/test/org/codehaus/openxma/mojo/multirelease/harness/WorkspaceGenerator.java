@@ -0,0 +1,261 @@
+package org.codehaus.openxma.mojo.multirelease.harness;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Generates a workspace of interdependent multi-module projects on disk, together with a local bare Git repository
+ * per project and a <tt>file://</tt> deployment repository, so the whole release flow runs without any server.
+ * <p>
+ * The layout follows the test project of the plugin: <tt>workspace/build</tt> is the aggregator running the plugin,
+ * every project is a sibling directory with its own Git working copy. A project manages the versions of the
+ * modules of its upstream projects in its dependency management and every module depends on all of them.
+ */
+public class WorkspaceGenerator {
+
+	/** Group ID of all generated projects. */
+	public static final String GROUP_ID = "org.example.harness";
+
+	/** Version of all generated projects. */
+	public static final String VERSION = "1.0.0-SNAPSHOT";
+
+	private final int projects;
+
+	private int modules = 2;
+
+	private int fanIn = 2;
+
+	private int fanOut = 3;
+
+	private long seed = 42;
+
+	private final List<List<Integer>> upstreamProjects = new ArrayList<List<Integer>>();
+
+	/**
+	 * @param projects number of projects in the workspace.
+	 */
+	public WorkspaceGenerator(int projects) {
+		this.projects = projects;
+	}
+
+	/**
+	 * Generates the workspace.
+	 * @param directory root directory, it contains the directories <tt>workspace</tt>, <tt>remotes</tt> and
+	 *            <tt>deploy</tt> afterwards.
+	 * @param scm create and push the Git repositories of the projects.
+	 * @return the POM of the aggregator running the plugin
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public File generate(File directory, boolean scm) throws IOException {
+		File workspace = new File(directory, "workspace");
+		File remotes = new File(directory, "remotes");
+		File deploy = new File(directory, "deploy");
+		deploy.mkdirs();
+		createGraph();
+		StringBuilder aggregatorModules = new StringBuilder();
+		for (int i = 0; i < projects; i++) {
+			String artifactId = getArtifactId(i);
+			aggregatorModules.append("\t\t<module>../").append(artifactId).append("</module>\n");
+			File projectDirectory = new File(workspace, artifactId);
+			writeProject(projectDirectory, i, new File(remotes, artifactId + ".git"), deploy);
+			if (scm) {
+				createRepository(projectDirectory, new File(remotes, artifactId + ".git"));
+			}
+		}
+		File pomFile = new File(workspace, "build/pom.xml");
+		write(pomFile, "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+				+ "\t<modelVersion>4.0.0</modelVersion>\n"
+				+ "\t<groupId>" + GROUP_ID + "</groupId>\n"
+				+ "\t<artifactId>build</artifactId>\n"
+				+ "\t<version>" + VERSION + "</version>\n"
+				+ "\t<packaging>pom</packaging>\n"
+				+ "\t<modules>\n" + aggregatorModules + "\t</modules>\n"
+				+ "\t<build>\n\t\t<plugins>\n\t\t\t<plugin>\n"
+				+ "\t\t\t\t<groupId>org.codehaus.openxma.mojo</groupId>\n"
+				+ "\t\t\t\t<artifactId>multirelease-maven-plugin</artifactId>\n"
+				+ "\t\t\t\t<version>1.0.0-SNAPSHOT</version>\n"
+				+ "\t\t\t\t<inherited>false</inherited>\n"
+				+ "\t\t\t</plugin>\n\t\t</plugins>\n\t</build>\n"
+				+ "</project>\n");
+		write(new File(workspace, "build/multirelease.properties"), "pushChanges = true\n");
+		return pomFile;
+	}
+
+	/**
+	 * Chooses the upstream projects of every project. A project depends on up to fan-in earlier projects, a project
+	 * is used by at most fan-out later projects. The first project of each chain has no upstream project.
+	 */
+	private void createGraph() {
+		Random random = new Random(seed);
+		int[] dependents = new int[projects];
+		upstreamProjects.clear();
+		for (int i = 0; i < projects; i++) {
+			List<Integer> candidates = new ArrayList<Integer>();
+			for (int j = 0; j < i; j++) {
+				if (dependents[j] < fanOut) {
+					candidates.add(Integer.valueOf(j));
+				}
+			}
+			List<Integer> upstream = new ArrayList<Integer>();
+			while (upstream.size() < fanIn && !candidates.isEmpty()) {
+				Integer candidate = candidates.remove(random.nextInt(candidates.size()));
+				upstream.add(candidate);
+				dependents[candidate.intValue()]++;
+			}
+			upstreamProjects.add(upstream);
+		}
+	}
+
+	private void writeProject(File projectDirectory, int project, File remote, File deploy) throws IOException {
+		String artifactId = getArtifactId(project);
+		// The plugin commits to the url, the Git provider needs it with an empty authority.
+		String scmUrl = "scm:git:file://" + remote.getAbsoluteFile().toURI().getPath();
+		StringBuilder projectModules = new StringBuilder();
+		StringBuilder managedDependencies = new StringBuilder();
+		StringBuilder dependencies = new StringBuilder();
+		for (Integer upstream : upstreamProjects.get(project)) {
+			for (int module = 0; module < modules; module++) {
+				String upstreamModule = getArtifactId(upstream.intValue()) + "-module-" + module;
+				managedDependencies.append("\t\t\t<dependency>\n\t\t\t\t<groupId>" + GROUP_ID + "</groupId>\n"
+						+ "\t\t\t\t<artifactId>" + upstreamModule + "</artifactId>\n\t\t\t\t<version>" + VERSION
+						+ "</version>\n\t\t\t</dependency>\n");
+				dependencies.append("\t\t<dependency>\n\t\t\t<groupId>" + GROUP_ID + "</groupId>\n"
+						+ "\t\t\t<artifactId>" + upstreamModule + "</artifactId>\n\t\t</dependency>\n");
+			}
+		}
+		for (int module = 0; module < modules; module++) {
+			String moduleId = artifactId + "-module-" + module;
+			projectModules.append("\t\t<module>").append(moduleId).append("</module>\n");
+			File moduleDirectory = new File(projectDirectory, moduleId);
+			write(new File(moduleDirectory, "pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+					+ "\t<modelVersion>4.0.0</modelVersion>\n"
+					+ "\t<parent>\n\t\t<groupId>" + GROUP_ID + "</groupId>\n\t\t<artifactId>" + artifactId
+					+ "</artifactId>\n\t\t<version>" + VERSION + "</version>\n\t</parent>\n"
+					+ "\t<artifactId>" + moduleId + "</artifactId>\n"
+					+ "\t<dependencies>\n" + dependencies + "\t</dependencies>\n"
+					+ "</project>\n");
+			String packageName = (GROUP_ID + "." + moduleId).replace('-', '_');
+			String className = "Module" + module;
+			write(new File(moduleDirectory, "src/main/java/" + packageName.replace('.', '/') + "/" + className
+					+ ".java"), "package " + packageName + ";\n\npublic class " + className + " {\n}\n");
+		}
+		write(new File(projectDirectory, "pom.xml"), "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+				+ "\t<modelVersion>4.0.0</modelVersion>\n"
+				+ "\t<groupId>" + GROUP_ID + "</groupId>\n"
+				+ "\t<artifactId>" + artifactId + "</artifactId>\n"
+				+ "\t<version>" + VERSION + "</version>\n"
+				+ "\t<packaging>pom</packaging>\n"
+				+ "\t<properties>\n\t\t<project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n"
+				+ "\t\t<maven.compiler.source>11</maven.compiler.source>\n"
+				+ "\t\t<maven.compiler.target>11</maven.compiler.target>\n\t</properties>\n"
+				+ "\t<modules>\n" + projectModules + "\t</modules>\n"
+				+ "\t<scm>\n\t\t<connection>" + scmUrl + "</connection>\n\t\t<developerConnection>" + scmUrl
+				+ "</developerConnection>\n\t\t<url>" + scmUrl + "</url>\n\t</scm>\n"
+				+ "\t<distributionManagement>\n\t\t<repository>\n\t\t\t<id>harness</id>\n\t\t\t<url>"
+				+ deploy.getAbsoluteFile().toURI() + "</url>\n\t\t</repository>\n\t</distributionManagement>\n"
+				+ "\t<dependencyManagement>\n\t\t<dependencies>\n" + managedDependencies
+				+ "\t\t</dependencies>\n\t</dependencyManagement>\n"
+				+ "\t<build>\n\t\t<pluginManagement>\n\t\t\t<plugins>\n"
+				+ "\t\t\t\t<plugin>\n\t\t\t\t\t<artifactId>maven-release-plugin</artifactId>\n"
+				+ "\t\t\t\t\t<version>2.5.3</version>\n\t\t\t\t</plugin>\n"
+				+ "\t\t\t</plugins>\n\t\t</pluginManagement>\n\t</build>\n"
+				+ "</project>\n");
+		write(new File(projectDirectory, ".gitignore"), "target/\n");
+	}
+
+	/**
+	 * Creates the bare repository of a project and pushes the project into it.
+	 */
+	private void createRepository(File projectDirectory, File remote) throws IOException {
+		remote.mkdirs();
+		git(remote, "init", "--bare", "--quiet");
+		git(projectDirectory, "init", "--quiet");
+		git(projectDirectory, "config", "user.name", "harness");
+		git(projectDirectory, "config", "user.email", "harness@example.org");
+		git(projectDirectory, "add", ".");
+		git(projectDirectory, "commit", "--quiet", "-m", "Initial version");
+		git(projectDirectory, "remote", "add", "origin", remote.getAbsolutePath());
+		git(projectDirectory, "push", "--quiet", "-u", "origin", "HEAD");
+	}
+
+	private void git(File directory, String... arguments) throws IOException {
+		List<String> command = new ArrayList<String>();
+		command.add("git");
+		command.addAll(Arrays.asList(arguments));
+		Process process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).start();
+		String output = new String(process.getInputStream().readAllBytes(), "UTF-8");
+		try {
+			if (process.waitFor() != 0) {
+				throw new IOException("Command " + command + " failed in " + directory + ":\n" + output);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running " + command, e);
+		}
+	}
+
+	private void write(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileUtils.fileWrite(file.getAbsolutePath(), "UTF-8", content);
+	}
+
+	/**
+	 * Gets the artifact ID of a project. The number is padded, because the plugin matches the modules of the
+	 * aggregator by substring.
+	 * @param project number of the project
+	 * @return the artifact ID
+	 */
+	public static String getArtifactId(int project) {
+		return String.format("project-%05d", Integer.valueOf(project));
+	}
+
+	/**
+	 * Gets the upstream projects chosen by the last generation.
+	 * @return numbers of the upstream projects of each project
+	 */
+	public List<List<Integer>> getUpstreamProjects() {
+		return upstreamProjects;
+	}
+
+	public int getProjects() {
+		return projects;
+	}
+
+	public int getModules() {
+		return modules;
+	}
+
+	public void setModules(int modules) {
+		this.modules = modules;
+	}
+
+	public int getFanIn() {
+		return fanIn;
+	}
+
+	public void setFanIn(int fanIn) {
+		this.fanIn = fanIn;
+	}
+
+	public int getFanOut() {
+		return fanOut;
+	}
+
+	public void setFanOut(int fanOut) {
+		this.fanOut = fanOut;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+}
@@ -0,0 +1,83 @@
+package org.codehaus.openxma.mojo.multirelease.launcher;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher.OutputListener;
+import org.junit.Test;
+
+public class ProcessLauncherTest {
+
+	@Test
+	public void testChildProcessEvent() throws Exception {
+		File file = File.createTempFile("multirelease", ".jfr");
+		Recording recording = new Recording();
+		try {
+			recording.enable("org.codehaus.openxma.multirelease.ChildProcess");
+			recording.start();
+			new ProcessLauncher().executeProcess("echo multirelease");
+			recording.stop();
+			recording.dump(file.toPath());
+		} finally {
+			recording.close();
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+		file.delete();
+		assertEquals(1, events.size());
+		RecordedEvent event = events.get(0);
+		assertEquals("echo multirelease", event.getString("command"));
+		assertEquals(0, event.getInt("exitCode"));
+		assertEquals("multirelease\n".length(), event.getLong("outputBytes"));
+		assertFalse(event.getBoolean("buildFailed"));
+	}
+
+	@Test
+	public void testExitCode() throws Exception {
+		try {
+			new ProcessLauncher().executeProcess("false");
+			fail("The process failed");
+		} catch (ProcessException e) {
+			assertEquals("Process exited with status 1", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final ProcessLauncher launcher = new ProcessLauncher();
+		final long[] child = new long[1];
+		try {
+			// The shell stays the parent of sleep, like Maven stays the parent of the builds it forks.
+			launcher.executeProcess("sh -c 'sleep 60 & echo $!; wait'", new OutputListener() {
+
+				public void onLine(String line) {
+					child[0] = Long.parseLong(line.trim());
+					launcher.cancel();
+				}
+			});
+			fail("The process was cancelled");
+		} catch (ProcessException e) {
+			assertEquals("Process was cancelled", e.getMessage());
+		}
+		ProcessHandle sleep = ProcessHandle.of(child[0]).orElse(null);
+		if (sleep != null) {
+			sleep.onExit().get(5, TimeUnit.SECONDS);
+		}
+
+		try {
+			launcher.executeProcess("true");
+			fail("The launcher is cancelled");
+		} catch (ProcessException e) {
+			assertEquals("Process was cancelled", e.getMessage());
+		}
+		launcher.reset();
+		launcher.executeProcess("true");
+	}
+}
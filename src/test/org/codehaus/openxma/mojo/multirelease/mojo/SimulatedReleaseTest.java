@@ -0,0 +1,360 @@
+package org.codehaus.openxma.mojo.multirelease.mojo;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Scm;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.fake.FakeProcessLauncher;
+import org.codehaus.openxma.mojo.multirelease.fake.FakeScmManager;
+import org.codehaus.openxma.mojo.multirelease.fake.InvocationLog;
+import org.codehaus.openxma.mojo.multirelease.fake.InvocationLog.Invocation;
+import org.codehaus.openxma.mojo.multirelease.fake.VirtualClock;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.Interval;
+import org.codehaus.openxma.mojo.multirelease.report.ReleaseMetrics.ProjectMetrics;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.scm.CustomScmManager;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.codehaus.openxma.mojo.multirelease.util.MavenReleasePluginExecutor;
+import org.codehaus.openxma.mojo.multirelease.util.ReactorIndex;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Simulates releases of the release goal with the fake launcher and SCM manager in virtual time. Every project
+ * commits its dependencies rewritten to release versions, runs release:prepare and release:perform and commits the
+ * dependencies rewritten back to development versions.
+ */
+public class SimulatedReleaseTest {
+
+	private static final long MINUTE = 60000;
+
+	private static final String RELEASE = "release:prepare release:perform";
+
+	private final VirtualClock clock = new VirtualClock();
+
+	private final InvocationLog log = new InvocationLog();
+
+	private final FakeProcessLauncher launcher = new FakeProcessLauncher(clock, log);
+
+	private final FakeScmManager scmManager = new FakeScmManager(clock, log);
+
+	private final Properties userProperties = new Properties();
+
+	private File directory;
+
+	private MavenProject parent;
+
+	private final List<MavenProject> reactor = new ArrayList<MavenProject>();
+
+	private MavenProject a;
+
+	private MavenProject b;
+
+	private MavenProject c;
+
+	private MavenProject d;
+
+	private MavenProject e;
+
+	/**
+	 * b and c depend on a, d depends on b and c, e is independent.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "multirelease-simulation-" + System.nanoTime())
+				.getAbsoluteFile();
+		Model model = createModel(GROUP_ID, "build", VERSION);
+		model.setPackaging("pom");
+		model.setBuild(new Build());
+		model.getBuild().setDirectory(new File(directory, "build/target").getPath());
+		parent = addProject(model);
+		a = addProject("a", 10);
+		b = addProject("b", 5, a);
+		c = addProject("c", 20, a);
+		d = addProject("d", 5, b, c);
+		e = addProject("e", 30);
+		scmManager.setLatency(MINUTE);
+		userProperties.setProperty("threads", "2");
+		userProperties.setProperty("repositoryLayout", "shared");
+		userProperties.setProperty("failurePolicy", "drain");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testBuildOrder() throws Exception {
+		SimulatedReleaseMojo mojo = execute();
+		// a and e start, b and c follow a in build order on the same worker, d waits for c.
+		assertTiming(a, 0, 20);
+		assertTiming(e, 0, 60);
+		assertTiming(b, 20, 32);
+		assertTiming(c, 32, 74);
+		assertTiming(d, 74, 86);
+		assertUpstreamReleasedFirst(mojo.getReleaseMetrics());
+	}
+
+	@Test
+	public void testCriticalPathFirst() throws Exception {
+		BuildHistory history = new BuildHistory(new File(directory, "build/target/multirelease/history.properties"));
+		recordDuration(history, a, 20);
+		recordDuration(history, b, 12);
+		recordDuration(history, c, 42);
+		recordDuration(history, d, 12);
+		recordDuration(history, e, 60);
+		history.store();
+		SimulatedReleaseMojo mojo = execute();
+		// a and c are on the longest remaining path, c is preferred to b after a.
+		assertTiming(a, 0, 20);
+		assertTiming(e, 0, 60);
+		assertTiming(c, 20, 62);
+		assertTiming(b, 60, 72);
+		assertTiming(d, 72, 84);
+		assertUpstreamReleasedFirst(mojo.getReleaseMetrics());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		launcher.failOn("release:perform", getPom(b).getPath());
+		userProperties.setProperty("failurePolicy", "continue");
+		SimulatedReleaseMojo mojo = new SimulatedReleaseMojo();
+		try {
+			execute(mojo);
+			fail("Release should fail");
+		} catch (MojoExecutionException expected) {
+			// Expected
+		}
+		ReleaseMetrics releaseMetrics = mojo.getReleaseMetrics();
+		assertEquals(ReleaseMetrics.FINISHED, getProjectMetrics(releaseMetrics, a).getStatus());
+		assertEquals(ReleaseMetrics.FAILED, getProjectMetrics(releaseMetrics, b).getStatus());
+		assertEquals(ReleaseMetrics.FINISHED, getProjectMetrics(releaseMetrics, c).getStatus());
+		assertEquals(ReleaseMetrics.SKIPPED, getProjectMetrics(releaseMetrics, d).getStatus());
+		assertEquals(ReleaseMetrics.FINISHED, getProjectMetrics(releaseMetrics, e).getStatus());
+		assertTrue(log.find(RELEASE, getPom(d).getPath()).isEmpty());
+		// The perform phase of b started before it failed, both phases are recorded.
+		assertEquals(Arrays.asList(BuildHistory.PREPARE, BuildHistory.PERFORM), getSteps(releaseMetrics, a));
+		assertEquals(Arrays.asList(BuildHistory.PREPARE, BuildHistory.PERFORM), getSteps(releaseMetrics, b));
+		assertTrue(log.find(FakeScmManager.CHECKIN, getDirectory(d).getPath()).isEmpty());
+		// The failed perform is not followed by the commit of the development versions.
+		assertEquals(1, log.find(FakeScmManager.CHECKIN, getDirectory(b).getPath()).size());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		launcher.failOn("release:perform", getPom(b).getPath());
+		userProperties.setProperty("failurePolicy", "cancel");
+		SimulatedReleaseMojo mojo = new SimulatedReleaseMojo();
+		try {
+			execute(mojo);
+			fail("Release should fail");
+		} catch (MojoExecutionException expected) {
+			// Expected
+		}
+		// e was running when b failed, it is cancelled but did not fail on its own.
+		assertEquals(ReleaseMetrics.FAILED, getProjectMetrics(mojo.getReleaseMetrics(), e).getStatus());
+		assertTrue(log.find(RELEASE, getPom(e).getPath()).get(0).isFailed());
+		BuildHistory history = new BuildHistory(new File(directory, "build/target/multirelease/history.properties"));
+		history.load();
+		assertEquals(1, history.getFailures(GROUP_ID + ":" + b.getArtifactId()));
+		assertEquals(0, history.getFailures(GROUP_ID + ":" + e.getArtifactId()));
+	}
+
+	@Test
+	public void testResumeWithPlan() throws Exception {
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>();
+		for (MavenProject mavenProject : Arrays.asList(a, b, c, d, e)) {
+			projects.add(new DependencyMapper(mavenProject));
+		}
+		new DependencyResolver().getBuildOrder(projects);
+		File planDirectory = new File(directory, "plan");
+		new ReleasePlan(projects, Collections.<String, String> emptyMap(), new ReactorIndex(reactor))
+				.write(planDirectory);
+		userProperties.setProperty("plan", new File(planDirectory, ReleasePlan.PROPERTIES_FILE).getPath());
+		launcher.failOn("release:perform", getPom(b).getPath());
+		try {
+			execute();
+			fail("Release should fail");
+		} catch (MojoExecutionException expected) {
+			// Expected
+		}
+		// b committed its rewritten dependencies before it failed, it no longer matches the plan.
+		assertEquals(1, log.find(FakeScmManager.CHECKIN, getDirectory(b).getPath()).size());
+
+		launcher.clearFailures();
+		// The mojo is not configured by Maven, so resume has no default.
+		userProperties.setProperty("resume", "true");
+		SimulatedReleaseMojo mojo = execute();
+		assertEquals(ReleaseMetrics.FINISHED, getProjectMetrics(mojo.getReleaseMetrics(), b).getStatus());
+		assertEquals(ReleaseMetrics.FINISHED, getProjectMetrics(mojo.getReleaseMetrics(), d).getStatus());
+		// Only b and d are released again.
+		assertEquals(1, log.find(RELEASE, getPom(a).getPath()).size());
+		assertEquals(2, log.find(RELEASE, getPom(b).getPath()).size());
+		assertEquals(1, log.find(RELEASE, getPom(d).getPath()).size());
+	}
+
+	private SimulatedReleaseMojo execute() throws Exception {
+		SimulatedReleaseMojo mojo = new SimulatedReleaseMojo();
+		execute(mojo);
+		return mojo;
+	}
+
+	private void execute(final SimulatedReleaseMojo mojo) throws Exception {
+		DefaultMavenExecutionRequest request = new DefaultMavenExecutionRequest();
+		request.setUserProperties(userProperties);
+		ReflectionUtils.setVariableValueInObject(mojo, "reactorProjects", reactor);
+		ReflectionUtils.setVariableValueInObject(mojo, "parentProject", parent);
+		ReflectionUtils.setVariableValueInObject(mojo, "mavenSession", new MavenSession(null, request,
+				new DefaultMavenExecutionResult(), reactor));
+		ReflectionUtils.setVariableValueInObject(mojo, "releaseProperties", new File(directory, "build").getPath());
+		mojo.setLog(new DefaultLog(new ConsoleLogger(Logger.LEVEL_DISABLED, "simulation")));
+		clock.run(new Callable<Void>() {
+
+			public Void call() throws Exception {
+				mojo.execute();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Checks the start of the first and the end of the last invocation of a project in minutes.
+	 */
+	private void assertTiming(MavenProject mavenProject, long start, long end) {
+		List<Invocation> invocations = new ArrayList<Invocation>();
+		invocations.addAll(log.find(FakeScmManager.CHECKIN, getDirectory(mavenProject).getPath()));
+		invocations.addAll(log.find(RELEASE, getPom(mavenProject).getPath()));
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		for (Invocation invocation : invocations) {
+			first = Math.min(first, invocation.getStart());
+			last = Math.max(last, invocation.getEnd());
+		}
+		assertEquals(mavenProject.getArtifactId() + " start", start * MINUTE, first);
+		assertEquals(mavenProject.getArtifactId() + " end", end * MINUTE, last);
+	}
+
+	/**
+	 * Checks that the first commit of every project started after its upstream projects were performed.
+	 */
+	private void assertUpstreamReleasedFirst(ReleaseMetrics releaseMetrics) {
+		Map<String, MavenProject> projects = new HashMap<String, MavenProject>();
+		for (MavenProject mavenProject : reactor) {
+			projects.put(mavenProject.getGroupId() + ":" + mavenProject.getArtifactId(), mavenProject);
+		}
+		for (ProjectMetrics projectMetrics : releaseMetrics.getProjects()) {
+			MavenProject mavenProject = projects.get(projectMetrics.getProject());
+			for (String upstream : projectMetrics.getUpstreamProjects()) {
+				Invocation rewrite = log.find(FakeScmManager.CHECKIN, getDirectory(mavenProject).getPath()).get(0);
+				Invocation perform = log.find(RELEASE, getPom(projects.get(upstream)).getPath()).get(0);
+				assertTrue(perform + " before " + rewrite, perform.getEnd() <= rewrite.getStart());
+			}
+		}
+	}
+
+	private void recordDuration(BuildHistory history, MavenProject mavenProject, long minutes) {
+		String key = mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+		history.recordPhase(key, BuildHistory.PREPARE, minutes * MINUTE / 2);
+		history.recordPhase(key, BuildHistory.PERFORM, minutes * MINUTE / 2);
+	}
+
+	/**
+	 * Adds a project to the workspace whose prepare and perform take the given minutes each.
+	 */
+	private MavenProject addProject(String name, long minutes, MavenProject... upstreamProjects) throws Exception {
+		Model model = createModel(GROUP_ID, "project-" + name, VERSION);
+		Scm scm = new Scm();
+		scm.setConnection("scm:fake");
+		scm.setUrl("scm:fake");
+		model.setScm(scm);
+		for (MavenProject upstreamProject : upstreamProjects) {
+			model.addDependency(createDependency(upstreamProject.getGroupId(), upstreamProject.getArtifactId(),
+					upstreamProject.getVersion()));
+		}
+		parent.getModel().addModule("../" + model.getArtifactId());
+		MavenProject mavenProject = addProject(model);
+		launcher.setLatency(2 * minutes * MINUTE, "-f" + getPom(mavenProject).getPath());
+		return mavenProject;
+	}
+
+	private MavenProject addProject(Model model) throws Exception {
+		MavenProject mavenProject = writePom(createProject(model), new File(new File(directory,
+				model.getArtifactId()), "pom.xml"));
+		mavenProject.setCollectedProjects(new ArrayList<MavenProject>());
+		reactor.add(mavenProject);
+		return mavenProject;
+	}
+
+	private ProjectMetrics getProjectMetrics(ReleaseMetrics releaseMetrics, MavenProject mavenProject) {
+		for (ProjectMetrics projectMetrics : releaseMetrics.getProjects()) {
+			if (projectMetrics.getProject().equals(mavenProject.getGroupId() + ":" + mavenProject.getArtifactId())) {
+				return projectMetrics;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the steps recorded for a project in the order they started.
+	 */
+	private List<String> getSteps(ReleaseMetrics releaseMetrics, MavenProject mavenProject) {
+		List<String> steps = new ArrayList<String>();
+		for (Interval interval : getProjectMetrics(releaseMetrics, mavenProject).getIntervals()) {
+			if (BuildHistory.PREPARE.equals(interval.getStep()) || BuildHistory.PERFORM.equals(interval.getStep())) {
+				steps.add(interval.getStep());
+			}
+		}
+		return steps;
+	}
+
+	private File getPom(MavenProject mavenProject) {
+		return mavenProject.getOriginalModel().getPomFile();
+	}
+
+	private File getDirectory(MavenProject mavenProject) {
+		return getPom(mavenProject).getParentFile();
+	}
+
+	/**
+	 * Release goal whose workers run the child builds and commits through the fakes.
+	 */
+	private class SimulatedReleaseMojo extends PreparePerfomReleaseMojo {
+
+		@Override
+		protected MavenReleasePluginExecutor createExecutor() {
+			return new MavenReleasePluginExecutor(launcher);
+		}
+
+		@Override
+		protected CustomScmManager createScmManager() {
+			return scmManager;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package org.codehaus.openxma.mojo.multirelease.plan;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginManagement;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan.ProjectPlan;
+import org.codehaus.openxma.mojo.multirelease.plan.ReleasePlan.Rewrite;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.codehaus.openxma.mojo.multirelease.util.ReactorIndex;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+public class ReleasePlanTest {
+
+	@Test
+	public void testNextVersion() {
+		assertEquals("1.3-SNAPSHOT", ReleasePlan.getNextVersion("1.2"));
+		assertEquals("1.0.10-SNAPSHOT", ReleasePlan.getNextVersion("1.0.9"));
+		assertEquals("2.0-beta-2-SNAPSHOT", ReleasePlan.getNextVersion("2.0-beta-1"));
+		assertEquals("1.10-SNAPSHOT", ReleasePlan.getNextVersion("1.09"));
+		assertEquals("3-final-SNAPSHOT", ReleasePlan.getNextVersion("2-final"));
+		assertNull(ReleasePlan.getNextVersion("final"));
+	}
+
+	@Test
+	public void testPlan() throws Exception {
+		MavenProject core = createProject("core");
+		MavenProject app = createProject(GROUP_ID, "app", "2.1-SNAPSHOT");
+		addDependency(app, GROUP_ID, "core-api", "${core.version}");
+		app.getOriginalModel().addProperty("core.version", "1.0-SNAPSHOT");
+		addDependency(app, GROUP_ID, "commons", "3.0");
+		DependencyMapper coreMapper = new DependencyMapper(core);
+		coreMapper.getChildProject().add(createProject("core-api"));
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>(Arrays.asList(new DependencyMapper(app),
+				coreMapper));
+		new DependencyResolver().getBuildOrder(projects);
+
+		ReleasePlan plan = new ReleasePlan(projects, Collections.singletonMap("org.example.app", "3.0-SNAPSHOT"));
+		ProjectPlan corePlan = plan.getProjects().get(0);
+		assertEquals("org.example:core", corePlan.getId());
+		assertEquals("1.0", corePlan.getReleaseVersion());
+		assertEquals("1.1-SNAPSHOT", corePlan.getDevelopmentVersion());
+		assertEquals(Arrays.asList("org.example:core-api"), corePlan.getModules());
+		assertTrue(corePlan.getRewrites().isEmpty());
+
+		ProjectPlan appPlan = plan.getProjects().get(1);
+		assertEquals("3.0-SNAPSHOT", appPlan.getDevelopmentVersion());
+		assertEquals(2, appPlan.getRewrites().size());
+		assertRewrite(appPlan.getRewrites().get(0), ReleasePlan.PRE, "1.0-SNAPSHOT", "1.0");
+		assertRewrite(appPlan.getRewrites().get(1), ReleasePlan.POST, "1.0", "1.1-SNAPSHOT");
+
+		assertFalse(corePlan.isDevelopmentVersionConfigured());
+		assertTrue(appPlan.isDevelopmentVersionConfigured());
+		// Only the configured development version is passed to the release.
+		assertNull(plan.getProperties().getProperty("org.example.core.developmentVersion"));
+		assertEquals("3.0-SNAPSHOT", plan.getProperties().getProperty("org.example.app.developmentVersion"));
+
+		StringWriter writer = new StringWriter();
+		plan.writeJson(writer);
+		assertTrue(writer.toString().contains("{\"phase\": \"pre\", \"dependency\": \"org.example:core-api\", "
+				+ "\"property\": \"core.version\", \"from\": \"1.0-SNAPSHOT\", \"to\": \"1.0\"}"));
+	}
+
+	@Test
+	public void testRewriteParentPluginsAndExtensions() throws Exception {
+		MavenProject core = createProject("core");
+		MavenProject app = createProject("app");
+		Parent parent = new Parent();
+		parent.setGroupId(GROUP_ID);
+		parent.setArtifactId("core");
+		parent.setVersion(VERSION);
+		app.getOriginalModel().setParent(parent);
+		Plugin plugin = new Plugin();
+		plugin.setGroupId(GROUP_ID);
+		plugin.setArtifactId("core");
+		plugin.setVersion(VERSION);
+		app.getOriginalModel().setBuild(new Build());
+		app.getOriginalModel().getBuild().setPluginManagement(new PluginManagement());
+		app.getOriginalModel().getBuild().getPluginManagement().addPlugin(plugin);
+		Extension extension = new Extension();
+		extension.setGroupId(GROUP_ID);
+		extension.setArtifactId("core");
+		extension.setVersion(VERSION);
+		app.getOriginalModel().getBuild().addExtension(extension);
+		// The parent of a module within the project is left to the release plugin.
+		MavenProject web = createProject("web");
+		Parent appParent = new Parent();
+		appParent.setGroupId(GROUP_ID);
+		appParent.setArtifactId("app");
+		appParent.setVersion(VERSION);
+		web.getOriginalModel().setParent(appParent);
+		DependencyMapper appMapper = new DependencyMapper(app);
+		appMapper.getChildProject().add(web);
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>(Arrays.asList(appMapper,
+				new DependencyMapper(core)));
+		new DependencyResolver().getBuildOrder(projects);
+
+		ProjectPlan appPlan = new ReleasePlan(projects, Collections.<String, String> emptyMap()).getProjects().get(1);
+		assertEquals("org.example:app", appPlan.getId());
+		assertEquals(6, appPlan.getRewrites().size());
+		for (int i = 0; i < 6; i++) {
+			Rewrite rewrite = appPlan.getRewrites().get(i);
+			assertEquals(i < 3 ? ReleasePlan.PRE : ReleasePlan.POST, rewrite.getPhase());
+			assertEquals("org.example:core", rewrite.getDependency());
+			assertEquals(i < 3 ? "1.0" : "1.1-SNAPSHOT", rewrite.getTo());
+		}
+	}
+
+	@Test
+	public void testRestore() throws Exception {
+		File directory = new File("target/ReleasePlanTest");
+		directory.mkdirs();
+		MavenProject core = createProject("core");
+		MavenProject coreApi = createProject("core-api");
+		MavenProject app = createProject("app");
+		addDependency(app, coreApi);
+		for (MavenProject mavenProject : Arrays.asList(core, coreApi, app)) {
+			writePom(mavenProject, new File(directory, mavenProject.getArtifactId() + ".xml"));
+		}
+		DependencyMapper coreMapper = new DependencyMapper(core);
+		coreMapper.getChildProject().add(coreApi);
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>(Arrays.asList(new DependencyMapper(app),
+				coreMapper));
+		new DependencyResolver().getBuildOrder(projects);
+		Properties properties = new ReleasePlan(projects, Collections.<String, String> emptyMap()).getProperties();
+
+		List<DependencyMapper> buildOrder = ReleasePlan.getBuildOrder(properties, Arrays.asList(app, coreApi, core));
+		assertEquals(2, buildOrder.size());
+		assertSame(core, buildOrder.get(0).getMavenProject());
+		assertEquals(Arrays.asList(coreApi), buildOrder.get(0).getChildProject());
+		assertSame(app, buildOrder.get(1).getMavenProject());
+		assertEquals(Arrays.asList(coreApi), buildOrder.get(1).getDependencyProject());
+		assertTrue(ReleasePlan.getChangedProjects(properties, buildOrder).isEmpty());
+
+		FileUtils.fileWrite(coreApi.getOriginalModel().getPomFile().getPath(), "<project>changed</project>");
+		assertEquals(Arrays.asList("org.example:core"), ReleasePlan.getChangedProjects(properties, buildOrder));
+		try {
+			ReleasePlan.getBuildOrder(properties, Arrays.asList(app, core));
+			fail("core-api is not in the reactor");
+		} catch (MojoExecutionException e) {
+			assertTrue(e.getMessage().contains("org.example:core-api"));
+		}
+	}
+
+	@Test
+	public void testParentAndImportChanged() throws Exception {
+		File directory = new File("target/ReleasePlanTest");
+		directory.mkdirs();
+		MavenProject parent = createProject("parent");
+		MavenProject bom = createProject("bom");
+		MavenProject app = createProject("app");
+		app.setParent(parent);
+		Dependency dependency = createDependency("${project.groupId}", "bom", VERSION);
+		dependency.setType("pom");
+		dependency.setScope("import");
+		app.getOriginalModel().setDependencyManagement(new DependencyManagement());
+		app.getOriginalModel().getDependencyManagement().addDependency(dependency);
+		for (MavenProject mavenProject : Arrays.asList(parent, bom, app)) {
+			writePom(mavenProject, new File(directory, mavenProject.getArtifactId() + ".xml"));
+		}
+		// Neither the parent nor the BOM are released, they are only part of the reactor.
+		ReactorIndex reactorIndex = new ReactorIndex(Arrays.asList(parent, bom, app));
+		List<DependencyMapper> projects = Arrays.asList(new DependencyMapper(app));
+		Properties properties = new ReleasePlan(projects, Collections.<String, String> emptyMap(), reactorIndex)
+				.getProperties();
+		assertTrue(ReleasePlan.getChangedProjects(properties, projects, reactorIndex).isEmpty());
+
+		FileUtils.fileWrite(parent.getOriginalModel().getPomFile().getPath(), "<project>changed</project>");
+		assertEquals(Arrays.asList("org.example:app"), ReleasePlan.getChangedProjects(properties, projects,
+				reactorIndex));
+		writePom(parent, parent.getFile());
+		FileUtils.fileWrite(bom.getOriginalModel().getPomFile().getPath(), "<project>changed</project>");
+		assertEquals(Arrays.asList("org.example:app"), ReleasePlan.getChangedProjects(properties, projects,
+				reactorIndex));
+	}
+
+	private void assertRewrite(Rewrite rewrite, String phase, String from, String to) {
+		assertEquals(phase, rewrite.getPhase());
+		assertEquals("org.example:core-api", rewrite.getDependency());
+		assertEquals("core.version", rewrite.getProperty());
+		assertEquals(from, rewrite.getFrom());
+		assertEquals(to, rewrite.getTo());
+	}
+}
@@ -0,0 +1,35 @@
+package org.codehaus.openxma.mojo.multirelease.pojo;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class VersionCacheTest {
+
+	@Test
+	public void testIntern() {
+		VersionCache cache = new VersionCache(2);
+		Version version = cache.get("1.0");
+		assertSame(version, cache.get("1.0"));
+		assertNotSame(version, cache.get("1.0.0"));
+		assertEquals(version, cache.get("1.0.0"));
+		assertEquals(2, cache.getHits());
+		assertEquals(2, cache.getMisses());
+
+		// Full, further versions are parsed but not cached.
+		assertNotSame(cache.get("2.0"), cache.get("2.0"));
+		assertEquals(2, cache.size());
+		assertEquals(4, cache.getMisses());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void testValueOf() {
+		long hits = Version.getCache().getHits();
+		assertSame(Version.valueOf("7.1-rc-1"), Version.valueOf("7.1-rc-1"));
+		assertTrue(Version.getCache().getHits() > hits);
+	}
+}
@@ -1,5 +1,10 @@
 package org.codehaus.openxma.mojo.multirelease.pojo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -34,6 +39,19 @@ public class VersionTest {
 		assertEquals("2", version.getPoint());
 		assertEquals("", version.getSuffix());
 		assertEquals("a.1.2", version.toString());
+
+		version = Version.valueOf("1.3-SNAPSHOT");
+		assertEquals("1", version.getMajor());
+		assertEquals("3", version.getMinor());
+		assertEquals("", version.getPoint());
+		assertEquals("SNAPSHOT", version.getSuffix());
+		assertEquals("1.3-SNAPSHOT", version.toString());
+
+		version = Version.valueOf("1.2.3.4-beta-2");
+		assertEquals("3.4", version.getPoint());
+		assertEquals("beta-2", version.getSuffix());
+
+		assertEquals("1.2.3-RC1", new Version("1", "2", "3", "-RC1").toString());
 	}
 	
 	@Test
@@ -57,5 +75,74 @@ public class VersionTest {
 		assertTrue(Version.valueOf("a.b.c").compareTo(Version.valueOf("a.b.c")) == 0);
 		
 		assertTrue(Version.valueOf("a").compareTo(Version.valueOf("a")) == 0);
+
+		assertTrue(Version.valueOf("1.10").compareTo(Version.valueOf("1.9")) > 0);
+
+		assertTrue(Version.valueOf("1.a").compareTo(Version.valueOf("1.1")) < 0);
+
+		assertTrue(Version.valueOf("1.3-SNAPSHOT").compareTo(Version.valueOf("1.3")) < 0);
+
+		assertTrue(Version.valueOf("1.3-RC1").compareTo(Version.valueOf("1.3-RC2")) < 0);
+
+		assertTrue(Version.valueOf("1.99999999999").compareTo(Version.valueOf("1.2")) > 0);
+
+		assertTrue(Version.valueOf("1.2.3.4").compareTo(Version.valueOf("1.2.3.5")) < 0);
+
+		assertTrue(Version.valueOf("2.0.0-RC1-hotfix").compareTo(Version.valueOf("2.0.0-RC1")) > 0);
+
+		assertTrue(Version.valueOf("1.0-alpha-1").compareTo(Version.valueOf("1.0-beta-1")) < 0);
+
+		assertTrue(Version.valueOf("1.0-rc-1").compareTo(Version.valueOf("1.0-SNAPSHOT")) < 0);
+
+		assertEquals(Version.valueOf("1.0.0"), Version.valueOf("1-ga"));
+		assertEquals(Version.valueOf("1.0.0").hashCode(), Version.valueOf("1-ga").hashCode());
+
+		assertTrue(Version.valueOf("1").compareTo(null) > 0);
+	}
+
+	/**
+	 * The order must match Maven's ComparableVersion, checked on its own examples and on random versions.
+	 */
+	@Test
+	public void testComparableVersion() {
+		List<String> values = new ArrayList<String>();
+		String[] examples = { "1-alpha2snapshot", "1-alpha2", "1-alpha-123", "1-beta-2", "1-beta123", "1-m2",
+				"1-m11", "1-rc", "1-cr2", "1-rc123", "1-SNAPSHOT", "1", "1-sp", "1-sp2", "1-sp123", "1-abc", "1-def",
+				"1-pom-1", "1-1-snapshot", "1-1", "1-2", "1-123", "2.0", "2-1", "2.0.a", "2.0.0.a", "2.0.2",
+				"2.0.123", "2.1.0", "2.1-a", "2.1b", "2.1-c", "2.1-1", "2.1.0.1", "2.2", "2.123", "11.a2", "11.a11",
+				"11.b2", "11.b11", "11.m2", "11.m11", "11", "11.a", "11b", "11c", "11m", "1.0-0-1", "1-0.1",
+				"1.0.0-final", "1-ga-1", "1.12345678901234567890", "1.012345678901234567890" };
+		for (String example : examples) {
+			values.add(example);
+		}
+		String[] tokens = { "0", "1", "2", "10", "00", "a", "b", "m", "alpha", "beta", "rc", "cr", "snapshot",
+				"ga", "final", "sp", "foo", "", "99999999999999999" };
+		String[] separators = { ".", "-", "" };
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			StringBuilder value = new StringBuilder(tokens[random.nextInt(tokens.length)]);
+			int segments = random.nextInt(6);
+			for (int j = 0; j < segments; j++) {
+				value.append(separators[random.nextInt(separators.length)]);
+				value.append(tokens[random.nextInt(tokens.length)]);
+			}
+			if (value.toString().trim().length() > 0) {
+				values.add(value.toString());
+			}
+		}
+		ComparableVersion[] expected = new ComparableVersion[values.size()];
+		Version[] actual = new Version[values.size()];
+		for (int i = 0; i < values.size(); i++) {
+			expected[i] = new ComparableVersion(values.get(i));
+			actual[i] = Version.valueOf(values.get(i));
+		}
+		for (int i = 0; i < values.size(); i++) {
+			for (int j = 0; j < values.size(); j++) {
+				String message = values.get(i) + " <> " + values.get(j);
+				assertEquals(message, Integer.signum(expected[i].compareTo(expected[j])),
+						Integer.signum(actual[i].compareTo(actual[j])));
+				assertEquals(message, expected[i].equals(expected[j]), actual[i].equals(actual[j]));
+			}
+		}
 	}
 }
@@ -0,0 +1,59 @@
+package org.codehaus.openxma.mojo.multirelease.progress;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ProgressServerTest {
+
+	@Test
+	public void testLine() {
+		ProgressEvent event = new ProgressEvent(ProgressEvent.MOJO_FINISHED).set(ProgressEvent.PROJECT, "a:b")
+				.set(ProgressEvent.MOJO, "org.apache:surefire:test@default test").set(ProgressEvent.DURATION, 1200L)
+				.set(ProgressEvent.STATUS, null);
+		String line = event.toLine();
+		assertEquals(-1, line.indexOf('\n'));
+		ProgressEvent parsed = ProgressEvent.parse(line);
+		assertEquals(ProgressEvent.MOJO_FINISHED, parsed.getType());
+		assertEquals("a:b", parsed.get(ProgressEvent.PROJECT));
+		assertEquals("org.apache:surefire:test@default test", parsed.get(ProgressEvent.MOJO));
+		assertEquals(1200, parsed.getLong(ProgressEvent.DURATION));
+		assertNull(parsed.get(ProgressEvent.STATUS));
+		assertEquals(0, parsed.getLong(ProgressEvent.STATUS));
+		assertNull(ProgressEvent.parse(" "));
+	}
+
+	@Test
+	public void testServer() throws Exception {
+		final BlockingQueue<ProgressEvent> events = new LinkedBlockingQueue<ProgressEvent>();
+		ProgressServer server = new ProgressServer(new ProgressListener() {
+
+			public void onEvent(ProgressEvent event) {
+				events.add(event);
+			}
+		});
+		try {
+			Socket socket = new Socket(InetAddress.getByName(null), server.getPort());
+			Writer writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+			writer.write(new ProgressEvent(ProgressEvent.TESTS).set(ProgressEvent.TESTS_RUN, 3L).toLine() + "\n\n");
+			writer.write(new ProgressEvent(ProgressEvent.DEPLOYED).set(ProgressEvent.BYTES, 42L).toLine() + "\n");
+			writer.flush();
+			ProgressEvent tests = events.poll(10, TimeUnit.SECONDS);
+			assertEquals(ProgressEvent.TESTS, tests.getType());
+			assertEquals(3, tests.getLong(ProgressEvent.TESTS_RUN));
+			ProgressEvent deployed = events.poll(10, TimeUnit.SECONDS);
+			assertEquals(42, deployed.getLong(ProgressEvent.BYTES));
+			socket.close();
+		} finally {
+			server.close();
+		}
+	}
+}
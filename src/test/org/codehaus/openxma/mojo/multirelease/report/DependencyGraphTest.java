@@ -0,0 +1,87 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.scheduler.BuildHistory;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyGraphTest {
+
+	private final MavenProject coreApi = createProject("core-api");
+
+	private final DependencyMapper core = new DependencyMapper(createProject("core"));
+
+	private final DependencyMapper app = new DependencyMapper(createProject("app", coreApi));
+
+	private final DependencyMapper web = new DependencyMapper(createProject("web", app.getMavenProject(), coreApi));
+
+	private DependencyGraph graph;
+
+	@Before
+	public void setUp() throws Exception {
+		core.getChildProject().add(coreApi);
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>(Arrays.asList(core, app, web));
+		new DependencyResolver().getBuildOrder(projects);
+		BuildHistory history = new BuildHistory(new File("target/DependencyGraphTest/history.properties"));
+		history.recordPhase(BuildHistory.getKey(core), BuildHistory.PREPARE, 65000);
+		graph = new DependencyGraph(projects, history);
+	}
+
+	@Test
+	public void testDegrees() {
+		assertEquals(0, graph.getUpstreamProjects().get(core).size());
+		assertEquals(2, graph.getDownstreamProjects().get(core).size());
+		assertEquals(2, graph.getUpstreamProjects().get(web).size());
+		assertEquals(2, graph.countDependents(core));
+		assertEquals(1, graph.countDependents(app));
+		assertEquals(0, graph.countDependents(web));
+	}
+
+	@Test
+	public void testDot() throws Exception {
+		StringWriter writer = new StringWriter();
+		graph.writeDot(writer);
+		String dot = writer.toString();
+		assertTrue(dot.startsWith("digraph multirelease {"));
+		assertTrue(dot.contains("\"org.example:core\" [label=\"org.example:core\\nin 0, out 2, dependents 2"
+				+ "\\nprepare 0:01:05\"];"));
+		assertTrue(dot.contains("\"org.example:core-api\" -> \"org.example:web\" "
+				+ "[label=\"org.example:core-api:1.0-SNAPSHOT\"];"));
+		assertTrue(dot.contains("\"org.example:app\" -> \"org.example:web\""));
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		StringWriter writer = new StringWriter();
+		graph.writeJson(writer);
+		String json = writer.toString();
+		assertTrue(json.contains("{\"id\": \"org.example:core\", \"version\": \"1.0-SNAPSHOT\", "
+				+ "\"modules\": [\"org.example:core-api\"], \"inDegree\": 0, \"outDegree\": 2, \"dependents\": 2, "
+				+ "\"durations\": {\"prepare\": 65000}}"));
+		assertTrue(json.contains("{\"from\": \"org.example:core\", \"to\": \"org.example:app\", "
+				+ "\"module\": \"org.example:core-api\", \"kinds\": [\"dependency\"], "
+				+ "\"dependencies\": [\"org.example:core-api:1.0-SNAPSHOT\"]}"));
+	}
+
+	@Test
+	public void testMermaid() throws Exception {
+		StringWriter writer = new StringWriter();
+		graph.writeMermaid(writer);
+		String mermaid = writer.toString();
+		assertTrue(mermaid.startsWith("flowchart LR\n"));
+		assertTrue(mermaid.contains("p0m0([\"org.example:core-api\"])"));
+		assertTrue(mermaid.contains("p0m0 -->|\"org.example:core-api:1.0-SNAPSHOT\"| p1"));
+		assertTrue(mermaid.contains("p1 -->|\"org.example:app:1.0-SNAPSHOT\"| p2"));
+	}
+}
@@ -0,0 +1,35 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class OpenMetricsExporterTest {
+
+	@Test
+	public void testWrite() throws Exception {
+		ReleaseMetrics metrics = new ReleaseMetrics();
+		metrics.setExecution("org.example:project-a", 1000, 61500);
+		metrics.setStatus("org.example:project-a", ReleaseMetrics.FINISHED);
+		metrics.increment("org.example:project-a", ReleaseMetrics.CHILD_PROCESSES, 2);
+		metrics.increment("org.example:project-a", ReleaseMetrics.OUTPUT_BYTES, 4096);
+		metrics.setStatus("org.example:project-\"b\"", ReleaseMetrics.FAILED);
+		metrics.finish();
+
+		StringWriter writer = new StringWriter();
+		new OpenMetricsExporter("release", metrics).write(writer);
+		String text = writer.toString();
+		String labels = "{goal=\"release\",groupId=\"org.example\",artifactId=\"project-a\"}";
+		assertTrue(text.contains("# TYPE multirelease_project_duration_seconds gauge\n"
+				+ "# UNIT multirelease_project_duration_seconds seconds\n"));
+		assertTrue(text.contains("multirelease_project_duration_seconds" + labels + " 60.5\n"));
+		assertTrue(text.contains("multirelease_child_processes" + labels + " 2\n"));
+		assertTrue(text.contains("multirelease_output_bytes" + labels + " 4096\n"));
+		assertTrue(text.contains("multirelease_project_success" + labels + " 1\n"));
+		assertTrue(text.contains("multirelease_project_success{goal=\"release\",groupId=\"org.example\","
+				+ "artifactId=\"project-\\\"b\\\"\"} 0\n"));
+		assertTrue(text.endsWith("# EOF\n"));
+	}
+}
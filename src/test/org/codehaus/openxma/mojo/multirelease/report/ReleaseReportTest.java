@@ -0,0 +1,49 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class ReleaseReportTest {
+
+	@Test
+	public void testJson() throws Exception {
+		ReleaseMetrics metrics = new ReleaseMetrics();
+		metrics.record(ReleaseMetrics.GRAPH_BUILD, System.currentTimeMillis());
+		metrics.addProject("a:project-a");
+		metrics.record("a:project-a", ReleaseMetrics.PRE_REWRITE, System.currentTimeMillis());
+		metrics.setStatus("a:project-a", ReleaseMetrics.FINISHED);
+		metrics.setValue("a:project-a", "releaseVersion", "1.0 \"final\"");
+		metrics.setStatus("a:project-b", ReleaseMetrics.SKIPPED);
+		metrics.increment(ReleaseMetrics.VERSION_CACHE_HITS, 3);
+		metrics.increment(ReleaseMetrics.VERSION_CACHE_HITS, 2);
+		metrics.finish();
+
+		StringWriter writer = new StringWriter();
+		new ReleaseReport("release", metrics).writeJson(writer);
+		String json = writer.toString();
+		assertTrue(json.contains("\"goal\": \"release\""));
+		assertTrue(json.contains("\"steps\": {\"graphBuild\": "));
+		assertTrue(json.contains("\"counters\": {\"versionCacheHits\": 5}"));
+		assertTrue(json.contains("{\"project\": \"a:project-a\", \"status\": \"finished\", "
+				+ "\"releaseVersion\": \"1.0 \\\"final\\\"\", \"steps\": {\"preRewrite\": "));
+		assertTrue(json.contains("{\"project\": \"a:project-b\", \"status\": \"skipped\", \"steps\": {}}"));
+		assertTrue(json.indexOf("project-a") < json.indexOf("project-b"));
+	}
+
+	@Test
+	public void testSummary() throws Exception {
+		ReleaseMetrics metrics = new ReleaseMetrics();
+		metrics.setExecution("a:project-a", 0, 3723000);
+		metrics.record("a:project-a", "prepare", System.currentTimeMillis() - 2000);
+		metrics.finish();
+
+		StringWriter writer = new StringWriter();
+		new ReleaseReport("release", metrics).writeSummary(writer);
+		assertTrue(writer.toString().contains("a:project-a"));
+		assertTrue(writer.toString().contains("1:02:03 (prepare 0:00:02)"));
+		assertEquals("1:02:03", ReleaseReport.formatDuration(3723000));
+	}
+}
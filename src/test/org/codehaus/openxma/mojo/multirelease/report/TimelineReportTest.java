@@ -0,0 +1,33 @@
+package org.codehaus.openxma.mojo.multirelease.report;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TimelineReportTest {
+
+	@Test
+	public void testTimeline() throws Exception {
+		ReleaseMetrics metrics = new ReleaseMetrics();
+		long now = System.currentTimeMillis();
+		metrics.setExecution("a:project-a", now - 60000, now - 30000);
+		metrics.record("a:project-a", "perform", now - 50000);
+		metrics.setExecution("a:project-<b>", now - 30000, now);
+		metrics.setUpstreamProjects("a:project-<b>", Arrays.asList("a:project-a"));
+		metrics.setCriticalPath(Arrays.asList("a:project-a", "a:project-<b>"));
+		metrics.finish();
+
+		StringWriter writer = new StringWriter();
+		new TimelineReport(metrics).write(writer);
+		String html = writer.toString();
+		assertTrue(html.startsWith("<!DOCTYPE html>"));
+		assertFalse(html.contains("<script"));
+		assertFalse(html.contains("href="));
+		assertTrue(html.contains("a:project-&lt;b&gt;"));
+		assertTrue(html.contains("<title>perform "));
+		assertTrue(html.contains("marker-end=\"url(#critical)\""));
+	}
+}
@@ -0,0 +1,242 @@
+package org.codehaus.openxma.mojo.multirelease.repository;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginManagement;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.fake.FakeResolveMojo;
+import org.codehaus.openxma.mojo.multirelease.fake.TestProjects;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyPrewarmerTest {
+
+	private File directory;
+
+	private File remoteRepository;
+
+	@Before
+	public void setUp() {
+		directory = new File(System.getProperty("java.io.tmpdir"), "multirelease-prewarm-" + System.nanoTime());
+		remoteRepository = new File(directory, "remote");
+		remoteRepository.mkdirs();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testCollect() {
+		DependencyPrewarmer prewarmer = new DependencyPrewarmer(createReactor());
+
+		Map<String, Dependency> dependencies = prewarmer.collectDependencies();
+		assertEquals(2, dependencies.size());
+		assertTrue(dependencies.containsKey("junit:junit:jar::4.8.1"));
+		assertTrue(dependencies.containsKey("commons-io:commons-io:jar::2.2"));
+
+		Map<String, Plugin> plugins = prewarmer.collectPlugins();
+		assertEquals(2, plugins.size());
+		assertTrue(plugins.containsKey("org.apache.maven.plugins:maven-jar-plugin:2.4"));
+		assertTrue(plugins.containsKey("org.apache.maven.plugins:maven-release-plugin:2.4.1"));
+	}
+
+	@Test
+	public void testWritePrewarmProject() throws Exception {
+		DependencyPrewarmer prewarmer = new DependencyPrewarmer(createReactor());
+		File pomFile = prewarmer.writePrewarmProject(new File(directory, "prewarm"), 8);
+
+		Model aggregator = readModel(pomFile);
+		// Not more batches than artifacts.
+		assertEquals(2, aggregator.getModules().size());
+		int dependencies = 0;
+		int plugins = 0;
+		for (Object module : aggregator.getModules()) {
+			Model batch = readModel(new File(new File(pomFile.getParentFile(), (String) module), "pom.xml"));
+			dependencies += batch.getDependencies().size();
+			plugins += batch.getBuild().getPlugins().size();
+			assertEquals(remoteRepository.toURI().toString(), batch.getRepositories().get(0).getUrl());
+		}
+		assertEquals(2, dependencies);
+		assertEquals(2, plugins);
+
+		String localRepository = new File(directory, "local").getAbsolutePath();
+		File settingsFile = new File(directory, "settings.xml");
+		prewarmer.setSettingsFile(settingsFile);
+		String command = prewarmer.getPrewarmCommand(pomFile, 2, localRepository);
+		assertTrue(command.startsWith("mvn -B -T 2 "));
+		assertTrue(command.contains("-f" + pomFile.getAbsolutePath()));
+		assertTrue(command.contains(" -s \"" + settingsFile.getAbsolutePath() + "\""));
+		assertTrue(command.endsWith("-Dmaven.repo.local=\"" + localRepository + "\""));
+	}
+
+	@Test
+	public void testNothingToResolve() throws Exception {
+		List<MavenProject> reactor = new ArrayList<MavenProject>();
+		reactor.add(createProject("a", "project-a"));
+		assertNull(new DependencyPrewarmer(reactor).writePrewarmProject(new File(directory, "prewarm"), 2));
+	}
+
+	/**
+	 * Resolves an artifact from a <tt>file://</tt> repository with a real Maven build, which needs <tt>mvn</tt> on the
+	 * path. The build has no access to Maven Central: all repositories are mirrored by the file repository, which
+	 * holds a {@link FakeResolveMojo stand-in} for the dependency plugin.
+	 */
+	@Test
+	public void testResolve() throws Exception {
+		assumeTrue(isOnPath("mvn"));
+		deployArtifact("c", "library-c", "1.0");
+		deployDependencyPlugin();
+		List<MavenProject> reactor = new ArrayList<MavenProject>();
+		MavenProject project = createProject("a", "project-a");
+		Dependency dependency = createDependency("c", "library-c", "1.0");
+		dependency.setType("pom");
+		project.getModel().addDependency(dependency);
+		reactor.add(project);
+
+		File localRepository = new File(directory, "local");
+		DependencyPrewarmer prewarmer = new DependencyPrewarmer(reactor);
+		prewarmer.setSettingsFile(writeSettings());
+		prewarmer.prewarm(new File(directory, "prewarm"), 1, localRepository.getAbsolutePath());
+		assertTrue(new File(localRepository, "c/library-c/1.0/library-c-1.0.pom").isFile());
+	}
+
+	private List<MavenProject> createReactor() {
+		MavenProject projectA = createProject("a", "project-a");
+		projectA.getModel().addDependency(createDependency("junit", "junit", "4.8.1"));
+		projectA.getModel().addDependency(createDependency("b", "project-b", "1.0-SNAPSHOT"));
+		Plugin plugin = new Plugin();
+		plugin.setGroupId("org.apache.maven.plugins");
+		plugin.setArtifactId("maven-jar-plugin");
+		plugin.setVersion("2.4");
+		projectA.getModel().getBuild().addPlugin(plugin);
+		Plugin managedPlugin = new Plugin();
+		managedPlugin.setGroupId("org.apache.maven.plugins");
+		managedPlugin.setArtifactId("maven-release-plugin");
+		managedPlugin.setVersion("2.4.1");
+		projectA.getModel().getBuild().setPluginManagement(new PluginManagement());
+		projectA.getModel().getBuild().getPluginManagement().addPlugin(managedPlugin);
+		// Also used by the build, collected once.
+		projectA.getModel().getBuild().getPluginManagement().addPlugin(plugin.clone());
+
+		MavenProject projectB = createProject("b", "project-b");
+		projectB.getModel().addDependency(createDependency("junit", "junit", "4.8.1"));
+		projectB.getModel().addDependency(createDependency("commons-io", "commons-io", "2.2"));
+		Dependency system = createDependency("com.sun", "tools", "1.5");
+		system.setScope("system");
+		projectB.getModel().addDependency(system);
+
+		List<MavenProject> reactor = new ArrayList<MavenProject>();
+		reactor.add(projectA);
+		reactor.add(projectB);
+		return reactor;
+	}
+
+	private MavenProject createProject(String groupId, String artifactId) {
+		MavenProject mavenProject = TestProjects.createProject(groupId, artifactId);
+		mavenProject.getModel().setBuild(new Build());
+		Repository repository = new Repository();
+		repository.setId("local-file");
+		repository.setUrl(remoteRepository.toURI().toString());
+		mavenProject.getModel().addRepository(repository);
+		return mavenProject;
+	}
+
+	private void deployArtifact(String groupId, String artifactId, String version) throws Exception {
+		Model model = createModel(groupId, artifactId, version);
+		model.setPackaging("pom");
+		writePom(TestProjects.createProject(model), new File(remoteRepository, groupId.replace('.', '/') + "/"
+				+ artifactId + "/" + version + "/" + artifactId + "-" + version + ".pom"));
+	}
+
+	/**
+	 * Deploys a plugin with the coordinates of the dependency plugin, whose goals only let Maven resolve the
+	 * dependencies of the project.
+	 */
+	private void deployDependencyPlugin() throws Exception {
+		String[] coordinates = DependencyPrewarmer.DEPENDENCY_PLUGIN.split(":");
+		Model model = createModel(coordinates[0], coordinates[1], coordinates[2]);
+		model.setPackaging("maven-plugin");
+		File directory = new File(remoteRepository, coordinates[0].replace('.', '/') + "/" + coordinates[1] + "/"
+				+ coordinates[2]);
+		String fileName = coordinates[1] + "-" + coordinates[2];
+		writePom(TestProjects.createProject(model), new File(directory, fileName + ".pom"));
+
+		StringBuilder descriptor = new StringBuilder("<plugin><groupId>" + coordinates[0] + "</groupId><artifactId>"
+				+ coordinates[1] + "</artifactId><version>" + coordinates[2]
+				+ "</version><goalPrefix>dependency</goalPrefix><mojos>");
+		for (String goal : new String[] { "resolve", "resolve-plugins" }) {
+			descriptor.append("<mojo><goal>" + goal + "</goal><requiresDependencyResolution>test"
+					+ "</requiresDependencyResolution><implementation>" + FakeResolveMojo.class.getName()
+					+ "</implementation><language>java</language><instantiationStrategy>per-lookup"
+					+ "</instantiationStrategy><threadSafe>true</threadSafe></mojo>");
+		}
+		descriptor.append("</mojos><dependencies/></plugin>");
+		String className = FakeResolveMojo.class.getName().replace('.', '/') + ".class";
+		JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(new File(directory, fileName
+				+ ".jar")));
+		try {
+			jarOutputStream.putNextEntry(new JarEntry("META-INF/maven/plugin.xml"));
+			jarOutputStream.write(descriptor.toString().getBytes("UTF-8"));
+			jarOutputStream.putNextEntry(new JarEntry(className));
+			InputStream inputStream = getClass().getClassLoader().getResourceAsStream(className);
+			try {
+				IOUtil.copy(inputStream, jarOutputStream);
+			} finally {
+				inputStream.close();
+			}
+		} finally {
+			jarOutputStream.close();
+		}
+	}
+
+	/**
+	 * Writes settings mirroring all repositories by the file repository.
+	 */
+	private File writeSettings() throws Exception {
+		File settingsFile = new File(directory, "settings.xml");
+		FileUtils.fileWrite(settingsFile.getPath(), "<settings><mirrors><mirror><id>file</id><mirrorOf>*</mirrorOf>"
+				+ "<url>" + remoteRepository.toURI() + "</url></mirror></mirrors></settings>");
+		return settingsFile;
+	}
+
+	private boolean isOnPath(String command) {
+		for (String path : System.getenv("PATH").split(File.pathSeparator)) {
+			if (new File(path, command).canExecute()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Model readModel(File pomFile) throws Exception {
+		FileInputStream fileInputStream = new FileInputStream(pomFile);
+		try {
+			return new MavenXpp3Reader().read(fileInputStream);
+		} finally {
+			fileInputStream.close();
+		}
+	}
+}
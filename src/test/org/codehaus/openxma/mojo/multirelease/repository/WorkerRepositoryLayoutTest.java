@@ -0,0 +1,84 @@
+package org.codehaus.openxma.mojo.multirelease.repository;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorkerRepositoryLayoutTest {
+
+	private File directory;
+
+	private File base;
+
+	private WorkerRepositoryLayout layout;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = new File(System.getProperty("java.io.tmpdir"), "multirelease-layout-" + System.nanoTime());
+		base = new File(directory, "base");
+		write(new File(base, "junit/junit/4.8.1/junit-4.8.1.jar"), "junit");
+		write(new File(base, "junit/junit/maven-metadata-local.xml"), "metadata");
+		write(new File(base, "a/project-a/1.0-SNAPSHOT/project-a-1.0-SNAPSHOT.jar"), "old");
+		layout = new WorkerRepositoryLayout(base, new File(directory, "workers"));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testPrepare() throws Exception {
+		layout.prepare(0, createMapper("a", "project-a"));
+		File repository = layout.getRepository(0);
+
+		File jar = new File(repository, "junit/junit/4.8.1/junit-4.8.1.jar");
+		assertTrue(jar.exists());
+		assertTrue(Files.isSameFile(jar.toPath(), new File(base, "junit/junit/4.8.1/junit-4.8.1.jar").toPath()));
+		// Metadata is copied, the worker may update it.
+		File metadata = new File(repository, "junit/junit/maven-metadata-local.xml");
+		assertEquals("metadata", FileUtils.fileRead(metadata));
+		assertFalse(Files.isSameFile(metadata.toPath(), new File(base, "junit/junit/maven-metadata-local.xml")
+				.toPath()));
+		// The artifacts of the project built by the worker are not linked.
+		assertFalse(new File(repository, "a/project-a").exists());
+	}
+
+	@Test
+	public void testPublish() throws Exception {
+		DependencyMapper projectA = createMapper("a", "project-a");
+		layout.prepare(0, projectA);
+		layout.prepare(1, createMapper("b", "project-b"));
+
+		String path = "a/project-a/1.0-SNAPSHOT/project-a-1.0-SNAPSHOT.jar";
+		write(new File(layout.getRepository(0), path), "new");
+		layout.publish(0, projectA);
+		assertEquals("new", FileUtils.fileRead(new File(base, path)));
+		// The second worker still sees the old artifact until its next project starts.
+		assertEquals("old", FileUtils.fileRead(new File(layout.getRepository(1), path)));
+
+		layout.prepare(1, createMapper("c", "project-c"));
+		assertEquals("new", FileUtils.fileRead(new File(layout.getRepository(1), path)));
+	}
+
+	@Test
+	public void testCheckLinks() throws Exception {
+		layout.checkLinks();
+		// The probe is removed again.
+		assertEquals(2, base.list().length);
+		assertEquals(0, new File(directory, "workers").list().length);
+	}
+
+	private void write(File file, String content) throws Exception {
+		file.getParentFile().mkdirs();
+		FileUtils.fileWrite(file.getAbsolutePath(), content);
+	}
+}
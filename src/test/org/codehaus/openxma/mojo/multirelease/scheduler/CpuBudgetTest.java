@@ -0,0 +1,50 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class CpuBudgetTest {
+
+	@Test
+	public void testParallelFraction() {
+		BuildHistory history = new BuildHistory(new File("history.properties"));
+		assertTrue(history.getParallelFraction("a:project-a") < 0);
+		assertEquals(Integer.MAX_VALUE, history.getUsefulThreads("a:project-a", 0.5));
+
+		// 90% of the build runs in parallel: 100s with one thread, 10 + 90 / 4 = 32.5s with four.
+		history.recordBuild("a:project-a", 1, 100000);
+		history.recordBuild("a:project-a", 4, 32500);
+		assertEquals(0.9, history.getParallelFraction("a:project-a"), 0.001);
+		assertEquals(11, history.getUsefulThreads("a:project-a", 0.5));
+
+		// No speedup at all.
+		history.recordBuild("b:project-b", 2, 60000);
+		history.recordBuild("b:project-b", 8, 60000);
+		assertEquals(0.0, history.getParallelFraction("b:project-b"), 0.001);
+		assertEquals(2, history.getUsefulThreads("b:project-b", 0.5));
+	}
+
+	@Test
+	public void testAcquire() {
+		BuildHistory history = new BuildHistory(new File("history.properties"));
+		history.recordBuild("b:project-b", 2, 60000);
+		history.recordBuild("b:project-b", 8, 60000);
+		CpuBudget cpuBudget = new CpuBudget(32, history);
+
+		// Fair share of the cores.
+		assertEquals(16, cpuBudget.acquire(0, createMapper("a", "project-a"), 2));
+		// Limited by the speedup of previous builds.
+		assertEquals(2, cpuBudget.acquire(1, createMapper("b", "project-b"), 2));
+		assertEquals(14, cpuBudget.acquire(2, createMapper("c", "project-c"), 1));
+		// Budget exhausted, still one thread.
+		assertEquals(1, cpuBudget.acquire(3, createMapper("d", "project-d"), 4));
+
+		cpuBudget.release(0);
+		assertEquals(0, cpuBudget.getThreads(0));
+		assertEquals(8, cpuBudget.acquire(0, createMapper("e", "project-e"), 4));
+	}
+}
@@ -0,0 +1,65 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.junit.Test;
+
+public class CriticalPathTest {
+
+	@Test
+	public void testRemaining() {
+		DependencyMapper a = createMapper("a", "project-a");
+		DependencyMapper b = createMapper("a", "project-b");
+		DependencyMapper c = createMapper("a", "project-c");
+		DependencyMapper d = createMapper("a", "project-d");
+		List<DependencyMapper> projects = Arrays.asList(a, b, c, d);
+
+		// b and c depend on a, d depends on c.
+		Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects =
+				new HashMap<DependencyMapper, Set<DependencyMapper>>();
+		upstreamProjects.put(a, new HashSet<DependencyMapper>());
+		upstreamProjects.put(b, new LinkedHashSet<DependencyMapper>(Arrays.asList(a)));
+		upstreamProjects.put(c, new LinkedHashSet<DependencyMapper>(Arrays.asList(a)));
+		upstreamProjects.put(d, new LinkedHashSet<DependencyMapper>(Arrays.asList(c)));
+
+		Map<DependencyMapper, Long> durations = new HashMap<DependencyMapper, Long>();
+		durations.put(a, Long.valueOf(10));
+		durations.put(b, Long.valueOf(50));
+		durations.put(c, Long.valueOf(20));
+		durations.put(d, Long.valueOf(40));
+
+		CriticalPath criticalPath = new CriticalPath(projects, upstreamProjects, durations);
+		assertEquals(70, criticalPath.getRemaining(a));
+		assertEquals(50, criticalPath.getRemaining(b));
+		assertEquals(60, criticalPath.getRemaining(c));
+		assertEquals(40, criticalPath.getRemaining(d));
+		assertEquals(70, criticalPath.getLength());
+		assertEquals(Arrays.asList(a, c, d), criticalPath.getPath());
+	}
+
+	@Test
+	public void testCycle() {
+		DependencyMapper a = createMapper("a", "project-a");
+		DependencyMapper b = createMapper("a", "project-b");
+		Map<DependencyMapper, Set<DependencyMapper>> upstreamProjects =
+				new HashMap<DependencyMapper, Set<DependencyMapper>>();
+		upstreamProjects.put(a, new LinkedHashSet<DependencyMapper>(Arrays.asList(b)));
+		upstreamProjects.put(b, new LinkedHashSet<DependencyMapper>(Arrays.asList(a)));
+		Map<DependencyMapper, Long> durations = new HashMap<DependencyMapper, Long>();
+		durations.put(a, Long.valueOf(10));
+		durations.put(b, Long.valueOf(20));
+
+		CriticalPath criticalPath = new CriticalPath(Arrays.asList(a, b), upstreamProjects, durations);
+		assertEquals(30, criticalPath.getLength());
+	}
+}
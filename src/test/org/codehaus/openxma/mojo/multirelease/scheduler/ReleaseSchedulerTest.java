@@ -0,0 +1,139 @@
+package org.codehaus.openxma.mojo.multirelease.scheduler;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.codehaus.openxma.mojo.multirelease.exception.ProjectExecutionException;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.CancelHandler;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.FailurePolicy;
+import org.codehaus.openxma.mojo.multirelease.scheduler.ReleaseScheduler.ProjectTask;
+import org.codehaus.openxma.mojo.multirelease.util.DependencyMapper;
+import org.junit.Test;
+
+public class ReleaseSchedulerTest {
+
+	private final DependencyMapper a = createMapper("a", "project-a");
+
+	private final DependencyMapper b = createMapper("a", "project-b");
+
+	private final DependencyMapper c = createMapper("a", "project-c");
+
+	private final DependencyMapper d = createMapper("a", "project-d");
+
+	/**
+	 * a fails, b depends on a, c and d are independent.
+	 */
+	private final List<DependencyMapper> projects = Arrays.asList(a, b, c, d);
+
+	public ReleaseSchedulerTest() {
+		b.addDependencyProject(a.getMavenProject());
+	}
+
+	@Test
+	public void testDrain() throws Exception {
+		ReleaseScheduler scheduler = new ReleaseScheduler(projects, 1);
+		scheduler.setFailurePolicy(FailurePolicy.DRAIN);
+		assertFailure(scheduler, createFailingTask(null));
+		assertEquals(new HashSet<DependencyMapper>(Arrays.asList(a)), scheduler.getFailedProjects());
+		assertTrue(scheduler.getFinishedProjects().isEmpty());
+		assertEquals(Arrays.asList(b, c, d), Arrays.asList(scheduler.getSkippedProjects().toArray()));
+	}
+
+	@Test
+	public void testContinue() throws Exception {
+		ReleaseScheduler scheduler = new ReleaseScheduler(projects, 2);
+		scheduler.setFailurePolicy(FailurePolicy.CONTINUE);
+		assertFailure(scheduler, createFailingTask(null));
+		assertEquals(new HashSet<DependencyMapper>(Arrays.asList(c, d)), scheduler.getFinishedProjects());
+		assertEquals(new HashSet<DependencyMapper>(Arrays.asList(b)), scheduler.getSkippedProjects());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		ReleaseScheduler scheduler = new ReleaseScheduler(projects, 2);
+		scheduler.setFailurePolicy(FailurePolicy.CANCEL);
+		scheduler.setCancelHandler(new CancelHandler() {
+
+			public void cancel(DependencyMapper dependencyMapper, int worker) {
+				cancelled.countDown();
+			}
+		});
+		assertFailure(scheduler, createFailingTask(new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) throws Exception {
+				// The second project runs until it is cancelled.
+				started.countDown();
+				cancelled.await();
+				throw new IllegalStateException("cancelled");
+			}
+		}, started));
+		assertEquals(new HashSet<DependencyMapper>(Arrays.asList(a, c)), scheduler.getFailedProjects());
+		assertEquals(new HashSet<DependencyMapper>(Arrays.asList(b, d)), scheduler.getSkippedProjects());
+	}
+
+	@Test
+	public void testBuildOrderWithoutHistory() throws Exception {
+		// On the critical path a and b would come before c.
+		ReleaseScheduler scheduler = new ReleaseScheduler(Arrays.asList(c, a, b), 1);
+		scheduler.setEstimatedDurations(Collections.<DependencyMapper, Long> emptyMap());
+		final List<DependencyMapper> started = new ArrayList<DependencyMapper>();
+		scheduler.execute(new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) {
+				started.add(dependencyMapper);
+			}
+		});
+		assertEquals(Arrays.asList(c, a, b), started);
+
+		scheduler = new ReleaseScheduler(Arrays.asList(c, a, b), 1);
+		scheduler.setEstimatedDurations(Collections.singletonMap(c, Long.valueOf(10)));
+		started.clear();
+		scheduler.execute(new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) {
+				started.add(dependencyMapper);
+			}
+		});
+		// a and b are weighted with the duration of c.
+		assertEquals(Arrays.asList(a, c, b), started);
+	}
+
+	private void assertFailure(ReleaseScheduler scheduler, ProjectTask task) {
+		try {
+			scheduler.execute(task);
+			fail("Failure expected");
+		} catch (ProjectExecutionException e) {
+			assertSame(a, e.getProject());
+		}
+	}
+
+	private ProjectTask createFailingTask(ProjectTask other) {
+		return createFailingTask(other, new CountDownLatch(0));
+	}
+
+	/**
+	 * Creates a task in which project a fails once the latch is released, other projects execute the given task.
+	 */
+	private ProjectTask createFailingTask(final ProjectTask other, final CountDownLatch latch) {
+		return new ProjectTask() {
+
+			public void execute(DependencyMapper dependencyMapper, int worker) throws Exception {
+				if (dependencyMapper == a) {
+					latch.await();
+					throw new IllegalStateException("failed");
+				} else if (other != null) {
+					other.execute(dependencyMapper, worker);
+				}
+			}
+		};
+	}
+}
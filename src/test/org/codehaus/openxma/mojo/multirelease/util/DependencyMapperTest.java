@@ -0,0 +1,68 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class DependencyMapperTest {
+
+	@Test
+	public void testRootProjects() {
+		MavenProject core = createProject("core");
+		MavenProject coreApi = createProject("core-api");
+		coreApi.setParent(core);
+		MavenProject coreImpl = createProject("core-impl");
+		coreImpl.setParent(core);
+		MavenProject commons = createProject("commons");
+
+		DependencyMapper app = new DependencyMapper(createProject("app"));
+		app.addDependencyProject(coreApi, new Dependency());
+		app.addDependencyProject(coreImpl, new Dependency());
+		app.resolveRootProjects();
+		assertEquals(1, app.getRootProjectCount());
+		assertEquals(Arrays.asList(core), Arrays.asList(app.getRootProjects().toArray()));
+
+		DependencyMapper web = new DependencyMapper(createProject("web"));
+		assertEquals(0, web.getRootProjectCount());
+		assertTrue(web.compareTo(app) < 0);
+
+		// Adding a dependency invalidates the memoized roots.
+		app.addDependencyProject(commons, new Dependency());
+		assertEquals(2, app.getRootProjectCount());
+		assertTrue(app.compareTo(web) > 0);
+	}
+
+	@Test
+	public void testDistinctEdges() {
+		MavenProject core = createProject("core");
+		Dependency jar = new Dependency();
+		Dependency testJar = new Dependency();
+		testJar.setType("test-jar");
+
+		DependencyMapper app = new DependencyMapper(createProject("app"));
+		app.addDependencyProject(core, jar);
+		app.addDependencyProject(core, testJar);
+		app.addDependencyProject(core);
+		assertEquals(Arrays.asList(core), app.getDependencyProject());
+		assertEquals(Arrays.asList(jar, testJar), app.getDependencyCauses(core));
+
+		// The edges survive the release changing the version of the project.
+		core.setVersion("1.0");
+		assertEquals(Arrays.asList(jar, testJar), app.getDependencyCauses(core));
+		assertEquals(EnumSet.of(DependencyKind.DEPENDENCY), app.getDependencyKinds(core));
+		// A different project with the same coordinates is another edge.
+		assertTrue(app.getDependencyCauses(createProject(GROUP_ID, "core", "1.0")).isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testUnmodifiableEdges() {
+		DependencyMapper app = new DependencyMapper(createProject("app"));
+		app.getDependencyProject().add(createProject("core"));
+	}
+}
@@ -0,0 +1,79 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class DependencyResolverTest {
+
+	@Test
+	public void testKinds() {
+		MavenProject parent = createProject("parent");
+		MavenProject bom = createProject("bom");
+		MavenProject plugin = createProject("plugin");
+		MavenProject extension = createProject("extension");
+		MavenProject core = createProject("core");
+		MavenProject coreApi = createProject("core-api");
+		MavenProject app = createProject("app");
+		Model model = app.getOriginalModel();
+
+		Parent appParent = new Parent();
+		appParent.setGroupId("org.example");
+		appParent.setArtifactId("parent");
+		model.setParent(appParent);
+		model.setDependencyManagement(new DependencyManagement());
+		Dependency importBom = createDependency("${project.groupId}", "bom", VERSION);
+		importBom.setScope("import");
+		importBom.setType("pom");
+		model.getDependencyManagement().addDependency(importBom);
+		model.setBuild(new Build());
+		Plugin buildPlugin = new Plugin();
+		buildPlugin.setGroupId("org.example");
+		buildPlugin.setArtifactId("plugin");
+		buildPlugin.addDependency(createDependency(GROUP_ID, "core-api", VERSION));
+		model.getBuild().addPlugin(buildPlugin);
+		Extension buildExtension = new Extension();
+		buildExtension.setGroupId("org.example");
+		buildExtension.setArtifactId("extension");
+		model.getBuild().addExtension(buildExtension);
+		// The module of app depends on core through a property.
+		MavenProject appModule = createProject("app-module");
+		appModule.getOriginalModel().addProperty("core.groupId", "org.example");
+		appModule.getOriginalModel().addDependency(createDependency("${core.groupId}", "core-api", VERSION));
+
+		DependencyMapper appMapper = new DependencyMapper(app);
+		appMapper.getChildProject().add(appModule);
+		DependencyMapper coreMapper = new DependencyMapper(core);
+		coreMapper.getChildProject().add(coreApi);
+		List<DependencyMapper> projects = new ArrayList<DependencyMapper>(Arrays.asList(appMapper, coreMapper,
+				new DependencyMapper(parent), new DependencyMapper(bom), new DependencyMapper(plugin),
+				new DependencyMapper(extension)));
+		new DependencyResolver().getBuildOrder(projects);
+
+		assertSame(appMapper, projects.get(projects.size() - 1));
+		assertEquals(Arrays.asList(parent, bom, coreApi, plugin, extension), appMapper.getDependencyProject());
+		assertEquals(EnumSet.of(DependencyKind.PARENT), appMapper.getDependencyKinds(parent));
+		assertEquals(EnumSet.of(DependencyKind.IMPORT), appMapper.getDependencyKinds(bom));
+		assertEquals(EnumSet.of(DependencyKind.DEPENDENCY, DependencyKind.PLUGIN),
+				appMapper.getDependencyKinds(coreApi));
+		assertEquals(2, appMapper.getDependencyCauses(coreApi).size());
+		assertEquals(EnumSet.of(DependencyKind.PLUGIN), appMapper.getDependencyKinds(plugin));
+		assertEquals(EnumSet.of(DependencyKind.EXTENSION), appMapper.getDependencyKinds(extension));
+		assertEquals("maven-plugin", appMapper.getDependencyCauses(plugin).get(0).getType());
+		assertTrue(coreMapper.getDependencyProject().isEmpty());
+	}
+}
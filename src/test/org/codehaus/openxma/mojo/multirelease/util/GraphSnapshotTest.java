@@ -0,0 +1,157 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphSnapshotTest {
+
+	private final File directory = new File("target/GraphSnapshotTest");
+
+	private final File file = new File(directory, GraphSnapshot.FILE);
+
+	private MavenProject core;
+
+	private MavenProject coreApi;
+
+	private MavenProject app;
+
+	private MavenProject web;
+
+	@Before
+	public void setUp() throws Exception {
+		FileUtils.deleteDirectory(directory);
+		directory.mkdirs();
+		core = writePom(createProject("core"), new File(directory, "core.xml"));
+		coreApi = writePom(createProject("core-api"), new File(directory, "core-api.xml"));
+		app = writePom(createProject("app", coreApi), new File(directory, "app.xml"));
+		web = writePom(createProject("web", app, coreApi), new File(directory, "web.xml"));
+		// Referenced twice, as jar and as test-jar.
+		Dependency testJar = web.getOriginalModel().getDependencies().get(1).clone();
+		testJar.setType("test-jar");
+		web.getOriginalModel().addDependency(testJar);
+	}
+
+	@Test
+	public void testRestore() throws Exception {
+		List<DependencyMapper> resolved = resolve();
+		assertTrue(getChanged().isEmpty());
+
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		List<DependencyMapper> restored = createMappers();
+		snapshot.load(restored);
+		assertEquals(3, snapshot.getUnchangedProjects());
+		assertTrue(snapshot.getChangedProjects().isEmpty());
+		new DependencyResolver().getBuildOrder(restored, snapshot);
+		assertSameGraph(resolved, restored);
+		assertEquals(2, restored.get(2).getDependencyCauses(coreApi).size());
+	}
+
+	@Test
+	public void testRestoreWithoutReferences() throws Exception {
+		List<DependencyMapper> resolved = resolve();
+		// Not written to the POM, so the edges of web are restored from the stored references.
+		web.getOriginalModel().getDependencies().clear();
+		// Same content with another modification time is hashed and still unchanged.
+		app.getFile().setLastModified(app.getFile().lastModified() - 10000);
+
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		List<DependencyMapper> restored = createMappers();
+		snapshot.load(restored);
+		assertEquals(3, snapshot.getUnchangedProjects());
+		new DependencyResolver().getBuildOrder(restored, snapshot);
+		assertSameGraph(resolved, restored);
+		snapshot.save(restored);
+
+		snapshot = new GraphSnapshot(file);
+		restored = createMappers();
+		snapshot.load(restored);
+		new DependencyResolver().getBuildOrder(restored, snapshot);
+		assertSameGraph(resolved, restored);
+	}
+
+	@Test
+	public void testChangedPom() throws Exception {
+		resolve();
+		// web no longer depends on app.
+		web.getOriginalModel().getDependencies().remove(0);
+		FileUtils.fileWrite(web.getFile().getPath(), "<project>web changed</project>");
+
+		assertEquals(Arrays.asList("org.example:web"), getChanged());
+		List<DependencyMapper> expected = createMappers();
+		new DependencyResolver().getBuildOrder(expected);
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		List<DependencyMapper> restored = createMappers();
+		snapshot.load(restored);
+		new DependencyResolver().getBuildOrder(restored, snapshot);
+		assertSameGraph(expected, restored);
+		assertEquals(Arrays.asList(coreApi), restored.get(2).getDependencyProject());
+	}
+
+	@Test
+	public void testOtherFormat() throws Exception {
+		FileUtils.fileWrite(file.getPath(), "not a snapshot");
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		List<DependencyMapper> projects = createMappers();
+		snapshot.load(projects);
+		assertEquals(0, snapshot.getUnchangedProjects());
+		assertEquals(3, snapshot.getChangedProjects().size());
+	}
+
+	private List<DependencyMapper> resolve() throws Exception {
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		List<DependencyMapper> projects = createMappers();
+		snapshot.load(projects);
+		assertEquals(3, snapshot.getChangedProjects().size());
+		new DependencyResolver().getBuildOrder(projects, snapshot);
+		snapshot.save(projects);
+		assertTrue(file.isFile());
+		return projects;
+	}
+
+	private List<String> getChanged() throws Exception {
+		GraphSnapshot snapshot = new GraphSnapshot(file);
+		snapshot.load(createMappers());
+		return snapshot.getChangedProjects();
+	}
+
+	private List<DependencyMapper> createMappers() {
+		DependencyMapper coreMapper = new DependencyMapper(core);
+		coreMapper.getChildProject().add(coreApi);
+		return new ArrayList<DependencyMapper>(Arrays.asList(new DependencyMapper(web), new DependencyMapper(app),
+				coreMapper));
+	}
+
+	private void assertSameGraph(List<DependencyMapper> expected, List<DependencyMapper> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			DependencyMapper expectedMapper = expected.get(i);
+			DependencyMapper actualMapper = actual.get(i);
+			assertSame(expectedMapper.getMavenProject(), actualMapper.getMavenProject());
+			assertEquals(expectedMapper.getDependencyProject(), actualMapper.getDependencyProject());
+			for (MavenProject mavenProject : expectedMapper.getDependencyProject()) {
+				assertEquals(getCauses(expectedMapper, mavenProject), getCauses(actualMapper, mavenProject));
+				assertEquals(expectedMapper.getDependencyKinds(mavenProject),
+						actualMapper.getDependencyKinds(mavenProject));
+			}
+		}
+	}
+
+	private List<String> getCauses(DependencyMapper dependencyMapper, MavenProject mavenProject) {
+		List<String> causes = new ArrayList<String>();
+		for (Dependency dependency : dependencyMapper.getDependencyCauses(mavenProject)) {
+			causes.add(dependency.getManagementKey() + ":" + dependency.getVersion());
+		}
+		return causes;
+	}
+}
@@ -0,0 +1,52 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.exception.ProcessException;
+import org.codehaus.openxma.mojo.multirelease.launcher.ProcessLauncher;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class MavenReleasePluginExecutorTest {
+
+	@Test
+	public void testLocalRepositoryWithSpaces() throws Exception {
+		Assume.assumeTrue(new File("/bin/bash").exists());
+		final List<String> arguments = new ArrayList<String>();
+		// Prints the arguments of the command as the shell passes them instead of running Maven.
+		ProcessLauncher launcher = new ProcessLauncher() {
+
+			@Override
+			public void executeProcess(String command, String prefix, OutputListener listener) throws IOException,
+					ProcessException {
+				super.executeProcess("printf '%s\\n'" + command.substring("mvn".length()), prefix,
+						new OutputListener() {
+
+							public void onLine(String line) {
+								arguments.add(line);
+							}
+						});
+			}
+		};
+		MavenReleasePluginExecutor executor = new MavenReleasePluginExecutor(launcher);
+		File localRepository = new File("target/worker repositories/worker-1").getAbsoluteFile();
+		executor.setLocalRepository(localRepository);
+		executor.setBuildThreads(4);
+		MavenProject mavenProject = createProject("core");
+		mavenProject.getOriginalModel().setPomFile(new File("target/core/pom.xml").getAbsoluteFile());
+		executor.prepareRelease(mavenProject, Collections.<String, String> emptyMap());
+
+		assertTrue(arguments.toString(), arguments.contains("-Dmaven.repo.local=" + localRepository.getPath()));
+		// The release plugin splits the arguments of the forked builds at spaces outside of quotes.
+		assertTrue(arguments.toString(), arguments.contains("-Darguments=-Dmaven.repo.local=\""
+				+ localRepository.getPath() + "\" -T 4 -DforkCount=1"));
+	}
+}
@@ -0,0 +1,68 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.openxma.mojo.multirelease.fake.TestProjects;
+import org.junit.Test;
+
+public class ModelPropertyResolverTest {
+
+	@Test
+	public void testResolve() {
+		MavenProject parent = createProject("parent", null);
+		parent.getOriginalModel().addProperty("core.version", "1.0-SNAPSHOT");
+		parent.getOriginalModel().addProperty("api.version", "${core.version}");
+		MavenProject core = createProject("core", parent);
+		core.getOriginalModel().addProperty("commons.version", "${project.version}");
+		MavenProject coreApi = createProject("core-api", core);
+		coreApi.getOriginalModel().addProperty("core.version", "2.0-SNAPSHOT");
+
+		ModelPropertyResolver resolver = new ModelPropertyResolver();
+		assertEquals("1.0-SNAPSHOT", resolver.resolve(core, "${core.version}"));
+		assertEquals("2.0-SNAPSHOT", resolver.resolve(coreApi, "${core.version}"));
+		assertEquals("2.0-SNAPSHOT", resolver.resolve(coreApi, "${api.version}"));
+		assertEquals("1.1", resolver.resolve(coreApi, "${commons.version}"));
+		assertEquals("${missing}", resolver.resolve(core, "${missing}"));
+		assertSame(parent, resolver.getOwner(coreApi, "api.version"));
+		assertSame(coreApi, resolver.getOwner(coreApi, "core.version"));
+		assertNull(resolver.getOwner(core, "missing"));
+
+		resolver.setProperty(parent, "core.version", "1.0");
+		assertEquals("1.0", resolver.resolve(core, "${core.version}"));
+		assertEquals("2.0-SNAPSHOT", resolver.resolve(coreApi, "${core.version}"));
+		resolver.setProperty(core, "missing", "3.0");
+		assertSame(core, resolver.getOwner(coreApi, "missing"));
+		assertEquals("3.0", resolver.resolve(coreApi, "${missing}"));
+
+		// Values using the coordinates follow the project.
+		coreApi.setVersion("1.2");
+		assertEquals("1.2", resolver.resolve(coreApi, "${commons.version}"));
+		assertEquals("org.example-1.2", resolver.resolve(coreApi, "${project.groupId}-${project.version}"));
+	}
+
+	@Test
+	public void testVersionedDependencies() {
+		MavenProject core = createProject("core", null);
+		Model model = core.getOriginalModel();
+		model.setDependencyManagement(new DependencyManagement());
+		model.getDependencyManagement().addDependency(createDependency(GROUP_ID, "managed", "${core.version}"));
+		model.addDependency(createDependency(GROUP_ID, "unversioned", null));
+		model.addDependency(createDependency(GROUP_ID, "versioned", "1.0"));
+
+		assertEquals("core.version", ModelPropertyResolver.getPropertyName("${core.version}"));
+		assertNull(ModelPropertyResolver.getPropertyName("1.0"));
+		assertEquals(2, ModelPropertyResolver.getVersionedDependencies(core).size());
+		assertEquals("managed", ModelPropertyResolver.getVersionedDependencies(core).get(0).getArtifactId());
+		assertEquals("versioned", ModelPropertyResolver.getVersionedDependencies(core).get(1).getArtifactId());
+	}
+
+	private MavenProject createProject(String artifactId, MavenProject parent) {
+		MavenProject mavenProject = TestProjects.createProject(GROUP_ID, artifactId, "1.1");
+		mavenProject.setParent(parent);
+		return mavenProject;
+	}
+}
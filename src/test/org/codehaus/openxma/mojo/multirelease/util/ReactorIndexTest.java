@@ -0,0 +1,35 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class ReactorIndexTest {
+
+	@Test
+	public void testLookup() {
+		File directory = new File("target/ReactorIndexTest");
+		MavenProject core = createProject("core");
+		core.setFile(new File(directory, "core/pom.xml"));
+		MavenProject coreApi = createProject("core-api");
+		coreApi.setFile(new File(directory, "core/core-api/pom.xml"));
+		MavenProject duplicate = createProject("core");
+		duplicate.setFile(new File(directory, "other/pom.xml"));
+		ReactorIndex index = new ReactorIndex(Arrays.asList(core, coreApi, duplicate));
+
+		assertTrue(index.contains("org.example", "core-api"));
+		assertFalse(index.contains("org.example", "app"));
+		assertFalse(index.contains("org.other", "core"));
+		assertSame(core, index.getProject("org.example:core"));
+		assertNull(index.getProject("org.example:app"));
+		assertSame(coreApi, index.getProject(new File(directory, "core/../core/core-api")));
+		assertSame(duplicate, index.getProject(new File(directory, "other")));
+		assertNull(index.getProject(directory));
+		assertEquals(Arrays.asList(core, coreApi, duplicate), index.getProjects());
+	}
+}
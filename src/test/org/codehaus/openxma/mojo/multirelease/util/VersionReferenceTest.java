@@ -0,0 +1,59 @@
+package org.codehaus.openxma.mojo.multirelease.util;
+
+import static org.codehaus.openxma.mojo.multirelease.fake.TestProjects.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Extension;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+public class VersionReferenceTest {
+
+	@Test
+	public void testVersionReferences() {
+		MavenProject app = createProject("app");
+		Model model = app.getOriginalModel();
+		Parent parent = new Parent();
+		parent.setGroupId(GROUP_ID);
+		parent.setArtifactId("parent");
+		parent.setVersion("1.0-SNAPSHOT");
+		model.setParent(parent);
+		addDependency(app, GROUP_ID, "core", "${core.version}");
+		Plugin plugin = new Plugin();
+		plugin.setGroupId(GROUP_ID);
+		plugin.setArtifactId("plugin");
+		plugin.setVersion("1.0-SNAPSHOT");
+		plugin.addDependency(createDependency(GROUP_ID, "rules", "1.0-SNAPSHOT"));
+		// Without version, managed elsewhere.
+		plugin.addDependency(createDependency(GROUP_ID, "unversioned", null));
+		model.setBuild(new Build());
+		model.getBuild().addPlugin(plugin);
+		Extension extension = new Extension();
+		extension.setGroupId(GROUP_ID);
+		extension.setArtifactId("extension");
+		extension.setVersion("1.0-SNAPSHOT");
+		model.getBuild().addExtension(extension);
+
+		List<VersionReference> references = VersionReference.getVersionReferences(app);
+		assertEquals(5, references.size());
+		String[] artifactIds = { "parent", "core", "plugin", "rules", "extension" };
+		DependencyKind[] kinds = { DependencyKind.PARENT, DependencyKind.DEPENDENCY, DependencyKind.PLUGIN,
+				DependencyKind.PLUGIN, DependencyKind.EXTENSION };
+		for (int i = 0; i < references.size(); i++) {
+			assertEquals(artifactIds[i], references.get(i).getArtifactId());
+			assertEquals(kinds[i], references.get(i).getKind());
+			references.get(i).setVersion("1.0");
+		}
+		assertEquals("1.0", parent.getVersion());
+		assertEquals("1.0", model.getDependencies().get(0).getVersion());
+		assertEquals("1.0", plugin.getVersion());
+		assertEquals("1.0", plugin.getDependencies().get(0).getVersion());
+		assertEquals("1.0", extension.getVersion());
+	}
+}